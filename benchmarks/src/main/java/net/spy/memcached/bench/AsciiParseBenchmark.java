@@ -0,0 +1,165 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.collection.BTreeGet;
+import net.spy.memcached.collection.BTreeGetBulkWithLongTypeBkey;
+import net.spy.memcached.ops.BTreeGetBulkOperation;
+import net.spy.memcached.ops.CollectionGetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.protocol.ascii.BTreeGetBulkOperationImpl;
+import net.spy.memcached.protocol.ascii.CollectionGetOperationImpl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * ASCII response parsing of b+tree get and b+tree bulk get.  The
+ * responses are fed to the operations from memory in chunks of the
+ * default read buffer size, the way the IO thread hands them over.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AsciiParseBenchmark {
+
+	private static final int READ_CHUNK = 16384;
+	private static final int BULK_KEYS = 16;
+
+	@Param({ "10", "100", "1000" })
+	public int elements;
+
+	@Param({ "32", "512" })
+	public int valueSize;
+
+	private byte[] getResponse;
+	private byte[] bulkResponse;
+	private String[] bulkKeys;
+
+	@Setup
+	public void setup() throws IOException {
+		Random rand = new Random(42);
+		byte[] value = new byte[valueSize];
+		for (int i = 0; i < value.length; i++) {
+			value[i] = (byte) ('a' + rand.nextInt(26));
+		}
+
+		// VALUE <flags> <count>, then <bkey> <bytes> <data> per element
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(("VALUE 0 " + elements + "\r\n").getBytes());
+		for (int i = 0; i < elements; i++) {
+			out.write((i + " " + valueSize + " ").getBytes());
+			out.write(value);
+			out.write("\r\n".getBytes());
+		}
+		out.write("END\r\n".getBytes());
+		getResponse = out.toByteArray();
+
+		// VALUE <key> OK <flags> <count>, then ELEMENT <bkey> <bytes> <data>
+		bulkKeys = Keys.create(BULK_KEYS, 24);
+		int perKey = Math.max(1, elements / BULK_KEYS);
+		out.reset();
+		for (String key : bulkKeys) {
+			out.write(("VALUE " + key + " OK 0 " + perKey + "\r\n").getBytes());
+			for (int i = 0; i < perKey; i++) {
+				out.write(("ELEMENT " + i + " " + valueSize + " ").getBytes());
+				out.write(value);
+				out.write("\r\n".getBytes());
+			}
+		}
+		out.write("END\r\n".getBytes());
+		bulkResponse = out.toByteArray();
+	}
+
+	@Benchmark
+	public void btreeGet(final Blackhole bh) throws IOException {
+		CollectionGetOperationImpl op = new CollectionGetOperationImpl("key",
+				new BTreeGet(0, Long.MAX_VALUE, 0, elements, false),
+				new CollectionGetOperation.Callback() {
+					public void gotData(String key, String subkey, int flags,
+							byte[] data) {
+						bh.consume(subkey);
+						bh.consume(data);
+					}
+
+					public void receivedStatus(OperationStatus status) {
+						bh.consume(status);
+					}
+
+					public void complete() {
+					}
+				});
+		feed(op, getResponse);
+	}
+
+	@Benchmark
+	public void btreeGetBulk(final Blackhole bh) throws IOException {
+		BTreeGetBulkOperationImpl op = new BTreeGetBulkOperationImpl(
+				new BTreeGetBulkWithLongTypeBkey<Object>(
+						Arrays.asList(bulkKeys), 0, Long.MAX_VALUE, null, 0,
+						elements),
+				new BTreeGetBulkOperation.Callback<Object>() {
+					public void gotElement(String key, Object subkey,
+							int flags, byte[] eflag, byte[] data) {
+						bh.consume(subkey);
+						bh.consume(data);
+					}
+
+					public void gotKey(String key, int elementCount,
+							OperationStatus status) {
+						bh.consume(key);
+					}
+
+					public void receivedStatus(OperationStatus status) {
+						bh.consume(status);
+					}
+
+					public void complete() {
+					}
+				});
+		feed(op, bulkResponse);
+	}
+
+	private static void feed(Operation op, byte[] response) throws IOException {
+		ByteBuffer bb = ByteBuffer.wrap(response);
+		while (bb.position() < response.length) {
+			bb.limit(Math.min(bb.position() + READ_CHUNK, response.length));
+			op.readFromBuffer(bb);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.TranscodeService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decode of the values of a bulk get result of 5,000 compressed objects,
+ * by the thread getting the result ("0") and in parallel.  The speedup
+ * depends on the number of processors of the machine.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkDecodeBenchmark {
+
+	private static final int VALUES = 5000;
+
+	@Param({ "0", "256" })
+	public int threshold;
+
+	private TranscodeService tcService;
+	private SerializingTranscoder tc;
+	private CachedData[] encoded;
+
+	@Setup
+	public void setup() {
+		tcService = new TranscodeService(true, threshold);
+		tc = new SerializingTranscoder();
+		tc.setCompressionThreshold(256);
+		Random rand = new Random(42);
+		encoded = new CachedData[VALUES];
+		for (int i = 0; i < VALUES; i++) {
+			ArrayList<String> value = new ArrayList<String>();
+			for (int j = 0; j < 50; j++) {
+				value.add("value" + rand.nextInt(100));
+			}
+			encoded[i] = tc.encode(value);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		tcService.shutdown();
+	}
+
+	@Benchmark
+	public Object decodeAll() throws Exception {
+		List<Future<Object>> values = new ArrayList<Future<Object>>(VALUES);
+		for (CachedData d : encoded) {
+			values.add(tcService.decodeLazily(tc, d));
+		}
+		tcService.decodeAll(values);
+		Object last = null;
+		for (Future<Object> f : values) {
+			last = f.get();
+		}
+		return last;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ArcusClientPool;
+import net.spy.memcached.ClientSelection;
+import net.spy.memcached.ConnectionFactoryBuilder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Gets through a pool of four clients, one of which is stalled: the
+ * server answers it a millisecond late for every get.  "pick" measures
+ * picking the client alone.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClientPoolBenchmark {
+
+	private static final int POOL_SIZE = 4;
+
+	@Param({ "RANDOM", "LEAST_OUTSTANDING", "THREAD_AFFINITY" })
+	public ClientSelection selection;
+
+	private MissServer server;
+	private ArcusClientPool pool;
+	private String[] keys;
+
+	@Setup
+	public void setup() throws Exception {
+		server = new MissServer(1, TimeUnit.MILLISECONDS);
+		ArcusClient[] clients = new ArcusClient[POOL_SIZE];
+		for (int i = 0; i < POOL_SIZE; i++) {
+			clients[i] = new ArcusClient(new ConnectionFactoryBuilder()
+					.setOpTimeout(10000).build(),
+					Arrays.asList(server.getAddress()));
+			// connect one by one, so that the first is the stalled one
+			while (clients[i].getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+		}
+		pool = new ArcusClientPool(POOL_SIZE, clients);
+		pool.setClientSelection(selection);
+		keys = Keys.create(1024, 32);
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		pool.shutdown();
+		server.shutdown();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Object getStalled() {
+		return pool.get(keys[(int) (Thread.currentThread().getId() & 1023)]);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Object pick() {
+		return pool.getClient();
+	}
+}
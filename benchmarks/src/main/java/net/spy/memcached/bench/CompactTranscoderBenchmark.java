@@ -0,0 +1,127 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.CompactTranscoder;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encode and decode of objects by the compact transcoder and by Java
+ * serialization.  "user" is a small object, "users" a list of a hundred
+ * of them.  Compression is off so that only the format is measured.
+ * Each trial prints the encoded size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactTranscoderBenchmark {
+
+	@Param({ "SERIALIZING", "COMPACT" })
+	public String transcoder;
+
+	@Param({ "user", "users" })
+	public String value;
+
+	private SerializingTranscoder tc;
+	private Object o;
+	private CachedData encoded;
+
+	public static class User implements Serializable {
+		private static final long serialVersionUID = 1L;
+		long id;
+		String name;
+		int age;
+		double score;
+		boolean active;
+		Date created;
+		List<String> roles;
+		Map<String, String> attributes;
+	}
+
+	@Setup
+	public void setup() {
+		tc = transcoder.equals("COMPACT") ? new CompactTranscoder()
+				: new SerializingTranscoder();
+		tc.setCompressionThreshold(Integer.MAX_VALUE);
+		Random rand = new Random(42);
+		if (value.equals("user")) {
+			o = user(rand);
+		} else {
+			ArrayList<User> users = new ArrayList<User>();
+			for (int i = 0; i < 100; i++) {
+				users.add(user(rand));
+			}
+			o = users;
+		}
+		encoded = tc.encode(o);
+		System.out.printf("%nsize: %d%n", encoded.getData().length);
+	}
+
+	private static User user(Random rand) {
+		User u = new User();
+		u.id = rand.nextInt(10000000);
+		u.name = "user" + rand.nextInt(100000);
+		u.age = 20 + rand.nextInt(50);
+		u.score = rand.nextDouble();
+		u.active = rand.nextBoolean();
+		u.created = new Date(1400000000000L + rand.nextInt());
+		u.roles = new ArrayList<String>();
+		u.roles.add("member");
+		if (rand.nextBoolean()) {
+			u.roles.add("admin");
+		}
+		u.attributes = new HashMap<String, String>();
+		u.attributes.put("locale", "ko_KR");
+		u.attributes.put("tier", "gold");
+		return u;
+	}
+
+	@Benchmark
+	public CachedData encode() {
+		return tc.encode(o);
+	}
+
+	@Benchmark
+	public Object decode() {
+		return tc.decode(encoded);
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import net.spy.memcached.transcoders.CompressionCodec;
+import net.spy.memcached.transcoders.CompressionCodecs;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compression and decompression of JSON text by each codec.  "STREAM" is
+ * GZIP through GZIPOutputStream and GZIPInputStream, as the transcoders
+ * compressed before codecs.  Each trial prints the compression ratio;
+ * divide the size by the time for the throughput.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressionBenchmark {
+
+	@Param({ "STREAM", "GZIP", "LZ4", "SNAPPY" })
+	public String codec;
+
+	@Param({ "16384", "131072" })
+	public int size;
+
+	private CompressionCodec c;
+	private byte[] data;
+	private byte[] compressed;
+
+	@Setup
+	public void setup() throws IOException {
+		if (codec.equals("STREAM")) {
+			c = new StreamCodec();
+		} else if (codec.equals("GZIP")) {
+			c = CompressionCodecs.GZIP;
+		} else if (codec.equals("LZ4")) {
+			c = CompressionCodecs.LZ4;
+		} else {
+			c = CompressionCodecs.SNAPPY;
+		}
+		data = json(size);
+		compressed = c.compress(data);
+		System.out.printf("%nratio: %.3f%n", (double) compressed.length / data.length);
+	}
+
+	static byte[] json(int size) {
+		Random rand = new Random(42);
+		String[] names = { "alpha", "bravo", "charlie", "delta", "echo" };
+		StringBuilder b = new StringBuilder(size);
+		b.append('[');
+		while (b.length() < size) {
+			b.append("{\"id\":").append(rand.nextInt(1000000))
+				.append(",\"name\":\"").append(names[rand.nextInt(names.length)])
+				.append(rand.nextInt(1000)).append("\",\"score\":")
+				.append(rand.nextDouble()).append(",\"active\":")
+				.append(rand.nextBoolean()).append("},");
+		}
+		b.setLength(size);
+		return b.toString().getBytes();
+	}
+
+	@Benchmark
+	public byte[] compress() {
+		return c.compress(data);
+	}
+
+	@Benchmark
+	public byte[] decompress() throws IOException {
+		return c.decompress(compressed);
+	}
+
+	private static class StreamCodec implements CompressionCodec {
+		public int getId() {
+			return CompressionCodecs.MAX_ID;
+		}
+
+		public String getName() {
+			return "STREAM";
+		}
+
+		public byte[] compress(byte[] in) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			try {
+				GZIPOutputStream gz = new GZIPOutputStream(bos);
+				gz.write(in);
+				gz.close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			return bos.toByteArray();
+		}
+
+		public byte[] decompress(byte[] in) throws IOException {
+			GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(in));
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			byte[] buf = new byte[8192];
+			int r;
+			while ((r = gis.read(buf)) > 0) {
+				bos.write(buf, 0, r);
+			}
+			return bos.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.spy.memcached.MemcachedNode;
+
+/**
+ * Memcached nodes that only have an address, for benchmarks that need
+ * nodes but never talk to them.
+ */
+final class FakeNodes {
+
+	private FakeNodes() {
+	}
+
+	static List<MemcachedNode> create(int count) {
+		List<MemcachedNode> nodes = new ArrayList<MemcachedNode>(count);
+		for (int i = 0; i < count; i++) {
+			nodes.add(create(new InetSocketAddress(
+					"10.0." + (i / 250) + "." + (i % 250 + 1), 11211)));
+		}
+		return nodes;
+	}
+
+	static MemcachedNode create(final SocketAddress sa) {
+		return (MemcachedNode) Proxy.newProxyInstance(
+				MemcachedNode.class.getClassLoader(),
+				new Class<?>[] { MemcachedNode.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method m, Object[] args) {
+						String name = m.getName();
+						if (name.equals("getSocketAddress")) {
+							return sa;
+						} else if (name.equals("isActive")) {
+							return Boolean.TRUE;
+						} else if (name.equals("equals")) {
+							return proxy == args[0];
+						} else if (name.equals("hashCode")) {
+							return System.identityHashCode(proxy);
+						} else if (name.equals("toString")) {
+							return "FakeNode " + sa;
+						}
+						return defaultValue(m.getReturnType());
+					}
+				});
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (!type.isPrimitive() || type == void.class) {
+			return null;
+		} else if (type == boolean.class) {
+			return Boolean.FALSE;
+		} else if (type == long.class) {
+			return 0L;
+		}
+		return 0;
+	}
+}
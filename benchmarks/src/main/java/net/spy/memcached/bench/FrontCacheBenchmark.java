@@ -0,0 +1,140 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.plugin.FrontCacheType;
+import net.spy.memcached.plugin.LocalCacheManager;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Front cache lookups with a fill on every miss, on the ehcache and the
+ * TinyLFU storage.  The "zipf" trace reads keys with a skewed popularity,
+ * the "scan" trace interrupts it with runs of keys read only once.  Each
+ * thread prints the hit ratio it saw at the end of the trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontCacheBenchmark {
+
+	private static final int KEYS = 1 << 16;
+	private static final int CACHE_SIZE = KEYS / 16;
+	private static final int TRACE = 1 << 20;
+	private static final int TRACE_MASK = TRACE - 1;
+	private static final int SCAN_EVERY = 20000;
+	private static final int SCAN_LENGTH = 2 * CACHE_SIZE;
+	private static final byte[] VALUE = new byte[100];
+
+	@Param({ "EHCACHE", "TINYLFU" })
+	public FrontCacheType type;
+
+	@Param({ "zipf", "scan" })
+	public String trace;
+
+	private LocalCacheManager cache;
+	private String[] keys;
+	private int[] accesses;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next = new Random().nextInt(TRACE);
+		long hits = 0;
+		long misses = 0;
+
+		@TearDown(Level.Trial)
+		public void report() {
+			System.out.printf("%nhit ratio: %.4f%n",
+					(double) hits / Math.max(1, hits + misses));
+		}
+	}
+
+	@Setup
+	public void setup() {
+		cache = new LocalCacheManager("bench-" + type + "-" + trace + "-"
+				+ System.nanoTime(), type, CACHE_SIZE, 0, 3600, false, false);
+		keys = Keys.create(KEYS * 4, 32);
+		accesses = createTrace("scan".equals(trace));
+	}
+
+	private static int[] createTrace(boolean scans) {
+		Random rand = new Random(42);
+		// zipf with exponent 0.99 over the first KEYS keys
+		double[] cdf = new double[KEYS];
+		double sum = 0;
+		for (int i = 0; i < KEYS; i++) {
+			sum += 1 / Math.pow(i + 1, 0.99);
+			cdf[i] = sum;
+		}
+		int[] t = new int[TRACE];
+		int scanKey = KEYS;
+		for (int i = 0; i < TRACE; i++) {
+			if (scans && i % SCAN_EVERY < SCAN_LENGTH) {
+				t[i] = scanKey;
+				scanKey = scanKey + 1 < KEYS * 4 ? scanKey + 1 : KEYS;
+			} else {
+				int r = Arrays.binarySearch(cdf, rand.nextDouble() * sum);
+				t[i] = r < 0 ? -r - 1 : r;
+			}
+		}
+		return t;
+	}
+
+	private Object access(Cursor c) {
+		String key = keys[accesses[c.next++ & TRACE_MASK]];
+		Object v = cache.get(key, null);
+		if (v == null) {
+			c.misses++;
+			cache.put(key, VALUE, VALUE.length);
+		} else {
+			c.hits++;
+		}
+		return v;
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Object getOrFill(Cursor c) {
+		return access(c);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Object getOrFillContended(Cursor c) {
+		return access(c);
+	}
+}
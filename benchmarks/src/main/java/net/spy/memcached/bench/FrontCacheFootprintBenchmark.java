@@ -0,0 +1,156 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.plugin.FrontCacheType;
+import net.spy.memcached.plugin.LocalCacheManager;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.Transcoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Memory footprint and garbage collection of a full front cache on the
+ * heap and off the heap.  The cache is filled with 200 MB of values, then
+ * read with a value replaced on every 16th read.  Each trial prints the
+ * heap and direct memory used by the full cache, the time of a full
+ * collection with the cache live, and the collections during the trial.
+ * Run with "-prof gc" for the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx1g", "-XX:MaxDirectMemorySize=1g" })
+public class FrontCacheFootprintBenchmark {
+
+	private static final int ENTRIES = 100000;
+	private static final int VALUE_SIZE = 2048;
+	private static final int WRITE_EVERY = 16;
+
+	@Param({ "EHCACHE", "TINYLFU", "OFFHEAP" })
+	public FrontCacheType type;
+
+	private final Transcoder<Object> tc = new SerializingTranscoder();
+	private LocalCacheManager cache;
+	private String[] keys;
+	private long gcCount;
+	private long gcTime;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		final Random rand = new Random();
+		int ops = 0;
+	}
+
+	@Setup
+	public void setup() {
+		cache = new LocalCacheManager("footprint-" + type + "-" + System.nanoTime(),
+				type, ENTRIES, 2L * ENTRIES * VALUE_SIZE, 3600, false, false);
+		keys = Keys.create(ENTRIES, 32);
+		Random rand = new Random(42);
+		for (String key : keys) {
+			put(key, rand);
+		}
+
+		long start = System.nanoTime();
+		System.gc();
+		long fullGc = System.nanoTime() - start;
+		System.out.printf("%nheap used: %d MB, direct used: %d MB,"
+				+ " full gc: %d ms%n", usedHeap() >> 20, usedDirect() >> 20,
+				TimeUnit.NANOSECONDS.toMillis(fullGc));
+		gcCount = gcCount();
+		gcTime = gcTime();
+	}
+
+	@TearDown
+	public void report() {
+		long count = gcCount() - gcCount;
+		long time = gcTime() - gcTime;
+		System.out.printf("%ngc during the trial: %d collections, %d ms,"
+				+ " %.1f ms each%n", count, time, (double) time / Math.max(1, count));
+	}
+
+	private void put(String key, Random rand) {
+		byte[] value = new byte[VALUE_SIZE];
+		rand.nextBytes(value);
+		CachedData data = tc.encode(value);
+		cache.put(key, value, data);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public Object readMostly(Cursor c) {
+		String key = keys[c.rand.nextInt(ENTRIES)];
+		if (++c.ops % WRITE_EVERY == 0) {
+			put(key, c.rand);
+			return key;
+		}
+		return cache.get(key, tc);
+	}
+
+	private static long usedHeap() {
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static long usedDirect() {
+		long used = 0;
+		for (BufferPoolMXBean pool
+				: ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if ("direct".equals(pool.getName())) {
+				used += pool.getMemoryUsed();
+			}
+		}
+		return used;
+	}
+
+	private static long gcCount() {
+		long count = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			count += Math.max(0, gc.getCollectionCount());
+		}
+		return count;
+	}
+
+	private static long gcTime() {
+		long time = 0;
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			time += Math.max(0, gc.getCollectionTime());
+		}
+		return time;
+	}
+}
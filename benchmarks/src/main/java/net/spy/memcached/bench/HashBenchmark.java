@@ -0,0 +1,68 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.HashAlgorithm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Key hashing with each HashAlgorithm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HashBenchmark {
+
+	private static final int KEYS = 1024;
+
+	@Param({ "NATIVE_HASH", "CRC32_HASH", "FNV1_64_HASH", "FNV1A_64_HASH",
+		"FNV1_32_HASH", "FNV1A_32_HASH", "KETAMA_HASH" })
+	public HashAlgorithm algorithm;
+
+	@Param({ "16", "64" })
+	public int keyLength;
+
+	private String[] keys;
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		keys = Keys.create(KEYS, keyLength);
+	}
+
+	@Benchmark
+	public long hash() {
+		String key = keys[next++ & (KEYS - 1)];
+		return algorithm.hash(key);
+	}
+}
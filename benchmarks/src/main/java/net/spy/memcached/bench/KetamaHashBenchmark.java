@@ -0,0 +1,72 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.HashAlgorithm;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ketama hash of a key, from a cloned MessageDigest as it used to be
+ * computed, and from KETAMA_HASH.  Run with -prof gc to see the
+ * allocation per hash.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KetamaHashBenchmark {
+
+	private static final int KEYS = 1024;
+
+	@Param({ "16", "64", "250" })
+	public int keyLength;
+
+	private String[] keys;
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		keys = Keys.create(KEYS, keyLength);
+	}
+
+	@Benchmark
+	public long messageDigest() {
+		byte[] d = HashAlgorithm.computeMd5(keys[next++ & (KEYS - 1)]);
+		return ((long) (d[3] & 0xFF) << 24) | ((long) (d[2] & 0xFF) << 16)
+				| ((long) (d[1] & 0xFF) << 8) | (d[0] & 0xFF);
+	}
+
+	@Benchmark
+	public long ketamaHash() {
+		return HashAlgorithm.KETAMA_HASH.hash(keys[next++ & (KEYS - 1)]);
+	}
+}
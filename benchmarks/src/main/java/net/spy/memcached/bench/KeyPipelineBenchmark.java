@@ -0,0 +1,131 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ArcusKetamaNodeLocator;
+import net.spy.memcached.EncodedKey;
+import net.spy.memcached.HashAlgorithm;
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The per key work of sending a get or a set, short of the IO: checking
+ * the key, finding its node and writing the command.  The "string" path
+ * hands the key to each step as a String, which encodes it every time;
+ * the "encoded" path encodes it once.  Run with -prof gc to see the
+ * allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeyPipelineBenchmark {
+
+	private static final int KEYS = 4096;
+	private static final byte[] VALUE = new byte[100];
+
+	private static final GetOperation.Callback CALLBACK =
+		new GetOperation.Callback() {
+			public void receivedStatus(OperationStatus status) {
+			}
+			public void gotData(String key, int flags, byte[] data) {
+			}
+			public void complete() {
+			}
+		};
+
+	@Param({ "string", "encoded" })
+	public String path;
+
+	private final AsciiOperationFactory opFact = new AsciiOperationFactory();
+	private ArcusKetamaNodeLocator locator;
+	private String[] keys;
+	private int next = 0;
+
+	@Setup
+	public void setup() {
+		locator = new ArcusKetamaNodeLocator(FakeNodes.create(8),
+				HashAlgorithm.KETAMA_HASH);
+		keys = Keys.create(KEYS, 32);
+	}
+
+	private static int check(byte[] key) {
+		int spaces = 0;
+		for (byte b : key) {
+			if (b == ' ') {
+				spaces++;
+			}
+		}
+		return spaces;
+	}
+
+	private static void send(Blackhole bh, MemcachedNode node, Operation op) {
+		op.initialize();
+		bh.consume(node);
+		bh.consume(op.getBuffer());
+	}
+
+	@Benchmark
+	public void get(Blackhole bh) {
+		String key = keys[next++ & (KEYS - 1)];
+		if ("string".equals(path)) {
+			bh.consume(check(KeyUtil.getKeyBytes(key)));
+			send(bh, locator.getPrimary(key), opFact.get(key, CALLBACK));
+		} else {
+			EncodedKey k = new EncodedKey(key);
+			bh.consume(check(k.getBytes()));
+			send(bh, locator.getPrimary(k), opFact.get(k, CALLBACK));
+		}
+	}
+
+	@Benchmark
+	public void set(Blackhole bh) {
+		String key = keys[next++ & (KEYS - 1)];
+		if ("string".equals(path)) {
+			bh.consume(check(KeyUtil.getKeyBytes(key)));
+			send(bh, locator.getPrimary(key),
+					opFact.store(StoreType.set, key, 0, 60, VALUE, CALLBACK));
+		} else {
+			EncodedKey k = new EncodedKey(key);
+			bh.consume(check(k.getBytes()));
+			send(bh, locator.getPrimary(k),
+					opFact.store(StoreType.set, k, 0, 60, VALUE, CALLBACK));
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.util.Random;
+
+/**
+ * Benchmark keys that look like typical Arcus keys: a prefix, a colon
+ * and a subkey.
+ */
+final class Keys {
+
+	private Keys() {
+	}
+
+	static String[] create(int count, int length) {
+		Random rand = new Random(42);
+		String[] keys = new String[count];
+		for (int i = 0; i < count; i++) {
+			StringBuilder b = new StringBuilder(length);
+			b.append("prefix").append(i % 16).append(':');
+			while (b.length() < length) {
+				b.append((char) ('a' + rand.nextInt(26)));
+			}
+			b.setLength(length);
+			keys[i] = b.toString();
+		}
+		return keys;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ArcusKetamaNodeLocator;
+import net.spy.memcached.HashAlgorithm;
+import net.spy.memcached.MemcachedNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ketama locator lookups, from one thread and from many threads sharing
+ * the same locator.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LocatorBenchmark {
+
+	private static final int KEYS = 4096;
+
+	@Param({ "8", "64" })
+	public int nodes;
+
+	private ArcusKetamaNodeLocator locator;
+	private String[] keys;
+
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next = 0;
+	}
+
+	@Setup
+	public void setup() {
+		locator = new ArcusKetamaNodeLocator(FakeNodes.create(nodes),
+				HashAlgorithm.KETAMA_HASH);
+		keys = Keys.create(KEYS, 32);
+	}
+
+	@Benchmark
+	@Threads(1)
+	public MemcachedNode getPrimary(Cursor c) {
+		return locator.getPrimary(keys[c.next++ & (KEYS - 1)]);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public MemcachedNode getPrimaryContended(Cursor c) {
+		return locator.getPrimary(keys[c.next++ & (KEYS - 1)]);
+	}
+}
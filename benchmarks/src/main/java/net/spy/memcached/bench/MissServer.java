@@ -0,0 +1,126 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A server that answers every get with a miss, for benchmarks of the
+ * client side of round trips.  The responses on the first connection
+ * accepted are each delayed by the given stall, so that one client of a
+ * pool backs up.
+ */
+final class MissServer {
+
+	private static final byte[] END = "END\r\n".getBytes();
+	private static final byte[] VERSION = "VERSION 1.11.0\r\n".getBytes();
+
+	private final ServerSocket server;
+	private final long stallNanos;
+	private final List<Socket> sockets = new ArrayList<Socket>();
+	private volatile boolean running = true;
+
+	MissServer(long stall, TimeUnit unit) throws IOException {
+		server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+		stallNanos = unit.toNanos(stall);
+		Thread acceptor = new Thread("miss server") {
+			@Override
+			public void run() {
+				try {
+					boolean first = true;
+					while (running) {
+						Socket s = server.accept();
+						s.setTcpNoDelay(true);
+						synchronized (sockets) {
+							sockets.add(s);
+						}
+						serve(s, first ? stallNanos : 0);
+						first = false;
+					}
+				} catch (IOException e) {
+					// closed
+				}
+			}
+		};
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	InetSocketAddress getAddress() {
+		return (InetSocketAddress) server.getLocalSocketAddress();
+	}
+
+	void shutdown() throws IOException {
+		running = false;
+		server.close();
+		synchronized (sockets) {
+			for (Socket s : sockets) {
+				s.close();
+			}
+		}
+	}
+
+	private void serve(final Socket s, final long stall) {
+		Thread t = new Thread("miss server connection") {
+			@Override
+			public void run() {
+				byte[] buf = new byte[16384];
+				try {
+					InputStream in = s.getInputStream();
+					OutputStream out = new BufferedOutputStream(s.getOutputStream());
+					int lineStart = 0;
+					int n = 0;
+					int r;
+					while ((r = in.read(buf, n, buf.length - n)) > 0) {
+						n += r;
+						for (int i = lineStart; i < n; i++) {
+							if (buf[i] != '\n') {
+								continue;
+							}
+							out.write(buf[lineStart] == 'v' ? VERSION : END);
+							lineStart = i + 1;
+							if (stall > 0) {
+								LockSupport.parkNanos(stall);
+								out.flush();
+							}
+						}
+						out.flush();
+						// keep the partial line at the start of the buffer
+						System.arraycopy(buf, lineStart, buf, 0, n - lineStart);
+						n -= lineStart;
+						lineStart = 0;
+					}
+				} catch (IOException e) {
+					// closed
+				}
+			}
+		};
+		t.setDaemon(true);
+		t.start();
+	}
+}
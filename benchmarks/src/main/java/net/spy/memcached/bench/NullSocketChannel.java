@@ -0,0 +1,154 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketOption;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.spi.SelectorProvider;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A connected SocketChannel that discards everything written to it and
+ * never has anything to read.  Writes accept at most writeLimit bytes per
+ * call, like a socket with a full send buffer would.
+ */
+final class NullSocketChannel extends SocketChannel {
+
+	private final int writeLimit;
+
+	private long written = 0;
+
+	NullSocketChannel(int writeLimit) {
+		super(SelectorProvider.provider());
+		this.writeLimit = writeLimit;
+	}
+
+	long getWritten() {
+		return written;
+	}
+
+	@Override
+	public int write(ByteBuffer src) throws IOException {
+		int n = Math.min(src.remaining(), writeLimit);
+		src.position(src.position() + n);
+		written += n;
+		return n;
+	}
+
+	@Override
+	public long write(ByteBuffer[] srcs, int offset, int length)
+			throws IOException {
+		long total = 0;
+		for (int i = offset; i < offset + length && total < writeLimit; i++) {
+			int n = (int) Math.min(srcs[i].remaining(), writeLimit - total);
+			srcs[i].position(srcs[i].position() + n);
+			total += n;
+		}
+		written += total;
+		return total;
+	}
+
+	@Override
+	public int read(ByteBuffer dst) throws IOException {
+		return 0;
+	}
+
+	@Override
+	public long read(ByteBuffer[] dsts, int offset, int length)
+			throws IOException {
+		return 0;
+	}
+
+	@Override
+	public SocketChannel bind(SocketAddress local) throws IOException {
+		return this;
+	}
+
+	@Override
+	public <T> SocketChannel setOption(SocketOption<T> name, T value)
+			throws IOException {
+		return this;
+	}
+
+	@Override
+	public <T> T getOption(SocketOption<T> name) throws IOException {
+		return null;
+	}
+
+	@Override
+	public Set<SocketOption<?>> supportedOptions() {
+		return Collections.emptySet();
+	}
+
+	@Override
+	public SocketChannel shutdownInput() throws IOException {
+		return this;
+	}
+
+	@Override
+	public SocketChannel shutdownOutput() throws IOException {
+		return this;
+	}
+
+	@Override
+	public Socket socket() {
+		return null;
+	}
+
+	@Override
+	public boolean isConnected() {
+		return true;
+	}
+
+	@Override
+	public boolean isConnectionPending() {
+		return false;
+	}
+
+	@Override
+	public boolean connect(SocketAddress remote) throws IOException {
+		return true;
+	}
+
+	@Override
+	public boolean finishConnect() throws IOException {
+		return true;
+	}
+
+	@Override
+	public SocketAddress getRemoteAddress() throws IOException {
+		return null;
+	}
+
+	@Override
+	public SocketAddress getLocalAddress() throws IOException {
+		return null;
+	}
+
+	@Override
+	protected void implCloseSelectableChannel() throws IOException {
+	}
+
+	@Override
+	protected void implConfigureBlocking(boolean block) throws IOException {
+	}
+}
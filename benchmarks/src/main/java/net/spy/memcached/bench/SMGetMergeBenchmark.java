@@ -0,0 +1,119 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.collection.SMGetElement;
+import net.spy.memcached.collection.SMGetResultMerger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Merging of smget chunk results.  Every chunk returns up to
+ * offset + count sorted elements, and the chunks are merged into one
+ * sorted result of offset + count elements.
+ *
+ * merge() is the heap merge ArcusClient.smget uses.  insertionMerge()
+ * is the insertion merge it used before, which the operation callbacks
+ * ran chunk by chunk, kept as a baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SMGetMergeBenchmark {
+
+	@Param({ "2", "20", "200" })
+	public int chunks;
+
+	@Param({ "50", "1000" })
+	public int count;
+
+	private List<List<SMGetElement<Object>>> results;
+
+	@Setup
+	public void setup() {
+		Random rand = new Random(42);
+		Object value = new byte[16];
+		results = new ArrayList<List<SMGetElement<Object>>>(chunks);
+		for (int c = 0; c < chunks; c++) {
+			List<SMGetElement<Object>> each = new ArrayList<SMGetElement<Object>>(count);
+			for (int i = 0; i < count; i++) {
+				each.add(new SMGetElement<Object>("key" + c + ":" + i,
+						rand.nextInt(count * chunks * 4), value));
+			}
+			Collections.sort(each);
+			results.add(each);
+		}
+	}
+
+	@Benchmark
+	public List<SMGetElement<Object>> merge() {
+		SMGetResultMerger<Object> merger = new SMGetResultMerger<Object>(
+				count, false, false);
+		for (List<SMGetElement<Object>> each : results) {
+			merger.add(each);
+		}
+		return merger.merge();
+	}
+
+	@Benchmark
+	public List<SMGetElement<Object>> insertionMerge() {
+		int total = count;
+		List<SMGetElement<Object>> merged = Collections.synchronizedList(
+				new ArrayList<SMGetElement<Object>>(total));
+		for (List<SMGetElement<Object>> each : results) {
+			if (merged.size() == 0) {
+				merged.addAll(each);
+				continue;
+			}
+			int pos = 0;
+			for (SMGetElement<Object> result : each) {
+				for ( ; pos < merged.size(); pos++) {
+					if (0 > result.compareTo(merged.get(pos)))
+						break;
+				}
+				if (pos >= total) {
+					break;
+				}
+				merged.add(pos, result);
+				if (merged.size() > total) {
+					merged.remove(total);
+				}
+				pos += 1;
+			}
+		}
+		return merged;
+	}
+}
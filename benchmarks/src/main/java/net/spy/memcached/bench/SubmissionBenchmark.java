@@ -0,0 +1,129 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.io.IOException;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.spy.memcached.internal.MpscBlockingQueue;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Operations submitted by application threads to an IO thread, which
+ * drains the input queue and selects like MemcachedConnection does.
+ * "ARRAY" is the ArrayBlockingQueue input queue of before, "MPSC" the
+ * MpscBlockingQueue; without coalescing every submission wakes the
+ * selector.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubmissionBenchmark {
+
+	private static final Object OP = new Object();
+
+	@Param({ "ARRAY", "MPSC" })
+	public String queue;
+
+	@Param({ "false", "true" })
+	public boolean coalesce;
+
+	private BlockingQueue<Object> inputQueue;
+	private Selector selector;
+	private final AtomicBoolean wakeupPending = new AtomicBoolean(false);
+	private volatile boolean running;
+	private Thread ioThread;
+
+	@Setup
+	public void setup() throws IOException {
+		inputQueue = queue.equals("ARRAY") ? new ArrayBlockingQueue<Object>(16384)
+				: new MpscBlockingQueue<Object>(16384);
+		selector = Selector.open();
+		running = true;
+		ioThread = new Thread("bench io") {
+			@Override
+			public void run() {
+				List<Object> writeQ = new ArrayList<Object>();
+				try {
+					while (running) {
+						wakeupPending.set(false);
+						inputQueue.drainTo(writeQ);
+						writeQ.clear();
+						selector.select();
+						selector.selectedKeys().clear();
+					}
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		ioThread.start();
+	}
+
+	@TearDown
+	public void tearDown() throws Exception {
+		running = false;
+		selector.wakeup();
+		ioThread.join();
+		selector.close();
+	}
+
+	private void submit() {
+		while (!inputQueue.offer(OP)) {
+			Thread.yield();
+		}
+		if (!coalesce) {
+			selector.wakeup();
+		} else if (!wakeupPending.get() && wakeupPending.compareAndSet(false, true)) {
+			selector.wakeup();
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void submit1() {
+		submit();
+	}
+
+	@Benchmark
+	@Threads(8)
+	public void submit8() {
+		submit();
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * SerializingTranscoder encode and decode.  Values of 16KB and more are
+ * compressed by the transcoder, so the large sizes include compression.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TranscoderBenchmark {
+
+	@Param({ "string", "bytes", "long", "serializable" })
+	public String type;
+
+	@Param({ "100", "4096", "32768" })
+	public int size;
+
+	private SerializingTranscoder tc;
+	private Object value;
+	private CachedData encoded;
+
+	@Setup
+	public void setup() {
+		tc = new SerializingTranscoder();
+		Random rand = new Random(42);
+		// Text compresses, like most cached values do.  Random bytes
+		// would not, and every encode would log a warning.
+		StringBuilder b = new StringBuilder(size);
+		while (b.length() < size) {
+			b.append("value").append(rand.nextInt(1000)).append(' ');
+		}
+		b.setLength(size);
+		if (type.equals("string")) {
+			value = b.toString();
+		} else if (type.equals("bytes")) {
+			value = b.toString().getBytes();
+		} else if (type.equals("long")) {
+			value = Long.valueOf(rand.nextLong());
+		} else {
+			int[] a = new int[size / 4];
+			for (int i = 0; i < a.length; i++) {
+				a[i] = rand.nextInt(100);
+			}
+			value = a;
+		}
+		encoded = tc.encode(value);
+	}
+
+	@Benchmark
+	public CachedData encode() {
+		return tc.encode(value);
+	}
+
+	@Benchmark
+	public Object decode() {
+		return tc.decode(encoded);
+	}
+}
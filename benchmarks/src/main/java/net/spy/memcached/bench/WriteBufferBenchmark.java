@@ -0,0 +1,125 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.bench;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.ByteBufferPool;
+import net.spy.memcached.OperationFactory;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.protocol.TCPMemcachedNodeImpl;
+import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The write path of a node: set operations are created, initialized and
+ * queued, then fillWriteBuffer and writeSome run until everything has
+ * been written to a channel that discards the bytes.  The channel takes
+ * at most 64KB per write, like a socket send buffer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBufferBenchmark {
+
+	private static final int OPS = 64;
+	private static final int WRITE_BUFFER_SIZE = 16384;
+	private static final int SOCKET_SEND_BUFFER = 65536;
+
+	private static final OperationCallback NO_CALLBACK = new OperationCallback() {
+		public void receivedStatus(OperationStatus status) {
+		}
+
+		public void complete() {
+		}
+	};
+
+	@Param({ "32", "1024", "65536" })
+	public int valueSize;
+
+	@Param({ "false", "true" })
+	public boolean pooled;
+
+	private TCPMemcachedNodeImpl node;
+	private OperationFactory opFact;
+	private String[] keys;
+	private byte[] value;
+
+	@Setup
+	public void setup() {
+		node = new AsciiMemcachedNodeImpl(
+				new InetSocketAddress("10.0.0.1", 11211),
+				new NullSocketChannel(SOCKET_SEND_BUFFER), WRITE_BUFFER_SIZE,
+				new LinkedBlockingQueue<Operation>(),
+				new LinkedBlockingQueue<Operation>(),
+				new LinkedBlockingQueue<Operation>(), 10000L,
+				pooled ? new ByteBufferPool() : null);
+		opFact = new AsciiOperationFactory();
+		keys = Keys.create(OPS, 32);
+		value = new byte[valueSize];
+		new Random(42).nextBytes(value);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(OPS)
+	public int writeSets() throws IOException {
+		for (int i = 0; i < OPS; i++) {
+			Operation op = opFact.store(StoreType.set, keys[i], 0, 0, value,
+					NO_CALLBACK);
+			op.setHandlingNode(node);
+			op.initialize();
+			node.addOp(op);
+		}
+		node.copyInputQueue();
+
+		int wrote = 0;
+		node.fillWriteBuffer(false);
+		while (node.getBytesRemainingToWrite() > 0) {
+			wrote += node.writeSome();
+			node.fillWriteBuffer(false);
+		}
+
+		// Nothing will answer, so drop the ops waiting for a response.
+		while (node.hasReadOp()) {
+			node.removeCurrentReadOp();
+		}
+		return wrote;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+/**
+ * What to do with new operations for a node that has reached its limits
+ * of operations or bytes in flight.
+ *
+ * @see ConnectionFactoryBuilder#setMaxNodeInFlightOps(int)
+ * @see ConnectionFactoryBuilder#setMaxNodeInFlightBytes(long)
+ */
+public enum AdmissionPolicy {
+
+	/**
+	 * Reject every new operation while the node is at its limits.
+	 */
+	FAIL_FAST,
+
+	/**
+	 * Reject read operations once the node is at three quarters of its
+	 * limits, and other operations at the limits.
+	 *
+	 * <p>
+	 *  Reads are shed first, since they can usually be served from
+	 *  elsewhere, and the remaining capacity is kept for writes.
+	 * </p>
+	 */
+	SHED_BY_PRIORITY
+
+}
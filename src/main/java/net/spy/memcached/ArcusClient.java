@@ -35,13 +35,11 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
 
@@ -101,6 +99,7 @@ import net.spy.memcached.collection.ListDelete;
 import net.spy.memcached.collection.ListGet;
 import net.spy.memcached.collection.ListStore;
 import net.spy.memcached.collection.SMGetElement;
+import net.spy.memcached.collection.SMGetResultMerger;
 import net.spy.memcached.collection.SMGetTrimKey;
 import net.spy.memcached.collection.SMGetMode;
 import net.spy.memcached.collection.MapCreate;
@@ -117,9 +116,12 @@ import net.spy.memcached.collection.SetStore;
 import net.spy.memcached.compat.log.Logger;
 import net.spy.memcached.compat.log.LoggerFactory;
 import net.spy.memcached.internal.BTreeStoreAndGetFuture;
+import net.spy.memcached.internal.BulkElementDecoder;
 import net.spy.memcached.internal.CheckedOperationTimeoutException;
 import net.spy.memcached.internal.CollectionFuture;
 import net.spy.memcached.internal.CollectionGetBulkFuture;
+import net.spy.memcached.internal.CompletionLatch;
+import net.spy.memcached.internal.ListenableFuture;
 import net.spy.memcached.internal.OperationFuture;
 import net.spy.memcached.internal.SMGetFuture;
 import net.spy.memcached.ops.BTreeFindPositionOperation;
@@ -129,6 +131,8 @@ import net.spy.memcached.ops.BTreeGetByPositionOperation;
 import net.spy.memcached.ops.BTreeSortMergeGetOperation;
 import net.spy.memcached.ops.BTreeSortMergeGetOperationOld;
 import net.spy.memcached.ops.BTreeStoreAndGetOperation;
+import net.spy.memcached.ops.BaseOperationFactory;
+import net.spy.memcached.ops.BulkStoreOperation;
 import net.spy.memcached.ops.CollectionBulkStoreOperation;
 import net.spy.memcached.ops.CollectionGetOperation;
 import net.spy.memcached.ops.CollectionOperationStatus;
@@ -136,13 +140,16 @@ import net.spy.memcached.ops.CollectionPipedExistOperation;
 import net.spy.memcached.ops.CollectionPipedStoreOperation;
 import net.spy.memcached.ops.CollectionPipedUpdateOperation;
 import net.spy.memcached.ops.GetAttrOperation;
+import net.spy.memcached.ops.KeyedOperation;
 import net.spy.memcached.ops.Mutator;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.plugin.CollectionCacheManager;
 import net.spy.memcached.plugin.FrontCacheMemcachedClient;
+import net.spy.memcached.protocol.binary.BinaryOperationFactory;
 import net.spy.memcached.transcoders.CollectionTranscoder;
 import net.spy.memcached.transcoders.Transcoder;
 import net.spy.memcached.util.BTreeUtil;
@@ -185,7 +192,6 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	static final String ARCUS_CLOUD_ADDR = "127.0.0.1:2181";
 	public boolean dead;
 	
-	final BulkService bulkService;
 	final Transcoder<Object> collectionTranscoder;
 	
 	final int smgetKeyChunkSize;
@@ -348,9 +354,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	public ArcusClient(ConnectionFactory cf, List<InetSocketAddress> addrs)
 			throws IOException {
 		super(cf, addrs);
-		bulkService = new BulkService(cf.getBulkServiceLoopLimit(),
-				cf.getBulkServiceThreadCount(), cf.getBulkServiceSingleOpTimeout());
-		collectionTranscoder = new CollectionTranscoder();
+		collectionTranscoder = cf.getDefaultCollectionTranscoder();
 		smgetKeyChunkSize = cf.getDefaultMaxSMGetKeyChunkSize();
 		registerMbean();
 	}
@@ -390,9 +394,6 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			cacheManager.shutdown();
 		}
 		dead = true;
-		if (bulkService != null) {
-			bulkService.shutdown();
-		}
 	}
 
 	private void validateMKey(String mkey) {
@@ -414,31 +415,13 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 		}
 	}
 
-	Future<Boolean> asyncStore(StoreType storeType, String key,
-			int exp, CachedData co) {
-		final CountDownLatch latch=new CountDownLatch(1);
-		final OperationFuture<Boolean> rv=new OperationFuture<Boolean>(latch,
-				operationTimeout);
-		Operation op=opFact.store(storeType, key, co.getFlags(),
-				exp, co.getData(), new OperationCallback() {
-			public void receivedStatus(OperationStatus val) {
-				rv.set(val.isSuccess());
-			}
-			public void complete() {
-				latch.countDown();
-			}});
-		rv.setOperation(op);
-		addOp(key, op);
-		return rv;
-	}
-	
 	/* (non-Javadoc)
 	 * @see net.spy.memcached.ArcusClient#asyncSetAttr(java.lang.String, net.spy.memcached.collection.CollectionAttributes)
 	 */
 	@Override
 	public CollectionFuture<Boolean> asyncSetAttr(String key,
 			Attributes attrs) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Boolean> rv = new CollectionFuture<Boolean>(
 				latch, operationTimeout);
 		Operation op = opFact.setAttr(key, attrs, new OperationCallback() {
@@ -464,7 +447,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 */
 	@Override
 	public CollectionFuture<CollectionAttributes> asyncGetAttr(final String key) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<CollectionAttributes> rv = new CollectionFuture<CollectionAttributes>(
 				latch, operationTimeout);
 		Operation op = opFact.getAttr(key, new GetAttrOperation.Callback() {
@@ -494,6 +477,18 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 		return rv;
 	}
 	
+	/**
+	 * Get the key identifying a collection get for coalescing, or null if
+	 * it is not coalesced.
+	 */
+	private Object getCollectionReadKey(String k, CollectionGet<?> collectionGet,
+			Transcoder<?> tc) {
+		if (!isCoalescingReads() || collectionGet.isDelete()) {
+			return null;
+		}
+		return getReadKey(k, CollectionCacheManager.getQueryShape(collectionGet), tc);
+	}
+
 	/**
 	 * Generic get operation for list items. Public methods for list items call this method.
 	 *
@@ -504,7 +499,18 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 */
 	private <T> CollectionFuture<List<T>> asyncLopGet(final String k,
 			final CollectionGet collectionGet, final Transcoder<T> tc) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final String shape = getFrontCacheShape(collectionGet);
+		CollectionFuture<List<T>> cached = getFrontCached(k, shape, tc);
+		if (cached != null) {
+			return cached;
+		}
+		final Object readKey = getCollectionReadKey(k, collectionGet, tc);
+		CollectionFuture<List<T>> joined = joinRead(readKey);
+		if (joined != null) {
+			return joined;
+		}
+		final CollectionCacheManager.Shapes frontCache = reserveFrontCache(k, shape);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<List<T>> rv = new CollectionFuture<List<T>>(
 				latch, operationTimeout);
 
@@ -522,6 +528,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 						}
 						if (cstatus.isSuccess()) {
 							rv.set(list, cstatus);
+							putFrontCache(frontCache, shape, tc, list, cstatus);
 							return;
 						}
 						switch (cstatus.getResponse()) {
@@ -534,6 +541,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 							break;
 						case NOT_FOUND_ELEMENT:
 							rv.set(list, cstatus);
+							putFrontCache(frontCache, shape, tc, list, cstatus);
 							if (getLogger().isDebugEnabled()) {
 								getLogger().debug("Element(%s) not found : %s",
 										k, cstatus);
@@ -573,6 +581,9 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 					}
 				});
 		rv.setOperation(op);
+		if (readKey != null) {
+			return addCoalescedOp(k, op, readKey, rv);
+		}
 		addOp(k, op);
 		return rv;
 	}
@@ -606,7 +617,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 */
 	private <T> CollectionFuture<Set<T>> asyncSopGet(final String k,
 			final CollectionGet collectionGet, final Transcoder<T> tc) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Set<T>> rv = new CollectionFuture<Set<T>>(latch,
 				operationTimeout);
 
@@ -688,7 +699,18 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	private <T> CollectionFuture<Map<Long, Element<T>>> asyncBopGet(
 			final String k, final CollectionGet collectionGet,
 			final boolean reverse, final Transcoder<T> tc) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final String shape = getFrontCacheShape(collectionGet);
+		CollectionFuture<Map<Long, Element<T>>> cached = getFrontCached(k, shape, tc);
+		if (cached != null) {
+			return cached;
+		}
+		final Object readKey = getCollectionReadKey(k, collectionGet, tc);
+		CollectionFuture<Map<Long, Element<T>>> joined = joinRead(readKey);
+		if (joined != null) {
+			return joined;
+		}
+		final CollectionCacheManager.Shapes frontCache = reserveFrontCache(k, shape);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Map<Long, Element<T>>> rv = new CollectionFuture<Map<Long, Element<T>>>(
 				latch, operationTimeout);
 		Operation op = opFact.collectionGet(k, collectionGet,
@@ -706,6 +728,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 						}
 						if (cstatus.isSuccess()) {
 							rv.set(map, cstatus);
+							putFrontCache(frontCache, shape, tc, map, cstatus);
 							return;
 						}
 						switch (cstatus.getResponse()) {
@@ -718,6 +741,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 							break;
 						case NOT_FOUND_ELEMENT:
 							rv.set(map, cstatus);
+							putFrontCache(frontCache, shape, tc, map, cstatus);
 							if (getLogger().isDebugEnabled()) {
 								getLogger().debug("Element(%s) not found : %s",
 										k, cstatus);
@@ -754,6 +778,9 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 					}
 				});
 		rv.setOperation(op);
+		if (readKey != null) {
+			return addCoalescedOp(k, op, readKey, rv);
+		}
 		addOp(k, op);
 		return rv;
 	}
@@ -768,7 +795,18 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 */
 	private <T> CollectionFuture<Map<String, T>> asyncMopGet(
 			final String k, final CollectionGet collectionGet, final Transcoder<T> tc) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final String shape = getFrontCacheShape(collectionGet);
+		CollectionFuture<Map<String, T>> cached = getFrontCached(k, shape, tc);
+		if (cached != null) {
+			return cached;
+		}
+		final Object readKey = getCollectionReadKey(k, collectionGet, tc);
+		CollectionFuture<Map<String, T>> joined = joinRead(readKey);
+		if (joined != null) {
+			return joined;
+		}
+		final CollectionCacheManager.Shapes frontCache = reserveFrontCache(k, shape);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Map<String, T>> rv = new CollectionFuture<Map<String, T>>(
 				latch, operationTimeout);
 		Operation op = opFact.collectionGet(k, collectionGet,
@@ -785,6 +823,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 						}
 						if (cstatus.isSuccess()) {
 							rv.set(map, cstatus);
+							putFrontCache(frontCache, shape, tc, map, cstatus);
 							return;
 						}
 						switch (cstatus.getResponse()) {
@@ -797,6 +836,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 								break;
 							case NOT_FOUND_ELEMENT:
 								rv.set(map, cstatus);
+								putFrontCache(frontCache, shape, tc, map, cstatus);
 								if (getLogger().isDebugEnabled()) {
 									getLogger().debug("Element(%s) not found : %s",
 											k, cstatus);
@@ -829,6 +869,9 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 					}
 				});
 		rv.setOperation(op);
+		if (readKey != null) {
+			return addCoalescedOp(k, op, readKey, rv);
+		}
 		addOp(k, op);
 		return rv;
 	}
@@ -861,7 +904,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	<T> CollectionFuture<Boolean> asyncCollectionStore(final String key,
 			final String subkey, final CollectionStore<T> collectionStore,
 			final CachedData co) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Boolean> rv = new CollectionFuture<Boolean>(
 				latch, operationTimeout);
 		Operation op = opFact.collectionStore(key, subkey, collectionStore,
@@ -917,7 +960,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 							+ CollectionPipedStore.MAX_PIPED_ITEM_COUNT + ".");
 		}
 		
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Map<Integer, CollectionOperationStatus>> rv = 
 			new CollectionFuture<Map<Integer, CollectionOperationStatus>>(latch, operationTimeout);
 
@@ -976,7 +1019,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 							+ CollectionPipedUpdate.MAX_PIPED_ITEM_COUNT + ".");
 		}
 
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Map<Integer, CollectionOperationStatus>> rv = new CollectionFuture<Map<Integer, CollectionOperationStatus>>(
 				latch, operationTimeout);
 
@@ -1028,7 +1071,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 
 		final ConcurrentLinkedQueue<Operation> ops = new ConcurrentLinkedQueue<Operation>();
 
-		final CountDownLatch latch = new CountDownLatch(updateList.size());
+		final CountDownLatch latch = new CompletionLatch(updateList.size());
 
 		final List<OperationStatus> mergedOperationStatus = Collections
 				.synchronizedList(new ArrayList<OperationStatus>(1));
@@ -1107,7 +1150,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 					TimeUnit units) throws InterruptedException,
 					TimeoutException, ExecutionException {
 
-				if (!latch.await(duration, units)) {
+				if (!await(latch, duration, units)) {
 					for (Operation op : ops) {
 						MemcachedConnection.opTimedOut(op);
 					}
@@ -1155,7 +1198,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 */
 	private CollectionFuture<Boolean> asyncCollectionDelete(
 			final String key, final CollectionDelete collectionDelete) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Boolean> rv = new CollectionFuture<Boolean>(
 				latch, operationTimeout);
 		Operation op = opFact.collectionDelete(key, collectionDelete,
@@ -1203,7 +1246,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	private <T> CollectionFuture<Boolean> asyncCollectionExist(
 			final String key, final String subkey,
 			final CollectionExist collectionExist, Transcoder<T> tc) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Boolean> rv = new CollectionFuture<Boolean>(
 				latch, operationTimeout);
 		Operation op = opFact.collectionExist(key, subkey, collectionExist,
@@ -1244,18 +1287,19 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @see net.spy.memcached.ArcusClient#asyncSetBulk(java.util.List, int, T, net.spy.memcached.transcoders.Transcoder)
 	 */
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncSetBulk(List<String> key, int exp, T o, Transcoder<T> tc) {
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncSetBulk(List<String> key, int exp, T o, Transcoder<T> tc) {
 		if (key == null) {
 			throw new IllegalArgumentException("Key list is null.");
 		}
-		return bulkService.setBulk(key, exp, o, tc, new ArcusClient[] { this });
+		List<CachedData> data = Collections.nCopies(key.size(), tc.encode(o));
+		return asyncStoreBulk(StoreType.set, key, exp, data);
 	}
 
 	/* (non-Javadoc)
 	 * @see net.spy.memcached.ArcusClient#asyncSetBulk(java.util.List, int, java.lang.Object)
 	 */
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncSetBulk(List<String> key, int exp, Object o) {
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncSetBulk(List<String> key, int exp, Object o) {
 		if (key == null) {
 			throw new IllegalArgumentException("Key list is null.");
 		}
@@ -1266,24 +1310,178 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @see net.spy.memcached.ArcusClient#asyncSetBulk(java.util.Map, int, net.spy.memcached.transcoders.Transcoder)
 	 */
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncSetBulk(Map<String, T> o, int exp, Transcoder<T> tc) {
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncSetBulk(Map<String, T> o, int exp, Transcoder<T> tc) {
 		if (o == null) {
 			throw new IllegalArgumentException("Map is null.");
 		}
-		return bulkService.setBulk(o, exp, tc, new ArcusClient[] { this });
+		List<String> keyList = new ArrayList<String>(o.size());
+		List<CachedData> data = new ArrayList<CachedData>(o.size());
+		for (Entry<String, T> e : o.entrySet()) {
+			keyList.add(e.getKey());
+			data.add(tc.encode(e.getValue()));
+		}
+		return asyncStoreBulk(StoreType.set, keyList, exp, data);
 	}
 
 	/* (non-Javadoc)
 	 * @see net.spy.memcached.ArcusClient#asyncSetBulk(java.util.Map, int)
 	 */
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncSetBulk(Map<String, Object> o, int exp) {
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncSetBulk(Map<String, Object> o, int exp) {
 		if (o == null) {
 			throw new IllegalArgumentException("Map is null.");
 		}
 		return asyncSetBulk(o, exp, transcoder);
 	}
 
+	/**
+	 * Generic bulk store operation for key-value items.  The keys are grouped
+	 * by node and the commands of each group are written as one operation.
+	 *
+	 * @param storeType  the type of store operation
+	 * @param keyList  the keys to store
+	 * @param exp  the expiration time
+	 * @param dataList  the data of each key
+	 * @return future holding the map of item key and the status of each key that was not stored
+	 */
+	private ListenableFuture<Map<String, CollectionOperationStatus>> asyncStoreBulk(
+			StoreType storeType, List<String> keyList, int exp,
+			List<CachedData> dataList) {
+		if (keyList.isEmpty()) {
+			throw new IllegalArgumentException("Keys size must be greater than 0");
+		}
+
+		MemcachedConnection conn = getMemcachedConnection();
+		Map<MemcachedNode, List<Integer>> arrangedIndex =
+			new HashMap<MemcachedNode, List<Integer>>();
+		for (int i = 0; i < keyList.size(); i++) {
+			String k = keyList.get(i);
+			validateKey(k);
+			MemcachedNode node = conn.findNodeByKey(k);
+			List<Integer> indexList = arrangedIndex.get(node);
+			if (indexList == null) {
+				indexList = new ArrayList<Integer>();
+				arrangedIndex.put(node, indexList);
+			}
+			indexList.add(i);
+		}
+		invalidateCollections(keyList);
+
+		int opCount = 0;
+		int maxOpCountPerNode = 0;
+		for (List<Integer> indexList : arrangedIndex.values()) {
+			int count = (indexList.size() + NON_PIPED_BULK_INSERT_CHUNK_SIZE - 1)
+					/ NON_PIPED_BULK_INSERT_CHUNK_SIZE;
+			opCount += count;
+			maxOpCountPerNode = Math.max(maxOpCountPerNode, count);
+		}
+
+		final ConcurrentLinkedQueue<Operation> ops = new ConcurrentLinkedQueue<Operation>();
+
+		final Map<String, CollectionOperationStatus> failedResult = new ConcurrentHashMap<String, CollectionOperationStatus>();
+
+		final CountDownLatch latch = new CompletionLatch(opCount);
+
+		for (List<Integer> indexList : arrangedIndex.values()) {
+			for (int from = 0; from < indexList.size();
+					from += NON_PIPED_BULK_INSERT_CHUNK_SIZE) {
+				int to = Math.min(from + NON_PIPED_BULK_INSERT_CHUNK_SIZE,
+						indexList.size());
+				final List<String> eachKeyList = new ArrayList<String>(to - from);
+				List<CachedData> eachDataList = new ArrayList<CachedData>(to - from);
+				for (int i = from; i < to; i++) {
+					eachKeyList.add(keyList.get(indexList.get(i)));
+					eachDataList.add(dataList.get(indexList.get(i)));
+				}
+				BulkStoreOperation.Callback cb = new BulkStoreOperation.Callback() {
+					public void receivedStatus(OperationStatus status) {
+					}
+
+					public void complete() {
+						latch.countDown();
+					}
+
+					public void gotStatus(Integer index, OperationStatus status) {
+						failedResult.put(eachKeyList.get(index),
+								new CollectionOperationStatus(status));
+					}
+				};
+				if (opFact instanceof BinaryOperationFactory) {
+					// the binary protocol has no bulk store, so store each key
+					for (Operation op : BaseOperationFactory.storeEach(opFact,
+							storeType, eachKeyList, exp, eachDataList, cb)) {
+						ops.add(op);
+						addOp(((KeyedOperation) op).getKeys().iterator().next(), op);
+					}
+				} else {
+					Operation op = opFact.bulkStore(storeType, eachKeyList, exp,
+							eachDataList, cb);
+					ops.add(op);
+					addOp(eachKeyList.get(0), op);
+				}
+			}
+		}
+
+		// the operations of a node complete one after another
+		return new CollectionFuture<Map<String, CollectionOperationStatus>>(
+				latch, operationTimeout * maxOpCountPerNode) {
+
+			@Override
+			public boolean cancel(boolean ign) {
+				boolean rv = false;
+				for (Operation op : ops) {
+					op.cancel("by application.");
+					rv |= op.getState() == OperationState.WRITING;
+				}
+				return rv;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				for (Operation op : ops) {
+					if (op.isCancelled())
+						return true;
+				}
+				return false;
+			}
+
+			@Override
+			public Map<String, CollectionOperationStatus> get(long duration,
+					TimeUnit units) throws InterruptedException,
+					TimeoutException, ExecutionException {
+				if (!await(latch, duration, units)) {
+					for (Operation op : ops) {
+						MemcachedConnection.opTimedOut(op);
+					}
+					throw new CheckedOperationTimeoutException(
+							"Timed out waiting for bulk operation >" + duration + " " + units, ops);
+				} else {
+					// continuous timeout counter will be reset
+					for (Operation op : ops) {
+						MemcachedConnection.opSucceeded(op);
+					}
+				}
+
+				for (Operation op : ops) {
+					if (op != null && op.hasErrored()) {
+						throw new ExecutionException(op.getException());
+					}
+
+					if (op.isCancelled()) {
+						throw new ExecutionException(new RuntimeException(op.getCancelCause()));
+					}
+				}
+
+				return failedResult;
+			}
+
+			@Override
+			public CollectionOperationStatus getOperationStatus() {
+				return null;
+			}
+		};
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see net.spy.memcached.ArcusClientIF#getMaxPipedItemCount()
@@ -1360,7 +1558,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 */
 	CollectionFuture<Boolean> asyncCollectionCreate(final String key,
 			final CollectionCreate collectionCreate) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Boolean> rv = new CollectionFuture<Boolean>(
 				latch, operationTimeout);
 
@@ -1720,7 +1918,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	private CollectionFuture<Integer> asyncCollectionCount(final String k,
 			final CollectionCount collectionCount) {
 
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 
 		final CollectionFuture<Integer> rv = new CollectionFuture<Integer>(
 				latch, operationTimeout);
@@ -2099,7 +2297,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			@Override
 			public Boolean get(long duration, TimeUnit units)
 					throws InterruptedException, TimeoutException, ExecutionException {
-				if(!blatch.await(duration, units)) {
+				if(!await(blatch, duration, units)) {
 					// whenever timeout occurs, continuous timeout counter will increase by 1.
 					for (Operation op : ops) {
 						MemcachedConnection.opTimedOut(op);
@@ -2300,17 +2498,14 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 		final String DUPLICATED = "DUPLICATED";
 		final String DUPLICATED_TRIMMED = "DUPLICATED_TRIMMED";
 		
-		final CountDownLatch blatch = new CountDownLatch(smGetList.size());
+		final CountDownLatch blatch = new CompletionLatch(smGetList.size());
 		final ConcurrentLinkedQueue<Operation> ops = new ConcurrentLinkedQueue<Operation>();
 		final List<String> missedKeyList = Collections.synchronizedList(new ArrayList<String>());
 		final Map<String, CollectionOperationStatus> missedKeys = 
 				Collections.synchronizedMap(new HashMap<String, CollectionOperationStatus>());
 		final List<SMGetTrimKey> mergedTrimmedKeys = Collections.synchronizedList(new ArrayList<SMGetTrimKey>());
-		final int totalResultElementCount = count + offset;
-		
-		final List<SMGetElement<T>> mergedResult = Collections.synchronizedList(new ArrayList<SMGetElement<T>>(totalResultElementCount));
-		
-		final ReentrantLock lock = new ReentrantLock();
+		final SMGetResultMerger<T> merger = new SMGetResultMerger<T>(
+				count + offset, reverse, false);
 		
 		final List<OperationStatus> resultOperationStatus = Collections.synchronizedList(new ArrayList<OperationStatus>(1));
 
@@ -2318,7 +2513,6 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 
 		// if processedSMGetCount is 0, then all smget is done.
 		final AtomicInteger processedSMGetCount = new AtomicInteger(smGetList.size());
-		final AtomicBoolean mergedTrim = new AtomicBoolean(false);
 		final AtomicBoolean stopCollect = new AtomicBoolean(false);
 	
 		for (BTreeSMGet<T> smGet : smGetList) {
@@ -2327,85 +2521,33 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 
 				@Override
 				public void receivedStatus(OperationStatus status) {
-					processedSMGetCount.decrementAndGet();
-
 					if (!status.isSuccess()) {
 						getLogger().warn("SMGetFailed. status=%s", status);
 						if (!stopCollect.get()) {
 							stopCollect.set(true);
 							failedOperationStatus.add(status);
 						}
-						mergedResult.clear();
-						return;
+						merger.clear();
+					} else if (!stopCollect.get()) {
+						boolean isTrimmed = TRIMMED.equals(status.getMessage()) ||
+						                    DUPLICATED_TRIMMED.equals(status.getMessage());
+						merger.add(eachResult, isTrimmed);
 					}
 
-					boolean isTrimmed = (TRIMMED.equals(status.getMessage()) ||
-					                     DUPLICATED_TRIMMED.equals(status.getMessage()))
-					                  ? true : false;
-					lock.lock();
-					try {
-						if (mergedResult.size() == 0) {
-							// merged result is empty, add all.
-							mergedResult.addAll(eachResult);
-							mergedTrim.set(isTrimmed);
+					// the last chunk to complete merges all of them
+					if (processedSMGetCount.decrementAndGet() == 0) {
+						merger.merge();
+						if (merger.isTrimmed()) {
+							if (merger.isDuplicated())
+								resultOperationStatus.add(new OperationStatus(true, "DUPLICATED_TRIMMED"));
+							else
+								resultOperationStatus.add(new OperationStatus(true, "TRIMMED"));
 						} else {
-							boolean addAll = true;
-							int pos = 0;
-							for (SMGetElement<T> result : eachResult) {
-								for ( ; pos < mergedResult.size(); pos++) {
-									if ((reverse) ? (0 < result.compareTo(mergedResult.get(pos)))
-									              : (0 > result.compareTo(mergedResult.get(pos))))
-										break;
-								}
-								if (pos >= totalResultElementCount) {
-									addAll = false; break;
-								}
-								if (pos >= mergedResult.size() && mergedTrim.get() &&
-									result.compareBkeyTo(mergedResult.get(pos-1)) != 0) {
-									addAll = false; break;
-								}
-								mergedResult.add(pos, result);
-								if (mergedResult.size() > totalResultElementCount) {
-									mergedResult.remove(totalResultElementCount);
-								}
-								pos += 1;
-							}
-							if (isTrimmed && addAll) {
-								while (pos < mergedResult.size()) {
-									if (mergedResult.get(pos).compareBkeyTo(mergedResult.get(pos-1)) == 0) {
-										pos += 1;
-									} else {
-										mergedResult.remove(pos);
-									}
-								}
-								mergedTrim.set(true);
-							}
-							if (mergedResult.size() >= totalResultElementCount) {
- 								mergedTrim.set(false);
-							}
-						}
-
-						if (processedSMGetCount.get() == 0) {
-							boolean isDuplicated = false;
-							for (int i = 1; i < mergedResult.size(); i++) {
-								if (mergedResult.get(i).compareBkeyTo(mergedResult.get(i-1)) == 0) {
-									isDuplicated = true; break;
-								}
-							}
-							if (mergedTrim.get()) {
-								if (isDuplicated)
-									resultOperationStatus.add(new OperationStatus(true, "DUPLICATED_TRIMMED"));
-								else
-									resultOperationStatus.add(new OperationStatus(true, "TRIMMED"));
-							} else {
-								if (isDuplicated)
-									resultOperationStatus.add(new OperationStatus(true, "DUPLICATED"));
-								else
-									resultOperationStatus.add(new OperationStatus(true, "END"));
-							}
+							if (merger.isDuplicated())
+								resultOperationStatus.add(new OperationStatus(true, "DUPLICATED"));
+							else
+								resultOperationStatus.add(new OperationStatus(true, "END"));
 						}
-					} finally {
-						lock.unlock();
 					}
 				}
 
@@ -2437,12 +2579,12 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			addOp(smGet.getRepresentKey(), op);
 		}
 
-		return new SMGetFuture<List<SMGetElement<T>>>(ops, operationTimeout) {
+		return new SMGetFuture<List<SMGetElement<T>>>(ops, blatch, operationTimeout) {
 			@Override
 			public List<SMGetElement<T>> get(long duration, TimeUnit units)
 					throws InterruptedException, TimeoutException,
 					ExecutionException {
-				if (!blatch.await(duration, units)) {
+				if (!await(blatch, duration, units)) {
 					for (Operation op : ops) {
 						MemcachedConnection.opTimedOut(op);
 					}
@@ -2467,9 +2609,9 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 				}
 
 				if (smGetList.size() == 1) 
-					return mergedResult;
+					return merger.getMergedResult();
 				
-				return getSubList(mergedResult, offset, count);
+				return getSubList(merger.getMergedResult(), offset, count);
 			}
 
 			@Override
@@ -2506,18 +2648,14 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 		final String DUPLICATED = "DUPLICATED";
 		final String DUPLICATED_TRIMMED = "DUPLICATED_TRIMMED";
 		
-		final CountDownLatch blatch = new CountDownLatch(smGetList.size());
+		final CountDownLatch blatch = new CompletionLatch(smGetList.size());
 		final ConcurrentLinkedQueue<Operation> ops = new ConcurrentLinkedQueue<Operation>();
 		final List<String> missedKeyList = 
 					Collections.synchronizedList(new ArrayList<String>());
 		final Map<String, CollectionOperationStatus> missedKeys = 
 					Collections.synchronizedMap(new HashMap<String, CollectionOperationStatus>());
-		final int totalResultElementCount = count;
-		
-		final List<SMGetElement<T>> mergedResult = Collections.synchronizedList(new ArrayList<SMGetElement<T>>(totalResultElementCount));
-		final List<SMGetTrimKey> mergedTrimmedKeys = Collections.synchronizedList(new ArrayList<SMGetTrimKey>());
-		
-		final ReentrantLock lock = new ReentrantLock();
+		final SMGetResultMerger<T> merger = new SMGetResultMerger<T>(
+				count, reverse, smgetMode == SMGetMode.UNIQUE);
 		
 		final List<OperationStatus> resultOperationStatus = Collections.synchronizedList(new ArrayList<OperationStatus>(1));
 
@@ -2534,124 +2672,28 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 
 				@Override
 				public void receivedStatus(OperationStatus status) {
-					processedSMGetCount.decrementAndGet();
-
 					if (!status.isSuccess()) {
 						getLogger().warn("SMGetFailed. status=%s", status);
 						if (!stopCollect.get()) {
 							stopCollect.set(true);
 							failedOperationStatus.add(status);
 						}
-						mergedResult.clear();
-						mergedTrimmedKeys.clear();
-						return;
+						merger.clear();
+					} else if (!stopCollect.get()) {
+						merger.add(eachResult);
+						merger.addTrimmedKeys(eachTrimmedResult);
 					}
 
-					lock.lock();
-					try {
-						if (mergedResult.size() == 0) {
-							// merged result is empty, add all.
-							mergedResult.addAll(eachResult);
+					// the last chunk to complete merges all of them
+					if (processedSMGetCount.decrementAndGet() == 0) {
+						merger.merge();
+						if (smgetMode == SMGetMode.UNIQUE) {
+							resultOperationStatus.add(new OperationStatus(true, "END"));
+						} else if (merger.isDuplicated()) {
+							resultOperationStatus.add(new OperationStatus(true, "DUPLICATED"));
 						} else {
-							// do sort merge
-							boolean duplicated;
-							int comp, pos = 0;
-							for (SMGetElement<T> result : eachResult) {
-								duplicated = false;
-								for ( ; pos < mergedResult.size(); pos++) {
-									// compare b+tree key
-									comp = result.compareBkeyTo(mergedResult.get(pos));
-									if ((reverse) ? (0 < comp) : (0 > comp)) {
-										break;
-									}
-									if (comp == 0) { // compare key string
-										comp = result.compareKeyTo(mergedResult.get(pos));
-										if ((reverse) ? (0 < comp) : (0 > comp)) {
-											if (smgetMode == SMGetMode.UNIQUE)
-												mergedResult.remove(pos); // remove dup bkey
-											break;
-										} else {
-											if (smgetMode == SMGetMode.UNIQUE) {
-												duplicated = true; break;
-											}
-										}
-									}
-								}
-								if (duplicated) { // UNIQUE
-									continue;
-								}
-								if (pos >= totalResultElementCount) {
-									// At this point, following conditions are met.
-									//   - mergedResult.size() == totalResultElementCount &&
-									//   - The current <bkey, key> of eachResult is
-									//     behind of the last <bkey, key> of mergedResult.
-									// Then, all the next <bkey, key> elements of eachResult are
-									// definitely behind of the last <bkey, bkey> of mergedResult.
-									// So, stop the current sort-merge.
-									break;
-								}
-
-								mergedResult.add(pos, result);
-								if (mergedResult.size() > totalResultElementCount) {
-									mergedResult.remove(totalResultElementCount);
-								}
-								pos += 1;
-							}
-						}
-
-						if (eachTrimmedResult.size() > 0) {
-							if (mergedTrimmedKeys.size() == 0) {
-								mergedTrimmedKeys.addAll(eachTrimmedResult);
-							} else {
-								// do sort merge trimmed list
-								int pos = 0;
-								for (SMGetTrimKey result : eachTrimmedResult) {
-									for ( ; pos < mergedTrimmedKeys.size(); pos++) {
-										if ((reverse) ? (0 < result.compareTo(mergedTrimmedKeys.get(pos)))
-										              : (0 > result.compareTo(mergedTrimmedKeys.get(pos)))) {
-											break;
-										}
-									}
-									mergedTrimmedKeys.add(pos, result);
-									pos += 1;
-								}
-							}
-						}
-
-						if (processedSMGetCount.get() == 0)
-						{
-							if (mergedTrimmedKeys.size() > 0 && count <= mergedResult.size()) {
-								// remove trimed keys whose bkeys are behind of the last element.
-								SMGetElement<T> lastElement = mergedResult.get(mergedResult.size()-1);
-								SMGetTrimKey lastTrimKey = new SMGetTrimKey(lastElement.getKey(),
-								                                            lastElement.getBkeyByObject());
-								for (int i = mergedTrimmedKeys.size()-1; i >= 0; i--) {
-									SMGetTrimKey me = mergedTrimmedKeys.get(i);
-									if ((reverse) ? (0 >= me.compareBkeyTo(lastTrimKey))
-									              : (0 <= me.compareBkeyTo(lastTrimKey))) {
-										mergedTrimmedKeys.remove(i);
-									} else {
-										break;
-									}
-								}
-							}
-							if (smgetMode == SMGetMode.UNIQUE) {
-								resultOperationStatus.add(new OperationStatus(true, "END"));
-							} else {
-								boolean isDuplicated = false;
-								for (int i = 1; i < mergedResult.size(); i++) {
-									if (mergedResult.get(i).compareBkeyTo(mergedResult.get(i-1)) == 0) {
-										isDuplicated = true; break;
-									}
-								}
-								if (isDuplicated)
-									resultOperationStatus.add(new OperationStatus(true, "DUPLICATED"));
-								else
-									resultOperationStatus.add(new OperationStatus(true, "END"));
-							}
+							resultOperationStatus.add(new OperationStatus(true, "END"));
 						}
-					} finally {
-						lock.unlock();
 					}
 				}
 
@@ -2694,12 +2736,12 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			addOp(smGet.getRepresentKey(), op);
 		}
 
-		return new SMGetFuture<List<SMGetElement<T>>>(ops, operationTimeout) {
+		return new SMGetFuture<List<SMGetElement<T>>>(ops, blatch, operationTimeout) {
 			@Override
 			public List<SMGetElement<T>> get(long duration, TimeUnit units)
 					throws InterruptedException, TimeoutException,
 					ExecutionException {
-				if (!blatch.await(duration, units)) {
+				if (!await(blatch, duration, units)) {
 					for (Operation op : ops) {
 						MemcachedConnection.opTimedOut(op);
 					}
@@ -2723,9 +2765,9 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 				}
 
 				if (smGetList.size() == 1)
-					return mergedResult;
+					return merger.getMergedResult();
 				
-				return getSubList(mergedResult, 0, count);
+				return getSubList(merger.getMergedResult(), 0, count);
 			}
 
 			@Override
@@ -2740,7 +2782,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			
 			@Override
 			public List<SMGetTrimKey> getTrimmedKeys() {
-				return mergedTrimmedKeys;
+				return merger.getTrimmedKeys();
 			}
 			
 			@Override
@@ -2790,7 +2832,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 		CachedData co = tc.encode(collectionStore.getValue());
 		collectionStore.setFlags(co.getFlags());
 
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Boolean> rv = new CollectionFuture<Boolean>(
 				latch, operationTimeout);
 		Operation op = opFact.collectionUpsert(key, subkey, collectionStore,
@@ -2926,7 +2968,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			collectionUpdate.setFlags(co.getFlags());
 		}
 
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Boolean> rv = new CollectionFuture<Boolean>(
 				latch, operationTimeout);
 
@@ -3140,7 +3182,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			final String k, final CollectionGet collectionGet,
 			final boolean reverse, final Transcoder<T> tc) {
 
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Map<ByteArrayBKey, Element<T>>> rv = new CollectionFuture<Map<ByteArrayBKey, Element<T>>>(
 				latch, operationTimeout);
 
@@ -3264,7 +3306,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			throw new IllegalArgumentException("Position must be 0 or positive integer.");
 		}
 		
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Map<Integer, Element<T>>> rv = new CollectionFuture<Map<Integer, Element<T>>>(
 				latch, operationTimeout);
 
@@ -3365,7 +3407,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @return future holding the element's position
 	 */
 	private CollectionFuture<Integer> asyncBopFindPosition(final String k, final BTreeFindPosition get) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Integer> rv = new CollectionFuture<Integer>(latch, operationTimeout);
 
 		Operation op = opFact.bopFindPosition(k, get, new BTreeFindPositionOperation.Callback() {
@@ -3484,7 +3526,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			throw new IllegalArgumentException("Count must be a value between 0 and 100.");
 		}
 
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Map<Integer, Element<T>>> rv = new CollectionFuture<Map<Integer, Element<T>>>(
 				latch, operationTimeout);
 
@@ -3652,7 +3694,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 		CachedData co = tc.encode(get.getValue());
 		get.setFlags(co.getFlags());
 		
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final BTreeStoreAndGetFuture<Boolean, E> rv = new BTreeStoreAndGetFuture<Boolean, E>(
 				latch, operationTimeout);
 
@@ -3844,7 +3886,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 							+ CollectionPipedStore.MAX_PIPED_ITEM_COUNT + ".");
 		}
 
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final CollectionFuture<Map<T, Boolean>> rv = new CollectionFuture<Map<T, Boolean>>(
 				latch, operationTimeout);
 
@@ -4023,7 +4065,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 
 		final ConcurrentLinkedQueue<Operation> ops = new ConcurrentLinkedQueue<Operation>();
 
-		final CountDownLatch latch = new CountDownLatch(storeList.size());
+		final CountDownLatch latch = new CompletionLatch(storeList.size());
 
 		final List<OperationStatus> mergedOperationStatus = Collections
 				.synchronizedList(new ArrayList<OperationStatus>(1));
@@ -4102,7 +4144,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 					TimeUnit units) throws InterruptedException,
 					TimeoutException, ExecutionException {
 
-				if (!latch.await(duration, units)) {
+				if (!await(latch, duration, units)) {
 					for (Operation op : ops) {
 						MemcachedConnection.opTimedOut(op);
 					}
@@ -4146,7 +4188,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @see net.spy.memcached.ArcusClientIF#asyncBopInsertBulk(java.util.List, long, byte[], java.lang.Object, net.spy.memcached.collection.CollectionAttributes)
 	 */
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
 			List<String> keyList, long bkey, byte[] eFlag, Object value,
 			CollectionAttributes attributesForCreate) {
 		
@@ -4159,7 +4201,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @see net.spy.memcached.ArcusClientIF#asyncBopInsertBulk(java.util.List, long, byte[], java.lang.Object, net.spy.memcached.collection.CollectionAttributes, net.spy.memcached.transcoders.Transcoder)
 	 */
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
 			List<String> keyList, long bkey, byte[] eFlag, T value,
 			CollectionAttributes attributesForCreate, Transcoder<T> tc) {
 
@@ -4177,7 +4219,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	}
 
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
 			List<String> keyList, byte[] bkey, byte[] eFlag, Object value,
 			CollectionAttributes attributesForCreate) {
 		
@@ -4186,7 +4228,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	}
 
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
 			List<String> keyList, byte[] bkey, byte[] eFlag, T value,
 			CollectionAttributes attributesForCreate, Transcoder<T> tc) {
 
@@ -4207,7 +4249,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @see net.spy.memcached.ArcusClientIF#asyncMopInsertBulk(java.util.List, java.lang.String, java.lang.Object, net.spy.memcached.collection.CollectionAttributes)
 	 */
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncMopInsertBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncMopInsertBulk(
 			List<String> keyList, String mkey, Object value,
 			CollectionAttributes attributesForCreate) {
 
@@ -4220,7 +4262,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @see net.spy.memcached.ArcusClientIF#asyncMopInsertBulk(java.util.List, java.lang.String, java.lang.Object, net.spy.memcached.collection.CollectionAttributes, net.spy.memcached.transcoders.Transcoder)
 	 */
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncMopInsertBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncMopInsertBulk(
 			List<String> keyList, String mkey, T value,
 			CollectionAttributes attributesForCreate, Transcoder<T> tc) {
 
@@ -4243,7 +4285,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @see net.spy.memcached.ArcusClientIF#asyncSopInsertBulk(java.util.List, java.lang.Object, net.spy.memcached.collection.CollectionAttributes)
 	 */
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncSopInsertBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncSopInsertBulk(
 			List<String> keyList, Object value,
 			CollectionAttributes attributesForCreate) {
 
@@ -4256,7 +4298,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @see net.spy.memcached.ArcusClientIF#asyncSopInsertBulk(java.util.List, java.lang.Object, net.spy.memcached.collection.CollectionAttributes, net.spy.memcached.transcoders.Transcoder)
 	 */
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncSopInsertBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncSopInsertBulk(
 			List<String> keyList, T value,
 			CollectionAttributes attributesForCreate, Transcoder<T> tc) {
 
@@ -4277,7 +4319,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @see net.spy.memcached.ArcusClientIF#asyncLopInsertBulk(java.util.List, int, java.lang.Object, net.spy.memcached.collection.CollectionAttributes)
 	 */
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncLopInsertBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncLopInsertBulk(
 			List<String> keyList, int index, Object value,
 			CollectionAttributes attributesForCreate) {
 
@@ -4290,7 +4332,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @see net.spy.memcached.ArcusClientIF#asyncLopInsertBulk(java.util.List, int, java.lang.Object, net.spy.memcached.collection.CollectionAttributes, net.spy.memcached.transcoders.Transcoder)
 	 */
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncLopInsertBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncLopInsertBulk(
 			List<String> keyList, int index, T value,
 			CollectionAttributes attributesForCreate, Transcoder<T> tc) {
 
@@ -4312,16 +4354,17 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	 * @param storeList  list of operation parameters (item keys, element values, and so on)
 	 * @return future holding the map of item key and the result of the store operation on that key
 	 */
-	private <T> Future<Map<String, CollectionOperationStatus>> asyncCollectionInsertBulk2(
+	private <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncCollectionInsertBulk2(
 			List<CollectionBulkStore<T>> storeList) {
 
 		final ConcurrentLinkedQueue<Operation> ops = new ConcurrentLinkedQueue<Operation>();
 
 		final Map<String, CollectionOperationStatus> failedResult = new ConcurrentHashMap<String, CollectionOperationStatus>();
 
-		final CountDownLatch latch = new CountDownLatch(storeList.size());
+		final CountDownLatch latch = new CompletionLatch(storeList.size());
 
 		for (final CollectionBulkStore<T> store : storeList) {
+			invalidateCollections(store.getKeyList());
 			Operation op = opFact.collectionBulkStore(store.getKeyList(),
 					store, new CollectionBulkStoreOperation.Callback() {
 						public void receivedStatus(OperationStatus status) {
@@ -4379,7 +4422,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			public Map<String, CollectionOperationStatus> get(long duration,
 					TimeUnit units) throws InterruptedException,
 					TimeoutException, ExecutionException {
-				if (!latch.await(duration, units)) {
+				if (!await(latch, duration, units)) {
 					for (Operation op : ops) {
 						MemcachedConnection.opTimedOut(op);
 					}
@@ -4518,9 +4561,10 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			final List<BTreeGetBulk<T>> getBulkList, final int offset,
 			final int count, final boolean reverse, final Transcoder<T> tc) {
 
-		final CountDownLatch latch = new CountDownLatch(getBulkList.size());
+		final CountDownLatch latch = new CompletionLatch(getBulkList.size());
 		final ConcurrentLinkedQueue<Operation> ops = new ConcurrentLinkedQueue<Operation>();
 		final Map<String, BTreeGetResult<Long, T>> result = new ConcurrentHashMap<String, BTreeGetResult<Long, T>>();
+		final BulkElementDecoder<Long, T> decoder = new BulkElementDecoder<Long, T>(tcService, tc);
 
 		for (BTreeGetBulk<T> getBulk : getBulkList) {
 			Operation op = opFact.bopGetBulk(getBulk, new BTreeGetBulkOperation.Callback<T>() {
@@ -4544,16 +4588,14 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 				
 				@Override
 				public void gotElement(String key, Object subkey, int flags, byte[] eflag, byte[] data) {
-					result.get(key).addElement(
-							new BTreeElement<Long, T>((Long)subkey, eflag,
-									tc.decode(new CachedData(flags, data, tc.getMaxSize()))));
+					decoder.add(result.get(key), (Long)subkey, eflag, flags, data);
 				}
 			});
 			ops.add(op);
 			addOp(getBulk.getRepresentKey(), op);
 		}
 
-		return new CollectionGetBulkFuture<Map<String, BTreeGetResult<Long, T>>>(latch, ops, result, operationTimeout);
+		return new CollectionGetBulkFuture<Map<String, BTreeGetResult<Long, T>>>(latch, ops, result, operationTimeout, decoder);
 	}
 	
 	/**
@@ -4570,9 +4612,10 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 			final List<BTreeGetBulk<T>> getBulkList, final int offset,
 			final int count, final boolean reverse, final Transcoder<T> tc) {
 
-		final CountDownLatch latch = new CountDownLatch(getBulkList.size());
+		final CountDownLatch latch = new CompletionLatch(getBulkList.size());
 		final ConcurrentLinkedQueue<Operation> ops = new ConcurrentLinkedQueue<Operation>();
 		final Map<String, BTreeGetResult<ByteArrayBKey, T>> result = new ConcurrentHashMap<String, BTreeGetResult<ByteArrayBKey, T>>();
+		final BulkElementDecoder<ByteArrayBKey, T> decoder = new BulkElementDecoder<ByteArrayBKey, T>(tcService, tc);
 
 		for (BTreeGetBulk<T> getBulk : getBulkList) {
 			Operation op = opFact.bopGetBulk(getBulk, new BTreeGetBulkOperation.Callback<T>() {
@@ -4596,17 +4639,14 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 				
 				@Override
 				public void gotElement(String key, Object subkey, int flags, byte[] eflag, byte[] data) {
-					result.get(key).addElement(
-						new BTreeElement<ByteArrayBKey, T>(
-								new ByteArrayBKey((byte[]) subkey),
-								eflag, tc.decode(new CachedData(flags, data, tc.getMaxSize()))));
+					decoder.add(result.get(key), new ByteArrayBKey((byte[]) subkey), eflag, flags, data);
 				}
 			});
 			ops.add(op);
 			addOp(getBulk.getRepresentKey(), op);
 		}
 
-		return new CollectionGetBulkFuture<Map<String, BTreeGetResult<ByteArrayBKey, T>>>(latch, ops, result, operationTimeout);
+		return new CollectionGetBulkFuture<Map<String, BTreeGetResult<ByteArrayBKey, T>>>(latch, ops, result, operationTimeout, decoder);
 	}
 
 	@Override
@@ -4676,7 +4716,7 @@ public class ArcusClient extends FrontCacheMemcachedClient implements ArcusClien
 	private CollectionFuture<Long> asyncCollectionMutate(final String k, final String subkey,
 			final CollectionMutate collectionMutate) {
 
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 
 		final CollectionFuture<Long> rv = new CollectionFuture<Long>(latch,
 				operationTimeout);
@@ -25,6 +25,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.spy.memcached.collection.Attributes;
 import net.spy.memcached.collection.BTreeGetResult;
@@ -43,6 +44,7 @@ import net.spy.memcached.internal.BTreeStoreAndGetFuture;
 import net.spy.memcached.internal.BulkFuture;
 import net.spy.memcached.internal.CollectionFuture;
 import net.spy.memcached.internal.CollectionGetBulkFuture;
+import net.spy.memcached.internal.ListenableFuture;
 import net.spy.memcached.internal.OperationFuture;
 import net.spy.memcached.internal.SMGetFuture;
 import net.spy.memcached.ops.CollectionOperationStatus;
@@ -50,18 +52,37 @@ import net.spy.memcached.transcoders.Transcoder;
 
 /**
  * Bags for ArcusClient
+ *
+ * The key-value futures are declared as before, so that code compiled
+ * against earlier versions still links.  They are the
+ * {@link ListenableFuture}s of the picked client; cast them to add
+ * listeners.
  */
 public class ArcusClientPool implements ArcusClientIF {
 
+	// one per thread, so that picking a client contends on nothing
+	private static final ThreadLocal<Random> RANDOM = new ThreadLocal<Random>() {
+		@Override
+		protected Random initialValue() {
+			return new Random();
+		}
+	};
+
 	int poolSize;
 	ArcusClient[] client;
-	Random rand;
+	private volatile ClientSelection selection = ClientSelection.RANDOM;
+	private final AtomicInteger nextPinned = new AtomicInteger();
+	private final ThreadLocal<ArcusClient> pinned = new ThreadLocal<ArcusClient>() {
+		@Override
+		protected ArcusClient initialValue() {
+			return client[(nextPinned.getAndIncrement() & Integer.MAX_VALUE) % poolSize];
+		}
+	};
 
 	public ArcusClientPool(int poolSize, ArcusClient[] client) {
 
 		this.poolSize = poolSize;
 		this.client = client;
-		rand = new Random();
 	}
 
 	/**
@@ -70,7 +91,49 @@ public class ArcusClientPool implements ArcusClientIF {
 	 * @return ArcusClient
 	 */
 	public ArcusClient getClient() {
-		return client[rand.nextInt(poolSize)];
+		switch (selection) {
+		case LEAST_OUTSTANDING:
+			return getLeastOutstandingClient();
+		case THREAD_AFFINITY:
+			return pinned.get();
+		default:
+			return client[RANDOM.get().nextInt(poolSize)];
+		}
+	}
+
+	// the less loaded of two distinct clients picked at random
+	private ArcusClient getLeastOutstandingClient() {
+		if (poolSize == 1) {
+			return client[0];
+		}
+		Random r = RANDOM.get();
+		int i = r.nextInt(poolSize);
+		int j = r.nextInt(poolSize - 1);
+		if (j >= i) {
+			j++;
+		}
+		ArcusClient a = client[i];
+		ArcusClient b = client[j];
+		return b.getMemcachedConnection().getOutstandingCount()
+				< a.getMemcachedConnection().getOutstandingCount() ? b : a;
+	}
+
+	/**
+	 * Set how the client for an operation is picked.  The default is
+	 * {@link ClientSelection#RANDOM}.
+	 */
+	public void setClientSelection(ClientSelection to) {
+		if (to == null) {
+			throw new IllegalArgumentException("Client selection must not be null.");
+		}
+		selection = to;
+	}
+
+	/**
+	 * Get how the client for an operation is picked.
+	 */
+	public ClientSelection getClientSelection() {
+		return selection;
 	}
 
 	/**
@@ -134,6 +197,15 @@ public class ArcusClientPool implements ArcusClientIF {
 		return this.getClient().add(key, exp, o);
 	}
 
+	public <T> ListenableFuture<Boolean> add(byte[] key, int exp, T o,
+			Transcoder<T> tc) {
+		return this.getClient().add(key, exp, o, tc);
+	}
+
+	public ListenableFuture<Boolean> add(byte[] key, int exp, Object o) {
+		return this.getClient().add(key, exp, o);
+	}
+
 	public <T> Future<Boolean> set(String key, int exp, T o, Transcoder<T> tc) {
 		return this.getClient().set(key, exp, o, tc);
 	}
@@ -142,6 +214,15 @@ public class ArcusClientPool implements ArcusClientIF {
 		return this.getClient().set(key, exp, o);
 	}
 
+	public <T> ListenableFuture<Boolean> set(byte[] key, int exp, T o,
+			Transcoder<T> tc) {
+		return this.getClient().set(key, exp, o, tc);
+	}
+
+	public ListenableFuture<Boolean> set(byte[] key, int exp, Object o) {
+		return this.getClient().set(key, exp, o);
+	}
+
 	public <T> Future<Boolean> replace(String key, int exp, T o,
 			Transcoder<T> tc) {
 		return this.getClient().replace(key, exp, o, tc);
@@ -151,6 +232,15 @@ public class ArcusClientPool implements ArcusClientIF {
 		return this.getClient().replace(key, exp, o);
 	}
 
+	public <T> ListenableFuture<Boolean> replace(byte[] key, int exp, T o,
+			Transcoder<T> tc) {
+		return this.getClient().replace(key, exp, o, tc);
+	}
+
+	public ListenableFuture<Boolean> replace(byte[] key, int exp, Object o) {
+		return this.getClient().replace(key, exp, o);
+	}
+
 	public <T> Future<T> asyncGet(String key, Transcoder<T> tc) {
 		return this.getClient().asyncGet(key, tc);
 	}
@@ -159,6 +249,14 @@ public class ArcusClientPool implements ArcusClientIF {
 		return this.getClient().asyncGet(key);
 	}
 
+	public <T> ListenableFuture<T> asyncGet(byte[] key, Transcoder<T> tc) {
+		return this.getClient().asyncGet(key, tc);
+	}
+
+	public ListenableFuture<Object> asyncGet(byte[] key) {
+		return this.getClient().asyncGet(key);
+	}
+
 	public <T> Future<CASValue<T>> asyncGets(String key, Transcoder<T> tc) {
 		return this.getClient().asyncGets(key, tc);
 	}
@@ -185,6 +283,15 @@ public class ArcusClientPool implements ArcusClientIF {
 		return this.getClient().get(key);
 	}
 
+	public <T> T get(byte[] key, Transcoder<T> tc)
+			throws OperationTimeoutException {
+		return this.getClient().get(key, tc);
+	}
+
+	public Object get(byte[] key) throws OperationTimeoutException {
+		return this.getClient().get(key);
+	}
+
 	public <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
 			Iterator<Transcoder<T>> tcs) {
 		return this.getClient().asyncGetBulk(keys, tcs);
@@ -288,6 +395,10 @@ public class ArcusClientPool implements ArcusClientIF {
 		return this.getClient().delete(key);
 	}
 
+	public ListenableFuture<Boolean> delete(byte[] key) {
+		return this.getClient().delete(key);
+	}
+
 	public Future<Boolean> flush(int delay) {
 		return this.getClient().flush(delay);
 	}
@@ -334,31 +445,31 @@ public class ArcusClientPool implements ArcusClientIF {
 	}
 
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncSetBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncSetBulk(
 			List<String> key, int exp, T o, Transcoder<T> tc) {
 		return this.getClient().asyncSetBulk(key, exp, o, tc);
 	}
 
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncSetBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncSetBulk(
 			List<String> key, int exp, Object o) {
 		return this.getClient().asyncSetBulk(key, exp, o);
 	}
 
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncSetBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncSetBulk(
 			Map<String, T> o, int exp, Transcoder<T> tc) {
 		return this.getClient().asyncSetBulk(o, exp, tc);
 	}
 
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncSetBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncSetBulk(
 			Map<String, Object> o, int exp) {
 		return this.getClient().asyncSetBulk(o, exp);
 	}
 
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
 			List<String> keyList, long bkey, byte[] eFlag, T value,
 			CollectionAttributes attributesForCreate, Transcoder<T> tc) {
 		return this.getClient().asyncBopInsertBulk(keyList, bkey, eFlag, value,
@@ -366,7 +477,7 @@ public class ArcusClientPool implements ArcusClientIF {
 	}
 
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
 			List<String> keyList, long bkey, byte[] eFlag, Object value,
 			CollectionAttributes attributesForCreate) {
 		return this.getClient().asyncBopInsertBulk(keyList, bkey, eFlag, value,
@@ -374,7 +485,7 @@ public class ArcusClientPool implements ArcusClientIF {
 	}
 
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncMopInsertBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncMopInsertBulk(
 			List<String> keyList, String mkey, T value,
 			CollectionAttributes attributesForCreate, Transcoder<T> tc) {
 		return this.getClient().asyncMopInsertBulk(keyList, mkey, value,
@@ -382,7 +493,7 @@ public class ArcusClientPool implements ArcusClientIF {
 	}
 
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncMopInsertBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncMopInsertBulk(
 			List<String> keyList, String mkey, Object value,
 			CollectionAttributes attributesForCreate) {
 		return this.getClient().asyncMopInsertBulk(keyList, mkey, value,
@@ -390,7 +501,7 @@ public class ArcusClientPool implements ArcusClientIF {
 	}
 
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncLopInsertBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncLopInsertBulk(
 			List<String> keyList, int index, T value,
 			CollectionAttributes attributesForCreate, Transcoder<T> tc) {
 		return this.getClient().asyncLopInsertBulk(keyList, index, value,
@@ -398,7 +509,7 @@ public class ArcusClientPool implements ArcusClientIF {
 	}
 
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncLopInsertBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncLopInsertBulk(
 			List<String> keyList, int index, Object value,
 			CollectionAttributes attributesForCreate) {
 		return this.getClient().asyncLopInsertBulk(keyList, index, value,
@@ -406,7 +517,7 @@ public class ArcusClientPool implements ArcusClientIF {
 	}
 
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncSopInsertBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncSopInsertBulk(
 			List<String> keyList, T value,
 			CollectionAttributes attributesForCreate, Transcoder<T> tc) {
 		return this.getClient().asyncSopInsertBulk(keyList, value,
@@ -414,7 +525,7 @@ public class ArcusClientPool implements ArcusClientIF {
 	}
 
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncSopInsertBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncSopInsertBulk(
 			List<String> keyList, Object value,
 			CollectionAttributes attributesForCreate) {
 		return this.getClient().asyncSopInsertBulk(keyList, value,
@@ -975,7 +1086,7 @@ public class ArcusClientPool implements ArcusClientIF {
 	}
 
 	@Override
-	public Future<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
+	public ListenableFuture<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
 			List<String> keyList, byte[] bkey, byte[] eFlag, Object value,
 			CollectionAttributes attributesForCreate) {
 		return this.getClient().asyncBopInsertBulk(keyList, bkey, eFlag, value,
@@ -983,7 +1094,7 @@ public class ArcusClientPool implements ArcusClientIF {
 	}
 
 	@Override
-	public <T> Future<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
+	public <T> ListenableFuture<Map<String, CollectionOperationStatus>> asyncBopInsertBulk(
 			List<String> keyList, byte[] bkey, byte[] eFlag, T value,
 			CollectionAttributes attributesForCreate, Transcoder<T> tc) {
 		return this.getClient().asyncBopInsertBulk(keyList, bkey, eFlag, value,
@@ -29,9 +29,12 @@ import java.util.concurrent.locks.ReentrantLock;
 import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.util.ArcusKetamaNodeLocatorConfiguration;
 
-public class ArcusKetamaNodeLocator extends SpyObject implements NodeLocator {
+public class ArcusKetamaNodeLocator extends SpyObject implements NodeLocator,
+		EncodedKeyLocator {
 
 	TreeMap<Long, MemcachedNode> ketamaNodes;
+	// Snapshot of ketamaNodes for lookups, replaced on every update.
+	volatile KetamaRing<MemcachedNode> ketamaRing;
 	Collection<MemcachedNode> allNodes;
 
 	HashAlgorithm hashAlg;
@@ -64,6 +67,7 @@ public class ArcusKetamaNodeLocator extends SpyObject implements NodeLocator {
 			}
 		}
 		assert ketamaNodes.size() == numReps * nodes.size();
+		ketamaRing = new KetamaRing<MemcachedNode>(ketamaNodes);
 	}
 
 	private ArcusKetamaNodeLocator(TreeMap<Long, MemcachedNode> smn,
@@ -71,6 +75,7 @@ public class ArcusKetamaNodeLocator extends SpyObject implements NodeLocator {
 			ArcusKetamaNodeLocatorConfiguration conf) {
 		super();
 		ketamaNodes = smn;
+		ketamaRing = new KetamaRing<MemcachedNode>(smn);
 		allNodes = an;
 		hashAlg = alg;
 		config = conf;
@@ -86,54 +91,38 @@ public class ArcusKetamaNodeLocator extends SpyObject implements NodeLocator {
 		return rv;
 	}
 
+	public MemcachedNode getPrimary(final EncodedKey k) {
+		MemcachedNode rv = getNodeForKey(k.hash(hashAlg));
+		assert rv != null : "Found no node for key " + k;
+		return rv;
+	}
+
 	long getMaxKey() {
-		return ketamaNodes.lastKey();
+		return ketamaRing.getMaxKey();
 	}
 
 	MemcachedNode getNodeForKey(long hash) {
-		MemcachedNode rv;
-
-		lock.lock();
-		try {
-			if (!ketamaNodes.containsKey(hash)) {
-				Long nodeHash = ketamaNodes.ceilingKey(hash);
-				if (nodeHash == null) {
-					hash = ketamaNodes.firstKey();
-				} else {
-					hash = nodeHash.longValue();
-				}
-				// Java 1.6 adds a ceilingKey method, but I'm still stuck in 1.5
-				// in a lot of places, so I'm doing this myself.
-				/*
-				SortedMap<Long, MemcachedNode> tailMap = ketamaNodes.tailMap(hash);
-				if (tailMap.isEmpty()) {
-					hash = ketamaNodes.firstKey();
-				} else {
-					hash = tailMap.firstKey();
-				}
-				*/
-			}
-			rv = ketamaNodes.get(hash);
-		} catch (RuntimeException e) {
-			throw e;
-		} finally {
-			lock.unlock();
-		}
-		return rv;
+		// No lock, the ring is immutable.
+		return ketamaRing.get(hash);
 	}
 
 	public Iterator<MemcachedNode> getSequence(String k) {
-		return new KetamaIterator(k, allNodes.size());
+		return new KetamaIterator(k, hashAlg.hash(k), allNodes.size());
+	}
+
+	public Iterator<MemcachedNode> getSequence(EncodedKey k) {
+		return new KetamaIterator(k.toString(), k.hash(hashAlg),
+				allNodes.size());
 	}
 
 	public NodeLocator getReadonlyCopy() {
-		TreeMap<Long, MemcachedNode> smn = new TreeMap<Long, MemcachedNode>(
-				ketamaNodes);
+		TreeMap<Long, MemcachedNode> smn;
 		Collection<MemcachedNode> an = new ArrayList<MemcachedNode>(
 				allNodes.size());
 
 		lock.lock();
 		try {
+			smn = new TreeMap<Long, MemcachedNode>(ketamaNodes);
 			// Rewrite the values a copy of the map.
 			for (Map.Entry<Long, MemcachedNode> me : smn.entrySet()) {
 				me.setValue(new MemcachedNodeROImpl(me.getValue()));
@@ -178,6 +167,7 @@ public class ArcusKetamaNodeLocator extends SpyObject implements NodeLocator {
 		} catch (RuntimeException e) {
 			throw e;
 		} finally {
+			ketamaRing = new KetamaRing<MemcachedNode>(ketamaNodes);
 			lock.unlock();
 		}
 	}
@@ -188,14 +178,12 @@ public class ArcusKetamaNodeLocator extends SpyObject implements NodeLocator {
 		}
 		
 		// Ketama does some special work with md5 where it reuses chunks.
+		int[] digest = new int[4];
 		for (int i = 0; i < config.getNodeRepetitions() / 4; i++) {
 			
-			byte[] digest = HashAlgorithm.computeMd5(config.getKeyForNode(node, i));
+			KetamaMd5.digest(config.getKeyForNode(node, i), digest);
 			for (int h = 0; h < 4; h++) {
-				Long k = ((long) (digest[3 + h * 4] & 0xFF) << 24)
-						| ((long) (digest[2 + h * 4] & 0xFF) << 16)
-						| ((long) (digest[1 + h * 4] & 0xFF) << 8)
-						| (digest[h * 4] & 0xFF);
+				Long k = digest[h] & 0xffffffffL;
 
 				if (remove) {
 					ketamaNodes.remove(k);
@@ -217,9 +205,9 @@ public class ArcusKetamaNodeLocator extends SpyObject implements NodeLocator {
 		int remainingTries;
 		int numTries = 0;
 
-		public KetamaIterator(final String k, final int t) {
+		public KetamaIterator(final String k, final long h, final int t) {
 			super();
-			hashVal = hashAlg.hash(k);
+			hashVal = h;
 			remainingTries = t;
 			key = k;
 		}
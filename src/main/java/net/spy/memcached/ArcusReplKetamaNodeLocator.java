@@ -31,9 +31,12 @@ import java.util.concurrent.locks.ReentrantLock;
 import net.spy.memcached.compat.SpyObject;
 import net.spy.memcached.util.ArcusReplKetamaNodeLocatorConfiguration;
 
-public class ArcusReplKetamaNodeLocator extends SpyObject implements NodeLocator {
+public class ArcusReplKetamaNodeLocator extends SpyObject implements NodeLocator,
+		EncodedKeyLocator {
 
 	private TreeMap<Long, MemcachedReplicaGroup> ketamaGroups;
+	// Snapshot of ketamaGroups for lookups, replaced on every update.
+	private volatile KetamaRing<MemcachedReplicaGroup> ketamaRing;
 	private HashMap<String, MemcachedReplicaGroup> allGroups;
 	private Collection<MemcachedNode> allNodes;
 
@@ -89,6 +92,7 @@ public class ArcusReplKetamaNodeLocator extends SpyObject implements NodeLocator
 		}
 
 		assert ketamaGroups.size() == (numReps * allGroups.size());
+		ketamaRing = new KetamaRing<MemcachedReplicaGroup>(ketamaGroups);
 	}
 
 	private ArcusReplKetamaNodeLocator(TreeMap<Long, MemcachedReplicaGroup> kg,
@@ -97,6 +101,7 @@ public class ArcusReplKetamaNodeLocator extends SpyObject implements NodeLocator
 			ArcusReplKetamaNodeLocatorConfiguration conf) {
 		super();
 		ketamaGroups = kg;
+		ketamaRing = new KetamaRing<MemcachedReplicaGroup>(kg);
 		allGroups = ag;
 		allNodes = an;
 		hashAlg = alg;
@@ -131,63 +136,55 @@ public class ArcusReplKetamaNodeLocator extends SpyObject implements NodeLocator
 		assert rv != null : "Found no node for key" + k;
 		return rv;
 	}
+
+	public MemcachedNode getPrimary(final EncodedKey k) {
+		return getPrimary(k, ReplicaPick.MASTER);
+	}
+
+	public MemcachedNode getPrimary(final EncodedKey k, ReplicaPick pick) {
+		MemcachedNode rv = getNodeForKey(k.hash(hashAlg), pick);
+		assert rv != null : "Found no node for key" + k;
+		return rv;
+	}
 	
 	public long getMaxKey() {
-		return ketamaGroups.lastKey();
+		return ketamaRing.getMaxKey();
 	}
 
 	private MemcachedNode getNodeForKey(long hash, ReplicaPick pick) {
-		MemcachedReplicaGroup rg;
-		MemcachedNode rv;
-		
-		lock.lock();
-		try {
-			if (!ketamaGroups.containsKey(hash)) {
-				Long nodeHash = ketamaGroups.ceilingKey(hash);
-				if (nodeHash == null) {
-					hash = ketamaGroups.firstKey();
-				} else {
-					hash = nodeHash.longValue();
-				}
-				// Java 1.6 adds a ceilingKey method, but I'm still stuck in 1.5
-				// in a lot of places, so I'm doing this myself.
-				/*
-				SortedMap<Long, MemcachedNode> tailMap = ketamaNodes.tailMap(hash);
-				if (tailMap.isEmpty()) {
-					hash = ketamaNodes.firstKey();
-				} else {
-					hash = tailMap.firstKey();
-				}
-				*/
-			}
-			rg = ketamaGroups.get(hash);
-			// return a node (master / slave) for the replica pick request.
-			rv = rg.getNodeForReplicaPick(pick);
-		} catch (RuntimeException e) {
-			throw e;
-		} finally {
-			lock.unlock();
-		}
-		return rv;
+		// No lock, the ring is immutable.  The master and slave of a
+		// group are volatile, so a role change is seen right away.
+		MemcachedReplicaGroup rg = ketamaRing.get(hash);
+		// return a node (master / slave) for the replica pick request.
+		return rg.getNodeForReplicaPick(pick);
 	}
 
 	public Iterator<MemcachedNode> getSequence(String k) {
-		return new ReplKetamaIterator(k, ReplicaPick.MASTER, allGroups.size());
+		return getSequence(k, ReplicaPick.MASTER);
 	}
 
 	public Iterator<MemcachedNode> getSequence(String k, ReplicaPick pick) {
-		return new ReplKetamaIterator(k, pick, allGroups.size());
+		return new ReplKetamaIterator(k, hashAlg.hash(k), pick, allGroups.size());
+	}
+
+	public Iterator<MemcachedNode> getSequence(EncodedKey k) {
+		return getSequence(k, ReplicaPick.MASTER);
+	}
+
+	public Iterator<MemcachedNode> getSequence(EncodedKey k, ReplicaPick pick) {
+		return new ReplKetamaIterator(k.toString(), k.hash(hashAlg), pick,
+				allGroups.size());
 	}
 
 	public NodeLocator getReadonlyCopy() {
-		TreeMap<Long, MemcachedReplicaGroup> smg = 
-				new TreeMap<Long, MemcachedReplicaGroup> (ketamaGroups);
+		TreeMap<Long, MemcachedReplicaGroup> smg;
 		HashMap<String, MemcachedReplicaGroup> ag = 
 				new HashMap<String, MemcachedReplicaGroup> (allGroups.size());
 		Collection<MemcachedNode> an = new ArrayList<MemcachedNode> (allNodes.size());
 
 		lock.lock();
 		try {
+			smg = new TreeMap<Long, MemcachedReplicaGroup> (ketamaGroups);
 			// Rewrite the values a copy of the map
 			for (Map.Entry<Long, MemcachedReplicaGroup> mge : smg.entrySet()) {
 				mge.setValue(new MemcachedReplicaGroupROImpl(mge.getValue()));
@@ -277,6 +274,7 @@ public class ArcusReplKetamaNodeLocator extends SpyObject implements NodeLocator
 		} catch (RuntimeException e) {
 			throw e;
 		} finally {
+			ketamaRing = new KetamaRing<MemcachedReplicaGroup>(ketamaGroups);
 			lock.unlock();
 		}
 	}
@@ -289,14 +287,12 @@ public class ArcusReplKetamaNodeLocator extends SpyObject implements NodeLocator
 
 	private void updateHash(MemcachedReplicaGroup group, boolean remove) {
 		// Ketama does some special work with md5 where it reuses chunks.
+		int[] digest = new int[4];
 		for (int i = 0; i < config.getNodeRepetitions() / 4; i++) {
-			byte[] digest = HashAlgorithm.computeMd5(config.getKeyForGroup(group, i));
+			KetamaMd5.digest(config.getKeyForGroup(group, i), digest);
 			
 			for (int h = 0; h < 4; h++) {
-				Long k = ((long) (digest[3 + h * 4] & 0xFF) << 24)
-						| ((long) (digest[2 + h * 4] & 0xFF) << 16)
-						| ((long) (digest[1 + h * 4] & 0xFF) << 8)
-						| (digest[h * 4] & 0xFF);
+				Long k = digest[h] & 0xffffffffL;
 				
 				if (remove)
 					ketamaGroups.remove(k);
@@ -313,9 +309,10 @@ public class ArcusReplKetamaNodeLocator extends SpyObject implements NodeLocator
 		int numTries = 0;
 		ReplicaPick pick = ReplicaPick.MASTER;
 
-		public ReplKetamaIterator(final String k,  ReplicaPick p, final int t) {
+		public ReplKetamaIterator(final String k, final long h, ReplicaPick p,
+				final int t) {
 			super();
-			hashVal = hashAlg.hash(k);
+			hashVal = h;
 			remainingTries = t;
 			key = k;
 			pick = p;
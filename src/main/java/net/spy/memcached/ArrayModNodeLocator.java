@@ -25,7 +25,8 @@ import java.util.List;
  * NodeLocator implementation for dealing with simple array lookups using a
  * modulus of the hash code and node list length.
  */
-public final class ArrayModNodeLocator implements NodeLocator {
+public final class ArrayModNodeLocator implements NodeLocator,
+		EncodedKeyLocator {
 
 	final MemcachedNode[] nodes;
 
@@ -55,11 +56,19 @@ public final class ArrayModNodeLocator implements NodeLocator {
 	}
 
 	public MemcachedNode getPrimary(String k) {
-		return nodes[getServerForKey(k)];
+		return nodes[getServerForKey(k, hashAlg.hash(k))];
+	}
+
+	public MemcachedNode getPrimary(EncodedKey k) {
+		return nodes[getServerForKey(k, k.hash(hashAlg))];
 	}
 
 	public Iterator<MemcachedNode> getSequence(String k) {
-		return new NodeIterator(getServerForKey(k));
+		return new NodeIterator(getServerForKey(k, hashAlg.hash(k)));
+	}
+
+	public Iterator<MemcachedNode> getSequence(EncodedKey k) {
+		return new NodeIterator(getServerForKey(k, k.hash(hashAlg)));
 	}
 
 	public NodeLocator getReadonlyCopy() {
@@ -74,8 +83,8 @@ public final class ArrayModNodeLocator implements NodeLocator {
 		throw new UnsupportedOperationException("update not supported");
 	}
 
-	private int getServerForKey(String key) {
-		int rv=(int)(hashAlg.hash(key) % nodes.length);
+	private int getServerForKey(Object key, long hash) {
+		int rv=(int)(hash % nodes.length);
 		assert rv >= 0 : "Returned negative key for key " + key;
 		assert rv < nodes.length
 			: "Invalid server number " + rv + " for key " + key;
@@ -46,7 +46,8 @@ public class BinaryConnectionFactory extends DefaultConnectionFactory {
 			createWriteOperationQueue(),
 			createOperationQueue(),
 			getOpQueueMaxBlockTime(),
-			doAuth);
+			doAuth,
+			getBufferPool());
 	}
 
 	@Override
@@ -0,0 +1,197 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.spy.memcached.compat.SpyObject;
+
+/**
+ * A thread-safe pool of direct ByteBuffers for operation commands.
+ *
+ * Buffers are kept in power of two size classes between the minimum and
+ * maximum buffer size.  Requests larger than the maximum get an unpooled
+ * heap buffer, since large direct buffers are expensive to allocate and
+ * to keep around.  At most maxPooledBytes of idle buffers are retained;
+ * buffers released beyond that are left to the garbage collector.
+ *
+ * With leak detection on, every acquired buffer is tracked together with
+ * the stack of its acquisition, so buffers that were never released can
+ * be listed with {@link #reportLeaks()}, and releasing a buffer twice is
+ * logged instead of corrupting the pool.  This costs a stack trace per
+ * buffer and is meant for debugging.
+ */
+public class ByteBufferPool extends SpyObject {
+
+	public static final int DEFAULT_MIN_BUFFER_SIZE = 256;
+	public static final int DEFAULT_MAX_BUFFER_SIZE = 1024 * 1024;
+	public static final long DEFAULT_MAX_POOLED_BYTES = 64 * 1024 * 1024;
+
+	private final int minShift;
+	private final int maxBufferSize;
+	private final long maxPooledBytes;
+	private final Queue<ByteBuffer>[] classes;
+	private final AtomicLong pooledBytes = new AtomicLong();
+	private final Map<ByteBuffer, Throwable> outstanding;
+
+	public ByteBufferPool() {
+		this(DEFAULT_MIN_BUFFER_SIZE, DEFAULT_MAX_BUFFER_SIZE,
+				DEFAULT_MAX_POOLED_BYTES, false);
+	}
+
+	/**
+	 * Create a pool.
+	 *
+	 * @param minBufferSize the smallest size class, rounded up to a
+	 *        power of two
+	 * @param maxBufferSize the largest size class, rounded up to a power
+	 *        of two
+	 * @param maxPooledBytes the most bytes kept in idle buffers
+	 * @param leakDetection track outstanding buffers
+	 */
+	@SuppressWarnings("unchecked")
+	public ByteBufferPool(int minBufferSize, int maxBufferSize,
+			long maxPooledBytes, boolean leakDetection) {
+		if (minBufferSize <= 0 || maxBufferSize < minBufferSize
+				|| maxBufferSize > (1 << 30)) {
+			throw new IllegalArgumentException("Invalid buffer sizes: "
+					+ minBufferSize + ", " + maxBufferSize);
+		}
+		this.minShift = shift(minBufferSize);
+		this.maxBufferSize = 1 << shift(maxBufferSize);
+		this.maxPooledBytes = maxPooledBytes;
+		this.classes = (Queue<ByteBuffer>[])
+			new Queue<?>[shift(maxBufferSize) - minShift + 1];
+		for (int i = 0; i < classes.length; i++) {
+			classes[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+		}
+		this.outstanding = leakDetection
+			? Collections.synchronizedMap(new IdentityHashMap<ByteBuffer, Throwable>())
+			: null;
+	}
+
+	/**
+	 * Allocate a buffer from the pool, or from the heap if there is no pool.
+	 */
+	public static ByteBuffer allocate(ByteBufferPool pool, int size) {
+		return pool == null ? ByteBuffer.allocate(size) : pool.acquire(size);
+	}
+
+	/**
+	 * Get a cleared buffer whose limit is the given size.
+	 */
+	public ByteBuffer acquire(int size) {
+		if (size > maxBufferSize) {
+			return ByteBuffer.allocate(size);
+		}
+		int c = Math.max(shift(size) - minShift, 0);
+		ByteBuffer bb = classes[c].poll();
+		if (bb == null) {
+			bb = ByteBuffer.allocateDirect(1 << (c + minShift));
+		} else {
+			pooledBytes.addAndGet(-bb.capacity());
+		}
+		if (outstanding != null) {
+			outstanding.put(bb, new Throwable("Buffer acquired here"));
+		}
+		bb.limit(size);
+		return bb;
+	}
+
+	/**
+	 * Return a buffer to the pool.  Buffers the pool did not hand out,
+	 * such as heap buffers, are ignored.  The buffer must not be used
+	 * after it is released.
+	 */
+	public void release(ByteBuffer bb) {
+		int c = sizeClass(bb);
+		if (c < 0) {
+			return;
+		}
+		if (outstanding != null && outstanding.remove(bb) == null) {
+			getLogger().warn("Released a buffer that is not outstanding",
+					new Throwable("Buffer released here"));
+			return;
+		}
+		if (pooledBytes.addAndGet(bb.capacity()) > maxPooledBytes) {
+			pooledBytes.addAndGet(-bb.capacity());
+			return;
+		}
+		bb.clear();
+		classes[c].offer(bb);
+	}
+
+	/**
+	 * Get the number of buffers acquired and not yet released, or -1 if
+	 * leak detection is off.
+	 */
+	public int getOutstandingCount() {
+		return outstanding == null ? -1 : outstanding.size();
+	}
+
+	/**
+	 * Get the number of bytes held in idle buffers.
+	 */
+	public long getPooledBytes() {
+		return pooledBytes.get();
+	}
+
+	/**
+	 * Log the acquisition stack of every buffer that has not been released.
+	 * Only meaningful once the clients using this pool are shut down.
+	 *
+	 * @return the number of buffers reported
+	 */
+	public int reportLeaks() {
+		if (outstanding == null) {
+			return 0;
+		}
+		List<Throwable> leaks;
+		synchronized (outstanding) {
+			leaks = new ArrayList<Throwable>(outstanding.values());
+		}
+		for (Throwable t : leaks) {
+			getLogger().warn("Buffer was never released", t);
+		}
+		return leaks.size();
+	}
+
+	private int sizeClass(ByteBuffer bb) {
+		if (bb == null || !bb.isDirect()) {
+			return -1;
+		}
+		int cap = bb.capacity();
+		int c = shift(cap) - minShift;
+		if (Integer.bitCount(cap) != 1 || c < 0 || c >= classes.length) {
+			return -1;
+		}
+		return c;
+	}
+
+	// log2 of the size, rounded up
+	private static int shift(int size) {
+		return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+/**
+ * How an {@link ArcusClientPool} picks the client for an operation.
+ *
+ * @see ArcusClientPool#setClientSelection(ClientSelection)
+ */
+public enum ClientSelection {
+
+	/**
+	 * Pick a client at random.
+	 */
+	RANDOM,
+
+	/**
+	 * Pick two clients at random and take the one with fewer operations
+	 * queued or awaiting a response, so that a client whose IO thread or
+	 * connections are backed up gets fewer new operations.
+	 */
+	LEAST_OUTSTANDING,
+
+	/**
+	 * Keep using the client first picked by a thread, picked in turn.
+	 * The operations of a thread keep their order, but a thread pinned to
+	 * a backed up client waits for it.
+	 */
+	THREAD_AFFINITY
+
+}
@@ -28,6 +28,7 @@ import java.util.concurrent.BlockingQueue;
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
+import net.spy.memcached.plugin.FrontCacheType;
 import net.spy.memcached.transcoders.Transcoder;
 
 /**
@@ -96,6 +97,72 @@ public interface ConnectionFactory {
 	 */
 	boolean isDaemon();
 
+	/**
+	 * Get the number of IO threads (selectors) the connection shares
+	 * its nodes across.
+	 */
+	int getIOThreadCount();
+
+	/**
+	 * Get the number of connections the client opens to each node.
+	 */
+	int getConnectionsPerNode();
+
+	/**
+	 * Get how an operation picks one of the connections to its node.
+	 */
+	ConnectionSelection getConnectionSelection();
+
+	/**
+	 * Get the pool of direct buffers for node and operation buffers, or
+	 * null to use heap buffers.
+	 */
+	ByteBufferPool getBufferPool();
+
+	/**
+	 * Get the time in milliseconds an operation may wait to be sent.
+	 * Operations not written by then are cancelled with a timeout status.
+	 * 0 means no limit.
+	 */
+	long getOpDeadline();
+
+	/**
+	 * Get the most operations a node may have queued or awaiting a
+	 * response before new ones are rejected.  0 means no limit.
+	 */
+	int getMaxNodeInFlightOps();
+
+	/**
+	 * Get the most command bytes a node may have queued or awaiting a
+	 * response before new operations are rejected.  0 means no limit.
+	 */
+	long getMaxNodeInFlightBytes();
+
+	/**
+	 * Get which operations are rejected when a node reaches its in flight
+	 * limits.
+	 */
+	AdmissionPolicy getAdmissionPolicy();
+
+	/**
+	 * If true, a get identical to one in flight, by key, query and
+	 * transcoder, waits for the result of that one instead of being sent.
+	 */
+	boolean getCoalesceReads();
+
+	/**
+	 * Get the fewest values of a bulk get result that are decoded in
+	 * parallel.  0 means the values are decoded by the thread getting the
+	 * result.
+	 */
+	int getBulkDecodeThreshold();
+
+	/**
+	 * If true, every value of a get bulk result is decoded when it is first
+	 * read from the result map.
+	 */
+	boolean getLazyBulkDecode();
+
 	/**
 	 * If true, the nagle algorithm will be used on connected sockets.
 	 *
@@ -192,19 +259,54 @@ public interface ConnectionFactory {
 	 */
 	boolean getFrontCacheCopyOnWrite();
 
+	/**
+	 * get the storage of the key-value front cache
+	 */
+	FrontCacheType getFrontCacheType();
+
+	/**
+	 * get the maximum total size in bytes of the values in the front
+	 * cache, 0 for no bound; only TINYLFU and OFFHEAP front caches are
+	 * bounded by size
+	 */
+	long getMaxFrontCacheBytes();
+
+	/**
+	 * get the maximum number of collection keys whose get results are
+	 * kept in the front cache, 0 to disable it
+	 */
+	int getMaxFrontCacheCollections();
+
+	/**
+	 * get the expire time of collection get results in the front cache
+	 */
+	int getFrontCacheCollectionExpireTime();
+
 	/**
 	 * Bulk service thread count 
+	 *
+	 * @deprecated Bulk sets are written per node and no longer use
+	 *             the bulk service.
 	 */
+	@Deprecated
 	int getBulkServiceThreadCount();
 	
 	/**
 	 * Bulk service loop limit
+	 *
+	 * @deprecated Bulk sets are written per node and no longer use
+	 *             the bulk service.
 	 */
+	@Deprecated
 	int getBulkServiceLoopLimit();
 	
 	/**
 	 * Bulk service single operation timeout
+	 *
+	 * @deprecated Bulk sets are written per node and no longer use
+	 *             the bulk service.
 	 */
+	@Deprecated
 	long getBulkServiceSingleOpTimeout();
 
 	/**
@@ -30,6 +30,7 @@ import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationQueueFactory;
 import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.plugin.FrontCacheType;
 import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
 import net.spy.memcached.protocol.binary.BinaryOperationFactory;
 import net.spy.memcached.transcoders.Transcoder;
@@ -56,6 +57,17 @@ public class ConnectionFactoryBuilder {
 	private Locator locator = Locator.ARCUSCONSISTENT;
 	private long opTimeout = -1;
 	private boolean isDaemon = true;
+	private int ioThreadCount = DefaultConnectionFactory.DEFAULT_IO_THREAD_COUNT;
+	private int connectionsPerNode = DefaultConnectionFactory.DEFAULT_CONNECTIONS_PER_NODE;
+	private ConnectionSelection connectionSelection = DefaultConnectionFactory.DEFAULT_CONNECTION_SELECTION;
+	private ByteBufferPool bufferPool = DefaultConnectionFactory.DEFAULT_BUFFER_POOL;
+	private long opDeadline = DefaultConnectionFactory.DEFAULT_OP_DEADLINE;
+	private int maxNodeInFlightOps = DefaultConnectionFactory.DEFAULT_MAX_NODE_INFLIGHT_OPS;
+	private long maxNodeInFlightBytes = DefaultConnectionFactory.DEFAULT_MAX_NODE_INFLIGHT_BYTES;
+	private AdmissionPolicy admissionPolicy = DefaultConnectionFactory.DEFAULT_ADMISSION_POLICY;
+	private boolean coalesceReads = DefaultConnectionFactory.DEFAULT_COALESCE_READS;
+	private int bulkDecodeThreshold = DefaultConnectionFactory.DEFAULT_BULK_DECODE_THRESHOLD;
+	private boolean lazyBulkDecode = DefaultConnectionFactory.DEFAULT_LAZY_BULK_DECODE;
 	private boolean shouldOptimize = false;
 	private boolean useNagle = false;
 //	private long maxReconnectDelay =
@@ -76,6 +88,10 @@ public class ConnectionFactoryBuilder {
 	private String frontCacheName = "ArcusFrontCache_" + this.hashCode();
 	private boolean frontCacheCopyOnRead = DefaultConnectionFactory.DEFAULT_FRONT_CACHE_COPY_ON_READ;
 	private boolean frontCacheCopyOnWrite = DefaultConnectionFactory.DEFAULT_FRONT_CACHE_COPY_ON_WRITE;
+	private FrontCacheType frontCacheType = DefaultConnectionFactory.DEFAULT_FRONT_CACHE_TYPE;
+	private long maxFrontCacheBytes = DefaultConnectionFactory.DEFAULT_MAX_FRONTCACHE_BYTES;
+	private int maxFrontCacheCollections = DefaultConnectionFactory.DEFAULT_MAX_FRONTCACHE_COLLECTIONS;
+	private int frontCacheCollectionExpireTime = DefaultConnectionFactory.DEFAULT_FRONTCACHE_COLLECTION_EXPIRETIME;
 
 	private int bulkServiceThreadCount = DefaultConnectionFactory.DEFAULT_BULKSERVICE_THREAD_COUNT;
 	private int bulkServiceLoopLimit = DefaultConnectionFactory.DEFAULT_BULKSERVICE_LOOP_LIMIT;
@@ -211,6 +227,166 @@ public class ConnectionFactoryBuilder {
 		return this;
 	}
 
+	/**
+	 * Set the number of IO threads.
+	 *
+	 * Nodes are spread across the IO threads, each of which owns its own
+	 * selector.  All nodes of a replica group are handled by the same thread.
+	 */
+	public ConnectionFactoryBuilder setIOThreadCount(int to) {
+		assert to > 0 : "IO thread count must be a positive number";
+		ioThreadCount = to;
+		return this;
+	}
+
+	/**
+	 * Set the number of connections the client opens to each node.
+	 *
+	 * Operations for a node are spread over its connections according to
+	 * the connection selection, so that large values are sent and received
+	 * over several sockets at once, without the threads, locators and
+	 * front caches of the clients of an ArcusClientPool.  The connections
+	 * are spread across the IO threads like nodes are.  The in flight
+	 * limits apply to each connection.
+	 *
+	 * The nodes of a replica group, and clients with an auth descriptor,
+	 * keep a single connection per node.  The default is 1.
+	 */
+	public ConnectionFactoryBuilder setConnectionsPerNode(int to) {
+		if (to < 1) {
+			throw new IllegalArgumentException("Connections per node must be a positive number.");
+		}
+		connectionsPerNode = to;
+		return this;
+	}
+
+	/**
+	 * Set how an operation picks one of the connections to its node.
+	 * The default, {@link ConnectionSelection#KEY}, keeps the operations
+	 * on a key in order.
+	 */
+	public ConnectionFactoryBuilder setConnectionSelection(ConnectionSelection to) {
+		if (to == null) {
+			throw new IllegalArgumentException("Connection selection must not be null.");
+		}
+		connectionSelection = to;
+		return this;
+	}
+
+	/**
+	 * Set the pool of direct buffers.
+	 *
+	 * With a pool, node read and write buffers are direct buffers and
+	 * operation commands are encoded into pooled direct buffers, so socket
+	 * writes need no copy from the heap.  A pool can be shared by clients.
+	 * Set null (the default) to use heap buffers.
+	 */
+	public ConnectionFactoryBuilder setBufferPool(ByteBufferPool to) {
+		bufferPool = to;
+		return this;
+	}
+
+	/**
+	 * Set the time in milliseconds an operation may wait to be sent.
+	 *
+	 * Operations still queued when the deadline passes are cancelled
+	 * before they are written, their futures fail with a
+	 * CheckedOperationTimeoutException, and they count towards the
+	 * continuous timeouts of their node.  Set 0 (the default) for no limit.
+	 */
+	public ConnectionFactoryBuilder setOpDeadline(long t) {
+		if (t < 0) {
+			throw new IllegalArgumentException("Operation deadline must not be negative.");
+		}
+		opDeadline = t;
+		return this;
+	}
+
+	/**
+	 * Set the most operations a node may have in flight, that is queued
+	 * or awaiting a response.
+	 *
+	 * Beyond it new operations for the node are rejected right away,
+	 * according to the admission policy, instead of piling up while the
+	 * node is slow.  A rejected operation is cancelled, so its future
+	 * fails with an ExecutionException and the caller is not blocked.
+	 * Set 0 (the default) for no limit.
+	 */
+	public ConnectionFactoryBuilder setMaxNodeInFlightOps(int to) {
+		if (to < 0) {
+			throw new IllegalArgumentException("In flight operation limit must not be negative.");
+		}
+		maxNodeInFlightOps = to;
+		return this;
+	}
+
+	/**
+	 * Set the most command bytes a node may have in flight.
+	 *
+	 * Works like {@link #setMaxNodeInFlightOps(int)}, counting the size
+	 * of the encoded commands.  A node with nothing in flight accepts an
+	 * operation of any size.  Set 0 (the default) for no limit.
+	 */
+	public ConnectionFactoryBuilder setMaxNodeInFlightBytes(long to) {
+		if (to < 0) {
+			throw new IllegalArgumentException("In flight byte limit must not be negative.");
+		}
+		maxNodeInFlightBytes = to;
+		return this;
+	}
+
+	/**
+	 * Set which operations are rejected when a node reaches its in flight
+	 * limits.
+	 */
+	public ConnectionFactoryBuilder setAdmissionPolicy(AdmissionPolicy to) {
+		if (to == null) {
+			throw new IllegalArgumentException("Admission policy must not be null.");
+		}
+		admissionPolicy = to;
+		return this;
+	}
+
+	/**
+	 * Set whether a get identical to one in flight waits for the result of
+	 * that one instead of being sent, so a burst of gets of a hot key
+	 * becomes a single request.
+	 *
+	 * Gets are identical if they have the same key, transcoder and, for
+	 * list, map and b+tree gets, the same query.  The callers get the same
+	 * result object, so they must not modify it.
+	 */
+	public ConnectionFactoryBuilder setCoalesceReads(boolean to) {
+		coalesceReads = to;
+		return this;
+	}
+
+	/**
+	 * Set the fewest values of a get bulk or b+tree get bulk result that
+	 * are decoded in parallel, by the thread getting the result and a pool
+	 * of a thread per other processor.  0 disables it, and the values are
+	 * decoded by the thread getting the result.
+	 */
+	public ConnectionFactoryBuilder setBulkDecodeThreshold(int to) {
+		if (to < 0) {
+			throw new IllegalArgumentException(
+					"Bulk decode threshold must not be negative.");
+		}
+		bulkDecodeThreshold = to;
+		return this;
+	}
+
+	/**
+	 * Set whether every value of a get bulk result is decoded when it is
+	 * first read from the result map, instead of all of them by get, so
+	 * that values never read are never decoded.  A value that fails to
+	 * decode throws a RuntimeException from the map.
+	 */
+	public ConnectionFactoryBuilder setLazyBulkDecode(boolean to) {
+		lazyBulkDecode = to;
+		return this;
+	}
+
 	/**
 	 * Set to false if the default operation optimization is not desirable.
 	 */
@@ -341,9 +517,65 @@ public class ConnectionFactoryBuilder {
 		return this;
 	}
 
+	/**
+	 * Set the storage of the key-value front cache.
+	 *
+	 * TINYLFU is a built-in cache with W-TinyLFU admission, which keeps
+	 * frequently used keys through scans, and lock-free reads.  It stores
+	 * values by reference and ignores the copyOnRead and copyOnWrite
+	 * properties.
+	 *
+	 * OFFHEAP keeps the encoded values in direct memory, out of the way of
+	 * the garbage collector, and decodes them on every hit.  It needs the
+	 * size bound set with {@link #setMaxFrontCacheBytes(long)}, and caches
+	 * the values read with get and bulk get.
+	 */
+	public ConnectionFactoryBuilder setFrontCacheType(FrontCacheType type) {
+		frontCacheType = type;
+		return this;
+	}
+
+	/**
+	 * Set the maximum total size in bytes of the front cache values, the
+	 * encoded sizes read from the server.  Only TINYLFU and OFFHEAP front
+	 * caches are bounded by size.
+	 */
+	public ConnectionFactoryBuilder setMaxFrontCacheBytes(long to) {
+		assert to > 0 : "Front cache's size must be a positive number";
+		maxFrontCacheBytes = to;
+		return this;
+	}
+
+	/**
+	 * Set the maximum number of collection keys whose get results are kept
+	 * in the front cache.
+	 *
+	 * b+tree, map and list get results are cached by key and query.  Any
+	 * write from this client to a key drops its cached results, writes
+	 * from other clients are only seen once the results expire.
+	 */
+	public ConnectionFactoryBuilder setMaxFrontCacheCollections(int to) {
+		assert to > 0 : "In case of front cache, the number must be a positive number";
+		maxFrontCacheCollections = to;
+		return this;
+	}
+
+	/**
+	 * Set the expire time in seconds of collection get results in the
+	 * front cache.
+	 */
+	public ConnectionFactoryBuilder setFrontCacheCollectionExpireTime(int to) {
+		assert to > 0 : "Front cache's expire time must be a positive number";
+		frontCacheCollectionExpireTime = to;
+		return this;
+	}
+
 	/**
 	 * Set bulk service default thread count 
+	 *
+	 * @deprecated This setting is ignored.
 	 */
+	@Deprecated
 	public ConnectionFactoryBuilder setBulkServiceThreadCount(int to) {
 		assert to > 0 : "Bulk service's thread count must be a positive number";
 		bulkServiceThreadCount = to;
@@ -352,7 +584,10 @@ public class ConnectionFactoryBuilder {
 	
 	/**
 	 * Set bulk service loop limit count 
+	 *
+	 * @deprecated This setting is ignored.
 	 */
+	@Deprecated
 	public ConnectionFactoryBuilder setBulkServiceLoopLimit(int to) {
 		assert to > 0 : "Bulk service's loop limit must be a positive number";
 		bulkServiceLoopLimit = to;
@@ -361,7 +596,10 @@ public class ConnectionFactoryBuilder {
 	
 	/**
 	 * Set bulk service each operation timeout 
+	 *
+	 * @deprecated This setting is ignored.
 	 */
+	@Deprecated
 	public ConnectionFactoryBuilder setBulkServiceSingleOpTimeout(long to) {
 		assert to > 0 : "Bulk service's single operation timeout must be a positive number";
 		bulkServiceSingleOpTimeout = to;
@@ -549,6 +787,61 @@ public class ConnectionFactoryBuilder {
 				return isDaemon;
 			}
 
+			@Override
+			public int getIOThreadCount() {
+				return ioThreadCount;
+			}
+
+			@Override
+			public int getConnectionsPerNode() {
+				return connectionsPerNode;
+			}
+
+			@Override
+			public ConnectionSelection getConnectionSelection() {
+				return connectionSelection;
+			}
+
+			@Override
+			public ByteBufferPool getBufferPool() {
+				return bufferPool;
+			}
+
+			@Override
+			public long getOpDeadline() {
+				return opDeadline;
+			}
+
+			@Override
+			public int getMaxNodeInFlightOps() {
+				return maxNodeInFlightOps;
+			}
+
+			@Override
+			public long getMaxNodeInFlightBytes() {
+				return maxNodeInFlightBytes;
+			}
+
+			@Override
+			public AdmissionPolicy getAdmissionPolicy() {
+				return admissionPolicy;
+			}
+
+			@Override
+			public boolean getCoalesceReads() {
+				return coalesceReads;
+			}
+
+			@Override
+			public int getBulkDecodeThreshold() {
+				return bulkDecodeThreshold;
+			}
+
+			@Override
+			public boolean getLazyBulkDecode() {
+				return lazyBulkDecode;
+			}
+
 			@Override
 			public boolean shouldOptimize() {
 				return shouldOptimize;
@@ -611,16 +904,39 @@ public class ConnectionFactoryBuilder {
 			}
 
 			@Override
+			public FrontCacheType getFrontCacheType() {
+				return frontCacheType;
+			}
+
+			@Override
+			public long getMaxFrontCacheBytes() {
+				return maxFrontCacheBytes;
+			}
+
+			@Override
+			public int getMaxFrontCacheCollections() {
+				return maxFrontCacheCollections;
+			}
+
+			@Override
+			public int getFrontCacheCollectionExpireTime() {
+				return frontCacheCollectionExpireTime;
+			}
+
+			@Override
+			@Deprecated
 			public int getBulkServiceThreadCount() {
 				return bulkServiceThreadCount;
 			}
 			
 			@Override
+			@Deprecated
 			public int getBulkServiceLoopLimit() {
 				return bulkServiceLoopLimit;
 			}
 			
 			@Override
+			@Deprecated
 			public long getBulkServiceSingleOpTimeout() {
 				return bulkServiceSingleOpTimeout;
 			}
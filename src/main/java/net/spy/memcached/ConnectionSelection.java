@@ -0,0 +1,53 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+/**
+ * How an operation picks one of the connections to its node, when the
+ * client opens more than one per node.
+ *
+ * @see ConnectionFactoryBuilder#setConnectionsPerNode(int)
+ */
+public enum ConnectionSelection {
+
+	/**
+	 * Send the operations on a key over the connection picked by the hash
+	 * of the key, and the operations on several keys round-robin.
+	 *
+	 * <p>
+	 *  All operations on a key share one connection, so they are sent and
+	 *  answered in the order they are made, as with a single connection.
+	 * </p>
+	 */
+	KEY,
+
+	/**
+	 * Send every operation over the next connection in turn.  Operations
+	 * on a key made without waiting for each other may be answered out of
+	 * order.
+	 */
+	ROUND_ROBIN,
+
+	/**
+	 * Send every operation over the connection with the fewest command
+	 * bytes in flight, so that a large value on one connection does not
+	 * hold up the operations behind it.  Operations on a key made without
+	 * waiting for each other may be answered out of order.
+	 */
+	LEAST_OUTSTANDING_BYTES
+
+}
@@ -25,15 +25,16 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.internal.MpscBlockingQueue;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
+import net.spy.memcached.plugin.FrontCacheType;
 import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
 import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
 import net.spy.memcached.protocol.binary.BinaryMemcachedNodeImpl;
@@ -46,8 +47,8 @@ import net.spy.memcached.transcoders.Transcoder;
  * Default implementation of ConnectionFactory.
  *
  * <p>
- * This implementation creates connections where the operation queue is an
- * ArrayBlockingQueue and the read and write queues are unbounded
+ * This implementation creates connections where the operation queue is a
+ * bounded MpscBlockingQueue and the read and write queues are unbounded
  * LinkedBlockingQueues.  The <code>Redistribute</code> FailureMode is always
  * used.  If other FailureModes are needed, look at the
  * ConnectionFactoryBuilder.
@@ -138,6 +139,26 @@ public class DefaultConnectionFactory extends SpyObject
 	 */
 	public static final boolean DEFAULT_FRONT_CACHE_COPY_ON_WRITE = false;
 
+	/**
+	 * Default front cache storage : ehcache
+	 */
+	public static final FrontCacheType DEFAULT_FRONT_CACHE_TYPE = FrontCacheType.EHCACHE;
+
+	/**
+	 * Maximum total size of the front cache values : 0, no bound
+	 */
+	public static final long DEFAULT_MAX_FRONTCACHE_BYTES = 0;
+
+	/**
+	 * Maximum number of collection keys in the front cache : 0, disabled
+	 */
+	public static final int DEFAULT_MAX_FRONTCACHE_COLLECTIONS = 0;
+
+	/**
+	 * Expire time of collection get results in the front cache : 5 seconds
+	 */
+	public static final int DEFAULT_FRONTCACHE_COLLECTION_EXPIRETIME = 5;
+
     /**
      * Default bulk service thread count
      */
@@ -167,6 +188,64 @@ public class DefaultConnectionFactory extends SpyObject
      * The default delimiter that separates the key and prefix
      */
     public static final byte DEFAULT_DELIMITER = ':';
+
+	/**
+	 * Default number of IO threads.
+	 * A single IO thread handles the selector of all nodes.
+	 */
+	public static final int DEFAULT_IO_THREAD_COUNT = 1;
+
+	/**
+	 * Default number of connections per node.
+	 * A single connection carries all operations of a node.
+	 */
+	public static final int DEFAULT_CONNECTIONS_PER_NODE = 1;
+
+	/**
+	 * Default selection among the connections of a node : by key
+	 */
+	public static final ConnectionSelection DEFAULT_CONNECTION_SELECTION =
+		ConnectionSelection.KEY;
+
+	/**
+	 * Default buffer pool.
+	 * No pool, node and operation buffers are heap buffers.
+	 */
+	public static final ByteBufferPool DEFAULT_BUFFER_POOL = null;
+
+	/**
+	 * Default operation deadline.
+	 * No limit, operations wait to be sent as long as they are queued.
+	 */
+	public static final long DEFAULT_OP_DEADLINE = 0;
+
+	/**
+	 * Default limits of operations and bytes in flight per node.
+	 * No limits, only the operation queue length bounds a node.
+	 */
+	public static final int DEFAULT_MAX_NODE_INFLIGHT_OPS = 0;
+	public static final long DEFAULT_MAX_NODE_INFLIGHT_BYTES = 0;
+
+	/**
+	 * Default admission policy, once a node reaches its in flight limits.
+	 */
+	public static final AdmissionPolicy DEFAULT_ADMISSION_POLICY =
+		AdmissionPolicy.FAIL_FAST;
+
+	/**
+	 * Default read coalescing : false, every get is sent
+	 */
+	public static final boolean DEFAULT_COALESCE_READS = false;
+
+	/**
+	 * Default fewest values of a bulk get result decoded in parallel
+	 */
+	public static final int DEFAULT_BULK_DECODE_THRESHOLD = 256;
+
+	/**
+	 * Default lazy bulk decode : false, the values are decoded by get
+	 */
+	public static final boolean DEFAULT_LAZY_BULK_DECODE = false;
     
 	private final int opQueueLen;
 	private final int readBufSize;
@@ -215,7 +294,8 @@ public class DefaultConnectionFactory extends SpyObject
 				createReadOperationQueue(),
 				createWriteOperationQueue(),
 				createOperationQueue(),
-				getOpQueueMaxBlockTime());
+				getOpQueueMaxBlockTime(),
+				getBufferPool());
 		} else if(of instanceof BinaryOperationFactory) {
 			boolean doAuth = false;
 			if (getAuthDescriptor() != null) {
@@ -226,7 +306,8 @@ public class DefaultConnectionFactory extends SpyObject
 					createWriteOperationQueue(),
 					createOperationQueue(),
 					getOpQueueMaxBlockTime(),
-					doAuth);
+					doAuth,
+					getBufferPool());
 		} else {
 			throw new IllegalStateException(
 				"Unhandled operation factory type " + of);
@@ -253,7 +334,7 @@ public class DefaultConnectionFactory extends SpyObject
 	 * @see net.spy.memcached.ConnectionFactory#createOperationQueue()
 	 */
 	public BlockingQueue<Operation> createOperationQueue() {
-		return new ArrayBlockingQueue<Operation>(getOpQueueLen());
+		return new MpscBlockingQueue<Operation>(getOpQueueLen());
 	}
 
 	/* (non-Javadoc)
@@ -327,6 +408,83 @@ public class DefaultConnectionFactory extends SpyObject
 		return false;
 	}
 
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getIOThreadCount()
+	 */
+	public int getIOThreadCount() {
+		return DEFAULT_IO_THREAD_COUNT;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getConnectionsPerNode()
+	 */
+	public int getConnectionsPerNode() {
+		return DEFAULT_CONNECTIONS_PER_NODE;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getConnectionSelection()
+	 */
+	public ConnectionSelection getConnectionSelection() {
+		return DEFAULT_CONNECTION_SELECTION;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getBufferPool()
+	 */
+	public ByteBufferPool getBufferPool() {
+		return DEFAULT_BUFFER_POOL;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getOpDeadline()
+	 */
+	public long getOpDeadline() {
+		return DEFAULT_OP_DEADLINE;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getMaxNodeInFlightOps()
+	 */
+	public int getMaxNodeInFlightOps() {
+		return DEFAULT_MAX_NODE_INFLIGHT_OPS;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getMaxNodeInFlightBytes()
+	 */
+	public long getMaxNodeInFlightBytes() {
+		return DEFAULT_MAX_NODE_INFLIGHT_BYTES;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getAdmissionPolicy()
+	 */
+	public AdmissionPolicy getAdmissionPolicy() {
+		return DEFAULT_ADMISSION_POLICY;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getCoalesceReads()
+	 */
+	public boolean getCoalesceReads() {
+		return DEFAULT_COALESCE_READS;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getBulkDecodeThreshold()
+	 */
+	public int getBulkDecodeThreshold() {
+		return DEFAULT_BULK_DECODE_THRESHOLD;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getLazyBulkDecode()
+	 */
+	public boolean getLazyBulkDecode() {
+		return DEFAULT_LAZY_BULK_DECODE;
+	}
+
 	/* (non-Javadoc)
 	 * @see net.spy.memcached.ConnectionFactory#getInitialObservers()
 	 */
@@ -432,11 +590,48 @@ public class DefaultConnectionFactory extends SpyObject
 		return DEFAULT_FRONT_CACHE_COPY_ON_WRITE;
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getFrontCacheType()
+	 */
+	@Override
+	public FrontCacheType getFrontCacheType() {
+		return DEFAULT_FRONT_CACHE_TYPE;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getMaxFrontCacheBytes()
+	 */
+	@Override
+	public long getMaxFrontCacheBytes() {
+		return DEFAULT_MAX_FRONTCACHE_BYTES;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getMaxFrontCacheCollections()
+	 */
+	@Override
+	public int getMaxFrontCacheCollections() {
+		return DEFAULT_MAX_FRONTCACHE_COLLECTIONS;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see net.spy.memcached.ConnectionFactory#getFrontCacheCollectionExpireTime()
+	 */
+	@Override
+	public int getFrontCacheCollectionExpireTime() {
+		return DEFAULT_FRONTCACHE_COLLECTION_EXPIRETIME;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see net.spy.memcached.ConnectionFactory#getBulkServiceThreadCount()
 	 */
 	@Override
+	@Deprecated
 	public int getBulkServiceThreadCount() {
 		return DEFAULT_BULKSERVICE_THREAD_COUNT;
 	}
@@ -446,6 +641,7 @@ public class DefaultConnectionFactory extends SpyObject
 	 * @see net.spy.memcached.ConnectionFactory#getBulkServiceLoopLimit()
 	 */
 	@Override
+	@Deprecated
 	public int getBulkServiceLoopLimit() {
 		return DEFAULT_BULKSERVICE_LOOP_LIMIT;
 	}
@@ -455,6 +651,7 @@ public class DefaultConnectionFactory extends SpyObject
 	 * @see net.spy.memcached.ConnectionFactory#getBulkServiceSingleOpTimeout()
 	 */
 	@Override
+	@Deprecated
 	public long getBulkServiceSingleOpTimeout() {
 		return DEFAULT_BULKSERVICE_SINGLE_OP_TIMEOUT;
 	}
@@ -0,0 +1,90 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * A key together with its UTF-8 bytes, encoded once where it enters the
+ * client and carried through validation, node lookup and the command
+ * written to the wire.
+ *
+ * The hash of the key is kept for the last hash algorithm asked for.
+ * The bytes are shared, and must not be modified.
+ *
+ * Not intended for general use.
+ */
+public final class EncodedKey {
+
+	private final String key;
+	private final byte[] bytes;
+	private volatile Hash hash;
+
+	/**
+	 * Encode the given key.
+	 */
+	public EncodedKey(String k) {
+		key = k;
+		bytes = KeyUtil.getKeyBytes(k);
+	}
+
+	/**
+	 * Use the given UTF-8 bytes as a key.
+	 */
+	public EncodedKey(byte[] b) {
+		try {
+			key = new String(b, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+		bytes = b;
+	}
+
+	/**
+	 * Get the UTF-8 bytes of the key.
+	 */
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Get the hash of the key with the given algorithm.
+	 */
+	public long hash(HashAlgorithm alg) {
+		Hash h = hash;
+		if (h == null || h.alg != alg) {
+			h = new Hash(alg, alg.hash(key, bytes));
+			hash = h;
+		}
+		return h.value;
+	}
+
+	@Override
+	public String toString() {
+		return key;
+	}
+
+	private static final class Hash {
+		final HashAlgorithm alg;
+		final long value;
+
+		Hash(HashAlgorithm alg, long value) {
+			this.alg = alg;
+			this.value = value;
+		}
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Iterator;
+
+/**
+ * A node locator that looks up a key by the bytes and hash already
+ * computed for it.
+ */
+interface EncodedKeyLocator {
+
+	/**
+	 * Get the primary location for the given key.
+	 */
+	MemcachedNode getPrimary(EncodedKey k);
+
+	/**
+	 * Get an iterator over the sequence of nodes that make up the backup
+	 * locations for a given key.
+	 */
+	Iterator<MemcachedNode> getSequence(EncodedKey k);
+}
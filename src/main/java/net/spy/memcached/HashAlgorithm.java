@@ -70,6 +70,16 @@ public enum HashAlgorithm {
 	 * @return a positive integer hash
 	 */
 	public long hash(final String k) {
+		return hash(k, null);
+	}
+
+	/**
+	 * Compute the hash for the given key, using its UTF-8 bytes if they
+	 * are given.
+	 *
+	 * @return a positive integer hash
+	 */
+	long hash(final String k, byte[] kb) {
 		long rv = 0;
 		switch (this) {
 			case NATIVE_HASH:
@@ -78,7 +88,7 @@ public enum HashAlgorithm {
 			case CRC32_HASH:
 				// return (crc32(shift) >> 16) & 0x7fff;
 				CRC32 crc32 = new CRC32();
-				crc32.update(KeyUtil.getKeyBytes(k));
+				crc32.update(kb != null ? kb : KeyUtil.getKeyBytes(k));
 				rv = (crc32.getValue() >> 16) & 0x7fff;
 				break;
 			case FNV1_64_HASH: {
@@ -119,11 +129,8 @@ public enum HashAlgorithm {
 				}
 				break;
 			case KETAMA_HASH:
-				byte[] bKey=computeMd5(k);
-				rv = ((long) (bKey[3] & 0xFF) << 24)
-						| ((long) (bKey[2] & 0xFF) << 16)
-						| ((long) (bKey[1] & 0xFF) << 8)
-						| (bKey[0] & 0xFF);
+				rv = kb != null ? KetamaMd5.hash(kb, 0, kb.length)
+						: KetamaMd5.hash(k);
 				break;
 			default:
 				assert false;
@@ -135,13 +142,20 @@ public enum HashAlgorithm {
 	 * Get the md5 of the given key.
 	 */
 	public static byte[] computeMd5(String k) {
+		return computeMd5(KeyUtil.getKeyBytes(k));
+	}
+
+	/**
+	 * Get the md5 of the given key bytes.
+	 */
+	public static byte[] computeMd5(byte[] k) {
 		MessageDigest md5;
 		try {
 			md5 = (MessageDigest)MD5_DIGEST.clone();
 		} catch (CloneNotSupportedException e) {
 			throw new RuntimeException("clone of MD5 not supported", e);
 		}
-		md5.update(KeyUtil.getKeyBytes(k));
+		md5.update(k);
 		return md5.digest();
 	}
 }
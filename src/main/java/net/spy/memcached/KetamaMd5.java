@@ -0,0 +1,246 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+/**
+ * MD5 for ketama hashing, without MessageDigest and without allocating.
+ *
+ * The state of a digest lives in local variables, and keys are read
+ * straight from a byte range or, for ASCII keys, from the String.  The
+ * ketama hash of a key is the first word of its digest and a continuum
+ * entry takes all four words, the same values the locators used to read
+ * from the bytes of a MessageDigest MD5.
+ */
+final class KetamaMd5 {
+
+	private KetamaMd5() {
+	}
+
+	/**
+	 * Get the ketama hash of the given bytes.
+	 */
+	static long hash(byte[] b, int off, int len) {
+		return md5(b, null, off, len, null) & 0xffffffffL;
+	}
+
+	/**
+	 * Get the ketama hash of the UTF-8 bytes of the given key.
+	 */
+	static long hash(String k) {
+		if (!isAscii(k)) {
+			byte[] b = KeyUtil.getKeyBytes(k);
+			return hash(b, 0, b.length);
+		}
+		return md5(null, k, 0, k.length(), null) & 0xffffffffL;
+	}
+
+	/**
+	 * Get the four ketama points of the UTF-8 bytes of the given key.
+	 *
+	 * @param out the array to put the four words of the digest in
+	 */
+	static void digest(String k, int[] out) {
+		if (!isAscii(k)) {
+			byte[] b = KeyUtil.getKeyBytes(k);
+			md5(b, null, 0, b.length, out);
+		} else {
+			md5(null, k, 0, k.length(), out);
+		}
+	}
+
+	private static boolean isAscii(String k) {
+		for (int i = 0; i < k.length(); i++) {
+			if (k.charAt(i) >= 0x80) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Digest len bytes from either b or the ASCII string s, both at off.
+	 *
+	 * @return the first word of the digest
+	 */
+	private static int md5(byte[] src, String s, int off, int len, int[] out) {
+		int ha = 0x67452301;
+		int hb = 0xefcdab89;
+		int hc = 0x98badcfe;
+		int hd = 0x10325476;
+
+		// the message, a 0x80 byte, zeros and the bit length fill whole blocks
+		int blocks = (len + 72) / 64;
+		for (int blk = 0, pos = 0; blk < blocks; blk++, pos += 64) {
+			int x0 = word(src, s, off, len, pos);
+			int x1 = word(src, s, off, len, pos + 4);
+			int x2 = word(src, s, off, len, pos + 8);
+			int x3 = word(src, s, off, len, pos + 12);
+			int x4 = word(src, s, off, len, pos + 16);
+			int x5 = word(src, s, off, len, pos + 20);
+			int x6 = word(src, s, off, len, pos + 24);
+			int x7 = word(src, s, off, len, pos + 28);
+			int x8 = word(src, s, off, len, pos + 32);
+			int x9 = word(src, s, off, len, pos + 36);
+			int x10 = word(src, s, off, len, pos + 40);
+			int x11 = word(src, s, off, len, pos + 44);
+			int x12 = word(src, s, off, len, pos + 48);
+			int x13 = word(src, s, off, len, pos + 52);
+			int x14 = word(src, s, off, len, pos + 56);
+			int x15 = word(src, s, off, len, pos + 60);
+			if (blk == blocks - 1) {
+				long bits = (long) len << 3;
+				x14 = (int) bits;
+				x15 = (int) (bits >>> 32);
+			}
+
+			int a = ha;
+			int b = hb;
+			int c = hc;
+			int d = hd;
+
+			a = ff(a, b, c, d, x0, 7, 0xd76aa478);
+			d = ff(d, a, b, c, x1, 12, 0xe8c7b756);
+			c = ff(c, d, a, b, x2, 17, 0x242070db);
+			b = ff(b, c, d, a, x3, 22, 0xc1bdceee);
+			a = ff(a, b, c, d, x4, 7, 0xf57c0faf);
+			d = ff(d, a, b, c, x5, 12, 0x4787c62a);
+			c = ff(c, d, a, b, x6, 17, 0xa8304613);
+			b = ff(b, c, d, a, x7, 22, 0xfd469501);
+			a = ff(a, b, c, d, x8, 7, 0x698098d8);
+			d = ff(d, a, b, c, x9, 12, 0x8b44f7af);
+			c = ff(c, d, a, b, x10, 17, 0xffff5bb1);
+			b = ff(b, c, d, a, x11, 22, 0x895cd7be);
+			a = ff(a, b, c, d, x12, 7, 0x6b901122);
+			d = ff(d, a, b, c, x13, 12, 0xfd987193);
+			c = ff(c, d, a, b, x14, 17, 0xa679438e);
+			b = ff(b, c, d, a, x15, 22, 0x49b40821);
+
+			a = gg(a, b, c, d, x1, 5, 0xf61e2562);
+			d = gg(d, a, b, c, x6, 9, 0xc040b340);
+			c = gg(c, d, a, b, x11, 14, 0x265e5a51);
+			b = gg(b, c, d, a, x0, 20, 0xe9b6c7aa);
+			a = gg(a, b, c, d, x5, 5, 0xd62f105d);
+			d = gg(d, a, b, c, x10, 9, 0x02441453);
+			c = gg(c, d, a, b, x15, 14, 0xd8a1e681);
+			b = gg(b, c, d, a, x4, 20, 0xe7d3fbc8);
+			a = gg(a, b, c, d, x9, 5, 0x21e1cde6);
+			d = gg(d, a, b, c, x14, 9, 0xc33707d6);
+			c = gg(c, d, a, b, x3, 14, 0xf4d50d87);
+			b = gg(b, c, d, a, x8, 20, 0x455a14ed);
+			a = gg(a, b, c, d, x13, 5, 0xa9e3e905);
+			d = gg(d, a, b, c, x2, 9, 0xfcefa3f8);
+			c = gg(c, d, a, b, x7, 14, 0x676f02d9);
+			b = gg(b, c, d, a, x12, 20, 0x8d2a4c8a);
+
+			a = hh(a, b, c, d, x5, 4, 0xfffa3942);
+			d = hh(d, a, b, c, x8, 11, 0x8771f681);
+			c = hh(c, d, a, b, x11, 16, 0x6d9d6122);
+			b = hh(b, c, d, a, x14, 23, 0xfde5380c);
+			a = hh(a, b, c, d, x1, 4, 0xa4beea44);
+			d = hh(d, a, b, c, x4, 11, 0x4bdecfa9);
+			c = hh(c, d, a, b, x7, 16, 0xf6bb4b60);
+			b = hh(b, c, d, a, x10, 23, 0xbebfbc70);
+			a = hh(a, b, c, d, x13, 4, 0x289b7ec6);
+			d = hh(d, a, b, c, x0, 11, 0xeaa127fa);
+			c = hh(c, d, a, b, x3, 16, 0xd4ef3085);
+			b = hh(b, c, d, a, x6, 23, 0x04881d05);
+			a = hh(a, b, c, d, x9, 4, 0xd9d4d039);
+			d = hh(d, a, b, c, x12, 11, 0xe6db99e5);
+			c = hh(c, d, a, b, x15, 16, 0x1fa27cf8);
+			b = hh(b, c, d, a, x2, 23, 0xc4ac5665);
+
+			a = ii(a, b, c, d, x0, 6, 0xf4292244);
+			d = ii(d, a, b, c, x7, 10, 0x432aff97);
+			c = ii(c, d, a, b, x14, 15, 0xab9423a7);
+			b = ii(b, c, d, a, x5, 21, 0xfc93a039);
+			a = ii(a, b, c, d, x12, 6, 0x655b59c3);
+			d = ii(d, a, b, c, x3, 10, 0x8f0ccc92);
+			c = ii(c, d, a, b, x10, 15, 0xffeff47d);
+			b = ii(b, c, d, a, x1, 21, 0x85845dd1);
+			a = ii(a, b, c, d, x8, 6, 0x6fa87e4f);
+			d = ii(d, a, b, c, x15, 10, 0xfe2ce6e0);
+			c = ii(c, d, a, b, x6, 15, 0xa3014314);
+			b = ii(b, c, d, a, x13, 21, 0x4e0811a1);
+			a = ii(a, b, c, d, x4, 6, 0xf7537e82);
+			d = ii(d, a, b, c, x11, 10, 0xbd3af235);
+			c = ii(c, d, a, b, x2, 15, 0x2ad7d2bb);
+			b = ii(b, c, d, a, x9, 21, 0xeb86d391);
+
+			ha += a;
+			hb += b;
+			hc += c;
+			hd += d;
+		}
+		if (out != null) {
+			out[0] = ha;
+			out[1] = hb;
+			out[2] = hc;
+			out[3] = hd;
+		}
+		return ha;
+	}
+
+	/**
+	 * Get the little-endian word at pos of the padded message.
+	 */
+	private static int word(byte[] b, String s, int off, int len, int pos) {
+		if (pos + 4 <= len) {
+			int p = off + pos;
+			if (b != null) {
+				return (b[p] & 0xff) | (b[p + 1] & 0xff) << 8
+						| (b[p + 2] & 0xff) << 16 | b[p + 3] << 24;
+			}
+			return s.charAt(p) | s.charAt(p + 1) << 8
+					| s.charAt(p + 2) << 16 | s.charAt(p + 3) << 24;
+		}
+		if (pos > len) {
+			return 0;
+		}
+		int w = 0;
+		for (int i = 3; i >= 0; i--) {
+			int p = pos + i;
+			int v;
+			if (p < len) {
+				v = b != null ? b[off + p] & 0xff : s.charAt(off + p);
+			} else {
+				v = p == len ? 0x80 : 0;
+			}
+			w = w << 8 | v;
+		}
+		return w;
+	}
+
+	private static int ff(int a, int b, int c, int d, int x, int s, int t) {
+		a += ((b & c) | (~b & d)) + x + t;
+		return (a << s | a >>> (32 - s)) + b;
+	}
+
+	private static int gg(int a, int b, int c, int d, int x, int s, int t) {
+		a += ((b & d) | (c & ~d)) + x + t;
+		return (a << s | a >>> (32 - s)) + b;
+	}
+
+	private static int hh(int a, int b, int c, int d, int x, int s, int t) {
+		a += (b ^ c ^ d) + x + t;
+		return (a << s | a >>> (32 - s)) + b;
+	}
+
+	private static int ii(int a, int b, int c, int d, int x, int s, int t) {
+		a += (c ^ (b | ~d)) + x + t;
+		return (a << s | a >>> (32 - s)) + b;
+	}
+}
@@ -36,7 +36,8 @@ import net.spy.memcached.util.KetamaNodeLocatorConfiguration;
  *
  * @see <a href="http://www.last.fm/user/RJ/journal/2007/04/10/392555/">RJ's blog post</a>
  */
-public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
+public final class KetamaNodeLocator extends SpyObject implements NodeLocator,
+		EncodedKeyLocator {
 
 
 	final TreeMap<Long, MemcachedNode> ketamaNodes;
@@ -61,13 +62,11 @@ public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
 		for(MemcachedNode node : nodes) {
 			// Ketama does some special work with md5 where it reuses chunks.
 			if(alg == HashAlgorithm.KETAMA_HASH) {
+				int[] digest=new int[4];
 				for(int i=0; i<numReps / 4; i++) {
-					byte[] digest=HashAlgorithm.computeMd5(config.getKeyForNode(node, i));
+					KetamaMd5.digest(config.getKeyForNode(node, i), digest);
 					for(int h=0;h<4;h++) {
-						Long k = ((long)(digest[3+h*4]&0xFF) << 24)
-							| ((long)(digest[2+h*4]&0xFF) << 16)
-							| ((long)(digest[1+h*4]&0xFF) << 8)
-							| (digest[h*4]&0xFF);
+						Long k = digest[h] & 0xffffffffL;
 						ketamaNodes.put(k, node);
 					}
 
@@ -101,6 +100,12 @@ public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
 		return rv;
 	}
 
+	public MemcachedNode getPrimary(final EncodedKey k) {
+		MemcachedNode rv=getNodeForKey(k.hash(hashAlg));
+		assert rv != null : "Found no node for key " + k;
+		return rv;
+	}
+
 	long getMaxKey() {
 		return ketamaNodes.lastKey();
 	}
@@ -130,7 +135,12 @@ public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
 	}
 
 	public Iterator<MemcachedNode> getSequence(String k) {
-		return new KetamaIterator(k, allNodes.size());
+		return new KetamaIterator(k, hashAlg.hash(k), allNodes.size());
+	}
+
+	public Iterator<MemcachedNode> getSequence(EncodedKey k) {
+		return new KetamaIterator(k.toString(), k.hash(hashAlg),
+				allNodes.size());
 	}
 
 	public NodeLocator getReadonlyCopy() {
@@ -162,9 +172,9 @@ public final class KetamaNodeLocator extends SpyObject implements NodeLocator {
 		int remainingTries;
 		int numTries=0;
 
-		public KetamaIterator(final String k, final int t) {
+		public KetamaIterator(final String k, final long h, final int t) {
 			super();
-			hashVal=hashAlg.hash(k);
+			hashVal=h;
 			remainingTries=t;
 			key=k;
 		}
@@ -0,0 +1,77 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+
+/**
+ * An immutable snapshot of a ketama hash ring.
+ *
+ * The hashes are kept in a sorted long[] with the values in a parallel
+ * array, so lookups are a binary search without locks or boxing.
+ * Locators build a new ring from their sorted map on every update and
+ * publish it through a volatile field.
+ */
+final class KetamaRing<T> {
+
+	private final long[] hashes;
+	private final Object[] values;
+
+	KetamaRing(SortedMap<Long, ? extends T> map) {
+		hashes = new long[map.size()];
+		values = new Object[map.size()];
+		int i = 0;
+		for (Map.Entry<Long, ? extends T> e : map.entrySet()) {
+			hashes[i] = e.getKey();
+			values[i] = e.getValue();
+			i++;
+		}
+	}
+
+	/**
+	 * Get the value of the first point at or after the given hash,
+	 * wrapping around to the first point of the ring.
+	 */
+	@SuppressWarnings("unchecked")
+	T get(long hash) {
+		if (hashes.length == 0) {
+			throw new NoSuchElementException("Empty ketama ring");
+		}
+		int i = Arrays.binarySearch(hashes, hash);
+		if (i < 0) {
+			i = -i - 1;
+			if (i == hashes.length) {
+				i = 0;
+			}
+		}
+		return (T) values[i];
+	}
+
+	long getMaxKey() {
+		if (hashes.length == 0) {
+			throw new NoSuchElementException("Empty ketama ring");
+		}
+		return hashes[hashes.length - 1];
+	}
+
+	int size() {
+		return hashes.length;
+	}
+}
@@ -16,6 +16,19 @@ public class KeyUtil {
 	 * @return the bytes
 	 */
 	public static byte[] getKeyBytes(String k) {
+		int len = k.length();
+		byte[] rv = new byte[len];
+		for (int i = 0; i < len; i++) {
+			char c = k.charAt(i);
+			if (c >= 0x80) {
+				return getUTF8Bytes(k);
+			}
+			rv[i] = (byte) c;
+		}
+		return rv;
+	}
+
+	private static byte[] getUTF8Bytes(String k) {
 		try {
 			return k.getBytes("UTF-8");
 		} catch (UnsupportedEncodingException e) {
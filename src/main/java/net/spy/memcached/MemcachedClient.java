@@ -49,8 +49,12 @@ import net.spy.memcached.compat.SpyThread;
 import net.spy.memcached.internal.BulkFuture;
 import net.spy.memcached.internal.BulkGetFuture;
 import net.spy.memcached.internal.CheckedOperationTimeoutException;
+import net.spy.memcached.internal.CollectionFuture;
+import net.spy.memcached.internal.CompletionLatch;
 import net.spy.memcached.internal.GetFuture;
+import net.spy.memcached.internal.ListenableFuture;
 import net.spy.memcached.internal.OperationFuture;
+import net.spy.memcached.internal.ReadCoalescer;
 import net.spy.memcached.internal.SingleElementInfiniteIterator;
 import net.spy.memcached.ops.CASOperationStatus;
 import net.spy.memcached.ops.CancelledOperationStatus;
@@ -58,6 +62,7 @@ import net.spy.memcached.ops.ConcatenationType;
 import net.spy.memcached.ops.DeleteOperation;
 import net.spy.memcached.ops.GetOperation;
 import net.spy.memcached.ops.GetsOperation;
+import net.spy.memcached.ops.KeyedOperation;
 import net.spy.memcached.ops.Mutator;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationCallback;
@@ -128,12 +133,15 @@ public class MemcachedClient extends SpyThread
 
 	protected final long operationTimeout;
 
+	private final ReadCoalescer readCoalescer;
+
 	private final MemcachedConnection conn;
 	protected final OperationFactory opFact;
 
 	protected final Transcoder<Object> transcoder;
 	
-	final TranscodeService tcService;
+	protected final TranscodeService tcService;
+	private final boolean lazyBulkDecode;
 
 	final AuthDescriptor authDescriptor;
 
@@ -187,13 +195,16 @@ public class MemcachedClient extends SpyThread
 			throw new IllegalArgumentException(
 				"Operation timeout must be positive.");
 		}
-		tcService = new TranscodeService(cf.isDaemon());
+		tcService = new TranscodeService(cf.isDaemon(), cf.getBulkDecodeThreshold());
+		lazyBulkDecode = cf.getLazyBulkDecode();
 		transcoder=cf.getDefaultTranscoder();
 		opFact=cf.getOperationFactory();
 		assert opFact != null : "Connection factory failed to make op factory";
 		conn=cf.createConnection(addrs);
 		assert conn != null : "Connection factory failed to make a connection";
 		operationTimeout = cf.getOperationTimeout();
+		readCoalescer = cf.getCoalesceReads()
+			? new ReadCoalescer(operationTimeout, TimeUnit.MILLISECONDS) : null;
 		authDescriptor = cf.getAuthDescriptor();
 		if(authDescriptor != null) {
 			addObserver(this);
@@ -265,9 +276,13 @@ public class MemcachedClient extends SpyThread
 	}
 
 	protected void validateKey(String key) {
+		validateKey(new EncodedKey(key));
+	}
+
+	protected void validateKey(EncodedKey key) {
 		boolean hasPrefix = false;
 
-		byte[] keyBytes=KeyUtil.getKeyBytes(key);
+		byte[] keyBytes=key.getBytes();
 		if(keyBytes.length > MAX_KEY_LENGTH) {
 			throw new IllegalArgumentException("Key is too long (maxlen = "
 					+ MAX_KEY_LENGTH + ")");
@@ -320,12 +335,91 @@ public class MemcachedClient extends SpyThread
 	 * @return the Operation
 	 */
 	protected Operation addOp(final String key, final Operation op) {
+		return addOp(new EncodedKey(key), op);
+	}
+
+	/**
+	 * (internal use) Add a raw operation for a key already encoded.
+	 */
+	protected Operation addOp(final EncodedKey key, final Operation op) {
 		validateKey(key);
 		checkState();
 		conn.addOperation(key, op);
+		if (readCoalescer != null && !op.isReadOperation()) {
+			// reads made from now on are queued behind the write
+			readCoalescer.wrote(key.toString());
+			if (op instanceof KeyedOperation) {
+				for (String k : ((KeyedOperation) op).getKeys()) {
+					readCoalescer.wrote(k);
+				}
+			}
+		}
 		return op;
 	}
 
+	/**
+	 * Get the key identifying a read for coalescing, or null if reads are
+	 * not coalesced.
+	 *
+	 * @param key the item key
+	 * @param query the query of a collection get, or null
+	 * @param tc the transcoder decoding the result
+	 */
+	protected Object getReadKey(String key, String query, Transcoder<?> tc) {
+		return readCoalescer == null ? null
+				: ReadCoalescer.readKey(key, query, tc);
+	}
+
+	/**
+	 * Check whether identical reads are coalesced.
+	 */
+	protected boolean isCoalescingReads() {
+		return readCoalescer != null;
+	}
+
+	/**
+	 * Get a future for the result of an identical read in flight, or null
+	 * if there is none and the read is to be sent.
+	 */
+	protected <T> CollectionFuture<T> joinRead(Object readKey) {
+		return readKey == null ? null : readCoalescer.<T>join(readKey);
+	}
+
+	/**
+	 * Add a read operation that identical reads may join until it
+	 * completes.
+	 *
+	 * @param key the item key
+	 * @param op the read operation, already set on rv
+	 * @param readKey the key from {@link #getReadKey}
+	 * @param rv the future of the read
+	 * @return the future to return to the caller
+	 */
+	protected <T> CollectionFuture<T> addCoalescedOp(String key,
+			Operation op, Object readKey, ListenableFuture<T> rv) {
+		return addCoalescedOp(new EncodedKey(key), op, readKey, rv);
+	}
+
+	private <T> CollectionFuture<T> addCoalescedOp(EncodedKey key,
+			Operation op, Object readKey, ListenableFuture<T> rv) {
+		CollectionFuture<T> f = readCoalescer.lead(readKey, rv);
+		try {
+			addOp(key, op);
+		} catch (RuntimeException e) {
+			readCoalescer.abort(readKey, rv);
+			throw e;
+		}
+		return f;
+	}
+
+	/**
+	 * Get the number of reads that waited for an identical read in flight
+	 * instead of being sent, or -1 if reads are not coalesced.
+	 */
+	public long getCoalescedReadCount() {
+		return readCoalescer == null ? -1 : readCoalescer.getCoalescedCount();
+	}
+
 	protected CountDownLatch broadcastOp(final BroadcastOpFactory of) {
 		return broadcastOp(of, conn.getLocator().getAll(), true);
 	}
@@ -344,10 +438,15 @@ public class MemcachedClient extends SpyThread
 		return conn.broadcastOperation(of, nodes);
 	}
 	
-	private <T> Future<Boolean> asyncStore(StoreType storeType, String key,
+	private <T> ListenableFuture<Boolean> asyncStore(StoreType storeType, String key,
 						   int exp, T value, Transcoder<T> tc) {
+		return asyncStore(storeType, new EncodedKey(key), exp, value, tc);
+	}
+
+	private <T> ListenableFuture<Boolean> asyncStore(StoreType storeType,
+			EncodedKey key, int exp, T value, Transcoder<T> tc) {
 		CachedData co=tc.encode(value);
-		final CountDownLatch latch=new CountDownLatch(1);
+		final CountDownLatch latch=new CompletionLatch(1);
 		final OperationFuture<Boolean> rv=new OperationFuture<Boolean>(latch,
 				operationTimeout);
 		Operation op=opFact.store(storeType, key, co.getFlags(),
@@ -363,16 +462,16 @@ public class MemcachedClient extends SpyThread
 		return rv;
 	}
 
-	private Future<Boolean> asyncStore(StoreType storeType,
+	private ListenableFuture<Boolean> asyncStore(StoreType storeType,
 			String key, int exp, Object value) {
 		return asyncStore(storeType, key, exp, value, transcoder);
 	}
 
-	private <T> Future<Boolean> asyncCat(
+	private <T> ListenableFuture<Boolean> asyncCat(
 			ConcatenationType catType, long cas, String key,
 			T value, Transcoder<T> tc) {
 		CachedData co=tc.encode(value);
-		final CountDownLatch latch=new CountDownLatch(1);
+		final CountDownLatch latch=new CompletionLatch(1);
 		final OperationFuture<Boolean> rv=new OperationFuture<Boolean>(latch,
 				operationTimeout);
 		Operation op=opFact.cat(catType, cas, key, co.getData(),
@@ -402,7 +501,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Boolean> append(long cas, String key, Object val) {
+	public ListenableFuture<Boolean> append(long cas, String key, Object val) {
 		return append(cas, key, val, transcoder);
 	}
 
@@ -421,7 +520,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public <T> Future<Boolean> append(long cas, String key, T val,
+	public <T> ListenableFuture<Boolean> append(long cas, String key, T val,
 			Transcoder<T> tc) {
 		return asyncCat(ConcatenationType.append, cas, key, val, tc);
 	}
@@ -439,7 +538,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Boolean> prepend(long cas, String key, Object val) {
+	public ListenableFuture<Boolean> prepend(long cas, String key, Object val) {
 		return prepend(cas, key, val, transcoder);
 	}
 
@@ -458,7 +557,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public <T> Future<Boolean> prepend(long cas, String key, T val,
+	public <T> ListenableFuture<Boolean> prepend(long cas, String key, T val,
 			Transcoder<T> tc) {
 		return asyncCat(ConcatenationType.prepend, cas, key, val, tc);
 	}
@@ -475,7 +574,7 @@ public class MemcachedClient extends SpyThread
      * @throws IllegalStateException in the rare circumstance where queue
      *         is too full to accept any more requests
      */
-    public <T> Future<CASResponse> asyncCAS(String key, long casId, T value,
+    public <T> ListenableFuture<CASResponse> asyncCAS(String key, long casId, T value,
             Transcoder<T> tc) {
         return asyncCAS(key, casId, 0, value, tc);
 	}
@@ -493,10 +592,10 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public <T> Future<CASResponse> asyncCAS(String key, long casId, int exp, T value,
+	public <T> ListenableFuture<CASResponse> asyncCAS(String key, long casId, int exp, T value,
 			Transcoder<T> tc) {
 		CachedData co=tc.encode(value);
-		final CountDownLatch latch=new CountDownLatch(1);
+		final CountDownLatch latch=new CompletionLatch(1);
 		final OperationFuture<CASResponse> rv=new OperationFuture<CASResponse>(
 				latch, operationTimeout);
 		Operation op=opFact.cas(StoreType.set, key, casId, co.getFlags(), exp,
@@ -528,7 +627,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<CASResponse> asyncCAS(String key, long casId, Object value) {
+	public ListenableFuture<CASResponse> asyncCAS(String key, long casId, Object value) {
 		return asyncCAS(key, casId, value, transcoder);
 	}
 
@@ -543,7 +642,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue is too
 	 * 			full to accept any more requests
 	 */
-	public Future<CASResponse> asyncCAS(String key, long casId,
+	public ListenableFuture<CASResponse> asyncCAS(String key, long casId,
 			int exp, Object value) {
 		return asyncCAS(key, casId, exp, value, transcoder);
 	}
@@ -660,7 +759,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public <T> Future<Boolean> add(String key, int exp, T o, Transcoder<T> tc) {
+	public <T> ListenableFuture<Boolean> add(String key, int exp, T o, Transcoder<T> tc) {
 		return asyncStore(StoreType.add, key, exp, o, tc);
 	}
 
@@ -695,10 +794,30 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Boolean> add(String key, int exp, Object o) {
+	public ListenableFuture<Boolean> add(String key, int exp, Object o) {
 		return asyncStore(StoreType.add, key, exp, o, transcoder);
 	}
 
+	/**
+	 * Add with a key given as its UTF-8 bytes.
+	 *
+	 * @see #add(String, int, Object, Transcoder)
+	 */
+	public <T> ListenableFuture<Boolean> add(byte[] key, int exp, T o,
+			Transcoder<T> tc) {
+		return asyncStore(StoreType.add, new EncodedKey(key), exp, o, tc);
+	}
+
+	/**
+	 * Add with a key given as its UTF-8 bytes.
+	 *
+	 * @see #add(String, int, Object)
+	 */
+	public ListenableFuture<Boolean> add(byte[] key, int exp, Object o) {
+		return asyncStore(StoreType.add, new EncodedKey(key), exp, o,
+				transcoder);
+	}
+
 	/**
 	 * Set an object in the cache regardless of any existing value.
 	 *
@@ -731,7 +850,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public <T> Future<Boolean> set(String key, int exp, T o, Transcoder<T> tc) {
+	public <T> ListenableFuture<Boolean> set(String key, int exp, T o, Transcoder<T> tc) {
 		return asyncStore(StoreType.set, key, exp, o, tc);
 	}
 
@@ -766,10 +885,30 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Boolean> set(String key, int exp, Object o) {
+	public ListenableFuture<Boolean> set(String key, int exp, Object o) {
 		return asyncStore(StoreType.set, key, exp, o, transcoder);
 	}
 
+	/**
+	 * Set with a key given as its UTF-8 bytes.
+	 *
+	 * @see #set(String, int, Object, Transcoder)
+	 */
+	public <T> ListenableFuture<Boolean> set(byte[] key, int exp, T o,
+			Transcoder<T> tc) {
+		return asyncStore(StoreType.set, new EncodedKey(key), exp, o, tc);
+	}
+
+	/**
+	 * Set with a key given as its UTF-8 bytes.
+	 *
+	 * @see #set(String, int, Object)
+	 */
+	public ListenableFuture<Boolean> set(byte[] key, int exp, Object o) {
+		return asyncStore(StoreType.set, new EncodedKey(key), exp, o,
+				transcoder);
+	}
+
 	/**
 	 * Replace an object with the given value iff there is already a value
 	 * for the given key.
@@ -803,7 +942,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public <T> Future<Boolean> replace(String key, int exp, T o,
+	public <T> ListenableFuture<Boolean> replace(String key, int exp, T o,
 		Transcoder<T> tc) {
 		return asyncStore(StoreType.replace, key, exp, o, tc);
 	}
@@ -839,10 +978,30 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Boolean> replace(String key, int exp, Object o) {
+	public ListenableFuture<Boolean> replace(String key, int exp, Object o) {
 		return asyncStore(StoreType.replace, key, exp, o, transcoder);
 	}
 
+	/**
+	 * Replace with a key given as its UTF-8 bytes.
+	 *
+	 * @see #replace(String, int, Object, Transcoder)
+	 */
+	public <T> ListenableFuture<Boolean> replace(byte[] key, int exp, T o,
+			Transcoder<T> tc) {
+		return asyncStore(StoreType.replace, new EncodedKey(key), exp, o, tc);
+	}
+
+	/**
+	 * Replace with a key given as its UTF-8 bytes.
+	 *
+	 * @see #replace(String, int, Object)
+	 */
+	public ListenableFuture<Boolean> replace(byte[] key, int exp, Object o) {
+		return asyncStore(StoreType.replace, new EncodedKey(key), exp, o,
+				transcoder);
+	}
+
 	/**
 	 * Get the given key asynchronously.
 	 *
@@ -853,31 +1012,63 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public <T> Future<T> asyncGet(final String key, final Transcoder<T> tc) {
+	public <T> ListenableFuture<T> asyncGet(final String key, final Transcoder<T> tc) {
+		return asyncGet(new EncodedKey(key), tc);
+	}
 
-		final CountDownLatch latch=new CountDownLatch(1);
+	/**
+	 * Get the given key asynchronously, with the key given as its UTF-8
+	 * bytes.
+	 *
+	 * @see #asyncGet(String, Transcoder)
+	 */
+	public <T> ListenableFuture<T> asyncGet(byte[] key, Transcoder<T> tc) {
+		return asyncGet(new EncodedKey(key), tc);
+	}
+
+	/**
+	 * Get the given key asynchronously.
+	 *
+	 * @param key the key to fetch, already encoded
+	 * @param tc the transcoder to serialize and unserialize value
+	 * @return a future that will hold the return value of the fetch
+	 */
+	protected <T> ListenableFuture<T> asyncGet(final EncodedKey encodedKey,
+			final Transcoder<T> tc) {
+		final String key = encodedKey.toString();
+		Object readKey = getReadKey(key, null, tc);
+		ListenableFuture<T> joined = joinRead(readKey);
+		if (joined != null) {
+			return joined;
+		}
+
+		final CountDownLatch latch=new CompletionLatch(1);
 		final GetFuture<T> rv=new GetFuture<T>(latch, operationTimeout);
 
-		Operation op=opFact.get(key,
+		Operation op=opFact.get(encodedKey,
 				new GetOperation.Callback() {
 			private Future<T> val=null;
+			private CachedData cachedData=null;
 			public void receivedStatus(OperationStatus status) {
 				rv.set(val);
 			}
 			public void gotData(String k, int flags, byte[] data) {
 				assert key.equals(k) : "Wrong key returned";
-				val=tcService.decode(tc,
-					new CachedData(flags, data, tc.getMaxSize()));
+				cachedData=new CachedData(flags, data, tc.getMaxSize());
+				val=tcService.decode(tc, cachedData);
 			}
 			public void complete() {
 				// FIXME weird...
 				if (localCacheManager != null) {
-					localCacheManager.put(key, val, operationTimeout);
+					localCacheManager.put(key, val, cachedData, operationTimeout);
 				}
 				latch.countDown();
 			}});
 		rv.setOperation(op);
-		addOp(key, op);
+		if (readKey != null) {
+			return addCoalescedOp(encodedKey, op, readKey, rv);
+		}
+		addOp(encodedKey, op);
 		return rv;
 	}
 
@@ -890,10 +1081,20 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Object> asyncGet(final String key) {
+	public ListenableFuture<Object> asyncGet(final String key) {
 		return asyncGet(key, transcoder);
 	}
 
+	/**
+	 * Get the given key asynchronously and decode with the default
+	 * transcoder, with the key given as its UTF-8 bytes.
+	 *
+	 * @see #asyncGet(String)
+	 */
+	public ListenableFuture<Object> asyncGet(byte[] key) {
+		return asyncGet(new EncodedKey(key), transcoder);
+	}
+
 	/**
 	 * Gets (with CAS support) the given key asynchronously.
 	 *
@@ -904,14 +1105,15 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public <T> Future<CASValue<T>> asyncGets(final String key,
+	public <T> ListenableFuture<CASValue<T>> asyncGets(final String key,
 			final Transcoder<T> tc) {
+		EncodedKey encodedKey = new EncodedKey(key);
 
-		final CountDownLatch latch=new CountDownLatch(1);
+		final CountDownLatch latch=new CompletionLatch(1);
 		final OperationFuture<CASValue<T>> rv=
 			new OperationFuture<CASValue<T>>(latch, operationTimeout);
 
-		Operation op=opFact.gets(key,
+		Operation op=opFact.gets(encodedKey,
 				new GetsOperation.Callback() {
 			private CASValue<T> val=null;
 			public void receivedStatus(OperationStatus status) {
@@ -927,7 +1129,7 @@ public class MemcachedClient extends SpyThread
 				latch.countDown();
 			}});
 		rv.setOperation(op);
-		addOp(key, op);
+		addOp(encodedKey, op);
 		return rv;
 	}
 
@@ -940,7 +1142,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<CASValue<Object>> asyncGets(final String key) {
+	public ListenableFuture<CASValue<Object>> asyncGets(final String key) {
 		return asyncGets(key, transcoder);
 	}
 
@@ -996,7 +1198,19 @@ public class MemcachedClient extends SpyThread
 	 *         is too full to accept any more requests
 	 */
 	public <T> T get(String key, Transcoder<T> tc) {
-		Future<T> future = asyncGet(key, tc);
+		return waitForValue(asyncGet(key, tc));
+	}
+
+	/**
+	 * Get with a single key given as its UTF-8 bytes.
+	 *
+	 * @see #get(String, Transcoder)
+	 */
+	public <T> T get(byte[] key, Transcoder<T> tc) {
+		return waitForValue(asyncGet(key, tc));
+	}
+
+	private <T> T waitForValue(Future<T> future) {
 		try {
 			return future.get(
 					operationTimeout, TimeUnit.MILLISECONDS);
@@ -1026,6 +1240,16 @@ public class MemcachedClient extends SpyThread
 		return get(key, transcoder);
 	}
 
+	/**
+	 * Get with a single key given as its UTF-8 bytes and decode using the
+	 * default transcoder.
+	 *
+	 * @see #get(String)
+	 */
+	public Object get(byte[] key) {
+		return get(key, transcoder);
+	}
+
 	/**
 	 * Asynchronously get a bunch of objects from the cache.
 	 *
@@ -1043,6 +1267,9 @@ public class MemcachedClient extends SpyThread
 	public <T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
 		Iterator<Transcoder<T>> tc_iter) {
 		final Map<String, Future<T>> m=new ConcurrentHashMap<String, Future<T>>();
+		// the encoded values, for the front cache
+		final Map<String, CachedData> encoded = localCacheManager == null ? null
+				: new ConcurrentHashMap<String, CachedData>();
 
 		// This map does not need to be a ConcurrentHashMap
 		// because it is fully populated when it is used and
@@ -1075,15 +1302,16 @@ public class MemcachedClient extends SpyThread
 			}
 			
 			tc_map.put(key, tc);
-			validateKey(key);
+			EncodedKey encodedKey = new EncodedKey(key);
+			validateKey(encodedKey);
 			/* ENABLE_REPLICATION if */
 			boolean arcusReplEnabled = conn.getArcusReplEnabled();
 			final MemcachedNode primaryNode =  arcusReplEnabled
-					? ((ArcusReplKetamaNodeLocator)locator).getPrimary(key, conn.getReplicaPick())
-					: locator.getPrimary(key);
+					? ((ArcusReplKetamaNodeLocator)locator).getPrimary(encodedKey, conn.getReplicaPick())
+					: conn.getPrimary(encodedKey);
 			/* ENABLE_REPLICATION else */
 			/*
-			final MemcachedNode primaryNode=locator.getPrimary(key);
+			final MemcachedNode primaryNode=conn.getPrimary(encodedKey);
 			*/
 			/* ENABLE_REPLICATION end */
 			MemcachedNode node=null;
@@ -1093,8 +1321,8 @@ public class MemcachedClient extends SpyThread
 			} else {
 				/* ENABLE_REPLICATION if */
 				Iterator<MemcachedNode> iter = arcusReplEnabled
-						? ((ArcusReplKetamaNodeLocator)locator).getSequence(key, conn.getReplicaPick())
-						: locator.getSequence(key);
+						? ((ArcusReplKetamaNodeLocator)locator).getSequence(encodedKey, conn.getReplicaPick())
+						: conn.getSequence(encodedKey);
 				for( ; node == null && iter.hasNext(); ) {
 					MemcachedNode n=iter.next();
 					if(n.isActive()) {
@@ -1103,7 +1331,7 @@ public class MemcachedClient extends SpyThread
 				}
 				/* ENABLE_REPLICATION else */
 				/*
-				for(Iterator<MemcachedNode> i=locator.getSequence(key);
+				for(Iterator<MemcachedNode> i=conn.getSequence(encodedKey);
 					node == null && i.hasNext();) {
 					MemcachedNode n=i.next();
 					if(n.isActive()) {
@@ -1140,7 +1368,7 @@ public class MemcachedClient extends SpyThread
 				: chunkCount.entrySet()) {
 			chunk_size += counts.getValue()+1;
 		}
-		final CountDownLatch latch=new CountDownLatch(chunk_size);
+		final CountDownLatch latch=new CompletionLatch(chunk_size);
 		final Collection<Operation> ops=new ArrayList<Operation>(chunk_size);
 
 		GetOperation.Callback cb=new GetOperation.Callback() {
@@ -1151,8 +1379,12 @@ public class MemcachedClient extends SpyThread
 				}
 				public void gotData(String k, int flags, byte[] data) {
 					Transcoder<T> tc = tc_map.get(k);
-					m.put(k, tcService.decode(tc,
-							new CachedData(flags, data, tc.getMaxSize())));
+					CachedData cachedData = new CachedData(flags, data, tc.getMaxSize());
+					m.put(k, lazyBulkDecode ? tcService.decodeLazily(tc, cachedData)
+							: tcService.decode(tc, cachedData));
+					if (encoded != null) {
+						encoded.put(k, cachedData);
+					}
 				}
 				public void complete() {
 					latch.countDown();
@@ -1172,7 +1404,8 @@ public class MemcachedClient extends SpyThread
 				ops.add(op);
 			}
 		}
-		return new BulkGetFuture<T>(m, ops, latch, localCacheManager);
+		return new BulkGetFuture<T>(m, ops, latch, localCacheManager, encoded,
+				tcService, lazyBulkDecode, operationTimeout);
 	}
 
 	/**
@@ -1520,9 +1753,9 @@ public class MemcachedClient extends SpyThread
 		return rv;
 	}
 
-	private Future<Long> asyncMutate(Mutator m, String key, int by, long def,
+	private ListenableFuture<Long> asyncMutate(Mutator m, String key, int by, long def,
 			int exp) {
-		final CountDownLatch latch = new CountDownLatch(1);
+		final CountDownLatch latch = new CompletionLatch(1);
 		final OperationFuture<Long> rv = new OperationFuture<Long>(
 				latch, operationTimeout);
 		Operation op = addOp(key, opFact.mutate(m, key, by, def, exp,
@@ -1548,7 +1781,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Long> asyncIncr(String key, int by) {
+	public ListenableFuture<Long> asyncIncr(String key, int by) {
 		return asyncMutate(Mutator.incr, key, by, -1, 0);
 	}
 
@@ -1564,7 +1797,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Long> asyncIncr(String key, int by, long def, int exp) {
+	public ListenableFuture<Long> asyncIncr(String key, int by, long def, int exp) {
 		return asyncMutate(Mutator.incr, key, by, def, exp);
 	}
 	
@@ -1578,7 +1811,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Long> asyncDecr(String key, int by) {
+	public ListenableFuture<Long> asyncDecr(String key, int by) {
 		return asyncMutate(Mutator.decr, key, by, -1, 0);
 	}
 
@@ -1594,7 +1827,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Long> asyncDecr(String key, int by, long def, int exp) {
+	public ListenableFuture<Long> asyncDecr(String key, int by, long def, int exp) {
 		return asyncMutate(Mutator.decr, key, by, def, exp);
 	}
 	
@@ -1662,8 +1895,27 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Boolean> delete(String key) {
-		final CountDownLatch latch=new CountDownLatch(1);
+	public ListenableFuture<Boolean> delete(String key) {
+		return delete(new EncodedKey(key));
+	}
+
+	/**
+	 * Delete the given key, given as its UTF-8 bytes, from the cache.
+	 *
+	 * @see #delete(String)
+	 */
+	public ListenableFuture<Boolean> delete(byte[] key) {
+		return delete(new EncodedKey(key));
+	}
+
+	/**
+	 * Delete the given key from the cache.
+	 *
+	 * @param key the key to delete, already encoded
+	 * @return whether or not the operation was performed
+	 */
+	protected ListenableFuture<Boolean> delete(EncodedKey key) {
+		final CountDownLatch latch=new CompletionLatch(1);
 		final OperationFuture<Boolean> rv=new OperationFuture<Boolean>(latch,
 			operationTimeout);
 		DeleteOperation op=opFact.delete(key,
@@ -1686,7 +1938,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Boolean> flush(final int delay) {
+	public ListenableFuture<Boolean> flush(final int delay) {
 		final AtomicReference<Boolean> flushResult=
 			new AtomicReference<Boolean>(null);
 		final ConcurrentLinkedQueue<Operation> ops=
@@ -1772,7 +2024,7 @@ public class MemcachedClient extends SpyThread
 	 * @throws IllegalStateException in the rare circumstance where queue
 	 *         is too full to accept any more requests
 	 */
-	public Future<Boolean> flush() {
+	public ListenableFuture<Boolean> flush() {
 		return flush(-1);
 	}
 
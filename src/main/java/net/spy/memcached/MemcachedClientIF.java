@@ -13,6 +13,12 @@ import net.spy.memcached.transcoders.Transcoder;
 
 /**
  * This interface is provided as a helper for testing clients of the MemcachedClient.
+ *
+ * The futures are declared as they were before completion listeners were
+ * added, so that code compiled against earlier versions still links.  The
+ * futures MemcachedClient returns are all
+ * {@link net.spy.memcached.internal.ListenableFuture}s; declare the client
+ * as a MemcachedClient, or cast the future, to add listeners.
  */
 public interface MemcachedClientIF {
 	/**
@@ -64,19 +70,36 @@ public interface MemcachedClientIF {
 
 	Future<Boolean> add(String key, int exp, Object o);
 
+	<T> Future<Boolean> add(byte[] key, int exp, T o, Transcoder<T> tc);
+
+	Future<Boolean> add(byte[] key, int exp, Object o);
+
 	<T> Future<Boolean> set(String key, int exp, T o, Transcoder<T> tc);
 
 	Future<Boolean> set(String key, int exp, Object o);
 
+	<T> Future<Boolean> set(byte[] key, int exp, T o, Transcoder<T> tc);
+
+	Future<Boolean> set(byte[] key, int exp, Object o);
+
 	<T> Future<Boolean> replace(String key, int exp, T o,
 		Transcoder<T> tc);
 
 	Future<Boolean> replace(String key, int exp, Object o);
 
+	<T> Future<Boolean> replace(byte[] key, int exp, T o,
+		Transcoder<T> tc);
+
+	Future<Boolean> replace(byte[] key, int exp, Object o);
+
 	<T> Future<T> asyncGet(String key, Transcoder<T> tc);
 
 	Future<Object> asyncGet(String key);
 
+	<T> Future<T> asyncGet(byte[] key, Transcoder<T> tc);
+
+	Future<Object> asyncGet(byte[] key);
+
 	<T> Future<CASValue<T>> asyncGets(String key,
 			Transcoder<T> tc);
 
@@ -92,6 +115,11 @@ public interface MemcachedClientIF {
 
 	Object get(String key) throws OperationTimeoutException;
 
+	<T> T get(byte[] key, Transcoder<T> tc)
+		throws OperationTimeoutException;
+
+	Object get(byte[] key) throws OperationTimeoutException;
+
 	<T> BulkFuture<Map<String, T>> asyncGetBulk(Collection<String> keys,
 		Iterator<Transcoder<T>> tcs);
 
@@ -149,6 +177,8 @@ public interface MemcachedClientIF {
 
 	Future<Boolean> delete(String key);
 
+	Future<Boolean> delete(byte[] key);
+
 	Future<Boolean> flush(int delay);
 
 	Future<Boolean> flush();
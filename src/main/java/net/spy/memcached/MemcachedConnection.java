@@ -24,7 +24,9 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
@@ -44,10 +46,19 @@ import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.compat.SpyThread;
 import net.spy.memcached.compat.log.LoggerFactory;
+import net.spy.memcached.internal.CompletionLatch;
+import net.spy.memcached.internal.HashedWheelTimer;
 import net.spy.memcached.internal.ReconnDelay;
+import net.spy.memcached.ops.BulkStoreOperation;
 import net.spy.memcached.ops.KeyedOperation;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationException;
@@ -72,23 +83,48 @@ public final class MemcachedConnection extends SpyObject {
 	private volatile boolean shutDown=false;
 	// If true, optimization will collapse multiple sequential get ops
 	private final boolean shouldOptimize;
-	private Selector selector=null;
 	private final NodeLocator locator;
 	private final FailureMode failureMode;
 	// maximum amount of time to wait between reconnect attempts
 	private final long maxDelay;
-	private int emptySelects=0;
-	// AddedQueue is used to track the QueueAttachments for which operations
-	// have recently been queued.
-	private final ConcurrentLinkedQueue<MemcachedNode> addedQueue;
-	// reconnectQueue contains the attachments that need to be reconnected
-	// The key is the time at which they are eligible for reconnect
-	private final SortedMap<Long, MemcachedNode> reconnectQueue;
+	// Each IO loop owns a selector and the nodes registered with it.
+	// The first loop is driven by the MemcachedClient thread, and the others
+	// by their own IOThreads.
+	private final IOLoop[] ioLoops;
+	private final List<IOThread> ioThreads = new ArrayList<IOThread>();
+	private final Map<MemcachedNode, IOLoop> nodeLoops =
+		new ConcurrentHashMap<MemcachedNode, IOLoop>();
+	private int nextIOLoop=0;
+	// Per connection admission control, empty when there are no limits
+	// and the bytes in flight need not be counted.
+	private final ConcurrentMap<MemcachedNode, NodeAdmission> admissions =
+		new ConcurrentHashMap<MemcachedNode, NodeAdmission>();
+	private final int maxNodeInFlightOps;
+	private final long maxNodeInFlightBytes;
+	private final AdmissionPolicy admissionPolicy;
+	private final boolean countInFlight;
+	// The connections of the nodes of the locator that have more than one,
+	// the node itself first.
+	private final ConcurrentMap<MemcachedNode, MemcachedNode[]> nodeConnections =
+		new ConcurrentHashMap<MemcachedNode, MemcachedNode[]>();
+	private final int connectionsPerNode;
+	private final ConnectionSelection connectionSelection;
+	private final HashAlgorithm hashAlg;
+	private final AtomicInteger nextConnection = new AtomicInteger();
+	// All connections, updated with the nodes, see getOutstandingCount.
+	private volatile MemcachedNode[] allConnections;
+	// The other IO loops hold the read lock while they handle IO.
+	// Node management takes the write lock so that it can change
+	// the nodes owned by every loop.
+	private final ReentrantReadWriteLock ioLoopLock =
+		new ReentrantReadWriteLock();
 	private final Collection<ConnectionObserver> connObservers =
 		new ConcurrentLinkedQueue<ConnectionObserver>();
 	private final OperationFactory opFact;
 	private final int timeoutExceptionThreshold;
 	private final int timeoutRatioThreshold;
+	// how long an operation may wait to be sent, 0 for no limit
+	private final long opDeadline;
 
 	private BlockingQueue<String> _nodeManageQueue = new LinkedBlockingQueue<String>();
 	private final ConnectionFactory f;
@@ -113,20 +149,41 @@ public final class MemcachedConnection extends SpyObject {
 		throws IOException {
 		this.f = f;
 		connObservers.addAll(obs);
-		reconnectQueue=new TreeMap<Long, MemcachedNode>();
-		addedQueue=new ConcurrentLinkedQueue<MemcachedNode>();
 		failureMode = fm;
 		shouldOptimize = f.shouldOptimize();
 		maxDelay = f.getMaxReconnectDelay();
 		opFact = opfactory;
 		timeoutExceptionThreshold = f.getTimeoutExceptionThreshold();
 		timeoutRatioThreshold = f.getTimeoutRatioThreshold();
-		selector=Selector.open();
+		opDeadline = f.getOpDeadline();
+		maxNodeInFlightOps = f.getMaxNodeInFlightOps();
+		maxNodeInFlightBytes = f.getMaxNodeInFlightBytes();
+		admissionPolicy = f.getAdmissionPolicy();
+		// authentication finds the node to authenticate by its address
+		connectionsPerNode = f.getAuthDescriptor() == null
+				? Math.max(1, f.getConnectionsPerNode()) : 1;
+		connectionSelection = f.getConnectionSelection();
+		hashAlg = f.getHashAlg();
+		countInFlight = maxNodeInFlightOps > 0 || maxNodeInFlightBytes > 0
+				|| (connectionsPerNode > 1
+					&& connectionSelection == ConnectionSelection.LEAST_OUTSTANDING_BYTES);
+		int ioThreadCount = Math.max(1, f.getIOThreadCount());
+		ioLoops=new IOLoop[ioThreadCount];
+		for(int i=0; i<ioThreadCount; i++) {
+			ioLoops[i]=new IOLoop();
+		}
 		List<MemcachedNode> connections=new ArrayList<MemcachedNode>(a.size());
 		for(SocketAddress sa : a) {
 			connections.add(attachMemcachedNode(sa));
 		}
 		locator=f.createLocator(connections);
+		updateAllConnections();
+		for(int i=1; i<ioThreadCount; i++) {
+			IOThread t=new IOThread(ioLoops[i], i);
+			t.setDaemon(f.isDaemon());
+			ioThreads.add(t);
+			t.start();
+		}
 	}
 
 	/* ENABLE_REPLICATION if */
@@ -142,35 +199,6 @@ public final class MemcachedConnection extends SpyObject {
 	}
 
 	/* ENABLE_REPLICATION end */
-	private boolean selectorsMakeSense() {
-		for(MemcachedNode qa : locator.getAll()) {
-			if(qa.getSk() != null && qa.getSk().isValid()) {
-				if(qa.getChannel().isConnected()) {
-					int sops=qa.getSk().interestOps();
-					int expected=0;
-					if(qa.hasReadOp()) {
-						expected |= SelectionKey.OP_READ;
-					}
-					if(qa.hasWriteOp()) {
-						expected |= SelectionKey.OP_WRITE;
-					}
-					if(qa.getBytesRemainingToWrite() > 0) {
-						expected |= SelectionKey.OP_WRITE;
-					}
-					assert sops == expected : "Invalid ops:  "
-						+ qa + ", expected " + expected + ", got " + sops;
-				} else {
-					int sops=qa.getSk().interestOps();
-					assert sops == SelectionKey.OP_CONNECT
-					: "Not connected, and not watching for connect: "
-						+ sops;
-				}
-			}
-		}
-		getLogger().debug("Checked the selectors.");
-		return true;
-	}
-
 	/**
 	 * MemcachedClient calls this method to handle IO over the connections.
 	 */
@@ -179,76 +207,13 @@ public final class MemcachedConnection extends SpyObject {
 			throw new IOException("No IO while shut down");
 		}
 
-		// Deal with all of the stuff that's been added, but may not be marked
-		// writable.
-		handleInputQueue();
-		getLogger().debug("Done dealing with queue.");
-
-		long delay=0;
-		if(!reconnectQueue.isEmpty()) {
-			long now=System.currentTimeMillis();
-			long then=reconnectQueue.firstKey();
-			delay=Math.max(then-now, 1);
-		}
-		getLogger().debug("Selecting with delay of %sms", delay);
-		assert selectorsMakeSense() : "Selectors don't make sense.";
-		int selected=selector.select(delay);
-		Set<SelectionKey> selectedKeys=selector.selectedKeys();
-
-		if(selectedKeys.isEmpty() && !shutDown) {
-			getLogger().debug("No selectors ready, interrupted: "
-					+ Thread.interrupted());
-			if(++emptySelects > DOUBLE_CHECK_EMPTY) {
-				for(SelectionKey sk : selector.keys()) {
-					getLogger().info("%s has %s, interested in %s",
-							sk, sk.readyOps(), sk.interestOps());
-					if(sk.readyOps() != 0) {
-						getLogger().info("%s has a ready op, handling IO", sk);
-						handleIO(sk);
-					} else {
-						lostConnection((MemcachedNode)sk.attachment(), ReconnDelay.DEFAULT, "too many empty selects");
-					}
-				}
-				assert emptySelects < EXCESSIVE_EMPTY
-					: "Too many empty selects";
-			}
-		} else {
-			getLogger().debug("Selected %d, selected %d keys",
-					selected, selectedKeys.size());
-			emptySelects=0;
-
-			for(SelectionKey sk : selectedKeys) {
-				handleIO(sk);
-			}
-
-			selectedKeys.clear();
-		}
-
-		// see if any connections blew up with large number of timeouts
-		for(SelectionKey sk : selector.keys()) {
-			MemcachedNode mn = (MemcachedNode)sk.attachment();
-			if (mn.getContinuousTimeout() > timeoutExceptionThreshold)
-			{
-				getLogger().warn(
-						"%s exceeded continuous timeout threshold. >%s (%s)",
-						mn.getSocketAddress().toString(), timeoutExceptionThreshold, mn.getStatus());
-				lostConnection(mn, ReconnDelay.DEFAULT, "continuous timeout");
-			}
-			else if (timeoutRatioThreshold > 0 && mn.getTimeoutRatioNow() > timeoutRatioThreshold)
-			{
-				getLogger().warn(
-						"%s exceeded timeout ratio threshold. >%s (%s)",
-						mn.getSocketAddress().toString(), timeoutRatioThreshold, mn.getStatus());
-				lostConnection(mn, ReconnDelay.DEFAULT, "high timeout ratio");
-			}
-		}
+		IOLoop loop=ioLoops[0];
+		loop.handleIO();
 
 		// Deal with the memcached server group that's been added by CacheManager.  
 		handleNodeManageQueue();
-		
-		if(!shutDown && !reconnectQueue.isEmpty()) {
-			attemptReconnects();
-		}
+
+		loop.handleReconnects();
 	}
 	
 	public void updateConnections(List<InetSocketAddress> addrs) throws IOException {
@@ -509,8 +474,26 @@ public final class MemcachedConnection extends SpyObject {
 		/* ENABLE_REPLICATION end */
 
 		// Remove unavailable nodes in the reconnect queue.
+		List<MemcachedNode> removeConnections = new ArrayList<MemcachedNode>();
 		for (MemcachedNode node : removeNodes) {
 			getLogger().info("old memcached node removed %s", node);
+			removeConnections.add(node);
+			MemcachedNode[] conns = nodeConnections.remove(node);
+			if (conns != null) {
+				for (int i = 1; i < conns.length; i++) {
+					removeConnections.add(conns[i]);
+					try {
+						conns[i].shutdown();
+					} catch (IOException e) {
+						getLogger().error("Failed to shutdown the connection : " + conns[i]);
+						conns[i].setSk(null);
+					}
+				}
+			}
+		}
+		for (MemcachedNode node : removeConnections) {
+			SortedMap<Long, MemcachedNode> reconnectQueue =
+				getIOLoop(node).reconnectQueue;
 			for (Entry<Long, MemcachedNode> each : reconnectQueue.entrySet()) {
 				if (node.equals(each.getValue())) {
 					reconnectQueue.remove(each.getKey());
@@ -525,7 +508,20 @@ public final class MemcachedConnection extends SpyObject {
 				redistributeOperations(node.destroyWriteQueue(true), cause);
 				redistributeOperations(node.destroyInputQueue(), cause);
 			}
+			nodeLoops.remove(node);
+			admissions.remove(node);
+		}
+		updateAllConnections();
+	}
+
+	private void updateAllConnections() {
+		List<MemcachedNode> all = new ArrayList<MemcachedNode>(locator.getAll());
+		for (MemcachedNode[] conns : nodeConnections.values()) {
+			for (int i = 1; i < conns.length; i++) {
+				all.add(conns[i]);
+			}
 		}
+		allConnections = all.toArray(new MemcachedNode[all.size()]);
 	}
 	
 	/* ENABLE_REPLICATION if */
@@ -541,11 +537,11 @@ public final class MemcachedConnection extends SpyObject {
 		if (group.getMasterNode() != null && group.getSlaveNode() != null) {
 			if (((ArcusReplNodeAddress)node.getSocketAddress()).master) {
 				node.moveOperations(group.getSlaveNode());
-				addedQueue.offer(group.getSlaveNode());
+				queueNode(group.getSlaveNode());
 				((ArcusReplKetamaNodeLocator)locator).switchoverReplGroup(group);
 			} else {
 				node.moveOperations(group.getMasterNode());
-				addedQueue.offer(group.getMasterNode());
+				queueNode(group.getMasterNode());
 			}
 			queueReconnect(node, ReconnDelay.IMMEDIATE, "Discarded all pending reading state operation to move operations.");
 		} else {
@@ -555,6 +551,31 @@ public final class MemcachedConnection extends SpyObject {
 
 	/* ENABLE_REPLICATION end */
 	MemcachedNode attachMemcachedNode(SocketAddress sa) throws IOException {
+		MemcachedNode qa = openConnection(sa);
+		/* ENABLE_REPLICATION if */
+		if (qa.isFake()) {
+			return qa;
+		}
+		// Failover and switchover move the operations of a replica group
+		// node by node, so its nodes keep a single connection.
+		if (sa instanceof ArcusReplNodeAddress) {
+			prepareVersionInfo(qa, sa);
+			return qa;
+		}
+		/* ENABLE_REPLICATION end */
+		if (connectionsPerNode > 1) {
+			MemcachedNode[] conns = new MemcachedNode[connectionsPerNode];
+			conns[0] = qa;
+			for (int i = 1; i < conns.length; i++) {
+				conns[i] = openConnection(sa);
+			}
+			nodeConnections.put(qa, conns);
+		}
+		prepareVersionInfo(qa, sa);
+		return qa;
+	}
+
+	private MemcachedNode openConnection(SocketAddress sa) throws IOException {
 		SocketChannel ch = SocketChannel.open();
 		ch.configureBlocking(false);
 		// bufSize : 16384 (default value)
@@ -569,9 +590,10 @@ public final class MemcachedConnection extends SpyObject {
 		// Do not attempt to connect if this node is fake.
 		// Otherwise, we keep connecting to a non-existent listen address
 		// and keep failing/reconnecting.
+		IOLoop loop = assignIOLoop(qa);
 		if (qa.isFake()) {
 			// Locator assumes non-null selectionkey.  So add a dummy one...
-			qa.setSk(ch.register(selector, ops, qa));
+			qa.setSk(ch.register(loop.selector, ops, qa));
 			getLogger().info("new fake memcached node added %s to connect queue", qa);
 			return qa;
 		}
@@ -588,7 +610,7 @@ public final class MemcachedConnection extends SpyObject {
 				getLogger().info("new memcached node added %s to connect queue", qa);
 				ops = SelectionKey.OP_CONNECT;
 			}
-			qa.setSk(ch.register(selector, ops, qa));
+			qa.setSk(ch.register(loop.selector, ops, qa));
 			assert ch.isConnected()
 					|| qa.getSk().interestOps() == SelectionKey.OP_CONNECT 
 					: "Not connected, and not wanting to connect";
@@ -596,14 +618,54 @@ public final class MemcachedConnection extends SpyObject {
 			getLogger().warn("new memcached socket error on initial connect");
 			queueReconnect(qa, ReconnDelay.DEFAULT, "initial connection error");
 		}
-		prepareVersionInfo(qa, sa);
 		return qa;
 	}
 
+	private IOLoop assignIOLoop(MemcachedNode qa) {
+		IOLoop loop;
+		if (ioLoops.length == 1) {
+			loop = ioLoops[0];
+		}
+		/* ENABLE_REPLICATION if */
+		// Keep all nodes of a replica group in one loop, so that
+		// moving operations between them stays in a single thread.
+		else if (qa.getSocketAddress() instanceof ArcusReplNodeAddress) {
+			String group = ((ArcusReplNodeAddress)qa.getSocketAddress()).getGroupName();
+			loop = ioLoops[(group.hashCode() & Integer.MAX_VALUE) % ioLoops.length];
+		}
+		/* ENABLE_REPLICATION end */
+		else {
+			loop = ioLoops[nextIOLoop];
+			nextIOLoop = (nextIOLoop + 1) % ioLoops.length;
+		}
+		nodeLoops.put(qa, loop);
+		return loop;
+	}
+
+	private IOLoop getIOLoop(MemcachedNode qa) {
+		if (ioLoops.length == 1) {
+			return ioLoops[0];
+		}
+		IOLoop loop = nodeLoops.get(qa);
+		return loop != null ? loop : ioLoops[0];
+	}
+
+	// Queue the node in its IO loop and wake the loop up.
+	private void queueNode(MemcachedNode qa) {
+		IOLoop loop = getIOLoop(qa);
+		loop.addedQueue.offer(qa);
+		loop.wakeup();
+	}
+
 	private void prepareVersionInfo(final MemcachedNode node, final SocketAddress sa) {
 		Operation op=opFact.version(new OperationCallback() {
 			@Override
-			public void receivedStatus(OperationStatus status) {versions.put(sa, status.getMessage());}
+			public void receivedStatus(OperationStatus status) {
+				// a version op timed out or cancelled is sent again
+				if (status.isSuccess()) {
+					versions.put(sa, status.getMessage());
+				}
+			}
 			@Override
 			public void complete() {setVersionInfo(node);}
 		});
@@ -633,62 +695,58 @@ public final class MemcachedConnection extends SpyObject {
 		// Get addresses from the queue
 		String addrs = _nodeManageQueue.poll();
 		
-		// Update the memcached server group.
-		/* ENABLE_REPLICATION if */
-		if (arcusReplEnabled)
-			updateConnections(ArcusReplNodeAddress.getAddresses(addrs));
-		else
+		// The other IO loops must not touch their nodes while we update them.
+		pauseIOThreads();
+		try {
+			// Update the memcached server group.
+			/* ENABLE_REPLICATION if */
+			if (arcusReplEnabled)
+				updateConnections(ArcusReplNodeAddress.getAddresses(addrs));
+			else
+				updateConnections(AddrUtil.getAddresses(addrs));
+			/* ENABLE_REPLICATION else */
+			/*
 			updateConnections(AddrUtil.getAddresses(addrs));
-		/* ENABLE_REPLICATION else */
-		/*
-		updateConnections(AddrUtil.getAddresses(addrs));
-		*/
-		/* ENABLE_REPLICATION end */
+			*/
+			/* ENABLE_REPLICATION end */
+		} finally {
+			resumeIOThreads();
+		}
 	}	
-	
-	// Handle any requests that have been made against the client.
-	private void handleInputQueue() {
-		if(!addedQueue.isEmpty()) {
-			getLogger().debug("Handling queue");
-			// If there's stuff in the added queue.  Try to process it.
-			Collection<MemcachedNode> toAdd=new HashSet<MemcachedNode>();
-			// Transfer the queue into a hashset.  There are very likely more
-			// additions than there are nodes.
-			Collection<MemcachedNode> todo=new HashSet<MemcachedNode>();
-
-			MemcachedNode node;
-			while ((node = addedQueue.poll()) != null) {
-				todo.add(node);
-			}
 
-			// Now process the queue.
-			for(MemcachedNode qa : todo) {
-				boolean readyForIO=false;
-				if(qa.isActive()) {
-					if(qa.getCurrentWriteOp() != null) {
-						readyForIO=true;
-						getLogger().debug("Handling queued write %s", qa);
-					}
-				} else {
-					toAdd.add(qa);
+	private void pauseIOThreads() {
+		if (ioThreads.isEmpty()) {
+			return;
+		}
+		boolean interrupted = false;
+		try {
+			while (true) {
+				// Kick the other loops out of select() so that they
+				// release the read lock.
+				for (int i = 1; i < ioLoops.length; i++) {
+					ioLoops[i].wakeup();
 				}
-				qa.copyInputQueue();
-				if(readyForIO) {
-					try {
-						if(qa.getWbuf().hasRemaining()) {
-							handleWrites(qa.getSk(), qa);
-						}
-					} catch(IOException e) {
-						getLogger().warn("Exception handling write", e);
-						lostConnection(qa, ReconnDelay.DEFAULT, "exception handling write");
+				try {
+					if (ioLoopLock.writeLock().tryLock(1, TimeUnit.MILLISECONDS)) {
+						return;
 					}
+				} catch (InterruptedException e) {
+					interrupted = true;
 				}
-				qa.fixupOps();
 			}
-			addedQueue.addAll(toAdd);
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
 		}
 	}
 
+	private void resumeIOThreads() {
+		if (!ioThreads.isEmpty()) {
+			ioLoopLock.writeLock().unlock();
+		}
+	}
+	
 	/**
 	 * Add a connection observer.
 	 *
@@ -737,7 +795,7 @@ public final class MemcachedConnection extends SpyObject {
 				final SocketChannel channel=qa.getChannel();
 				if(channel.finishConnect()) {
 					connected(qa);
-					addedQueue.offer(qa);
+					getIOLoop(qa).addedQueue.offer(qa);
 					if(qa.getWbuf().hasRemaining()) {
 						handleWrites(sk, qa);
 					}
@@ -817,6 +875,10 @@ public final class MemcachedConnection extends SpyObject {
 					Operation op=qa.removeCurrentReadOp();
 					assert op == currentOp
 					: "Expected to pop " + currentOp + " got " + op;
+					if (op.getWriteCompleteTimestamp() != 0) {
+						qa.addResponseTime(System.nanoTime()
+								- op.getWriteCompleteTimestamp());
+					}
 					currentOp=qa.getCurrentReadOp();
 				}
 				/* ENABLE_REPLICATION if */
@@ -846,14 +908,13 @@ public final class MemcachedConnection extends SpyObject {
 	// Make a debug string out of the given buffer's values
 	static String dbgBuffer(ByteBuffer b, int size) {
 		StringBuilder sb=new StringBuilder();
-		byte[] bytes=b.array();
 		for(int i=0; i<size; i++) {
-			char ch=(char)bytes[i];
+			char ch=(char)b.get(i);
 			if(Character.isWhitespace(ch) || Character.isLetterOrDigit(ch)) {
 				sb.append(ch);
 			} else {
 				sb.append("\\x");
-				sb.append(Integer.toHexString(bytes[i] & 0xff));
+				sb.append(Integer.toHexString(b.get(i) & 0xff));
 			}
 		}
 		return sb.toString();
@@ -892,6 +953,8 @@ public final class MemcachedConnection extends SpyObject {
 					break;
 			}
 			long reconTime = System.currentTimeMillis() + delay;
+			SortedMap<Long, MemcachedNode> reconnectQueue =
+				getIOLoop(qa).reconnectQueue;
 
 			// Avoid potential condition where two connections are scheduled
 			// for reconnect at the exact same time.  This is expected to be
@@ -918,12 +981,21 @@ public final class MemcachedConnection extends SpyObject {
 	private void cancelOperations(Collection<Operation> ops, String cause) {
 		for(Operation op : ops) {
 			op.cancel(cause);
+			op.discardBuffer();
 		}
 	}
 
 	private void redistributeOperations(Collection<Operation> ops, String cause) {
 		for(Operation op : ops) {
-			if(op instanceof KeyedOperation) {
+			if(op instanceof BulkStoreOperation) {
+				// each clone stores one key of the bulk store
+				for(Operation newop : opFact.clone((KeyedOperation)op)) {
+					addOperation(((KeyedOperation)newop).getKeys()
+							.iterator().next(), newop);
+				}
+				op.setDeadline(null);
+				op.setAdmissionPermit(null);
+			} else if(op instanceof KeyedOperation) {
 				KeyedOperation ko = (KeyedOperation)op;
 				int added = 0;
 				for(String k : ko.getKeys()) {
@@ -934,6 +1006,9 @@ public final class MemcachedConnection extends SpyObject {
 				}
 				assert added > 0
 					: "Didn't add any new operations when redistributing";
+				// the clones have their own deadlines and permits
+				op.setDeadline(null);
+				op.setAdmissionPermit(null);
 			} else {
 				// Cancel things that don't have definite targets.
 				op.cancel(cause);
@@ -941,63 +1016,6 @@ public final class MemcachedConnection extends SpyObject {
 		}
 	}
 
-	private void attemptReconnects() throws IOException {
-		final long now=System.currentTimeMillis();
-		final Map<MemcachedNode, Boolean> seen=
-			new IdentityHashMap<MemcachedNode, Boolean>();
-		final List<MemcachedNode> rereQueue=new ArrayList<MemcachedNode>();
-		SocketChannel ch = null;
-		for(Iterator<MemcachedNode> i=
-				reconnectQueue.headMap(now).values().iterator(); i.hasNext();) {
-			final MemcachedNode qa=i.next();
-			i.remove();
-			try {
-				if(!seen.containsKey(qa)) {
-					seen.put(qa, Boolean.TRUE);
-					getLogger().info("Reconnecting %s", qa);
-					ch=SocketChannel.open();
-					ch.configureBlocking(false);
-					ch.socket().setTcpNoDelay(!f.useNagleAlgorithm());
-					ch.socket().setReuseAddress(true);
-					int ops=0;
-					if(ch.connect(qa.getSocketAddress())) {
-						getLogger().info("Immediately reconnected to %s", qa);
-						assert ch.isConnected();
-					} else {
-						ops=SelectionKey.OP_CONNECT;
-					}
-					qa.registerChannel(ch, ch.register(selector, ops, qa));
-					assert qa.getChannel() == ch : "Channel was lost.";
-				} else {
-					getLogger().debug(
-						"Skipping duplicate reconnect request for %s", qa);
-				}
-			} catch(SocketException e) {
-				getLogger().warn("Error on reconnect", e);
-				rereQueue.add(qa);
-			}
-			catch (Exception e) {
-                getLogger().error("Exception on reconnect, lost node %s", qa, e);
-            } finally {
-                //it's possible that above code will leak file descriptors under abnormal
-                //conditions (when ch.open() fails and throws IOException.
-                //always close non connected channel
-                if (ch != null && !ch.isConnected()
-                        && !ch.isConnectionPending()) {
-                    try {
-                        ch.close();
-                    } catch (IOException x) {
-                        getLogger().error("Exception closing channel: %s", qa, x);
-                    }
-                }
-            }
-		}
-		// Requeue any fast-failed connects.
-		for(MemcachedNode n : rereQueue) {
-			queueReconnect(n, ReconnDelay.DEFAULT, "error on reconnect");
-		}
-	}
-
 	/**
 	 * Get the node locator used by this connection.
 	 */
@@ -1006,7 +1024,7 @@ public final class MemcachedConnection extends SpyObject {
 	}
 	
 	Selector getSelector() {
-		return selector;
+		return ioLoops[0].selector;
 	}
 
 	/**
@@ -1016,16 +1034,26 @@ public final class MemcachedConnection extends SpyObject {
 	 * @param o the operation
 	 */
 	public void addOperation(final String key, final Operation o) {
+		addOperation(new EncodedKey(key), o);
+	}
+
+	/**
+	 * Add an operation to the given connection.
+	 *
+	 * @param key the key the operation is operating upon, already encoded
+	 * @param o the operation
+	 */
+	public void addOperation(final EncodedKey key, final Operation o) {
 		MemcachedNode placeIn=null;
 		/* ENABLE_REPLICATION if */
 		MemcachedNode primary;
 		if (this.arcusReplEnabled) {
 			primary = ((ArcusReplKetamaNodeLocator)locator).getPrimary(key, getReplicaPick(o));
 		} else
-			primary = locator.getPrimary(key);
+			primary = getPrimary(key);
 		/* ENABLE_REPLICATION else */
 		/*
-		MemcachedNode primary = locator.getPrimary(key);
+		MemcachedNode primary = getPrimary(key);
 		/*
 		/* ENABLE_REPLICATION end */
 		if(primary.isActive() || failureMode == FailureMode.Retry) {
@@ -1038,7 +1066,7 @@ public final class MemcachedConnection extends SpyObject {
 			/* ENABLE_REPLICATION if */
 			Iterator<MemcachedNode> iter = this.arcusReplEnabled 
 					? ((ArcusReplKetamaNodeLocator)locator).getSequence(key, getReplicaPick(o))
-					: locator.getSequence(key);
+					: getSequence(key);
 			for( ; placeIn == null && iter.hasNext(); ) {
 				MemcachedNode n=iter.next();
 				if(n.isActive()) {
@@ -1047,7 +1075,7 @@ public final class MemcachedConnection extends SpyObject {
 			}
 			/* ENABLE_REPLICATION else */
 			/*
-			for(Iterator<MemcachedNode> i=locator.getSequence(key);
+			for(Iterator<MemcachedNode> i=getSequence(key);
 				placeIn == null && i.hasNext(); ) {
 				MemcachedNode n=i.next();
 				if(n.isActive()) {
@@ -1066,13 +1094,25 @@ public final class MemcachedConnection extends SpyObject {
 		assert o.isCancelled() || placeIn != null
 			: "No node found for key " + key;
 		if(placeIn != null) {
-			addOperation(placeIn, o);
+			queueOperation(selectConnection(placeIn, key), o);
 		} else {
 			assert o.isCancelled() : "No not found for "
 				+ key + " (and not immediately cancelled)";
 		}
 	}
 
+	MemcachedNode getPrimary(EncodedKey key) {
+		return locator instanceof EncodedKeyLocator
+				? ((EncodedKeyLocator) locator).getPrimary(key)
+				: locator.getPrimary(key.toString());
+	}
+
+	Iterator<MemcachedNode> getSequence(EncodedKey key) {
+		return locator instanceof EncodedKeyLocator
+				? ((EncodedKeyLocator) locator).getSequence(key)
+				: locator.getSequence(key.toString());
+	}
+
 	/* ENABLE_REPLICATION if */
 	private ReplicaPick getReplicaPick(final Operation o) {
 		ReplicaPick pick = ReplicaPick.MASTER;
@@ -1084,6 +1124,8 @@ public final class MemcachedConnection extends SpyObject {
 					pick = ReplicaPick.SLAVE;
 				else if (readPriority == ReadPriority.RR)
 					pick = ReplicaPick.RR;
+				else if (readPriority == ReadPriority.LATENCY)
+					pick = ReplicaPick.LATENCY;
 			} else {
 				pick = getReplicaPick();
 			}
@@ -1100,6 +1142,8 @@ public final class MemcachedConnection extends SpyObject {
 			pick = ReplicaPick.SLAVE;
 		else if (readPriority == ReadPriority.RR)
 			pick = ReplicaPick.RR;
+		else if (readPriority == ReadPriority.LATENCY)
+			pick = ReplicaPick.LATENCY;
 		return pick;
 	}
 	/* ENABLE_REPLICATION end */
@@ -1108,34 +1152,157 @@ public final class MemcachedConnection extends SpyObject {
 		o.setHandlingNode(node);
 		o.initialize();
 		node.insertOp(o);
-		addedQueue.offer(node);
-		Selector s=selector.wakeup();
-		assert s == selector : "Wakeup returned the wrong selector.";
+		queueNode(node);
 		getLogger().debug("Added %s to %s", o, node);
 	}
 
 	public void addOperation(final MemcachedNode node, final Operation o) {
+		queueOperation(selectConnection(node, null), o);
+	}
+
+	private void queueOperation(final MemcachedNode node, final Operation o) {
 		o.setHandlingNode(node);
 		o.initialize();
-		node.addOp(o);
-		addedQueue.offer(node);
-		Selector s=selector.wakeup();
-		assert s == selector : "Wakeup returned the wrong selector.";
+		if(!admit(node, o)) {
+			return;
+		}
+		setDeadline(o);
+		addOp(node, o);
+		queueNode(node);
 		getLogger().debug("Added %s to %s", o, node);
 	}
 
 	public void addOperations(final Map<MemcachedNode, Operation> ops) {
-
+		Set<IOLoop> loops=new HashSet<IOLoop>();
 		for(Map.Entry<MemcachedNode, Operation> me : ops.entrySet()) {
-			final MemcachedNode node=me.getKey();
+			final MemcachedNode node=selectConnection(me.getKey(), null);
 			Operation o=me.getValue();
 			o.setHandlingNode(node);
 			o.initialize();
+			if(!admit(node, o)) {
+				continue;
+			}
+			setDeadline(o);
+			addOp(node, o);
+			IOLoop loop=getIOLoop(node);
+			loop.addedQueue.offer(node);
+			loops.add(loop);
+		}
+		for(IOLoop loop : loops) {
+			loop.wakeup();
+		}
+	}
+
+	// Pick one of the connections of a node of the locator for an
+	// operation on the given key, or on several keys if it is null.
+	private MemcachedNode selectConnection(MemcachedNode node, EncodedKey key) {
+		MemcachedNode[] conns=nodeConnections.get(node);
+		if(conns == null) {
+			return node;
+		}
+		int first=(nextConnection.getAndIncrement() & Integer.MAX_VALUE)
+			% conns.length;
+		MemcachedNode conn=conns[first];
+		switch(connectionSelection) {
+			case KEY :
+				if(key != null) {
+					conn=conns[connectionIndex(key.hash(hashAlg), conns.length)];
+				}
+				break;
+			case LEAST_OUTSTANDING_BYTES :
+				long least=getAdmission(conn).getInFlightBytes();
+				for(int i=1; i < conns.length && least > 0; i++) {
+					MemcachedNode c=conns[(first + i) % conns.length];
+					long bytes=getAdmission(c).getInFlightBytes();
+					if(bytes < least) {
+						conn=c;
+						least=bytes;
+					}
+				}
+				break;
+			default :
+				break;
+		}
+		// rather not wait for a connection being reestablished
+		if(!conn.isActive()) {
+			for(MemcachedNode c : conns) {
+				if(c.isActive()) {
+					return c;
+				}
+			}
+		}
+		return conn;
+	}
+
+	// The locator picked the node from the same key hash, so with a modulo
+	// locator the keys of one node share the hash's low bits.  Mix the hash
+	// (murmur3 finalizer) before picking a connection so all of them are used.
+	static int connectionIndex(long hash, int connections) {
+		long h=hash;
+		h^=h >>> 33;
+		h*=0xff51afd7ed558ccdL;
+		h^=h >>> 33;
+		h*=0xc4ceb9fe1a85ec53L;
+		h^=h >>> 33;
+		return (int)((h & Long.MAX_VALUE) % connections);
+	}
+
+	// Cancel the operation if the node has too much in flight already.
+	private boolean admit(MemcachedNode node, Operation o) {
+		if(!countInFlight) {
+			return true;
+		}
+		NodeAdmission.Permit permit=getAdmission(node).tryAcquire(o);
+		if(permit == null) {
+			o.cancel("node overloaded");
+			o.discardBuffer();
+			return false;
+		}
+		o.setAdmissionPermit(permit);
+		return true;
+	}
+
+	NodeAdmission getAdmission(MemcachedNode node) {
+		NodeAdmission admission=admissions.get(node);
+		if(admission == null) {
+			NodeAdmission created=new NodeAdmission(maxNodeInFlightOps,
+					maxNodeInFlightBytes, admissionPolicy);
+			admission=admissions.putIfAbsent(node, created);
+			if(admission == null) {
+				admission=created;
+			}
+		}
+		return admission;
+	}
+
+	private void addOp(MemcachedNode node, Operation o) {
+		try {
 			node.addOp(o);
-			addedQueue.offer(node);
+		} catch(IllegalStateException e) {
+			// the operation was not queued
+			o.setAdmissionPermit(null);
+			throw e;
+		}
+	}
+
+	// Time the operation out if it has not been sent by the deadline.
+	private void setDeadline(final Operation o) {
+		if(opDeadline > 0) {
+			o.setDeadline(DeadlineTimer.TIMER.newTimeout(new Runnable() {
+				public void run() {
+					// the IO thread of the node decides, see handleExpiredOps
+					IOLoop loop=getIOLoop(o.getHandlingNode());
+					loop.expiredOps.offer(o);
+					loop.wakeup();
+				}
+			}, opDeadline, TimeUnit.MILLISECONDS));
 		}
-		Selector s=selector.wakeup();
-		assert s == selector : "Wakeup returned the wrong selector.";
+	}
+
+	// One timer thread is shared by all connections.
+	private static final class DeadlineTimer {
+		static final HashedWheelTimer TIMER = new HashedWheelTimer(
+				"Memcached Operation Deadline Timer", 10, TimeUnit.MILLISECONDS, 512);
 	}
 
 	/**
@@ -1150,16 +1317,20 @@ public final class MemcachedConnection extends SpyObject {
 	 */
 	public CountDownLatch broadcastOperation(final BroadcastOpFactory of,
 			Collection<MemcachedNode> nodes) {
-		final CountDownLatch latch=new CountDownLatch(locator.getAll().size());
+		final CountDownLatch latch=new CompletionLatch(locator.getAll().size());
+		Set<IOLoop> loops=new HashSet<IOLoop>();
 		for(MemcachedNode node : nodes) {
 			Operation op = of.newOp(node, latch);
+			op.setHandlingNode(node);
 			op.initialize();
 			node.addOp(op);
-			op.setHandlingNode(node);
-			addedQueue.offer(node);
+			IOLoop loop=getIOLoop(node);
+			loop.addedQueue.offer(node);
+			loops.add(loop);
+		}
+		for(IOLoop loop : loops) {
+			loop.wakeup();
 		}
-		Selector s=selector.wakeup();
-		assert s == selector : "Wakeup returned the wrong selector.";
 		return latch;
 	}
 
@@ -1168,13 +1339,21 @@ public final class MemcachedConnection extends SpyObject {
 	 */
 	public void shutdown() throws IOException {
 		shutDown=true;
-		Selector s=selector.wakeup();
-		assert s == selector : "Wakeup returned the wrong selector.";
+		for(IOLoop loop : ioLoops) {
+			loop.wakeup();
+		}
 		for(MemcachedNode qa : locator.getAll()) {
 			qa.shutdown();
 		}
-		selector.close();
-		getLogger().debug("Shut down selector %s", selector);
+		for(MemcachedNode[] conns : nodeConnections.values()) {
+			for(int i=1; i<conns.length; i++) {
+				conns[i].shutdown();
+			}
+		}
+		for(IOLoop loop : ioLoops) {
+			loop.selector.close();
+			getLogger().debug("Shut down selector %s", loop.selector);
+		}
 	}
 
 	@Override
@@ -1284,9 +1463,326 @@ public final class MemcachedConnection extends SpyObject {
 		return placeIn;
 	}
 	
+	/**
+	 * Get the number of operations queued, being written or awaiting a
+	 * response, over all connections.
+	 */
+	public int getOutstandingCount() {
+		int count=0;
+		for(MemcachedNode qa : allConnections) {
+			count += qa.getOutstandingCount();
+		}
+		return count;
+	}
+
 	public int getAddedQueueSize() {
-		return addedQueue.size();
+		int size = 0;
+		for (IOLoop loop : ioLoops) {
+			size += loop.addedQueue.size();
+		}
+		return size;
+	}
+	/**
+	 * A selector together with the nodes registered with it.
+	 */
+	private final class IOLoop {
+		private final Selector selector;
+		private int emptySelects=0;
+		// AddedQueue is used to track the QueueAttachments for which operations
+		// have recently been queued.
+		private final ConcurrentLinkedQueue<MemcachedNode> addedQueue=
+			new ConcurrentLinkedQueue<MemcachedNode>();
+		// reconnectQueue contains the attachments that need to be reconnected
+		// The key is the time at which they are eligible for reconnect
+		private final SortedMap<Long, MemcachedNode> reconnectQueue=
+			new TreeMap<Long, MemcachedNode>();
+		// operations whose deadline passed, possibly before they were sent
+		private final ConcurrentLinkedQueue<Operation> expiredOps=
+			new ConcurrentLinkedQueue<Operation>();
+		// Set by the first wakeup since the queues were last handled, so
+		// that the others need not wake the selector again.
+		private final AtomicBoolean wakeupPending=new AtomicBoolean(false);
+
+		IOLoop() throws IOException {
+			selector=Selector.open();
+		}
+
+		void wakeup() {
+			if(!wakeupPending.get() && wakeupPending.compareAndSet(false, true)) {
+				Selector s=selector.wakeup();
+				assert s == selector : "Wakeup returned the wrong selector.";
+			}
+		}
+
+		private boolean selectorsMakeSense() {
+			for(MemcachedNode qa : locator.getAll()) {
+				if(getIOLoop(qa) != this) {
+					continue;
+				}
+				if(qa.getSk() != null && qa.getSk().isValid()) {
+					if(qa.getChannel().isConnected()) {
+						int sops=qa.getSk().interestOps();
+						int expected=0;
+						if(qa.hasReadOp()) {
+							expected |= SelectionKey.OP_READ;
+						}
+						if(qa.hasWriteOp()) {
+							expected |= SelectionKey.OP_WRITE;
+						}
+						if(qa.getBytesRemainingToWrite() > 0) {
+							expected |= SelectionKey.OP_WRITE;
+						}
+						assert sops == expected : "Invalid ops:  "
+							+ qa + ", expected " + expected + ", got " + sops;
+					} else {
+						int sops=qa.getSk().interestOps();
+						assert sops == SelectionKey.OP_CONNECT
+						: "Not connected, and not watching for connect: "
+							+ sops;
+					}
+				}
+			}
+			getLogger().debug("Checked the selectors.");
+			return true;
+		}
+
+		void handleIO() throws IOException {
+			if(shutDown) {
+				throw new IOException("No IO while shut down");
+			}
+
+			// Cleared before the queues are handled, so that anything added
+			// after that wakes the select below.
+			wakeupPending.set(false);
+			handleExpiredOps();
+
+			// Deal with all of the stuff that's been added, but may not be marked
+			// writable.
+			handleInputQueue();
+			getLogger().debug("Done dealing with queue.");
+
+			long delay=0;
+			if(!reconnectQueue.isEmpty()) {
+				long now=System.currentTimeMillis();
+				long then=reconnectQueue.firstKey();
+				delay=Math.max(then-now, 1);
+			}
+			getLogger().debug("Selecting with delay of %sms", delay);
+			assert selectorsMakeSense() : "Selectors don't make sense.";
+			int selected=selector.select(delay);
+			Set<SelectionKey> selectedKeys=selector.selectedKeys();
+
+			if(selectedKeys.isEmpty() && !shutDown) {
+				getLogger().debug("No selectors ready, interrupted: "
+						+ Thread.interrupted());
+				if(++emptySelects > DOUBLE_CHECK_EMPTY) {
+					for(SelectionKey sk : selector.keys()) {
+						getLogger().info("%s has %s, interested in %s",
+								sk, sk.readyOps(), sk.interestOps());
+						if(sk.readyOps() != 0) {
+							getLogger().info("%s has a ready op, handling IO", sk);
+							MemcachedConnection.this.handleIO(sk);
+						} else {
+							lostConnection((MemcachedNode)sk.attachment(), ReconnDelay.DEFAULT, "too many empty selects");
+						}
+					}
+					assert emptySelects < EXCESSIVE_EMPTY
+						: "Too many empty selects";
+				}
+			} else {
+				getLogger().debug("Selected %d, selected %d keys",
+						selected, selectedKeys.size());
+				emptySelects=0;
+
+				for(SelectionKey sk : selectedKeys) {
+					MemcachedConnection.this.handleIO(sk);
+				}
+
+				selectedKeys.clear();
+			}
+
+			// see if any connections blew up with large number of timeouts
+			for(SelectionKey sk : selector.keys()) {
+				MemcachedNode mn = (MemcachedNode)sk.attachment();
+				if (mn.getContinuousTimeout() > timeoutExceptionThreshold)
+				{
+					getLogger().warn(
+							"%s exceeded continuous timeout threshold. >%s (%s)",
+							mn.getSocketAddress().toString(), timeoutExceptionThreshold, mn.getStatus());
+					lostConnection(mn, ReconnDelay.DEFAULT, "continuous timeout");
+				}
+				else if (timeoutRatioThreshold > 0 && mn.getTimeoutRatioNow() > timeoutRatioThreshold)
+				{
+					getLogger().warn(
+							"%s exceeded timeout ratio threshold. >%s (%s)",
+							mn.getSocketAddress().toString(), timeoutRatioThreshold, mn.getStatus());
+					lostConnection(mn, ReconnDelay.DEFAULT, "high timeout ratio");
+				}
+			}
+		}
+
+		void handleReconnects() throws IOException {
+			if(!shutDown && !reconnectQueue.isEmpty()) {
+				attemptReconnects();
+			}
+		}
+
+		// Time out the expired operations that are still waiting to be sent.
+		// They are left in their queues, and dropped there as cancelled.
+		private void handleExpiredOps() {
+			Operation op;
+			while ((op = expiredOps.poll()) != null) {
+				if (op.timeOut()) {
+					getLogger().debug("Timed out unsent operation %s", op);
+					opTimedOut(op);
+				}
+			}
+		}
+
+		// Handle any requests that have been made against the client.
+		private void handleInputQueue() {
+			if(!addedQueue.isEmpty()) {
+				getLogger().debug("Handling queue");
+				// If there's stuff in the added queue.  Try to process it.
+				Collection<MemcachedNode> toAdd=new HashSet<MemcachedNode>();
+				// Transfer the queue into a hashset.  There are very likely more
+				// additions than there are nodes.
+				Collection<MemcachedNode> todo=new HashSet<MemcachedNode>();
+
+				MemcachedNode node;
+				while ((node = addedQueue.poll()) != null) {
+					todo.add(node);
+				}
+
+				// Now process the queue.
+				for(MemcachedNode qa : todo) {
+					boolean readyForIO=false;
+					if(qa.isActive()) {
+						if(qa.getCurrentWriteOp() != null) {
+							readyForIO=true;
+							getLogger().debug("Handling queued write %s", qa);
+						}
+					} else {
+						toAdd.add(qa);
+					}
+					qa.copyInputQueue();
+					if(readyForIO) {
+						try {
+							if(qa.getWbuf().hasRemaining()) {
+								handleWrites(qa.getSk(), qa);
+							}
+						} catch(IOException e) {
+							getLogger().warn("Exception handling write", e);
+							lostConnection(qa, ReconnDelay.DEFAULT, "exception handling write");
+						}
+					}
+					qa.fixupOps();
+				}
+				addedQueue.addAll(toAdd);
+			}
+		}
+
+		private void attemptReconnects() throws IOException {
+			final long now=System.currentTimeMillis();
+			final Map<MemcachedNode, Boolean> seen=
+				new IdentityHashMap<MemcachedNode, Boolean>();
+			final List<MemcachedNode> rereQueue=new ArrayList<MemcachedNode>();
+			SocketChannel ch = null;
+			for(Iterator<MemcachedNode> i=
+					reconnectQueue.headMap(now).values().iterator(); i.hasNext();) {
+				final MemcachedNode qa=i.next();
+				i.remove();
+				try {
+					if(!seen.containsKey(qa)) {
+						seen.put(qa, Boolean.TRUE);
+						getLogger().info("Reconnecting %s", qa);
+						ch=SocketChannel.open();
+						ch.configureBlocking(false);
+						ch.socket().setTcpNoDelay(!f.useNagleAlgorithm());
+						ch.socket().setReuseAddress(true);
+						int ops=0;
+						if(ch.connect(qa.getSocketAddress())) {
+							getLogger().info("Immediately reconnected to %s", qa);
+							assert ch.isConnected();
+						} else {
+							ops=SelectionKey.OP_CONNECT;
+						}
+						qa.registerChannel(ch, ch.register(selector, ops, qa));
+						assert qa.getChannel() == ch : "Channel was lost.";
+					} else {
+						getLogger().debug(
+							"Skipping duplicate reconnect request for %s", qa);
+					}
+				} catch(SocketException e) {
+					getLogger().warn("Error on reconnect", e);
+					rereQueue.add(qa);
+				}
+				catch (Exception e) {
+	                getLogger().error("Exception on reconnect, lost node %s", qa, e);
+	            } finally {
+	                //it's possible that above code will leak file descriptors under abnormal
+	                //conditions (when ch.open() fails and throws IOException.
+	                //always close non connected channel
+	                if (ch != null && !ch.isConnected()
+	                        && !ch.isConnectionPending()) {
+	                    try {
+	                        ch.close();
+	                    } catch (IOException x) {
+	                        getLogger().error("Exception closing channel: %s", qa, x);
+	                    }
+	                }
+	            }
+			}
+			// Requeue any fast-failed connects.
+			for(MemcachedNode n : rereQueue) {
+				queueReconnect(n, ReconnDelay.DEFAULT, "error on reconnect");
+			}
+		}
 	}
+
+	/**
+	 * Thread driving one of the additional IO loops.
+	 */
+	private final class IOThread extends SpyThread {
+		private final IOLoop loop;
+
+		IOThread(IOLoop l, int index) {
+			super("Memcached IO over " + MemcachedConnection.this
+				+ " #" + index);
+			loop=l;
+		}
+
+		private void logRunException(Exception e) {
+			if(shutDown) {
+				getLogger().debug("Exception occurred during shutdown", e);
+			} else {
+				getLogger().warn("Problem handling memcached IO", e);
+			}
+		}
+
+		@Override
+		public void run() {
+			while(!shutDown) {
+				ioLoopLock.readLock().lock();
+				try {
+					loop.handleIO();
+					loop.handleReconnects();
+				} catch(IOException e) {
+					logRunException(e);
+				} catch(CancelledKeyException e) {
+					logRunException(e);
+				} catch(ClosedSelectorException e) {
+					logRunException(e);
+				} catch(IllegalStateException e) {
+					logRunException(e);
+				} finally {
+					ioLoopLock.readLock().unlock();
+				}
+			}
+			getLogger().info("Shut down memcached IO thread");
+		}
+	}
+
 	/* ENABLE_REPLICATION if */
 	
 	private interface Task {
@@ -1336,7 +1832,7 @@ public final class MemcachedConnection extends SpyObject {
 		
 		public void doTask() {
 			if (fromNode.moveOperations(toNode) > 0)
-				addedQueue.offer(toNode);
+				queueNode(toNode);
 		}
 	}
 	/* ENABLE_REPLICATION end */
@@ -133,6 +133,12 @@ public interface MemcachedNode {
 	 */
 	ByteBuffer getWbuf();
 
+	/**
+	 * Get the pool operation buffers for this node are taken from, or null
+	 * if operations use heap buffers.
+	 */
+	ByteBufferPool getBufferPool();
+
 	/**
 	 * Get the SocketAddress of the server to which this node is connected.
 	 */
@@ -204,6 +210,13 @@ public interface MemcachedNode {
 	 */
 	int getBytesRemainingToWrite();
 
+	/**
+	 * True if the given operation buffer is being written to the channel
+	 * as it is, so that it must not be discarded yet.  Only called from the
+	 * IO thread.
+	 */
+	boolean isWriting(ByteBuffer buf);
+
 	/**
 	 * Write some bytes and return the number of bytes written.
 	 * @return the number of bytes written
@@ -259,6 +272,27 @@ public interface MemcachedNode {
 	 * @return status string
 	 */
 	String getStatus();
+
+	/**
+	 * Record the response time of an operation completed on this node.
+	 * Called from the IO thread.
+	 *
+	 * @param nanos time from the end of the write to the end of the read
+	 */
+	void addResponseTime(long nanos);
+
+	/**
+	 * Get the expected response time of an operation added now, in
+	 * nanoseconds: the decaying peak EWMA of the response times, times
+	 * the number of operations queued ahead of it.
+	 */
+	long getExpectedResponseTime();
+
+	/**
+	 * Get the number of operations queued, being written or awaiting a
+	 * response.
+	 */
+	int getOutstandingCount();
 	/* ENABLE_REPLICATION if */
 
 	void setReplicaGroup(MemcachedReplicaGroup g);
@@ -71,6 +71,10 @@ class MemcachedNodeROImpl implements MemcachedNode {
 		return root.getBytesRemainingToWrite();
 	}
 
+	public boolean isWriting(ByteBuffer buf) {
+		throw new UnsupportedOperationException();
+	}
+
 	public SocketChannel getChannel() {
 		throw new UnsupportedOperationException();
 	}
@@ -103,6 +107,10 @@ class MemcachedNodeROImpl implements MemcachedNode {
 		return root.getSocketAddress();
 	}
 
+	public ByteBufferPool getBufferPool() {
+		throw new UnsupportedOperationException();
+	}
+
 	public ByteBuffer getWbuf() {
 		throw new UnsupportedOperationException();
 	}
@@ -204,6 +212,18 @@ class MemcachedNodeROImpl implements MemcachedNode {
 	public String getStatus() {
 		throw new UnsupportedOperationException();
 	}
+
+	public void addResponseTime(long nanos) {
+		throw new UnsupportedOperationException();
+	}
+
+	public long getExpectedResponseTime() {
+		throw new UnsupportedOperationException();
+	}
+
+	public int getOutstandingCount() {
+		throw new UnsupportedOperationException();
+	}
 	/* ENABLE_REPLICATION if */
 
 	public void setReplicaGroup(MemcachedReplicaGroup g) {
@@ -21,8 +21,8 @@ import net.spy.memcached.compat.SpyObject;
 
 public abstract class MemcachedReplicaGroup extends SpyObject {
 	protected final String group;
-	protected MemcachedNode masterNode;
-	protected MemcachedNode slaveNode;
+	protected volatile MemcachedNode masterNode;
+	protected volatile MemcachedNode slaveNode;
 	private boolean prevMasterPick;
 
 	protected MemcachedReplicaGroup(final String groupName) {
@@ -77,6 +77,22 @@ public abstract class MemcachedReplicaGroup extends SpyObject {
 				}
 				prevMasterPick = prevMasterPick ? false : true;
 				break;
+			case LATENCY:
+				node = masterNode;
+				if (slaveNode != null && slaveNode.isActive()) {
+					if (masterNode == null || !masterNode.isActive()) {
+						node = slaveNode;
+						break;
+					}
+					long m = masterNode.getExpectedResponseTime();
+					long s = slaveNode.getExpectedResponseTime();
+					// alternate on a tie, so both keep being measured
+					if (s < m || (s == m && prevMasterPick)) {
+						node = slaveNode;
+					}
+					prevMasterPick = node == masterNode;
+				}
+				break;
 			default: // This case never exist.
 				break;
 		}
@@ -0,0 +1,147 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.spy.memcached.ops.Operation;
+
+/**
+ * Admission control for the operations of a node.
+ *
+ * Counts the operations and command bytes a node has in flight, from
+ * the time an operation is added until it completes or is cancelled,
+ * and rejects new operations beyond the limits according to the
+ * {@link AdmissionPolicy}.  A node with nothing in flight always admits
+ * an operation, however large.
+ */
+public final class NodeAdmission {
+
+	private final int maxOps;
+	private final long maxBytes;
+	private final AdmissionPolicy policy;
+	private final AtomicInteger ops = new AtomicInteger();
+	private final AtomicLong bytes = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	/**
+	 * Create an admission control.
+	 *
+	 * @param maxOps the most operations in flight, 0 for no limit
+	 * @param maxBytes the most command bytes in flight, 0 for no limit
+	 * @param policy which operations to reject at the limits
+	 */
+	public NodeAdmission(int maxOps, long maxBytes, AdmissionPolicy policy) {
+		if (maxOps < 0 || maxBytes < 0 || policy == null) {
+			throw new IllegalArgumentException("Invalid admission limits: "
+					+ maxOps + ", " + maxBytes + ", " + policy);
+		}
+		this.maxOps = maxOps;
+		this.maxBytes = maxBytes;
+		this.policy = policy;
+	}
+
+	/**
+	 * Admit an initialized operation.
+	 *
+	 * @return the permit to release once the operation is done, or null
+	 *         if the operation is rejected
+	 */
+	public Permit tryAcquire(Operation op) {
+		int size = op.getBuffer() == null ? 0 : op.getBuffer().remaining();
+		int opLimit = maxOps;
+		long byteLimit = maxBytes;
+		if (policy == AdmissionPolicy.SHED_BY_PRIORITY && op.isReadOperation()) {
+			opLimit -= opLimit / 4;
+			byteLimit -= byteLimit / 4;
+		}
+		int n = ops.incrementAndGet();
+		long b = bytes.addAndGet(size);
+		if (n > 1 && ((maxOps > 0 && n > opLimit)
+				|| (maxBytes > 0 && b > byteLimit))) {
+			ops.decrementAndGet();
+			bytes.addAndGet(-size);
+			rejected.incrementAndGet();
+			return null;
+		}
+		return new Permit(this, 1, size);
+	}
+
+	/**
+	 * Get the number of operations in flight.
+	 */
+	public int getInFlightOps() {
+		return ops.get();
+	}
+
+	/**
+	 * Get the number of command bytes in flight.
+	 */
+	public long getInFlightBytes() {
+		return bytes.get();
+	}
+
+	/**
+	 * Get the number of operations rejected so far.
+	 */
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	@Override
+	public String toString() {
+		return "{NodeAdmission ops=" + ops.get() + "/" + maxOps
+			+ ", bytes=" + bytes.get() + "/" + maxBytes
+			+ ", rejected=" + rejected.get() + ", policy=" + policy + "}";
+	}
+
+	/**
+	 * The operations and bytes an operation holds in flight.  Operations
+	 * folded into another one hand their permits over to it.
+	 */
+	public static final class Permit {
+		private final NodeAdmission admission;
+		private final int ops;
+		private final long bytes;
+
+		Permit(NodeAdmission admission, int ops, long bytes) {
+			this.admission = admission;
+			this.ops = ops;
+			this.bytes = bytes;
+		}
+
+		/**
+		 * Get a permit holding this one and the given one.
+		 */
+		public Permit merge(Permit p) {
+			if (p.admission != admission) {
+				p.release();
+				return this;
+			}
+			return new Permit(admission, ops + p.ops, bytes + p.bytes);
+		}
+
+		/**
+		 * Give the operations and bytes back.  Must be called once.
+		 */
+		public void release() {
+			admission.ops.addAndGet(-ops);
+			admission.bytes.addAndGet(-bytes);
+		}
+	}
+}
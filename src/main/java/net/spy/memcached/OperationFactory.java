@@ -49,6 +49,7 @@ import net.spy.memcached.ops.BTreeSortMergeGetOperation;
 import net.spy.memcached.ops.BTreeSortMergeGetOperationOld;
 import net.spy.memcached.ops.BTreeStoreAndGetOperation;
 import net.spy.memcached.ops.CASOperation;
+import net.spy.memcached.ops.BulkStoreOperation;
 import net.spy.memcached.ops.CollectionBulkStoreOperation;
 import net.spy.memcached.ops.CollectionCountOperation;
 import net.spy.memcached.ops.CollectionCreateOperation;
@@ -106,6 +107,15 @@ public interface OperationFactory {
 	 */
 	DeleteOperation delete(String key, OperationCallback operationCallback);
 
+	/**
+	 * Create a deletion operation for a key already encoded.
+	 *
+	 * @param key the key to delete
+	 * @param operationCallback the status callback
+	 * @return the new DeleteOperation
+	 */
+	DeleteOperation delete(EncodedKey key, OperationCallback operationCallback);
+
 	/**
 	 * Create a flush operation.
 	 *
@@ -124,6 +134,15 @@ public interface OperationFactory {
 	 */
 	GetOperation get(String key, GetOperation.Callback callback);
 
+	/**
+	 * Create a get operation for a key already encoded.
+	 *
+	 * @param key the key to get
+	 * @param callback the callback that will contain the results
+	 * @return a new GetOperation
+	 */
+	GetOperation get(EncodedKey key, GetOperation.Callback callback);
+
 	/**
 	 * Create a gets operation.
 	 *
@@ -133,6 +152,15 @@ public interface OperationFactory {
 	 */
 	GetsOperation gets(String key, GetsOperation.Callback callback);
 
+	/**
+	 * Create a gets operation for a key already encoded.
+	 *
+	 * @param key the key to get
+	 * @param callback the callback that will contain the results
+	 * @return a new GetsOperation
+	 */
+	GetsOperation gets(EncodedKey key, GetsOperation.Callback callback);
+
 
 	/**
 	 * Create a get operation.
@@ -189,6 +217,33 @@ public interface OperationFactory {
 	StoreOperation store(StoreType storeType, String key, int flags, int exp,
 			byte[] data, OperationCallback cb);
 
+	/**
+	 * Create a store operation for a key already encoded.
+	 *
+	 * @param storeType the type of store operation
+	 * @param key the key to store
+	 * @param flags the storage flags
+	 * @param exp the expiration time
+	 * @param data the data
+	 * @param cb the status callback
+	 * @return the new store operation
+	 */
+	StoreOperation store(StoreType storeType, EncodedKey key, int flags,
+			int exp, byte[] data, OperationCallback cb);
+
+	/**
+	 * Create a store operation for many keys on the same node.
+	 *
+	 * @param storeType the type of store operation
+	 * @param keyList the keys to store
+	 * @param exp the expiration time
+	 * @param data the data of each key
+	 * @param cb the status callback
+	 * @return the new bulk store operation
+	 */
+	BulkStoreOperation bulkStore(StoreType storeType, List<String> keyList,
+			int exp, List<CachedData> data, OperationCallback cb);
+
 	/**
 	 * Get a concatenation operation.
 	 *
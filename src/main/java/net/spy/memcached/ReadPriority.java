@@ -36,5 +36,11 @@ public enum ReadPriority {
 	 * Read RR(Round-robin) pattern.
 	 */
 	RR, 
+
+	/**
+	 * Read on the active node with the lowest expected response time,
+	 * from the recent response times and the queued operations.
+	 */
+	LATENCY,
 }
 /* ENABLE_REPLICATION end */
@@ -35,6 +35,11 @@ enum ReplicaPick {
 	/**
 	 * Pick any node RR(Round-robin) pattern.
 	 */
-	RR
+	RR,
+
+	/**
+	 * Pick the active node with the lowest expected response time.
+	 */
+	LATENCY
 }
 /* ENABLE_REPLICATION end */
@@ -17,10 +17,12 @@
 package net.spy.memcached.collection;
 
 import net.spy.memcached.util.BTreeUtil;
+import net.spy.memcached.util.LineTokenizer;
 
 public class BTreeGet extends CollectionGet {
 
 	private static final String command = "bop get";
+	private static final byte[] HEX_PREFIX = "0x".getBytes();
 
 	protected int offset = -1;
 	protected int count = -1;
@@ -166,4 +168,29 @@ public class BTreeGet extends CollectionGet {
 			this.dataLength = Integer.parseInt(splited[1]);
 		}
 	}
+
+	@Override
+	public void decodeItemHeader(LineTokenizer itemHeader) {
+		if (headerParseStep == 1) {
+			// found bkey
+			if (itemHeader.tokenStartsWith(0, HEX_PREFIX)) {
+				this.subkey = itemHeader.getString(0, 2);
+			} else {
+				this.subkey = itemHeader.getString(0);
+			}
+
+			// found element flag.
+			if (itemHeader.tokenStartsWith(1, HEX_PREFIX)) {
+				this.elementFlagExists = true;
+				this.elementFlag = BTreeUtil.hexStringToByteArrays(
+						itemHeader.getString(1, 2));
+				headerParseStep = 2;
+			} else {
+				this.dataLength = itemHeader.getInt(1);
+			}
+		} else {
+			this.headerParseStep = 1;
+			this.dataLength = itemHeader.getInt(1);
+		}
+	}
 }
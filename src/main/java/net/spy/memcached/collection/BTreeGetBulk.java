@@ -18,6 +18,8 @@ package net.spy.memcached.collection;
 
 import java.util.List;
 
+import net.spy.memcached.util.LineTokenizer;
+
 public interface BTreeGetBulk<T> {
 	
 	public String getSpaceSeparatedKeys();
@@ -47,4 +49,14 @@ public interface BTreeGetBulk<T> {
 	public void decodeItemHeader(String itemHeader);
 	
 	public void decodeKeyHeader(String keyHeader);
+
+	/**
+	 * Decode an item header straight from the response bytes.
+	 */
+	public void decodeItemHeader(LineTokenizer itemHeader);
+
+	/**
+	 * Decode a key header straight from the response bytes.
+	 */
+	public void decodeKeyHeader(LineTokenizer keyHeader);
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 
 import net.spy.memcached.util.BTreeUtil;
+import net.spy.memcached.util.LineTokenizer;
 
 public abstract class BTreeGetBulkImpl<T> implements BTreeGetBulk<T> {
 
@@ -152,4 +153,11 @@ public abstract class BTreeGetBulkImpl<T> implements BTreeGetBulk<T> {
 	public byte[] getEFlag() {
 		return eflag;
 	}
+
+	public void decodeKeyHeader(LineTokenizer keyHeader) {
+		this.key = keyHeader.getString(1);
+		if (keyHeader.countTokens() == 5) {
+			this.flag = keyHeader.getInt(3);
+		}
+	}
 }
\ No newline at end of file
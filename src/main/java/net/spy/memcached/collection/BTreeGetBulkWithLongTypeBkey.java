@@ -19,6 +19,7 @@ package net.spy.memcached.collection;
 import java.util.List;
 
 import net.spy.memcached.util.BTreeUtil;
+import net.spy.memcached.util.LineTokenizer;
 
 public class BTreeGetBulkWithLongTypeBkey<T> extends BTreeGetBulkImpl<T> {
 
@@ -47,6 +48,22 @@ public class BTreeGetBulkWithLongTypeBkey<T> extends BTreeGetBulkImpl<T> {
 		}
 	}
 	
+	public void decodeItemHeader(LineTokenizer itemHeader) {
+		int tokens = itemHeader.countTokens();
+
+		if (tokens == 3) {
+			// ELEMENT <bkey> <bytes>
+			this.subkey = itemHeader.getLong(1);
+			this.dataLength = itemHeader.getInt(2);
+			this.eflag = null;
+		} else if (tokens == 4) {
+			// ELEMENT <bkey> <eflag> <bytes>
+			this.subkey = itemHeader.getLong(1);
+			this.eflag = BTreeUtil.hexStringToByteArrays(itemHeader.getString(2, 2));
+			this.dataLength = itemHeader.getInt(3);
+		}
+	}
+
 	@Override
 	public void decodeKeyHeader(String keyHeader) {
 		String[] splited = keyHeader.split(" ");
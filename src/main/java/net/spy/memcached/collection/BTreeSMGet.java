@@ -18,6 +18,8 @@ package net.spy.memcached.collection;
 
 import java.util.List;
 
+import net.spy.memcached.util.LineTokenizer;
+
 public interface BTreeSMGet<T> {
 
 	public int headerCount = 4;
@@ -47,4 +49,9 @@ public interface BTreeSMGet<T> {
 	public boolean hasEflag();
 
 	public void decodeItemHeader(String itemHeader);
+
+	/**
+	 * Decode an item header straight from the response bytes.
+	 */
+	public void decodeItemHeader(LineTokenizer itemHeader);
 }
\ No newline at end of file
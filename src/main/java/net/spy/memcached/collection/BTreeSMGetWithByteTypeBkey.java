@@ -20,11 +20,13 @@ import java.util.List;
 import java.util.Map;
 
 import net.spy.memcached.util.BTreeUtil;
+import net.spy.memcached.util.LineTokenizer;
 import net.spy.memcached.collection.SMGetMode;
 
 public class BTreeSMGetWithByteTypeBkey<T> implements BTreeSMGet<T> {
 
 	private static final String command = "bop smget";
+	private static final byte[] HEX_PREFIX = "0x".getBytes();
 
 	protected String str;
 
@@ -169,4 +171,18 @@ public class BTreeSMGetWithByteTypeBkey<T> implements BTreeSMGet<T> {
 			this.dataLength = Integer.parseInt(splited[3]);
 		}
 	}
+
+	public void decodeItemHeader(LineTokenizer itemHeader) {
+		this.key = itemHeader.getString(0);
+		this.flag = itemHeader.getInt(1);
+		this.subkey = BTreeUtil.hexStringToByteArrays(itemHeader.getString(2, 2));
+
+		if (itemHeader.tokenStartsWith(3, HEX_PREFIX)) {
+			this.eflag = BTreeUtil.hexStringToByteArrays(itemHeader.getString(3, 2));
+			this.dataLength = itemHeader.getInt(4);
+		} else {
+			this.eflag = null;
+			this.dataLength = itemHeader.getInt(3);
+		}
+	}
 }
\ No newline at end of file
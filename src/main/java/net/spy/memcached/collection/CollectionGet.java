@@ -16,6 +16,8 @@
  */
 package net.spy.memcached.collection;
 
+import net.spy.memcached.util.LineTokenizer;
+
 public abstract class CollectionGet<K> {
 
 	protected boolean delete = false;
@@ -70,4 +72,12 @@ public abstract class CollectionGet<K> {
 	public abstract String getCommand();
 	public abstract void decodeItemHeader(String itemHeader);
 
+	/**
+	 * Decode an item header straight from the response bytes.
+	 * The default decodes it into a String first.
+	 */
+	public void decodeItemHeader(LineTokenizer itemHeader) {
+		decodeItemHeader(itemHeader.toString());
+	}
+
 }
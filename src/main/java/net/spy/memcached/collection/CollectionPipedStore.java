@@ -22,6 +22,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+import net.spy.memcached.ByteBufferPool;
 import net.spy.memcached.CachedData;
 import net.spy.memcached.KeyUtil;
 import net.spy.memcached.transcoders.Transcoder;
@@ -48,7 +49,15 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 		this.nextOpIndex = i;
 	}
 
-	public abstract ByteBuffer getAsciiCommand();
+	public ByteBuffer getAsciiCommand() {
+		return getAsciiCommand(null);
+	}
+
+	/**
+	 * Encode the command into a buffer taken from the given pool, or into
+	 * a heap buffer if the pool is null.
+	 */
+	public abstract ByteBuffer getAsciiCommand(ByteBufferPool pool);
 	public abstract ByteBuffer getBinaryCommand();
 	
 	/**
@@ -77,7 +86,7 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 			this.itemCount = list.size();
 		}
 		
-		public ByteBuffer getAsciiCommand() {
+		public ByteBuffer getAsciiCommand(ByteBufferPool pool) {
 			int capacity = 0;
 
 			// decode values
@@ -96,7 +105,7 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 			}
 
 			// allocate the buffer
-			ByteBuffer bb = ByteBuffer.allocate(capacity);
+			ByteBuffer bb = ByteBufferPool.allocate(pool, capacity);
 
 			// create ascii operation string
 			int eSize = encodedList.size();
@@ -148,7 +157,7 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 			this.itemCount = set.size();
 		}
 		
-		public ByteBuffer getAsciiCommand() {
+		public ByteBuffer getAsciiCommand(ByteBufferPool pool) {
 			int capacity = 0;
 
 			// decode values
@@ -167,7 +176,7 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 			}
 
 			// allocate the buffer
-			ByteBuffer bb = ByteBuffer.allocate(capacity);
+			ByteBuffer bb = ByteBufferPool.allocate(pool, capacity);
 
 			// create ascii operation string
 			int eSize = encodedList.size();
@@ -219,7 +228,7 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 			this.itemCount = map.size();
 		}
 		
-		public ByteBuffer getAsciiCommand() {
+		public ByteBuffer getAsciiCommand(ByteBufferPool pool) {
 			int capacity = 0;
 
 			// decode parameters
@@ -240,7 +249,7 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 			}
 
 			// allocate the buffer
-			ByteBuffer bb = ByteBuffer.allocate(capacity);
+			ByteBuffer bb = ByteBufferPool.allocate(pool, capacity);
 
 			// create ascii operation string
 			int keySize = map.keySet().size();
@@ -297,7 +306,7 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 			this.itemCount = elements.size();
 		}
 
-		public ByteBuffer getAsciiCommand() {
+		public ByteBuffer getAsciiCommand(ByteBufferPool pool) {
 			int capacity = 0;
 
 			// decode parameters
@@ -320,7 +329,7 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 			}
 
 			// allocate the buffer
-			ByteBuffer bb = ByteBuffer.allocate(capacity);
+			ByteBuffer bb = ByteBufferPool.allocate(pool, capacity);
 
 			// create ascii operation string
 			int eSize = elements.size();
@@ -393,7 +402,7 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 			this.itemCount = map.size();
 		}
 
-		public ByteBuffer getAsciiCommand() {
+		public ByteBuffer getAsciiCommand(ByteBufferPool pool) {
 			int capacity = 0;
 
 			// encode values
@@ -414,7 +423,7 @@ public abstract class CollectionPipedStore<T> extends CollectionObject {
 			}
 
 			// allocate the buffer
-			ByteBuffer bb = ByteBuffer.allocate(capacity);
+			ByteBuffer bb = ByteBufferPool.allocate(pool, capacity);
 
 			// create ascii operation string
 			int mkeySize = map.keySet().size();
@@ -16,6 +16,8 @@
  */
 package net.spy.memcached.collection;
 
+import net.spy.memcached.util.LineTokenizer;
+
 public class ListGet extends CollectionGet {
 
 	public static final int FIRST = 0;
@@ -77,4 +79,9 @@ public class ListGet extends CollectionGet {
 	public void decodeItemHeader(String itemHeader) {
 		this.dataLength = Integer.parseInt(itemHeader);
 	}
+
+	@Override
+	public void decodeItemHeader(LineTokenizer itemHeader) {
+		this.dataLength = itemHeader.getInt(0);
+	}
 }
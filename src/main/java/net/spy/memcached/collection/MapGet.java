@@ -18,6 +18,8 @@ package net.spy.memcached.collection;
 
 import java.util.List;
 
+import net.spy.memcached.util.LineTokenizer;
+
 public class MapGet extends CollectionGet {
 
 	private static final String command = "mop get";
@@ -96,4 +98,10 @@ public class MapGet extends CollectionGet {
 		this.subkey = splited[0];
 		this.dataLength = Integer.parseInt(splited[1]);
 	}
+
+	@Override
+	public void decodeItemHeader(LineTokenizer itemHeader) {
+		this.subkey = itemHeader.getString(0);
+		this.dataLength = itemHeader.getInt(1);
+	}
 }
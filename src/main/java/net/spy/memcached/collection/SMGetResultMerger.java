@@ -0,0 +1,235 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.collection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges the sorted results of the chunks of a sort-merge get.
+ *
+ * The chunk results are only collected as their operations complete.
+ * {@link #merge()} then walks them with a heap of one cursor per chunk
+ * and stops as soon as the limit is reached, so merging costs
+ * O(limit * log(chunks)) regardless of the number of chunks.
+ *
+ * Elements are ordered by bkey and then by key, descending for a
+ * reverse smget.  In unique mode only the first element of each bkey
+ * is kept.  A trimmed chunk bounds the result: elements with a bkey
+ * behind its last element may be missing from the trimmed b+tree, so
+ * they are left out.
+ *
+ * @param <T> the type of the element values
+ */
+public class SMGetResultMerger<T> {
+
+	private final int limit;
+	private final boolean reverse;
+	private final boolean unique;
+
+	private final List<List<SMGetElement<T>>> chunks = new ArrayList<List<SMGetElement<T>>>();
+	private final List<SMGetTrimKey> trimmedKeys = new ArrayList<SMGetTrimKey>();
+	private SMGetElement<T> trimBoundary;
+	private boolean trimmedChunk = false;
+
+	private List<SMGetElement<T>> mergedResult = Collections.emptyList();
+	private boolean trimmed = false;
+	private boolean duplicated = false;
+
+	/**
+	 * Create a merger.
+	 *
+	 * @param limit the most elements to merge, offset + count
+	 * @param reverse whether the elements are in descending order
+	 * @param unique whether to keep only one element of each bkey
+	 */
+	public SMGetResultMerger(int limit, boolean reverse, boolean unique) {
+		this.limit = limit;
+		this.reverse = reverse;
+		this.unique = unique;
+	}
+
+	/**
+	 * Add the sorted elements of a chunk.
+	 */
+	public void add(List<SMGetElement<T>> elements) {
+		add(elements, false);
+	}
+
+	/**
+	 * Add the sorted elements of a chunk, some of whose b+trees were
+	 * trimmed.
+	 */
+	public synchronized void add(List<SMGetElement<T>> elements, boolean trimmed) {
+		if (!elements.isEmpty()) {
+			chunks.add(elements);
+		}
+		if (trimmed) {
+			trimmedChunk = true;
+			if (!elements.isEmpty()) {
+				SMGetElement<T> last = elements.get(elements.size() - 1);
+				if (trimBoundary == null || compareBkey(last, trimBoundary) < 0) {
+					trimBoundary = last;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Add the trimmed keys of a chunk.
+	 */
+	public synchronized void addTrimmedKeys(List<SMGetTrimKey> keys) {
+		trimmedKeys.addAll(keys);
+	}
+
+	/**
+	 * Drop everything added so far, as when one of the chunks failed.
+	 */
+	public synchronized void clear() {
+		chunks.clear();
+		trimmedKeys.clear();
+		trimBoundary = null;
+		trimmedChunk = false;
+	}
+
+	/**
+	 * Merge the chunks added so far.
+	 *
+	 * @return the merged elements, at most limit of them
+	 */
+	public synchronized List<SMGetElement<T>> merge() {
+		PriorityQueue<Cursor<T>> heap = new PriorityQueue<Cursor<T>>(
+				Math.max(chunks.size(), 1), new Comparator<Cursor<T>>() {
+					public int compare(Cursor<T> c1, Cursor<T> c2) {
+						return SMGetResultMerger.this.compare(c1.head(), c2.head());
+					}
+				});
+		for (List<SMGetElement<T>> each : chunks) {
+			heap.add(new Cursor<T>(each));
+		}
+
+		List<SMGetElement<T>> result = new ArrayList<SMGetElement<T>>(
+				Math.min(limit, 1024));
+		SMGetElement<T> last = null;
+		boolean dup = false;
+		while (result.size() < limit && !heap.isEmpty()) {
+			Cursor<T> c = heap.poll();
+			SMGetElement<T> e = c.head();
+			if (trimBoundary != null && compareBkey(e, trimBoundary) > 0) {
+				break;
+			}
+			if (last != null && e.compareBkeyTo(last) == 0) {
+				if (!unique) {
+					dup = true;
+					result.add(e);
+				}
+			} else {
+				result.add(e);
+				last = e;
+			}
+			if (c.next()) {
+				heap.add(c);
+			}
+		}
+
+		mergedResult = result;
+		trimmed = trimmedChunk && result.size() < limit;
+		duplicated = dup;
+		mergeTrimmedKeys();
+		return result;
+	}
+
+	private void mergeTrimmedKeys() {
+		Collections.sort(trimmedKeys, new Comparator<SMGetTrimKey>() {
+			public int compare(SMGetTrimKey k1, SMGetTrimKey k2) {
+				return reverse ? k2.compareTo(k1) : k1.compareTo(k2);
+			}
+		});
+		if (trimmedKeys.isEmpty() || mergedResult.size() < limit) {
+			return;
+		}
+		// the trimmed keys behind the last element are of no interest
+		SMGetElement<T> lastElement = mergedResult.get(mergedResult.size() - 1);
+		SMGetTrimKey lastTrimKey = new SMGetTrimKey(lastElement.getKey(),
+				lastElement.getBkeyByObject());
+		for (int i = trimmedKeys.size() - 1; i >= 0; i--) {
+			int comp = trimmedKeys.get(i).compareBkeyTo(lastTrimKey);
+			if ((reverse) ? (0 >= comp) : (0 <= comp)) {
+				trimmedKeys.remove(i);
+			} else {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Get the result of the last merge.
+	 */
+	public synchronized List<SMGetElement<T>> getMergedResult() {
+		return mergedResult;
+	}
+
+	/**
+	 * Get the trimmed keys in front of the last merged element, sorted.
+	 * Only valid after a merge.
+	 */
+	public synchronized List<SMGetTrimKey> getTrimmedKeys() {
+		return trimmedKeys;
+	}
+
+	/**
+	 * Whether the last merge was cut short by a trimmed chunk.
+	 */
+	public synchronized boolean isTrimmed() {
+		return trimmed;
+	}
+
+	/**
+	 * Whether the last merge has elements with the same bkey.
+	 */
+	public synchronized boolean isDuplicated() {
+		return duplicated;
+	}
+
+	private int compare(SMGetElement<T> e1, SMGetElement<T> e2) {
+		return reverse ? e2.compareTo(e1) : e1.compareTo(e2);
+	}
+
+	private int compareBkey(SMGetElement<T> e1, SMGetElement<T> e2) {
+		return reverse ? e2.compareBkeyTo(e1) : e1.compareBkeyTo(e2);
+	}
+
+	private static final class Cursor<T> {
+		private final List<SMGetElement<T>> elements;
+		private int index = 0;
+
+		Cursor(List<SMGetElement<T>> elements) {
+			this.elements = elements;
+		}
+
+		SMGetElement<T> head() {
+			return elements.get(index);
+		}
+
+		boolean next() {
+			return ++index < elements.size();
+		}
+	}
+}
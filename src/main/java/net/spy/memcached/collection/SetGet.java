@@ -16,6 +16,8 @@
  */
 package net.spy.memcached.collection;
 
+import net.spy.memcached.util.LineTokenizer;
+
 public class SetGet extends CollectionGet {
 
 	private static final String command = "sop get";
@@ -65,4 +67,9 @@ public class SetGet extends CollectionGet {
 	public void decodeItemHeader(String itemHeader) {
 		this.dataLength = Integer.parseInt(itemHeader);
 	}
+
+	@Override
+	public void decodeItemHeader(LineTokenizer itemHeader) {
+		this.dataLength = itemHeader.getInt(0);
+	}
 }
@@ -0,0 +1,195 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import net.spy.memcached.compat.log.LoggerFactory;
+
+/**
+ * Listener bookkeeping for the futures of this client.
+ *
+ * Subclasses call {@link #notifyListeners()} once the result is set, or
+ * pass their latch to {@link #completeOn(CountDownLatch, long)} to have it
+ * called when the latch reaches zero or the operation times out.
+ *
+ * Listeners without an executor run on the IO thread, or on a timer
+ * thread when the operation times out, so they must not block.
+ *
+ * @param <T> the type of the result
+ */
+public abstract class AbstractListenableFuture<T> implements ListenableFuture<T> {
+
+	private List<Listener<T>> listeners = new ArrayList<Listener<T>>(1);
+
+	private CountDownLatch completion;
+	private long listenerTimeout = 0;
+	private HashedWheelTimer.Timeout timer;
+	private volatile boolean timedOut = false;
+
+	private static final class Listener<T> {
+		final CompletionListener<T> listener;
+		final Executor executor;
+
+		Listener(CompletionListener<T> listener, Executor executor) {
+			this.listener = listener;
+			this.executor = executor;
+		}
+	}
+
+	public ListenableFuture<T> addListener(CompletionListener<T> listener) {
+		return addListener(listener, null);
+	}
+
+	public ListenableFuture<T> addListener(CompletionListener<T> listener,
+			Executor executor) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Listener is null.");
+		}
+		Listener<T> l = new Listener<T>(listener, executor);
+		synchronized (this) {
+			if (listeners != null) {
+				listeners.add(l);
+				if (timer == null && listenerTimeout > 0
+						&& completion.getCount() > 0) {
+					timer = ListenerTimer.TIMER.newTimeout(new Runnable() {
+						public void run() {
+							timedOut = true;
+							notifyListeners();
+						}
+					}, listenerTimeout, TimeUnit.MILLISECONDS);
+				}
+				return this;
+			}
+		}
+		run(l);
+		return this;
+	}
+
+	public synchronized boolean removeListener(CompletionListener<T> listener) {
+		if (listeners == null) {
+			return false;
+		}
+		for (Iterator<Listener<T>> it = listeners.iterator(); it.hasNext();) {
+			if (it.next().listener == listener) {
+				it.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public <R> ListenableFuture<R> thenApply(
+			ResultFunction<? super T, ? extends R> fn) {
+		TransformedFuture<T, R> f = new TransformedFuture<T, R>(this, fn);
+		addListener(f);
+		return f;
+	}
+
+	/**
+	 * Notify the listeners when the latch reaches zero.  Only a
+	 * {@link CompletionLatch} can do this; with other latches the
+	 * listeners are never notified.
+	 */
+	protected void completeOn(CountDownLatch latch) {
+		completeOn(latch, 0);
+	}
+
+	/**
+	 * Notify the listeners when the latch reaches zero, or once the timeout
+	 * has passed since the first listener was added.  From then on
+	 * {@link #await(CountDownLatch, long, TimeUnit)} no longer waits, so the
+	 * listeners see the future as timed out.
+	 *
+	 * @param timeout the timeout in milliseconds, or 0 for none
+	 */
+	protected void completeOn(CountDownLatch latch, long timeout) {
+		if (latch instanceof CompletionLatch) {
+			synchronized (this) {
+				completion = latch;
+				listenerTimeout = timeout;
+			}
+			((CompletionLatch) latch).setFuture(this);
+		}
+	}
+
+	/**
+	 * Wait for the latch like {@link CountDownLatch#await(long, TimeUnit)},
+	 * but without waiting once the listeners were notified of a timeout.
+	 */
+	protected final boolean await(CountDownLatch latch, long duration,
+			TimeUnit units) throws InterruptedException {
+		if (timedOut) {
+			return latch.getCount() == 0;
+		}
+		return latch.await(duration, units);
+	}
+
+	/**
+	 * Run the listeners, unless that was done already.  Listeners added
+	 * from now on run right away.
+	 */
+	protected void notifyListeners() {
+		List<Listener<T>> l;
+		synchronized (this) {
+			if (listeners == null) {
+				return;
+			}
+			l = listeners;
+			listeners = null;
+			if (timer != null) {
+				timer.cancel();
+				timer = null;
+			}
+		}
+		for (Listener<T> each : l) {
+			run(each);
+		}
+	}
+
+	private void run(final Listener<T> l) {
+		Runnable r = new Runnable() {
+			public void run() {
+				try {
+					l.listener.onComplete(AbstractListenableFuture.this);
+				} catch (Throwable t) {
+					LoggerFactory.getLogger(AbstractListenableFuture.class).warn(
+							"Exception in a completion listener of "
+							+ AbstractListenableFuture.this, t);
+				}
+			}
+		};
+		if (l.executor == null) {
+			r.run();
+		} else {
+			l.executor.execute(r);
+		}
+	}
+
+	// One timer thread is shared by all futures, and started only once a
+	// listener is added to a future with a timeout.
+	private static final class ListenerTimer {
+		static final HashedWheelTimer TIMER = new HashedWheelTimer(
+				"Memcached Listener Timeout Timer", 10, TimeUnit.MILLISECONDS, 512);
+	}
+}
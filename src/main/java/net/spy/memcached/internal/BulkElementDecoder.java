@@ -0,0 +1,96 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.collection.BTreeElement;
+import net.spy.memcached.collection.BTreeGetResult;
+import net.spy.memcached.transcoders.TranscodeService;
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * The elements of a b+tree get bulk result, which are decoded when the
+ * result is got instead of as they are read from the connection.
+ *
+ * Not intended for general use.
+ *
+ * @param <K> type of the bkeys
+ * @param <T> type of the element values
+ */
+public class BulkElementDecoder<K, T> {
+
+	private final TranscodeService tcService;
+	private final Transcoder<T> tc;
+	private final Queue<Element> elements = new ConcurrentLinkedQueue<Element>();
+
+	public BulkElementDecoder(TranscodeService tcService, Transcoder<T> tc) {
+		this.tcService = tcService;
+		this.tc = tc;
+	}
+
+	/**
+	 * Add an element read from the connection, to be decoded later.
+	 */
+	public void add(BTreeGetResult<K, T> result, K bkey, byte[] eflag,
+			int flags, byte[] data) {
+		elements.add(new Element(result, bkey, eflag,
+				tcService.decodeLazily(tc, new CachedData(flags, data,
+						tc.getMaxSize()))));
+	}
+
+	/**
+	 * Decode the elements added, in parallel if there are many, and add
+	 * them to their results.
+	 */
+	synchronized void decode() throws InterruptedException, ExecutionException {
+		if (elements.isEmpty()) {
+			return;
+		}
+		List<Future<T>> values = new ArrayList<Future<T>>(elements.size());
+		for (Element e : elements) {
+			values.add(e.value);
+		}
+		tcService.decodeAll(values);
+		Element e;
+		while ((e = elements.poll()) != null) {
+			e.result.addElement(new BTreeElement<K, T>(e.bkey, e.eflag,
+					e.value.get()));
+		}
+	}
+
+	private final class Element {
+		final BTreeGetResult<K, T> result;
+		final K bkey;
+		final byte[] eflag;
+		final Future<T> value;
+
+		Element(BTreeGetResult<K, T> result, K bkey, byte[] eflag,
+				Future<T> value) {
+			this.result = result;
+			this.bkey = bkey;
+			this.eflag = eflag;
+			this.value = value;
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package net.spy.memcached.internal;
 
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -20,7 +19,7 @@ import java.util.concurrent.TimeUnit;
  * @param <V>
  *
  */
-public interface BulkFuture<V> extends Future<V> {
+public interface BulkFuture<V> extends ListenableFuture<V> {
 
 	/**
 	 * @return true if timeout was reached, false otherwise
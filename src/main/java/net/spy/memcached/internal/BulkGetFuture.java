@@ -16,21 +16,29 @@
  */
 package net.spy.memcached.internal;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.MemcachedConnection;
 import net.spy.memcached.compat.log.LoggerFactory;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.plugin.LocalCacheManager;
+import net.spy.memcached.transcoders.TranscodeService;
 
 /**
  * Future for handling results from bulk gets.
@@ -39,7 +47,8 @@ import net.spy.memcached.plugin.LocalCacheManager;
  *
  * @param <T> types of objects returned from the GET
  */
-public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
+public class BulkGetFuture<T> extends AbstractListenableFuture<Map<String, T>>
+		implements BulkFuture<Map<String, T>> {
 	private final Map<String, Future<T>> rvMap;
 	private final Collection<Operation> ops;
 	private final CountDownLatch latch;
@@ -48,6 +57,9 @@ public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
 
 	// FIXME right position?
 	private LocalCacheManager localCacheManager;
+	private Map<String, CachedData> encoded;
+	private TranscodeService tcService;
+	private boolean lazy;
 
 	public BulkGetFuture(Map<String, Future<T>> m,
 			Collection<Operation> getOps, CountDownLatch l) {
@@ -55,16 +67,39 @@ public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
 		rvMap = m;
 		ops = getOps;
 		latch = l;
+		completeOn(l);
 	}
 
 	public BulkGetFuture(Map<String, Future<T>> m,
 			Collection<Operation> getOps, CountDownLatch l,
 			LocalCacheManager lcm) {
+		this(m, getOps, l, lcm, null);
+	}
+
+	public BulkGetFuture(Map<String, Future<T>> m,
+			Collection<Operation> getOps, CountDownLatch l,
+			LocalCacheManager lcm, Map<String, CachedData> encoded) {
+		this(m, getOps, l, lcm, encoded, null, false, 0);
+	}
+
+	/**
+	 * Get a future whose values are decoded in parallel by the given
+	 * transcode service, or if lazy, when each is first read from the
+	 * result.  Its listeners see it timed out after opTimeout milliseconds.
+	 */
+	public BulkGetFuture(Map<String, Future<T>> m,
+			Collection<Operation> getOps, CountDownLatch l,
+			LocalCacheManager lcm, Map<String, CachedData> encoded,
+			TranscodeService tcService, boolean lazy, long opTimeout) {
 		super();
 		rvMap = m;
 		ops = getOps;
 		latch = l;
 		localCacheManager = lcm;
+		this.encoded = encoded;
+		this.tcService = tcService;
+		this.lazy = lazy;
+		completeOn(l, opTimeout);
 	}
 
 	public boolean cancel(boolean ign) {
@@ -133,7 +168,7 @@ public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
 	private Map<String, T> internalGet(long to, TimeUnit unit,
 			Collection<Operation> timedoutOps) throws InterruptedException,
 			ExecutionException {
-		if (!latch.await(to, unit)) {
+		if (!await(latch, to, unit)) {
 			for (Operation op : ops) {
 				if (op.getState() != OperationState.COMPLETE) {
 					MemcachedConnection.opTimedOut(op);
@@ -144,6 +179,10 @@ public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
 			}
 		}
 		for (Operation op : ops) {
+			if (op.isTimedOut()) {
+				timedoutOps.add(op);
+				continue;
+			}
 			if (op.isCancelled()) {
 				throw new ExecutionException(new RuntimeException(op.getCancelCause()));
 			}
@@ -151,6 +190,12 @@ public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
 				throw new ExecutionException(op.getException());
 			}
 		}
+		if (lazy) {
+			return new DecodingMap(rvMap);
+		}
+		if (tcService != null) {
+			tcService.decodeAll(rvMap.values());
+		}
 		Map<String, T> m = new HashMap<String, T>();
 		for (Map.Entry<String, Future<T>> me : rvMap.entrySet()) {
 			String key = me.getKey();
@@ -160,17 +205,24 @@ public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
 			// put the key into the result map.
 			m.put(key, value);
 
-			// cache the key locally
-			if (localCacheManager != null) {
-				// iff it is from the remote cache.
-				if (!(future instanceof LocalCacheManager.Task)) {
-					localCacheManager.put(key, value);
-				}
-			}
+			cacheLocally(key, future, value);
 		}
 		return m;
 	}
 
+	private void cacheLocally(String key, Future<T> future, T value) {
+		// iff it is from the remote cache.
+		if (localCacheManager != null
+				&& !(future instanceof LocalCacheManager.Task)) {
+			CachedData data = encoded == null ? null : encoded.get(key);
+			if (data == null) {
+				localCacheManager.put(key, value);
+			} else {
+				localCacheManager.put(key, value, data);
+			}
+		}
+	}
+
 	public boolean isCancelled() {
 		return cancelled;
 	}
@@ -187,4 +239,94 @@ public class BulkGetFuture<T> implements BulkFuture<Map<String, T>> {
 	public boolean isTimeout() {
 		return timeout;
 	}
+
+	/**
+	 * The result of a lazy bulk get, which decodes a value when it is first
+	 * read.
+	 */
+	private final class DecodingMap extends AbstractMap<String, T> {
+		private final Map<String, Future<T>> futures;
+		// keys whose values are not put into the front cache yet
+		private final Map<String, Boolean> uncached;
+
+		DecodingMap(Map<String, Future<T>> futures) {
+			this.futures = new HashMap<String, Future<T>>(futures);
+			this.uncached = localCacheManager == null ? null
+					: new ConcurrentHashMap<String, Boolean>();
+			if (uncached != null) {
+				for (String key : futures.keySet()) {
+					uncached.put(key, Boolean.TRUE);
+				}
+			}
+		}
+
+		private T decode(String key, Future<T> future) {
+			T value;
+			try {
+				value = future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted decoding " + key, e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException("Failed to decode " + key,
+						e.getCause());
+			}
+			if (uncached != null && uncached.remove(key) != null) {
+				cacheLocally(key, future, value);
+			}
+			return value;
+		}
+
+		@Override
+		public T get(Object key) {
+			Future<T> future = futures.get(key);
+			return future == null ? null : decode((String) key, future);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return futures.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return futures.size();
+		}
+
+		@Override
+		public Set<String> keySet() {
+			return Collections.unmodifiableSet(futures.keySet());
+		}
+
+		@Override
+		public Set<Map.Entry<String, T>> entrySet() {
+			return new AbstractSet<Map.Entry<String, T>>() {
+				@Override
+				public Iterator<Map.Entry<String, T>> iterator() {
+					final Iterator<Map.Entry<String, Future<T>>> i =
+						futures.entrySet().iterator();
+					return new Iterator<Map.Entry<String, T>>() {
+						public boolean hasNext() {
+							return i.hasNext();
+						}
+
+						public Map.Entry<String, T> next() {
+							Map.Entry<String, Future<T>> e = i.next();
+							return new AbstractMap.SimpleImmutableEntry<String, T>(
+									e.getKey(), decode(e.getKey(), e.getValue()));
+						}
+
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return futures.size();
+				}
+			};
+		}
+	}
 }
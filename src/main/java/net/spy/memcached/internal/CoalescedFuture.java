@@ -0,0 +1,113 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import net.spy.memcached.ops.CollectionOperationStatus;
+import net.spy.memcached.util.ResultUtil;
+
+/**
+ * One caller's future for the result of a read shared by several callers.
+ * The caller gets its own copy of the result.
+ *
+ * @see ReadCoalescer
+ */
+class CoalescedFuture<T> extends CollectionFuture<T>
+		implements CompletionListener<T> {
+
+	private final ListenableFuture<T> source;
+	private final ReadCoalescer.Flight flight;
+	private final AtomicBoolean detached = new AtomicBoolean(false);
+	private volatile boolean done = false;
+	private T result = null;
+	private boolean copied = false;
+
+	CoalescedFuture(ListenableFuture<T> source, ReadCoalescer.Flight flight) {
+		super(new CountDownLatch(0), 0);
+		this.source = source;
+		this.flight = flight;
+		source.addListener(this);
+	}
+
+	public void onComplete(Future<T> future) {
+		done = true;
+		notifyListeners();
+	}
+
+	@Override
+	public boolean cancel(boolean ign) {
+		if (done || !detached.compareAndSet(false, true)) {
+			return false;
+		}
+		source.removeListener(this);
+		flight.release();
+		notifyListeners();
+		return true;
+	}
+
+	@Override
+	public T get() throws InterruptedException, ExecutionException {
+		checkDetached();
+		return own(source.get());
+	}
+
+	@Override
+	public T get(long duration, TimeUnit units) throws InterruptedException,
+			TimeoutException, ExecutionException {
+		checkDetached();
+		return own(source.get(duration, units));
+	}
+
+	@Override
+	public boolean isCancelled() {
+		return detached.get() || (done && source.isCancelled());
+	}
+
+	@Override
+	public boolean isDone() {
+		return done || detached.get();
+	}
+
+	@Override
+	public CollectionOperationStatus getOperationStatus() {
+		if (source instanceof CollectionFuture) {
+			return ((CollectionFuture<T>) source).getOperationStatus();
+		}
+		return null;
+	}
+
+	private synchronized T own(T shared) {
+		if (!copied) {
+			result = ResultUtil.copy(shared);
+			copied = true;
+		}
+		return result;
+	}
+
+	private void checkDetached() {
+		if (detached.get()) {
+			throw new CancellationException("Cancelled by application.");
+		}
+	}
+}
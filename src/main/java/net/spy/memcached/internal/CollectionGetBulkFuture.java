@@ -19,7 +19,6 @@ package net.spy.memcached.internal;
 import java.util.Collection;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -29,18 +28,26 @@ import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 
-public class CollectionGetBulkFuture<T> implements Future<T> {
+public class CollectionGetBulkFuture<T> extends AbstractListenableFuture<T> {
 
 	private final Collection<Operation> ops;
 	private final long timeout;
 	private final CountDownLatch latch;
 	private final T result;
+	private final BulkElementDecoder<?, ?> decoder;
 	
 	public CollectionGetBulkFuture(CountDownLatch latch, Collection<Operation> ops, T result, long timeout) {
+		this(latch, ops, result, timeout, null);
+	}
+
+	public CollectionGetBulkFuture(CountDownLatch latch, Collection<Operation> ops, T result, long timeout,
+			BulkElementDecoder<?, ?> decoder) {
 		this.latch = latch;
 		this.ops = ops;
 		this.result = result;
 		this.timeout = timeout;
+		this.decoder = decoder;
+		completeOn(latch, timeout);
 	}
 
 	@Override
@@ -54,7 +61,7 @@ public class CollectionGetBulkFuture<T> implements Future<T> {
 
 	@Override
 	public T get(long duration, TimeUnit units) throws InterruptedException, TimeoutException, ExecutionException {
-		if (!latch.await(duration, units)) {
+		if (!await(latch, duration, units)) {
 			for (Operation op : ops) {
 				MemcachedConnection.opTimedOut(op);
 			}
@@ -69,11 +76,18 @@ public class CollectionGetBulkFuture<T> implements Future<T> {
 			if (op != null && op.hasErrored()) {
 				throw new ExecutionException(op.getException());
 			}
+			if (op.isTimedOut()) {
+				throw new CheckedOperationTimeoutException(
+						"Timed out before the b+tree get bulk operation was sent", ops);
+			}
 			if (op.isCancelled()) {
 				throw new ExecutionException(new RuntimeException(op.getCancelCause()));
 			}
 		}
 
+		if (decoder != null) {
+			decoder.decode();
+		}
 		return result;
 	}
 	
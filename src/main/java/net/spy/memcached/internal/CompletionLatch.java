@@ -0,0 +1,59 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A latch that notifies the listeners of its future when it reaches zero.
+ *
+ * The clients count down their latches in the operation callbacks, so
+ * using this latch is all it takes to make their futures listenable.
+ */
+public class CompletionLatch extends CountDownLatch {
+
+	private final AtomicBoolean notified = new AtomicBoolean(false);
+	private volatile AbstractListenableFuture<?> future;
+
+	public CompletionLatch(int count) {
+		super(count);
+	}
+
+	@Override
+	public void countDown() {
+		super.countDown();
+		if (getCount() == 0) {
+			complete();
+		}
+	}
+
+	void setFuture(AbstractListenableFuture<?> f) {
+		future = f;
+		// the operations may have completed before the future was set
+		if (getCount() == 0) {
+			complete();
+		}
+	}
+
+	private void complete() {
+		AbstractListenableFuture<?> f = future;
+		if (f != null && notified.compareAndSet(false, true)) {
+			f.notifyListeners();
+		}
+	}
+}
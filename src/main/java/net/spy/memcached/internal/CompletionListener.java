@@ -0,0 +1,37 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.Future;
+
+/**
+ * A callback run when a {@link ListenableFuture} completes, whether it
+ * succeeded, failed or was cancelled.  The future is done when the
+ * listener runs, so calling get() on it does not block.
+ *
+ * @param <T> the type of the future's result
+ */
+public interface CompletionListener<T> {
+
+	/**
+	 * Called once when the future completes.  Exceptions thrown here are
+	 * logged and otherwise ignored.
+	 *
+	 * @param future the completed future
+	 */
+	void onComplete(Future<T> future) throws Exception;
+}
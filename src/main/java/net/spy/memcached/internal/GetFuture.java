@@ -15,12 +15,17 @@ import net.spy.memcached.ops.Operation;
  *
  * @param <T> Type of object returned from the get
  */
-public class GetFuture<T> implements Future<T> {
+public class GetFuture<T> extends AbstractListenableFuture<T> {
 
 	private final OperationFuture<Future<T>> rv;
 
 	public GetFuture(CountDownLatch l, long opTimeout) {
 		this.rv = new OperationFuture<Future<T>>(l, opTimeout);
+		this.rv.addListener(new CompletionListener<Future<T>>() {
+			public void onComplete(Future<Future<T>> future) {
+				notifyListeners();
+			}
+		});
 	}
 
 	public boolean cancel(boolean ign) {
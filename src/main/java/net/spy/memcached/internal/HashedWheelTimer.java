@@ -0,0 +1,233 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+import net.spy.memcached.compat.SpyObject;
+
+/**
+ * A timer for many short timeouts, most of which are cancelled before
+ * they expire.
+ *
+ * Timeouts are hashed into the buckets of a wheel that a single daemon
+ * thread advances every tick.  Adding and cancelling a timeout take no
+ * lock and are O(1), and a timeout expires within a tick of its delay.
+ * Cancelled timeouts are dropped when the wheel reaches their bucket.
+ *
+ * Tasks run on the timer thread, so they must be short.
+ */
+public class HashedWheelTimer extends SpyObject {
+
+	private final long tickDuration;
+	private final Bucket[] wheel;
+	private final int mask;
+	private final Queue<Timeout> pending = new ConcurrentLinkedQueue<Timeout>();
+	private final Thread worker;
+	private final long startTime;
+	private volatile boolean stopped = false;
+
+	/**
+	 * Create and start a timer.
+	 *
+	 * @param name the name of the timer thread
+	 * @param tickDuration the duration of a tick
+	 * @param unit the unit of the tick duration
+	 * @param ticksPerWheel the number of buckets, rounded up to a power
+	 *        of two
+	 */
+	public HashedWheelTimer(String name, long tickDuration, TimeUnit unit,
+			int ticksPerWheel) {
+		if (tickDuration <= 0 || ticksPerWheel <= 0 || ticksPerWheel > (1 << 20)) {
+			throw new IllegalArgumentException("Invalid tick duration or wheel size: "
+					+ tickDuration + ", " + ticksPerWheel);
+		}
+		this.tickDuration = unit.toNanos(tickDuration);
+		int size = Integer.highestOneBit(ticksPerWheel - 1) << 1;
+		if (ticksPerWheel == 1) {
+			size = 1;
+		}
+		wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			wheel[i] = new Bucket();
+		}
+		mask = size - 1;
+		startTime = System.nanoTime();
+		worker = new Thread(new Worker(), name);
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/**
+	 * Run the task once the delay has passed, unless the returned timeout
+	 * is cancelled first.
+	 */
+	public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+		if (task == null) {
+			throw new NullPointerException("task");
+		}
+		Timeout t = new Timeout(task, System.nanoTime() + unit.toNanos(delay));
+		pending.offer(t);
+		return t;
+	}
+
+	/**
+	 * Stop the timer thread.  Timeouts that have not expired never will.
+	 */
+	public void stop() {
+		stopped = true;
+		worker.interrupt();
+	}
+
+	/**
+	 * A task scheduled on the timer.
+	 */
+	public static final class Timeout {
+		private static final int INIT = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+		private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+			AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+		// Only the thread that moves the state away from INIT touches it.
+		private Runnable task;
+		private final long deadline;
+		private volatile int state = INIT;
+		// The fields below are owned by the timer thread.
+		private long remainingRounds;
+		private Timeout next;
+		private Timeout prev;
+
+		Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		/**
+		 * Cancel the timeout.
+		 *
+		 * @return false if it had already expired or been cancelled
+		 */
+		public boolean cancel() {
+			if (!STATE.compareAndSet(this, INIT, CANCELLED)) {
+				return false;
+			}
+			task = null;
+			return true;
+		}
+
+		public boolean isCancelled() {
+			return state == CANCELLED;
+		}
+
+		public boolean isExpired() {
+			return state == EXPIRED;
+		}
+	}
+
+	// A doubly linked list of timeouts, touched by the timer thread only.
+	private static final class Bucket {
+		private Timeout head;
+		private Timeout tail;
+
+		void add(Timeout t) {
+			t.prev = tail;
+			t.next = null;
+			if (tail == null) {
+				head = t;
+			} else {
+				tail.next = t;
+			}
+			tail = t;
+		}
+
+		void remove(Timeout t) {
+			if (t.prev == null) {
+				head = t.next;
+			} else {
+				t.prev.next = t.next;
+			}
+			if (t.next == null) {
+				tail = t.prev;
+			} else {
+				t.next.prev = t.prev;
+			}
+			t.next = null;
+			t.prev = null;
+		}
+	}
+
+	private final class Worker implements Runnable {
+		private long tick = 0;
+
+		public void run() {
+			while (!stopped) {
+				long deadline = startTime + (tick + 1) * tickDuration;
+				long sleep = deadline - System.nanoTime();
+				if (sleep > 0) {
+					try {
+						TimeUnit.NANOSECONDS.sleep(sleep);
+					} catch (InterruptedException e) {
+						continue;
+					}
+				}
+				transferPending();
+				expire(wheel[(int) (tick & mask)], deadline);
+				tick++;
+			}
+		}
+
+		private void transferPending() {
+			Timeout t;
+			while ((t = pending.poll()) != null) {
+				if (t.isCancelled()) {
+					continue;
+				}
+				long ticks = Math.max((t.deadline - startTime) / tickDuration, tick);
+				t.remainingRounds = (ticks - tick) / wheel.length;
+				wheel[(int) (ticks & mask)].add(t);
+			}
+		}
+
+		private void expire(Bucket bucket, long deadline) {
+			Timeout t = bucket.head;
+			while (t != null) {
+				Timeout next = t.next;
+				if (t.isCancelled()) {
+					bucket.remove(t);
+				} else if (t.remainingRounds <= 0 && t.deadline <= deadline) {
+					bucket.remove(t);
+					if (Timeout.STATE.compareAndSet(t, Timeout.INIT, Timeout.EXPIRED)) {
+						Runnable task = t.task;
+						t.task = null;
+						try {
+							task.run();
+						} catch (Throwable e) {
+							getLogger().warn("Timer task failed", e);
+						}
+					}
+				} else if (t.remainingRounds > 0) {
+					t.remainingRounds--;
+				}
+				t = next;
+			}
+		}
+	}
+}
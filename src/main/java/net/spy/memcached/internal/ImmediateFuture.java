@@ -4,25 +4,26 @@
 package net.spy.memcached.internal;
 
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
  * A future that fires immediately.
  */
-public class ImmediateFuture implements Future<Boolean> {
+public class ImmediateFuture extends AbstractListenableFuture<Boolean> {
 	private final Boolean value;
 	private final ExecutionException exception;
 
 	public ImmediateFuture(Boolean returnValue) {
 		value = returnValue;
 		exception = null;
+		notifyListeners();
 	}
 
 	public ImmediateFuture(Exception e) {
 		value = null;
 		exception = new ExecutionException(e);
+		notifyListeners();
 	}
 
 	public boolean cancel(boolean mayInterruptIfRunning) {
@@ -0,0 +1,80 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * A future that runs callbacks when it completes, so the result of an
+ * operation can be handled without a thread blocked in get().
+ *
+ * Listeners added without an executor run on the thread that completes
+ * the future, which for operations is the client's IO thread.  Such
+ * listeners must be quick and must never block; in particular they must
+ * not wait for another operation of the same client.  Pass an executor
+ * for anything else.  A listener added to a future that is already done
+ * runs right away.
+ *
+ * <pre>
+ * client.asyncBopGet(key, 0, 100, filter, 0, 10, false, false)
+ *     .addListener(new CompletionListener&lt;Map&lt;Long, Element&lt;Object&gt;&gt;&gt;() {
+ *         public void onComplete(Future&lt;Map&lt;Long, Element&lt;Object&gt;&gt;&gt; f)
+ *                 throws Exception {
+ *             handle(f.get());
+ *         }
+ *     }, executor);
+ * </pre>
+ *
+ * @param <T> the type of the result
+ */
+public interface ListenableFuture<T> extends Future<T> {
+
+	/**
+	 * Run the listener on the completing thread when this future completes
+	 * or its operation times out.  That is the IO thread, or a timer thread
+	 * on timeout, so the listener must not block.
+	 *
+	 * @return this future
+	 */
+	ListenableFuture<T> addListener(CompletionListener<T> listener);
+
+	/**
+	 * Run the listener on the given executor when this future completes
+	 * or its operation times out.
+	 *
+	 * @return this future
+	 */
+	ListenableFuture<T> addListener(CompletionListener<T> listener,
+			Executor executor);
+
+	/**
+	 * Remove a listener that has not run yet.
+	 *
+	 * @return true if the listener was removed
+	 */
+	boolean removeListener(CompletionListener<T> listener);
+
+	/**
+	 * Get a future for the value of the function applied to the result of
+	 * this future.  The function runs once, on the thread that first gets
+	 * the value of the derived future after this one completed.  If this
+	 * future fails, so does the derived one; cancelling the derived future
+	 * cancels this one.
+	 */
+	<R> ListenableFuture<R> thenApply(ResultFunction<? super T, ? extends R> fn);
+}
@@ -0,0 +1,256 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.AbstractQueue;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded queue that many threads add to without locks, for a single
+ * thread that takes from it in batches.
+ *
+ * Adding bumps a counter and swaps the tail of a linked list, so adding
+ * threads never block one another or the taking thread.  A thread adding
+ * to a nearly full queue may see it full for a moment while another adding
+ * thread backs out.  Taking is
+ * serialized by a lock, which is uncontended as long as one thread takes.
+ * An element whose adding thread is between the swap and the link is not
+ * seen by the taking thread until it is linked, so the queue may look
+ * empty for that moment while its size is not 0.
+ *
+ * The blocking methods poll with short sleeps, for queues that are seldom
+ * full or empty when they are called.  The iterator is weakly consistent
+ * and does not remove.
+ *
+ * Not intended for general use.
+ *
+ * @param <E> the type of the elements
+ */
+public class MpscBlockingQueue<E> extends AbstractQueue<E>
+		implements BlockingQueue<E> {
+
+	private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+	private final int capacity;
+	private final AtomicInteger count = new AtomicInteger(0);
+	private final AtomicReference<Node<E>> tail;
+	private final ReentrantLock takeLock = new ReentrantLock();
+	// guarded by takeLock; its item is always null
+	private Node<E> head;
+
+	/**
+	 * Create a queue of the given capacity.
+	 */
+	public MpscBlockingQueue(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		this.capacity = capacity;
+		head = new Node<E>(null);
+		tail = new AtomicReference<Node<E>>(head);
+	}
+
+	public boolean offer(E e) {
+		if (e == null) {
+			throw new NullPointerException();
+		}
+		if (count.getAndIncrement() >= capacity) {
+			count.decrementAndGet();
+			return false;
+		}
+		Node<E> n = new Node<E>(e);
+		NEXT.lazySet(tail.getAndSet(n), n);
+		return true;
+	}
+
+	public boolean offer(E e, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (long parkNanos = 1000; !offer(e); parkNanos = backOff(parkNanos)) {
+			if (System.nanoTime() - deadline >= 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public void put(E e) throws InterruptedException {
+		for (long parkNanos = 1000; !offer(e); parkNanos = backOff(parkNanos)) {
+			// until there is room
+		}
+	}
+
+	public E poll() {
+		takeLock.lock();
+		try {
+			Node<E> n = head.next;
+			if (n == null) {
+				return null;
+			}
+			head = n;
+			E e = n.item;
+			n.item = null;
+			count.decrementAndGet();
+			return e;
+		} finally {
+			takeLock.unlock();
+		}
+	}
+
+	public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		E e;
+		for (long parkNanos = 1000; (e = poll()) == null;
+				parkNanos = backOff(parkNanos)) {
+			if (System.nanoTime() - deadline >= 0) {
+				return null;
+			}
+		}
+		return e;
+	}
+
+	public E take() throws InterruptedException {
+		E e;
+		for (long parkNanos = 1000; (e = poll()) == null;
+				parkNanos = backOff(parkNanos)) {
+			// until there is an element
+		}
+		return e;
+	}
+
+	private static long backOff(long parkNanos) throws InterruptedException {
+		LockSupport.parkNanos(parkNanos);
+		if (Thread.interrupted()) {
+			throw new InterruptedException();
+		}
+		return Math.min(parkNanos * 2, MAX_PARK_NANOS);
+	}
+
+	public E peek() {
+		takeLock.lock();
+		try {
+			Node<E> n = head.next;
+			return n == null ? null : n.item;
+		} finally {
+			takeLock.unlock();
+		}
+	}
+
+	public int drainTo(Collection<? super E> c) {
+		return drainTo(c, Integer.MAX_VALUE);
+	}
+
+	public int drainTo(Collection<? super E> c, int maxElements) {
+		if (c == this) {
+			throw new IllegalArgumentException();
+		}
+		int n = 0;
+		takeLock.lock();
+		Node<E> h = head;
+		try {
+			Node<E> next;
+			while (n < maxElements && (next = h.next) != null) {
+				c.add(next.item);
+				next.item = null;
+				h = next;
+				n++;
+			}
+		} finally {
+			head = h;
+			if (n > 0) {
+				count.addAndGet(-n);
+			}
+			takeLock.unlock();
+		}
+		return n;
+	}
+
+	@Override
+	public int size() {
+		return count.get();
+	}
+
+	public int remainingCapacity() {
+		return capacity - count.get();
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		Node<E> first;
+		takeLock.lock();
+		try {
+			first = head.next;
+		} finally {
+			takeLock.unlock();
+		}
+		final Node<E> start = first;
+		return new Iterator<E>() {
+			private Node<E> node = start;
+			private E item = advance();
+
+			// skip the elements taken since they were seen
+			private E advance() {
+				E e = null;
+				while (node != null && (e = node.item) == null) {
+					node = node.next;
+				}
+				return e;
+			}
+
+			public boolean hasNext() {
+				return item != null;
+			}
+
+			public E next() {
+				E e = item;
+				if (e == null) {
+					throw new NoSuchElementException();
+				}
+				node = node.next;
+				item = advance();
+				return e;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+		AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+
+	private static final class Node<E> {
+		// published by the write of next that links the node
+		E item;
+		volatile Node<E> next;
+
+		Node(E item) {
+			this.item = item;
+		}
+	}
+}
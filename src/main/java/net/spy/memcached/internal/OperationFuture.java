@@ -18,7 +18,6 @@ package net.spy.memcached.internal;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicReference;
@@ -34,7 +33,7 @@ import net.spy.memcached.ops.OperationState;
  *
  * @param <T> Type of object returned from this future.
  */
-public class OperationFuture<T> implements Future<T> {
+public class OperationFuture<T> extends AbstractListenableFuture<T> {
 
 	private final CountDownLatch latch;
 	private final AtomicReference<T> objRef;
@@ -51,6 +50,7 @@ public class OperationFuture<T> implements Future<T> {
 		latch=l;
 		objRef=oref;
 		timeout = opTimeout;
+		completeOn(l, timeout);
 	}
 
 	public boolean cancel(boolean ign) {
@@ -72,7 +72,7 @@ public class OperationFuture<T> implements Future<T> {
 
 	public T get(long duration, TimeUnit units)
 		throws InterruptedException, TimeoutException, ExecutionException {
-		if(!latch.await(duration, units)) {
+		if(!await(latch, duration, units)) {
 			// whenever timeout occurs, continuous timeout counter will increase by 1.
 			MemcachedConnection.opTimedOut(op);
 			throw new CheckedOperationTimeoutException(
@@ -84,6 +84,10 @@ public class OperationFuture<T> implements Future<T> {
 		if(op != null && op.hasErrored()) {
 			throw new ExecutionException(op.getException());
 		}
+		if(op != null && op.isTimedOut()) {
+			throw new CheckedOperationTimeoutException(
+					"Timed out before the operation was sent.", op);
+		}
 		if(op != null && op.isCancelled()) {
 			throw new ExecutionException(new RuntimeException(op.getCancelCause()));
 		}
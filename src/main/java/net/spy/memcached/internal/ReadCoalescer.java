@@ -0,0 +1,208 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import net.spy.memcached.transcoders.Transcoder;
+
+/**
+ * Reads in flight, so that a read identical to one in flight waits for
+ * the result of that one instead of being sent again.
+ *
+ * Reads are identical if they have the same key, query and transcoder.
+ * A read is not joined once a write to its key was queued after it, so
+ * that a read made after a local write completed sees that write.
+ * Every caller gets its own future for the shared result, and cancelling
+ * it only detaches that caller; the read itself is cancelled once all its
+ * callers have cancelled.  Every caller gets its own copy of a collection
+ * or byte array result.
+ *
+ * Not intended for general use.
+ */
+public class ReadCoalescer {
+
+	// Writes counted by stripes of keys, so that a key shares its count
+	// with other keys at worst, which only stops some reads being joined.
+	private static final int WRITE_STRIPES = 1024;
+
+	private final ConcurrentMap<Object, Flight> flights =
+		new ConcurrentHashMap<Object, Flight>();
+	private final AtomicLongArray writes = new AtomicLongArray(WRITE_STRIPES);
+	private final long maxAgeNanos;
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * Create a coalescer.
+	 *
+	 * @param maxAge the longest a read is joined after it was sent,
+	 *        usually the operation timeout
+	 * @param unit the unit of maxAge
+	 */
+	public ReadCoalescer(long maxAge, TimeUnit unit) {
+		this.maxAgeNanos = unit.toNanos(maxAge);
+	}
+
+	/**
+	 * Get the key identifying a read.
+	 *
+	 * @param key the item key
+	 * @param query the query of a collection get, or null
+	 * @param tc the transcoder decoding the result
+	 */
+	public static Object readKey(String key, String query, Transcoder<?> tc) {
+		return new ReadKey(key, query, tc);
+	}
+
+	/**
+	 * Join an identical read in flight.
+	 *
+	 * @return a future for the result of the read in flight, or null if
+	 *         there is none and the caller is to send its own with
+	 *         {@link #lead(Object, ListenableFuture)}
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> CollectionFuture<T> join(Object readKey) {
+		Flight flight = flights.get(readKey);
+		if (flight == null || System.nanoTime() - flight.start >= maxAgeNanos
+				|| flight.writes != writes(readKey) || !flight.acquire()) {
+			return null;
+		}
+		coalesced.incrementAndGet();
+		return new CoalescedFuture<T>((ListenableFuture<T>) flight.future, flight);
+	}
+
+	/**
+	 * Register a read about to be sent, whose operation is already set on
+	 * its future, so that identical reads join it until it completes.
+	 *
+	 * @return the future for the caller that sends the read
+	 */
+	public <T> CollectionFuture<T> lead(final Object readKey,
+			ListenableFuture<T> rv) {
+		final Flight flight = new Flight(rv, writes(readKey));
+		Flight prior = flights.putIfAbsent(readKey, flight);
+		if (prior != null && !flights.replace(readKey, prior, flight)) {
+			// lost a race with another read; just don't share this one
+			return new CoalescedFuture<T>(rv, flight);
+		}
+		rv.addListener(new CompletionListener<T>() {
+			public void onComplete(Future<T> future) {
+				flights.remove(readKey, flight);
+			}
+		});
+		return new CoalescedFuture<T>(rv, flight);
+	}
+
+	/**
+	 * Unregister a read that could not be sent.
+	 */
+	public void abort(Object readKey, ListenableFuture<?> rv) {
+		Flight flight = flights.get(readKey);
+		if (flight != null && flight.future == rv) {
+			flights.remove(readKey, flight);
+		}
+	}
+
+	/**
+	 * Note a write to a key, once it is queued.  Identical reads sent
+	 * before it are no longer joined.
+	 */
+	public void wrote(String key) {
+		writes.incrementAndGet(stripe(key));
+	}
+
+	private long writes(Object readKey) {
+		return writes.get(stripe(((ReadKey) readKey).key));
+	}
+
+	private static int stripe(String key) {
+		int h = key.hashCode();
+		return (h ^ (h >>> 16)) & (WRITE_STRIPES - 1);
+	}
+
+	/**
+	 * Get the number of reads that joined another read instead of being
+	 * sent.
+	 */
+	public long getCoalescedCount() {
+		return coalesced.get();
+	}
+
+	static final class Flight {
+		final ListenableFuture<?> future;
+		final long start = System.nanoTime();
+		final long writes;
+		private final AtomicInteger callers = new AtomicInteger(1);
+
+		Flight(ListenableFuture<?> future, long writes) {
+			this.future = future;
+			this.writes = writes;
+		}
+
+		boolean acquire() {
+			for (;;) {
+				int n = callers.get();
+				if (n == 0) {
+					return false;
+				}
+				if (callers.compareAndSet(n, n + 1)) {
+					return true;
+				}
+			}
+		}
+
+		void release() {
+			if (callers.decrementAndGet() == 0 && !future.isDone()) {
+				future.cancel(true);
+			}
+		}
+	}
+
+	private static final class ReadKey {
+		private final String key;
+		private final String query;
+		private final Transcoder<?> tc;
+
+		ReadKey(String key, String query, Transcoder<?> tc) {
+			this.key = key;
+			this.query = query;
+			this.tc = tc;
+		}
+
+		@Override
+		public int hashCode() {
+			return key.hashCode() * 31 + (query == null ? 0 : query.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof ReadKey)) {
+				return false;
+			}
+			ReadKey other = (ReadKey) o;
+			return key.equals(other.key) && tc == other.tc
+					&& (query == null ? other.query == null : query.equals(other.query));
+		}
+	}
+}
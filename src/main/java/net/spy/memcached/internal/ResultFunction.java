@@ -0,0 +1,33 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+/**
+ * A function applied to the result of a future by
+ * {@link ListenableFuture#thenApply(ResultFunction)}.
+ *
+ * @param <T> the type of the result
+ * @param <R> the type of the function's value
+ */
+public interface ResultFunction<T, R> {
+
+	/**
+	 * Compute a value from the result.  An exception thrown here fails the
+	 * derived future with an ExecutionException.
+	 */
+	R apply(T result) throws Exception;
+}
@@ -19,8 +19,8 @@ package net.spy.memcached.internal;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -29,7 +29,7 @@ import net.spy.memcached.ops.CollectionOperationStatus;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationState;
 
-public abstract class SMGetFuture<T> implements Future<T> {
+public abstract class SMGetFuture<T> extends AbstractListenableFuture<T> {
 
 	private final Collection<Operation> ops;
 	private final long timeout;
@@ -39,6 +39,16 @@ public abstract class SMGetFuture<T> implements Future<T> {
 		this.timeout = timeout;
 	}
 
+	/**
+	 * Create a future whose listeners are notified when the latch of its
+	 * operations reaches zero.
+	 */
+	public SMGetFuture(Collection<Operation> ops, CountDownLatch latch,
+			long timeout) {
+		this(ops, timeout);
+		completeOn(latch, timeout);
+	}
+
 	@Override
 	public T get() throws InterruptedException, ExecutionException {
 		try {
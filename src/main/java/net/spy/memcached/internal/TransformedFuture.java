@@ -0,0 +1,109 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Future for the value of a function of another future's result.
+ *
+ * The function is applied once, by the first get after the other future
+ * completed, so that neither the function nor a decode the result waits
+ * for runs on the IO thread that completes the other future.
+ *
+ * @see ListenableFuture#thenApply(ResultFunction)
+ */
+class TransformedFuture<T, R> extends AbstractListenableFuture<R>
+		implements CompletionListener<T> {
+
+	private final Future<T> source;
+	private final ResultFunction<? super T, ? extends R> fn;
+	private final CountDownLatch latch = new CountDownLatch(1);
+	private R value;
+	private ExecutionException exception;
+	private boolean applied = false;
+
+	TransformedFuture(Future<T> source, ResultFunction<? super T, ? extends R> fn) {
+		if (fn == null) {
+			throw new IllegalArgumentException("Function is null.");
+		}
+		this.source = source;
+		this.fn = fn;
+	}
+
+	public void onComplete(Future<T> future) {
+		latch.countDown();
+		notifyListeners();
+	}
+
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return source.cancel(mayInterruptIfRunning);
+	}
+
+	public boolean isCancelled() {
+		return source.isCancelled();
+	}
+
+	public boolean isDone() {
+		return latch.getCount() == 0;
+	}
+
+	public R get() throws InterruptedException, ExecutionException {
+		if (latch.getCount() != 0) {
+			// wait as long as the source would, and time out like it
+			try {
+				source.get();
+			} catch (ExecutionException e) {
+				// reported below
+			}
+		}
+		latch.await();
+		return result();
+	}
+
+	public R get(long timeout, TimeUnit unit) throws InterruptedException,
+			ExecutionException, TimeoutException {
+		if (!latch.await(timeout, unit)) {
+			throw new TimeoutException("Timed out waiting for the result. >"
+					+ timeout + " " + unit);
+		}
+		return result();
+	}
+
+	// The source is complete, or has notified its listeners of a timeout,
+	// so its get does not wait for the operation any more.
+	private synchronized R result() throws ExecutionException {
+		if (!applied) {
+			try {
+				value = fn.apply(source.get());
+			} catch (ExecutionException e) {
+				exception = e;
+			} catch (Exception e) {
+				exception = new ExecutionException(e);
+			}
+			applied = true;
+		}
+		if (exception != null) {
+			throw exception;
+		}
+		return value;
+	}
+}
@@ -18,7 +18,11 @@ package net.spy.memcached.ops;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import net.spy.memcached.CachedData;
+import net.spy.memcached.EncodedKey;
 import net.spy.memcached.OperationFactory;
 
 /**
@@ -35,6 +39,23 @@ public abstract class BaseOperationFactory implements OperationFactory {
 		return keys.iterator().next();
 	}
 
+	public DeleteOperation delete(EncodedKey key, OperationCallback cb) {
+		return delete(key.toString(), cb);
+	}
+
+	public GetOperation get(EncodedKey key, GetOperation.Callback cb) {
+		return get(key.toString(), cb);
+	}
+
+	public GetsOperation gets(EncodedKey key, GetsOperation.Callback cb) {
+		return gets(key.toString(), cb);
+	}
+
+	public StoreOperation store(StoreType storeType, EncodedKey key,
+			int flags, int exp, byte[] data, OperationCallback cb) {
+		return store(storeType, key.toString(), flags, exp, data, cb);
+	}
+
 	public Collection<Operation> clone(KeyedOperation op) {
 		assert op.getState() == OperationState.WRITING
 			: "Who passed me an operation in the " + op.getState() + "state?";
@@ -67,6 +88,11 @@ public abstract class BaseOperationFactory implements OperationFactory {
 			StoreOperation so = (StoreOperation)op;
 			rv.add(store(so.getStoreType(), first(op.getKeys()), so.getFlags(),
 					so.getExpiration(), so.getData(), op.getCallback()));
+		} else if(op instanceof BulkStoreOperation) {
+			BulkStoreOperation bo = (BulkStoreOperation)op;
+			rv.addAll(storeEach(this, bo.getStoreType(), bo.getKeyList(),
+					bo.getExpiration(), bo.getDataList(),
+					(BulkStoreOperation.Callback)bo.getCallback()));
 		} else if(op instanceof ConcatenationOperation) {
 			ConcatenationOperation c = (ConcatenationOperation)op;
 			rv.add(cat(c.getStoreType(), c.getCasValue(), first(op.getKeys()),
@@ -105,4 +131,42 @@ public abstract class BaseOperationFactory implements OperationFactory {
 	protected abstract Collection<? extends Operation> cloneGet(
 			KeyedOperation op);
 
+	/**
+	 * Store many keys with one store operation per key, for a protocol
+	 * without bulk stores or when the keys of a bulk store may now belong to
+	 * different nodes.  The callback gets the status of each key that was
+	 * not stored by its index, and completes once all stores completed.
+	 *
+	 * @return the store operations, in the order of the keys
+	 */
+	public static Collection<Operation> storeEach(OperationFactory of,
+			StoreType storeType, List<String> keys, int exp,
+			List<CachedData> data, final BulkStoreOperation.Callback cb) {
+		final AtomicInteger remaining = new AtomicInteger(keys.size());
+		final AtomicInteger failed = new AtomicInteger(0);
+		Collection<Operation> rv = new ArrayList<Operation>(keys.size());
+		for(int i = 0; i < keys.size(); i++) {
+			final Integer index = i;
+			CachedData d = data.get(i);
+			rv.add(of.store(storeType, keys.get(i), d.getFlags(),
+					exp, d.getData(), new OperationCallback() {
+				public void receivedStatus(OperationStatus status) {
+					if(!status.isSuccess()) {
+						failed.incrementAndGet();
+						cb.gotStatus(index, status);
+					}
+				}
+
+				public void complete() {
+					if(remaining.decrementAndGet() == 0) {
+						cb.receivedStatus(new OperationStatus(
+								failed.get() == 0, "END"));
+						cb.complete();
+					}
+				}
+			}));
+		}
+		return rv;
+	}
+
 }
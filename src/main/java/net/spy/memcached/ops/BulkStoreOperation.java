@@ -0,0 +1,57 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.ops;
+
+import java.util.List;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * Operation that stores many items on one node in a single write.
+ */
+public interface BulkStoreOperation extends KeyedOperation {
+
+	/**
+	 * Get the store type used by this operation.
+	 */
+	StoreType getStoreType();
+
+	/**
+	 * Get the keys to store, in the order their commands are written.
+	 */
+	List<String> getKeyList();
+
+	/**
+	 * Get the data to store, in the order of the key list.
+	 */
+	List<CachedData> getDataList();
+
+	/**
+	 * Get the expiration time of the stored items.
+	 */
+	int getExpiration();
+
+	interface Callback extends OperationCallback {
+		/**
+		 * Called with the status of each key that was not stored.
+		 *
+		 * @param index the index of the key in the key list
+		 * @param status the status of the store
+		 */
+		void gotStatus(Integer index, OperationStatus status);
+	}
+}
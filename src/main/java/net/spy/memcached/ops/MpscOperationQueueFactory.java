@@ -0,0 +1,49 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.ops;
+
+import java.util.concurrent.BlockingQueue;
+
+import net.spy.memcached.internal.MpscBlockingQueue;
+
+/**
+ * OperationQueueFactory that creates bounded MpscBlockingQueues, which
+ * take no lock to add to.
+ */
+public class MpscOperationQueueFactory implements OperationQueueFactory {
+
+	private final int capacity;
+
+	/**
+	 * Create an MpscOperationQueueFactory that creates queues with the
+	 * given capacity.
+	 *
+	 * @param cap maximum size of a queue produced by this factory
+	 */
+	public MpscOperationQueueFactory(int cap) {
+		super();
+		capacity = cap;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.ops.OperationQueueFactory#create()
+	 */
+	public BlockingQueue<Operation> create() {
+		return new MpscBlockingQueue<Operation>(capacity);
+	}
+
+}
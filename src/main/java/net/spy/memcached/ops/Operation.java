@@ -4,6 +4,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.NodeAdmission;
+import net.spy.memcached.internal.HashedWheelTimer;
 
 
 /**
@@ -41,6 +43,33 @@ public interface Operation {
 	 */
 	String getCancelCause();
 
+	/**
+	 * Time this operation out, unless any of it has been written.  The
+	 * callback gets a timed out status, and the operation is cancelled
+	 * so that it is never sent.  Only called from the IO thread.
+	 *
+	 * @return true if the operation timed out
+	 */
+	boolean timeOut();
+
+	/**
+	 * True if this operation timed out before it was sent.
+	 */
+	boolean isTimedOut();
+
+	/**
+	 * Set the timer entry that times this operation out, cancelling the
+	 * one set before.  It is cancelled once the operation has been written.
+	 */
+	void setDeadline(HashedWheelTimer.Timeout deadline);
+
+	/**
+	 * Set the permit this operation holds on the admission control of its
+	 * node, and release the one it held before, if any.  The permit is
+	 * released once the operation completes or is cancelled.
+	 */
+	void setAdmissionPermit(NodeAdmission.Permit permit);
+
 	/**
 	 * Get the current state of this operation.
 	 */
@@ -60,6 +89,13 @@ public interface Operation {
 	 */
 	ByteBuffer getBuffer();
 
+	/**
+	 * Return the write buffer of an operation that will not be written to
+	 * the buffer pool.  Only called from the IO thread, or before the
+	 * operation is queued, as the IO thread may be writing the buffer.
+	 */
+	void discardBuffer();
+
 	/**
 	 * Invoked after having written all of the bytes from the supplied output
 	 * buffer.
@@ -102,4 +138,10 @@ public interface Operation {
 	boolean isReadOperation();
 
 	APIType getAPIType();
+
+	/**
+	 * Get the System.nanoTime() at which this operation was last fully
+	 * written, or 0 if it has not been written.
+	 */
+	long getWriteCompleteTimestamp();
 }
@@ -0,0 +1,12 @@
+package net.spy.memcached.ops;
+
+/**
+ * Operation status indicating an operation timed out before it was sent.
+ */
+public class TimedOutOperationStatus extends OperationStatus {
+
+	public TimedOutOperationStatus() {
+		super(false, "timed out");
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.PersistenceConfiguration;
+import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import net.spy.memcached.collection.CollectionGet;
+import net.spy.memcached.compat.log.Logger;
+import net.spy.memcached.compat.log.LoggerFactory;
+import net.spy.memcached.ops.CollectionOperationStatus;
+import net.spy.memcached.transcoders.Transcoder;
+import net.spy.memcached.util.ResultUtil;
+
+/**
+ * Local cache storage for collection get results, based on ehcache.
+ *
+ * Results are cached per collection key and query shape, that is the
+ * get command and its arguments, so different ranges or field sets of a
+ * key are cached separately.  All results of a key share one cache
+ * element, so that a write to the key invalidates them at once, and
+ * expire at most the expire time after the first of them was requested.
+ *
+ * A get reserves the element of its key before it is sent, and stores
+ * its result there.  If the key is invalidated in the meantime, the
+ * result goes into the reserved element, which is no longer cached,
+ * so results read before a local write are never cached after it.
+ */
+public class CollectionCacheManager {
+
+	/**
+	 * The most query shapes cached per key.
+	 */
+	public static final int MAX_SHAPES_PER_KEY = 32;
+
+	private Logger logger = LoggerFactory.getLogger(getClass());
+
+	protected Cache cache;
+	protected String name;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+
+	public CollectionCacheManager(String name, int max, int exptime) {
+		this.name = name;
+		this.cache = CacheManager.getInstance().getCache(name);
+		if (cache == null) {
+			CacheConfiguration config =
+							new CacheConfiguration(name, max)
+							.memoryStoreEvictionPolicy(MemoryStoreEvictionPolicy.LRU)
+							.eternal(false)
+							.timeToLiveSeconds(exptime)
+							.diskExpiryThreadIntervalSeconds(60)
+							.persistence(new PersistenceConfiguration().strategy(PersistenceConfiguration.Strategy.NONE));
+			this.cache = new Cache(config, null, null);
+			CacheManager.getInstance().addCache(cache);
+
+			if (logger.isInfoEnabled()) {
+				logger.info("Arcus collection local cache is enabled : %s", cache.toString());
+			}
+		}
+	}
+
+	/**
+	 * Get the query shape of a collection get, or null if its result
+	 * cannot be cached.
+	 */
+	public static String getQueryShape(CollectionGet<?> collectionGet) {
+		if (collectionGet.isDelete()) {
+			return null;
+		}
+		StringBuilder b = new StringBuilder(collectionGet.getCommand());
+		b.append(' ').append(collectionGet.stringify());
+		byte[] args = collectionGet.getAddtionalArgs();
+		if (args != null) {
+			b.append(' ').append(new String(args));
+		}
+		return b.toString();
+	}
+
+	/**
+	 * Get a copy of the cached result of a query, decoded with the given
+	 * transcoder, or null if there is none.
+	 */
+	public Result get(String key, String shape, Transcoder<?> tc) {
+		try {
+			Element element = cache.get(key);
+			if (element != null) {
+				Result result = ((Shapes) element.getObjectValue()).get(shape);
+				if (result != null && result.tc == tc) {
+					if (logger.isDebugEnabled()) {
+						logger.debug("ArcusFrontCache: local cache hit for %s %s", key, shape);
+					}
+					hits.incrementAndGet();
+					return result;
+				}
+			}
+		} catch (Exception e) {
+			logger.info("failed to get from the local cache : %s", e.getMessage());
+		}
+		misses.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Reserve the element of a key for the result of a get about to be
+	 * sent.
+	 */
+	public Shapes reserve(String key) {
+		try {
+			Shapes shapes = new Shapes();
+			Element element = cache.putIfAbsent(new Element(key, shapes));
+			return element == null ? shapes : (Shapes) element.getObjectValue();
+		} catch (Exception e) {
+			logger.info("failed to put to the local cache : %s", e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Store the result of a query in a reserved element.  The value is
+	 * copied, so the caller may change its own.
+	 */
+	public void put(Shapes shapes, String shape, Transcoder<?> tc,
+			Object value, CollectionOperationStatus status) {
+		if (shapes != null) {
+			shapes.put(shape, new Result(ResultUtil.copy(value), status, tc));
+		}
+	}
+
+	/**
+	 * Drop all cached results of a key.
+	 */
+	public void invalidate(String key) {
+		try {
+			if (cache.remove(key)) {
+				invalidations.incrementAndGet();
+			}
+		} catch (Exception e) {
+			logger.info("failed to remove the locally cached item : %s", e.getMessage());
+		}
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public long getInvalidationCount() {
+		return invalidations.get();
+	}
+
+	@Override
+	public String toString() {
+		return cache.toString();
+	}
+
+	/**
+	 * The cached results of a key, by query shape.
+	 */
+	public static final class Shapes {
+		private final ConcurrentMap<String, Result> results =
+			new ConcurrentHashMap<String, Result>();
+
+		Result get(String shape) {
+			return results.get(shape);
+		}
+
+		void put(String shape, Result result) {
+			if (results.size() < MAX_SHAPES_PER_KEY
+					|| results.containsKey(shape)) {
+				results.put(shape, result);
+			}
+		}
+	}
+
+	/**
+	 * A cached result of a query.
+	 */
+	public static final class Result {
+		private final Object value;
+		private final CollectionOperationStatus status;
+		private final Transcoder<?> tc;
+
+		Result(Object value, CollectionOperationStatus status, Transcoder<?> tc) {
+			this.value = value;
+			this.status = status;
+			this.tc = tc;
+		}
+
+		/**
+		 * Get a copy of the result, which the caller may change.
+		 */
+		public Object getValue() {
+			return ResultUtil.copy(value);
+		}
+
+		public CollectionOperationStatus getStatus() {
+			return status;
+		}
+	}
+}
@@ -17,11 +17,11 @@
 package net.spy.memcached.plugin;
 
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import net.sf.ehcache.Element;
+import net.spy.memcached.internal.AbstractListenableFuture;
 
 /**
  * Future returned for GET operations.
@@ -30,12 +30,19 @@ import net.sf.ehcache.Element;
  *
  * @param <T> Type of object returned from the get
  */
-public class FrontCacheGetFuture<T> implements Future<T> {
+public class FrontCacheGetFuture<T> extends AbstractListenableFuture<T> {
 	
-	Element element;
+	private final T value;
 	
+	@SuppressWarnings("unchecked")
 	public FrontCacheGetFuture(Element element) {
-		this.element = element;
+		this((T) element.getObjectValue());
+	}
+
+	public FrontCacheGetFuture(T value) {
+		this.value = value;
+		// the value is already here
+		notifyListeners();
 	}
 
 	@Override
@@ -48,9 +55,8 @@ public class FrontCacheGetFuture<T> implements Future<T> {
 		return getValue();
 	}
 
-	@SuppressWarnings("unchecked")
 	private T getValue() {
-		return (T) this.element.getObjectValue();
+		return value;
 	}
 
 	@Override
@@ -66,7 +72,7 @@ public class FrontCacheGetFuture<T> implements Future<T> {
 
 	@Override
 	public boolean isDone() {
-		return false;
+		return true;
 	}
 	
 }
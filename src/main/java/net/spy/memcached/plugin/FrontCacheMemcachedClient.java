@@ -19,11 +19,16 @@ package net.spy.memcached.plugin;
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.util.List;
-import java.util.concurrent.Future;
 
-import net.sf.ehcache.Element;
 import net.spy.memcached.ConnectionFactory;
+import net.spy.memcached.EncodedKey;
 import net.spy.memcached.MemcachedClient;
+import net.spy.memcached.collection.CollectionGet;
+import net.spy.memcached.internal.CollectionFuture;
+import net.spy.memcached.internal.ListenableFuture;
+import net.spy.memcached.ops.CollectionOperationStatus;
+import net.spy.memcached.ops.KeyedOperation;
+import net.spy.memcached.ops.Operation;
 import net.spy.memcached.transcoders.Transcoder;
 
 /**
@@ -32,12 +37,18 @@ import net.spy.memcached.transcoders.Transcoder;
  * A subsequent get operation first checks the cache.  If the key is found in the cache,
  * it is returned from the front cache.  If not, the get command goes to the server as usual.
  *
+ * Collection get results can be cached too, by key and query parameters.
+ * Any write this client sends for a key drops the cached collection results of the key.
+ *
  * Cache parameters (name, size, expiration time) are from ConnectionFactory.
  * @see net.spy.memcached.ConnectionFactoryBuilder
  * @see net.spy.memcached.plugin.LocalCacheManager
+ * @see net.spy.memcached.plugin.CollectionCacheManager
  */
 public class FrontCacheMemcachedClient extends MemcachedClient {
 
+	protected CollectionCacheManager collectionCacheManager = null;
+
 	/**
 	 * Create the memcached client and the front cache.
 	 *
@@ -58,9 +69,115 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
 			// TODO add an additional option
 			// int timeToIdleSeconds = timeToLiveSeconds;
 			
-			localCacheManager = new LocalCacheManager(cacheName, maxElements,
+			localCacheManager = new LocalCacheManager(cacheName,
+					cf.getFrontCacheType(), maxElements, cf.getMaxFrontCacheBytes(),
 					timeToLiveSeconds, copyOnRead, copyOnWrite);
 		}
+
+		if (cf.getMaxFrontCacheCollections() > 0) {
+			collectionCacheManager = new CollectionCacheManager(
+					cf.getFrontCacheName() + "_collection",
+					cf.getMaxFrontCacheCollections(),
+					cf.getFrontCacheCollectionExpireTime());
+		}
+	}
+
+	/**
+	 * Get the front cache of collection get results, or null if it is
+	 * disabled.
+	 */
+	public CollectionCacheManager getCollectionCacheManager() {
+		return collectionCacheManager;
+	}
+
+	/**
+	 * Add an operation, dropping the cached collection results of the keys
+	 * it may change.
+	 */
+	@Override
+	protected Operation addOp(final EncodedKey key, final Operation op) {
+		if (collectionCacheManager == null || op.isReadOperation()) {
+			return super.addOp(key, op);
+		}
+		invalidateCollections(key, op);
+		Operation o = super.addOp(key, op);
+		// A get made before the write was queued may still be sent ahead
+		// of it, and cache what it reads after the first invalidation.
+		// Gets made from now on are queued behind the write.
+		invalidateCollections(key, op);
+		return o;
+	}
+
+	private void invalidateCollections(EncodedKey key, Operation op) {
+		collectionCacheManager.invalidate(key.toString());
+		if (op instanceof KeyedOperation) {
+			for (String k : ((KeyedOperation) op).getKeys()) {
+				collectionCacheManager.invalidate(k);
+			}
+		}
+	}
+
+	/**
+	 * Drop the cached collection results of the given keys.
+	 */
+	protected void invalidateCollections(List<String> keys) {
+		if (collectionCacheManager != null) {
+			for (String k : keys) {
+				collectionCacheManager.invalidate(k);
+			}
+		}
+	}
+
+	/**
+	 * Get the query shape of a collection get to cache its result, or null
+	 * if it is not cached.
+	 */
+	protected String getFrontCacheShape(CollectionGet<?> collectionGet) {
+		if (collectionCacheManager == null) {
+			return null;
+		}
+		return CollectionCacheManager.getQueryShape(collectionGet);
+	}
+
+	/**
+	 * Get a future holding the cached result of a collection get, or null
+	 * if it is not cached.
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> CollectionFuture<T> getFrontCached(String key, String shape,
+			Transcoder<?> tc) {
+		if (shape == null) {
+			return null;
+		}
+		CollectionCacheManager.Result result = collectionCacheManager.get(key, shape, tc);
+		if (result == null) {
+			return null;
+		}
+		return new FrontCacheCollectionFuture<T>((T) result.getValue(),
+				result.getStatus());
+	}
+
+	/**
+	 * Reserve the front cache of a key for the result of a collection get
+	 * about to be sent.
+	 */
+	protected CollectionCacheManager.Shapes reserveFrontCache(String key,
+			String shape) {
+		if (shape == null) {
+			return null;
+		}
+		return collectionCacheManager.reserve(key);
+	}
+
+	/**
+	 * Cache the result of a collection get in the reserved front cache.
+	 */
+	protected void putFrontCache(CollectionCacheManager.Shapes shapes,
+			String shape, Transcoder<?> tc, Object value,
+			CollectionOperationStatus status) {
+		if (shapes != null) {
+			collectionCacheManager.put(shapes, shape, tc, value, status);
+		}
 	}
 
 	/**
@@ -72,17 +189,18 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
 	 * @return a future that will hold the value of the key
 	 */
 	@Override
-	public <T> Future<T> asyncGet(final String key, final Transcoder<T> tc) {
-		Element frontElement = null;
+	protected <T> ListenableFuture<T> asyncGet(final EncodedKey key,
+			final Transcoder<T> tc) {
+		T frontValue = null;
 
 		if (localCacheManager != null) {
-			frontElement = localCacheManager.getElement(key);
+			frontValue = localCacheManager.get(key.toString(), tc);
 		}
 
-		if (frontElement == null) {
+		if (frontValue == null) {
 			return super.asyncGet(key, tc);
 		} else {
-			return new FrontCacheGetFuture<T>(frontElement);
+			return new FrontCacheGetFuture<T>(frontValue);
 		}
 	}
 
@@ -94,9 +212,9 @@ public class FrontCacheMemcachedClient extends MemcachedClient {
 	 * @return a future that will hold success/error status of the operation
 	 */
 	@Override
-	public Future<Boolean> delete(String key) {
+	protected ListenableFuture<Boolean> delete(EncodedKey key) {
 		if (localCacheManager != null) {
-			localCacheManager.delete(key);
+			localCacheManager.delete(key.toString());
 		}
 		return super.delete(key);
 	}
@@ -0,0 +1,38 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+/**
+ * The storage of the key-value front cache.
+ */
+public enum FrontCacheType {
+	/**
+	 * An ehcache cache with LRU eviction.
+	 */
+	EHCACHE,
+	/**
+	 * A built-in {@link TinyLfuCache}, which can also be bounded by the
+	 * size of the cached values in bytes.
+	 */
+	TINYLFU,
+	/**
+	 * A built-in {@link OffHeapCache}, which keeps the encoded values in
+	 * direct memory and decodes them on every hit.  It must be bounded by
+	 * the size of the cached values in bytes.
+	 */
+	OFFHEAP
+}
@@ -30,18 +30,23 @@ import net.sf.ehcache.Element;
 import net.sf.ehcache.config.CacheConfiguration;
 import net.sf.ehcache.config.PersistenceConfiguration;
 import net.sf.ehcache.store.MemoryStoreEvictionPolicy;
+import net.spy.memcached.ArcusMBeanServer;
+import net.spy.memcached.CachedData;
 import net.spy.memcached.compat.log.Logger;
 import net.spy.memcached.compat.log.LoggerFactory;
 import net.spy.memcached.transcoders.Transcoder;
 
 /**
- * Local cache storage based on ehcache.
+ * Local cache storage based on ehcache, on a {@link TinyLfuCache}, or on an
+ * {@link OffHeapCache} of encoded values which are decoded on every hit.
  */
 public class LocalCacheManager {
 
 	private Logger logger = LoggerFactory.getLogger(getClass());
 	
 	protected Cache cache;
+	protected TinyLfuCache lfuCache;
+	protected OffHeapCache offHeapCache;
 	protected String name;
 
 	public LocalCacheManager() {
@@ -55,6 +60,55 @@ public class LocalCacheManager {
 	}
 	
 	public LocalCacheManager(String name, int max, int exptime, boolean copyOnRead, boolean copyOnWrite) {
+		initEhcache(name, max, exptime, copyOnRead, copyOnWrite);
+	}
+
+	/**
+	 * Create a local cache of the given type.  The copy options apply to
+	 * ehcache only, and the byte bound to TinyLfuCache and OffHeapCache,
+	 * which requires it.
+	 *
+	 * @param name the cache name
+	 * @param type the cache type
+	 * @param max the most cached items
+	 * @param maxBytes the most bytes of cached values, or 0 for no bound
+	 * @throws IllegalArgumentException if an off-heap cache has no byte
+	 *         bound
+	 * @param exptime the time to live of the cached items in seconds
+	 * @param copyOnRead whether ehcache copies values on read
+	 * @param copyOnWrite whether ehcache copies values on write
+	 */
+	public LocalCacheManager(String name, FrontCacheType type, int max,
+			long maxBytes, int exptime, boolean copyOnRead, boolean copyOnWrite) {
+		Object store;
+		if (type == FrontCacheType.TINYLFU) {
+			store = lfuCache = new TinyLfuCache(name, max, maxBytes, exptime,
+					TimeUnit.SECONDS);
+		} else if (type == FrontCacheType.OFFHEAP) {
+			store = offHeapCache = new OffHeapCache(name, max, maxBytes, exptime,
+					TimeUnit.SECONDS);
+		} else {
+			initEhcache(name, max, exptime, copyOnRead, copyOnWrite);
+			return;
+		}
+		this.name = name;
+		if (!"false".equals(System.getProperty("arcus.mbean", "false")
+				.toLowerCase())) {
+			try {
+				ArcusMBeanServer.getInstance().registMBean(store,
+						getClass().getPackage().getName() + ":type="
+						+ store.getClass().getSimpleName() + "-" + name);
+			} catch (Exception e) {
+				logger.warn("Failed to register the local cache mbean.", e);
+			}
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Arcus k/v local cache is enabled : %s", store.toString());
+		}
+	}
+
+	private void initEhcache(String name, int max, int exptime,
+			boolean copyOnRead, boolean copyOnWrite) {
 		this.cache = CacheManager.getInstance().getCache(name);
 		if (cache == null) {
 			CacheConfiguration config =
@@ -76,7 +130,21 @@ public class LocalCacheManager {
 		}
 	}
 	
+	/**
+	 * Get the cached value of a key.  The off-heap cache decodes it with
+	 * the given transcoder, and misses if there is none.
+	 */
 	public <T> T get(String key, Transcoder<T> tc) {
+		if (offHeapCache != null) {
+			return tc == null ? null : getOffHeap(key, tc);
+		}
+		if (lfuCache != null) {
+			@SuppressWarnings("unchecked") T ret = (T) lfuCache.get(key);
+			if (ret != null && logger.isDebugEnabled()) {
+				logger.debug("ArcusFrontCache: local cache hit for %s", key);
+			}
+			return ret;
+		}
 		if (cache == null) {
 			return null;
 		}
@@ -98,6 +166,23 @@ public class LocalCacheManager {
 		return null;
 	}
 	
+	private <T> T getOffHeap(String key, Transcoder<T> tc) {
+		CachedData data = offHeapCache.get(key);
+		if (data == null) {
+			return null;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("ArcusFrontCache: local cache hit for %s", key);
+		}
+		try {
+			return tc.decode(data);
+		} catch (Exception e) {
+			logger.info("failed to decode the locally cached item : %s", e.getMessage());
+			offHeapCache.remove(key);
+			return null;
+		}
+	}
+
 	public <T> Future<T> asyncGet(final String key, final Transcoder<T> tc) {
 		Task<T> task = new Task<T>(new Callable<T>() {
 			public T call() throws Exception {
@@ -107,7 +192,15 @@ public class LocalCacheManager {
 		return task;
 	}
 
+	/**
+	 * Get the cached element of a key.  The off-heap cache, which cannot
+	 * decode without a transcoder, always misses.
+	 */
 	public Element getElement(String key) {
+		if (lfuCache != null || offHeapCache != null) {
+			Object value = get(key, null);
+			return value == null ? null : new Element(key, value);
+		}
 		Element element = cache.get(key);
 		if (logger.isDebugEnabled()) {
 			if (null != element) {
@@ -117,13 +210,34 @@ public class LocalCacheManager {
 		return element;
 	}
 	
+	/**
+	 * Cache a value.  The off-heap cache, which keeps encoded values only,
+	 * does not cache it.
+	 */
 	public <T> boolean put(String k, T v) {
-		if (v == null) {
+		return put(k, v, weigh(v));
+	}
+
+	/**
+	 * Cache a value whose encoded size is known.  The off-heap cache, which
+	 * keeps encoded values only, does not cache it.
+	 *
+	 * @param k the key
+	 * @param v the value
+	 * @param size the size of the encoded value in bytes
+	 * @return true if the value was cached
+	 */
+	public <T> boolean put(String k, T v, int size) {
+		if (v == null || offHeapCache != null) {
 			return false;
 		}
 		
 		try {
-			cache.put(new Element(k, v));
+			if (lfuCache != null) {
+				lfuCache.put(k, v, size);
+			} else {
+				cache.put(new Element(k, v));
+			}
 			return true;
 		} catch (Exception e) {
 			if (logger.isInfoEnabled()) {
@@ -133,14 +247,53 @@ public class LocalCacheManager {
 		}
 	}
 	
+	/**
+	 * Cache a value read from the server along with its encoded form, which
+	 * is what the off-heap cache keeps.
+	 *
+	 * @param k the key
+	 * @param v the decoded value
+	 * @param data the encoded value
+	 * @return true if the value was cached
+	 */
+	public <T> boolean put(String k, T v, CachedData data) {
+		if (offHeapCache == null) {
+			return put(k, v, data.getData().length);
+		}
+		return v != null && putOffHeap(k, data);
+	}
+
+	private boolean putOffHeap(String k, CachedData data) {
+		try {
+			return offHeapCache.put(k, data);
+		} catch (Exception e) {
+			if (logger.isInfoEnabled()) {
+				logger.info("failed to put to the local cache : %s", e.getMessage());
+			}
+			return false;
+		}
+	}
+
 	public <T> boolean put(String k, Future<T> future, long timeout) {
+		return put(k, future, null, timeout);
+	}
+
+	/**
+	 * Cache the value of a future along with its encoded form, or null if
+	 * it is not known.  The off-heap cache does not wait for the value.
+	 */
+	public <T> boolean put(String k, Future<T> future, CachedData data,
+			long timeout) {
 		if (future == null) {
 			return false;
 		}
+		if (offHeapCache != null && data != null) {
+			return putOffHeap(k, data);
+		}
 
 		try {
 			T v = future.get(timeout, TimeUnit.MILLISECONDS);
-			return put(k, v);
+			return data == null ? put(k, v) : put(k, v, data);
 		} catch (Exception e) {
 			logger.info("failed to put to the local cache : %s", e.getMessage());
 			return false;
@@ -149,6 +302,14 @@ public class LocalCacheManager {
 	
 	public void delete(String k) {
 		try {
+			if (lfuCache != null) {
+				lfuCache.remove(k);
+				return;
+			}
+			if (offHeapCache != null) {
+				offHeapCache.remove(k);
+				return;
+			}
 			cache.remove(k);
 		} catch (Exception e) {
 			logger.info("failed to remove the locally cached item : %s", e.getMessage());
@@ -183,9 +344,38 @@ public class LocalCacheManager {
 		}
 	}
 	
+	/**
+	 * Get the built-in cache, or null if another storage is used.
+	 */
+	public TinyLfuCache getTinyLfuCache() {
+		return lfuCache;
+	}
+
+	/**
+	 * Get the off-heap cache, or null if another storage is used.
+	 */
+	public OffHeapCache getOffHeapCache() {
+		return offHeapCache;
+	}
+
+	// Estimate the size of a value whose encoded size is not known.
+	private static int weigh(Object v) {
+		if (v instanceof CachedData) {
+			return ((CachedData) v).getData().length;
+		} else if (v instanceof byte[]) {
+			return ((byte[]) v).length;
+		} else if (v instanceof String) {
+			return ((String) v).length();
+		}
+		return 1;
+	}
+
 	@Override
 	public String toString() {
-		return cache.toString();
+		if (offHeapCache != null) {
+			return offHeapCache.toString();
+		}
+		return lfuCache != null ? lfuCache.toString() : cache.toString();
 	}
 	
 }
@@ -0,0 +1,485 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * A bounded in-process cache of encoded values kept off the Java heap.
+ *
+ * The flags and data of every value are copied into direct memory, so a
+ * large cache adds little to the heap the garbage collector traces and
+ * copies; only a small index entry per key stays on the heap.  As in the
+ * memcached slab allocator, direct memory is allocated in pages, each
+ * page is cut into chunks of one size class, and the classes grow by a
+ * factor of 1.25.  A class without a free chunk takes a new page while
+ * the cache is within its size, and then evicts its least recently used
+ * entry.  Pages stay with their classes, so the cache keeps fewer values
+ * after the sizes of the values change much.  Pages are at most 1 MB and
+ * small enough for a segment to have 32 pages, and a value larger than a
+ * page is not cached.
+ *
+ * The keys are spread over segments with a lock each.  A hit copies the
+ * value out of direct memory, for the caller to decode.  Pages are not
+ * freed until the cache is cleared.
+ */
+public class OffHeapCache implements OffHeapCacheMBean {
+
+	private static final int SEGMENTS = 16;
+	private static final int OFFSET_BITS = 20;
+	private static final int OFFSET_MASK = (1 << OFFSET_BITS) - 1;
+	private static final int MAX_PAGE_SIZE = 1 << OFFSET_BITS;
+	private static final int MAX_PAGES = 1 << (31 - OFFSET_BITS);
+	private static final int MIN_PAGE_SIZE = 4096;
+	// pages of a segment, for the size classes to share
+	private static final int SEGMENT_PAGES = 32;
+	private static final int MIN_CHUNK_SIZE = 64;
+	private static final double GROWTH_FACTOR = 1.25;
+	// the flags before the data of a value
+	private static final int HEADER_SIZE = 4;
+
+	private final String name;
+	private final int maxEntries;
+	private final long maxBytes;
+	private final long ttlNanos;
+	private final int pageSize;
+	private final int[] chunkSizes;
+	private final Segment[] segments;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong rejections = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param name the name of the cache
+	 * @param maxEntries the most entries kept, or 0 to bound the cache by
+	 *        size only
+	 * @param maxBytes the most direct memory taken, rounded up to whole
+	 *        pages
+	 * @param ttl the time to live of an entry, or 0 for none
+	 * @param unit the unit of ttl
+	 */
+	public OffHeapCache(String name, int maxEntries, long maxBytes,
+			long ttl, TimeUnit unit) {
+		long segmentBytes = maxBytes / SEGMENTS;
+		if (maxEntries < 0 || maxBytes <= 0 || ttl < 0
+				|| segmentBytes / MAX_PAGE_SIZE >= MAX_PAGES) {
+			throw new IllegalArgumentException("Invalid cache bounds: "
+					+ maxEntries + ", " + maxBytes + ", " + ttl);
+		}
+		this.name = name;
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+		this.ttlNanos = unit.toNanos(ttl);
+		this.pageSize = (int) Math.max(MIN_PAGE_SIZE,
+				Math.min(MAX_PAGE_SIZE, segmentBytes / SEGMENT_PAGES));
+		this.chunkSizes = chunkSizes(pageSize);
+
+		int pages = (int) Math.max(1, (segmentBytes + pageSize - 1) / pageSize);
+		int entries = (maxEntries + SEGMENTS - 1) / SEGMENTS;
+		this.segments = new Segment[SEGMENTS];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new Segment(pages, entries);
+		}
+	}
+
+	private static int[] chunkSizes(int pageSize) {
+		List<Integer> sizes = new ArrayList<Integer>();
+		int size = MIN_CHUNK_SIZE;
+		while (size < pageSize) {
+			sizes.add(size);
+			// keep chunks 8-byte aligned
+			size = ((int) (size * GROWTH_FACTOR) + 7) & ~7;
+		}
+		sizes.add(pageSize);
+		int[] rv = new int[sizes.size()];
+		for (int i = 0; i < rv.length; i++) {
+			rv[i] = sizes.get(i);
+		}
+		return rv;
+	}
+
+	private Segment segmentFor(String key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[h & (SEGMENTS - 1)];
+	}
+
+	/**
+	 * Get a copy of the cached value of a key, or null if there is none.
+	 */
+	public CachedData get(String key) {
+		Segment s = segmentFor(key);
+		CachedData rv;
+		s.lock();
+		try {
+			rv = s.get(key, System.nanoTime());
+		} finally {
+			s.unlock();
+		}
+		if (rv == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return rv;
+	}
+
+	/**
+	 * Cache a copy of an encoded value.
+	 *
+	 * @return true if the value was cached
+	 */
+	public boolean put(String key, CachedData value) {
+		Segment s = segmentFor(key);
+		s.lock();
+		try {
+			return s.put(key, value, ttlNanos == 0 ? 0 : System.nanoTime() + ttlNanos);
+		} finally {
+			s.unlock();
+		}
+	}
+
+	public void remove(String key) {
+		Segment s = segmentFor(key);
+		s.lock();
+		try {
+			Entry e = s.map.get(key);
+			if (e != null) {
+				s.drop(e);
+			}
+		} finally {
+			s.unlock();
+		}
+	}
+
+	/**
+	 * Remove all the entries and give up the pages.
+	 */
+	public void clear() {
+		for (Segment s : segments) {
+			s.lock();
+			try {
+				s.reset();
+			} finally {
+				s.unlock();
+			}
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getSize() {
+		long size = 0;
+		for (Segment s : segments) {
+			size += s.size;
+		}
+		return size;
+	}
+
+	public long getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	public long getAllocatedBytes() {
+		long bytes = 0;
+		for (Segment s : segments) {
+			bytes += (long) s.pageCount * pageSize;
+		}
+		return bytes;
+	}
+
+	public long getUsedBytes() {
+		long bytes = 0;
+		for (Segment s : segments) {
+			bytes += s.usedBytes;
+		}
+		return bytes;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public double getHitRatio() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	public long getRejectionCount() {
+		return rejections.get();
+	}
+
+	public long getExpirationCount() {
+		return expirations.get();
+	}
+
+	@Override
+	public String toString() {
+		return "OffHeapCache [name=" + name + ", maxEntries=" + maxEntries
+				+ ", maxBytes=" + maxBytes + ", size=" + getSize()
+				+ ", allocatedBytes=" + getAllocatedBytes() + "]";
+	}
+
+	private final class Segment extends ReentrantLock {
+		private static final long serialVersionUID = 1L;
+
+		final Map<String, Entry> map = new HashMap<String, Entry>();
+		final int maxPages;
+		final int maxEntries;
+		List<ByteBuffer> pages;
+		SlabClass[] classes;
+		volatile int size;
+		volatile int pageCount;
+		volatile long usedBytes;
+
+		Segment(int maxPages, int maxEntries) {
+			this.maxPages = maxPages;
+			this.maxEntries = maxEntries;
+			reset();
+		}
+
+		void reset() {
+			map.clear();
+			pages = new ArrayList<ByteBuffer>();
+			classes = new SlabClass[chunkSizes.length];
+			for (int i = 0; i < classes.length; i++) {
+				classes[i] = new SlabClass(chunkSizes[i]);
+			}
+			size = 0;
+			pageCount = 0;
+			usedBytes = 0;
+		}
+
+		CachedData get(String key, long now) {
+			Entry e = map.get(key);
+			if (e == null) {
+				return null;
+			}
+			if (e.expiresAt != 0 && now - e.expiresAt >= 0) {
+				drop(e);
+				expirations.incrementAndGet();
+				return null;
+			}
+			e.slab.moveToHead(e);
+
+			ByteBuffer page = pages.get(e.address >>> OFFSET_BITS);
+			int offset = e.address & OFFSET_MASK;
+			byte[] data = new byte[e.length];
+			page.position(offset + HEADER_SIZE);
+			page.get(data);
+			return new CachedData(page.getInt(offset), data, data.length);
+		}
+
+		boolean put(String key, CachedData value, long expiresAt) {
+			Entry old = map.get(key);
+			if (old != null) {
+				drop(old);
+			}
+			byte[] data = value.getData();
+			SlabClass slab = classFor(HEADER_SIZE + data.length);
+			int address = slab == null ? -1 : allocate(slab);
+			if (address < 0) {
+				rejections.incrementAndGet();
+				return false;
+			}
+
+			ByteBuffer page = pages.get(address >>> OFFSET_BITS);
+			int offset = address & OFFSET_MASK;
+			page.putInt(offset, value.getFlags());
+			page.position(offset + HEADER_SIZE);
+			page.put(data);
+
+			Entry e = new Entry(key, address, data.length, slab, expiresAt);
+			map.put(key, e);
+			slab.linkHead(e);
+			size = map.size();
+			usedBytes += slab.chunkSize;
+			if (maxEntries > 0 && size > maxEntries) {
+				evictOther(e);
+			}
+			return true;
+		}
+
+		void drop(Entry e) {
+			map.remove(e.key);
+			e.slab.unlink(e);
+			e.slab.free(e.address);
+			size = map.size();
+			usedBytes -= e.slab.chunkSize;
+		}
+
+		private SlabClass classFor(int length) {
+			int lo = 0;
+			int hi = classes.length - 1;
+			if (length > classes[hi].chunkSize) {
+				return null;
+			}
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (classes[mid].chunkSize < length) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return classes[lo];
+		}
+
+		private int allocate(SlabClass slab) {
+			if (slab.freeCount == 0) {
+				if (pages.size() < maxPages) {
+					addPage(slab);
+				} else if (slab.tail != null) {
+					drop(slab.tail);
+					evictions.incrementAndGet();
+				} else {
+					return -1;
+				}
+			}
+			return slab.free[--slab.freeCount];
+		}
+
+		private void addPage(SlabClass slab) {
+			int index = pages.size();
+			pages.add(ByteBuffer.allocateDirect(pageSize));
+			pageCount = pages.size();
+			int chunks = pageSize / slab.chunkSize;
+			// hand out the chunks from the start of the page
+			for (int i = chunks - 1; i >= 0; i--) {
+				slab.free((index << OFFSET_BITS) | (i * slab.chunkSize));
+			}
+		}
+
+		// Evict the least recently used entry of the class of a new entry,
+		// or of another class if the new entry is alone in its class.
+		private void evictOther(Entry added) {
+			Entry victim = added.slab.tail;
+			for (int i = 0; victim == added && i < classes.length; i++) {
+				if (classes[i].tail != null && classes[i].tail != added) {
+					victim = classes[i].tail;
+				}
+			}
+			if (victim != added) {
+				drop(victim);
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	private static final class SlabClass {
+		final int chunkSize;
+		int[] free = new int[16];
+		int freeCount = 0;
+		Entry head;
+		Entry tail;
+
+		SlabClass(int chunkSize) {
+			this.chunkSize = chunkSize;
+		}
+
+		void free(int address) {
+			if (freeCount == free.length) {
+				int[] grown = new int[free.length * 2];
+				System.arraycopy(free, 0, grown, 0, freeCount);
+				free = grown;
+			}
+			free[freeCount++] = address;
+		}
+
+		void linkHead(Entry e) {
+			e.prev = null;
+			e.next = head;
+			if (head != null) {
+				head.prev = e;
+			} else {
+				tail = e;
+			}
+			head = e;
+		}
+
+		void unlink(Entry e) {
+			if (e.prev != null) {
+				e.prev.next = e.next;
+			} else {
+				head = e.next;
+			}
+			if (e.next != null) {
+				e.next.prev = e.prev;
+			} else {
+				tail = e.prev;
+			}
+			e.prev = null;
+			e.next = null;
+		}
+
+		void moveToHead(Entry e) {
+			if (head != e) {
+				unlink(e);
+				linkHead(e);
+			}
+		}
+	}
+
+	private static final class Entry {
+		final String key;
+		// the page index in the high bits, the offset in the low bits
+		final int address;
+		final int length;
+		final SlabClass slab;
+		final long expiresAt;
+		Entry prev;
+		Entry next;
+
+		Entry(String key, int address, int length, SlabClass slab,
+				long expiresAt) {
+			this.key = key;
+			this.address = address;
+			this.length = length;
+			this.slab = slab;
+			this.expiresAt = expiresAt;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+/**
+ * Statistics of an {@link OffHeapCache} front cache.
+ */
+public interface OffHeapCacheMBean {
+
+	String getName();
+
+	long getSize();
+
+	long getMaxEntries();
+
+	long getMaxBytes();
+
+	/**
+	 * Direct memory taken by the pages of the cache.
+	 */
+	long getAllocatedBytes();
+
+	/**
+	 * Direct memory taken by the chunks of the cached values.
+	 */
+	long getUsedBytes();
+
+	long getHitCount();
+
+	long getMissCount();
+
+	double getHitRatio();
+
+	long getEvictionCount();
+
+	/**
+	 * Values that were not cached because they are larger than a page or
+	 * their size class has no memory left.
+	 */
+	long getRejectionCount();
+
+	long getExpirationCount();
+}
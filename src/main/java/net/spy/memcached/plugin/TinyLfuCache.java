@@ -0,0 +1,572 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded in-process cache with W-TinyLFU eviction.
+ *
+ * New entries enter a small LRU window.  An entry leaving the window is
+ * admitted to the main space, a segmented LRU, only if it was used more
+ * often than the entry it would evict there, as estimated by a count-min
+ * frequency sketch.  So a scan of one-time keys passes through the window
+ * without flushing the frequently used keys.
+ *
+ * Reads take no lock.  A hit is recorded in a lossy, striped buffer which
+ * is replayed on the eviction policy under a lock when it fills up.
+ * Writes update the policy under the lock.
+ *
+ * The cache is bounded by the number of entries and, if a maximum weight
+ * is given, by the total weight of the entries, which the front cache
+ * uses for the size of the cached values in bytes.  Every entry expires
+ * after its own time to live.
+ */
+public class TinyLfuCache implements TinyLfuCacheMBean {
+
+	private static final int WINDOW_PERCENT = 1;
+	private static final int PROTECTED_PERCENT = 80;
+
+	private static final int READ_BUFFER_SIZE = 16;
+	private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+	private static final int READ_BUFFERS = Math.min(64,
+			ceilingPowerOfTwo(4 * Runtime.getRuntime().availableProcessors()));
+
+	private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+	private final String name;
+	private final ConcurrentHashMap<String, Node> data;
+	private final int maxEntries;
+	private final long maxWeight;
+	private final boolean weighted;
+	private final long capacity;
+	private final long windowMax;
+	private final long protectedMax;
+	private final long ttlNanos;
+
+	private final ReentrantLock evictionLock = new ReentrantLock();
+	private final FrequencySketch sketch;
+	private final ReadBuffer[] readBuffers;
+
+	// guarded by evictionLock
+	private final AccessQueue window = new AccessQueue();
+	private final AccessQueue probation = new AccessQueue();
+	private final AccessQueue protectedQueue = new AccessQueue();
+	private long windowWeight;
+	private long probationWeight;
+	private long protectedWeight;
+	private int entries;
+	private volatile long totalWeight;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong rejections = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+
+	/**
+	 * Create a cache.
+	 *
+	 * @param name the name of the cache
+	 * @param maxEntries the most entries kept
+	 * @param maxWeight the most total weight kept, or 0 to bound the cache
+	 *        by entries only
+	 * @param ttl the default time to live of an entry, or 0 for none
+	 * @param unit the unit of ttl
+	 */
+	public TinyLfuCache(String name, int maxEntries, long maxWeight,
+			long ttl, TimeUnit unit) {
+		if (maxEntries <= 0 || maxWeight < 0 || ttl < 0) {
+			throw new IllegalArgumentException("Invalid cache bounds: "
+					+ maxEntries + ", " + maxWeight + ", " + ttl);
+		}
+		this.name = name;
+		this.maxEntries = maxEntries;
+		this.maxWeight = maxWeight;
+		this.weighted = maxWeight > 0;
+		this.capacity = weighted ? maxWeight : maxEntries;
+		this.windowMax = Math.max(1, capacity * WINDOW_PERCENT / 100);
+		this.protectedMax = (capacity - windowMax) * PROTECTED_PERCENT / 100;
+		this.ttlNanos = unit.toNanos(ttl);
+		this.data = new ConcurrentHashMap<String, Node>(
+				Math.min(maxEntries, 1 << 16));
+		this.sketch = new FrequencySketch(maxEntries);
+		this.readBuffers = new ReadBuffer[READ_BUFFERS];
+		for (int i = 0; i < readBuffers.length; i++) {
+			readBuffers[i] = new ReadBuffer();
+		}
+	}
+
+	/**
+	 * Get the cached value of a key, or null if there is none.
+	 */
+	public Object get(String key) {
+		Node node = data.get(key);
+		if (node == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		if (node.expiresAt != NO_EXPIRY && node.expiresAt - System.nanoTime() <= 0) {
+			if (data.remove(key, node)) {
+				expirations.incrementAndGet();
+				evictionLock.lock();
+				try {
+					unlink(node);
+				} finally {
+					evictionLock.unlock();
+				}
+			}
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		ReadBuffer buffer = readBuffers[(int) Thread.currentThread().getId()
+				& (READ_BUFFERS - 1)];
+		if (buffer.offer(node) && evictionLock.tryLock()) {
+			try {
+				drainReadBuffers();
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+		return node.value;
+	}
+
+	/**
+	 * Cache a value with the default time to live.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 * @param weight the weight of the value, ignored if the cache is not
+	 *        bounded by weight
+	 */
+	public void put(String key, Object value, int weight) {
+		put(key, value, weight, ttlNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Cache a value.  A value heavier than the whole cache is not cached,
+	 * and the key is removed instead.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 * @param weight the weight of the value, ignored if the cache is not
+	 *        bounded by weight
+	 * @param ttl the time to live of the value, or 0 for none
+	 * @param unit the unit of ttl
+	 */
+	public void put(String key, Object value, int weight, long ttl,
+			TimeUnit unit) {
+		if (value == null) {
+			throw new NullPointerException("Null value for " + key);
+		}
+		int w = weighted ? Math.max(weight, 1) : 1;
+		if (w > capacity) {
+			remove(key);
+			return;
+		}
+		long expiresAt = ttl > 0 ? System.nanoTime() + unit.toNanos(ttl)
+				: NO_EXPIRY;
+		Node node = new Node(key, value, w, expiresAt);
+		Node prior = data.put(key, node);
+		evictionLock.lock();
+		try {
+			if (prior != null) {
+				unlink(prior);
+			}
+			// skip it if it was removed or replaced in the meantime
+			if (node.queue == Node.NEW) {
+				sketch.increment(node.hash);
+				window.add(node);
+				node.queue = Node.WINDOW;
+				windowWeight += w;
+				entries++;
+				totalWeight += w;
+				drainReadBuffers();
+				evict();
+			}
+		} finally {
+			evictionLock.unlock();
+		}
+	}
+
+	/**
+	 * Remove the cached value of a key.
+	 */
+	public void remove(String key) {
+		Node node = data.remove(key);
+		if (node != null) {
+			evictionLock.lock();
+			try {
+				unlink(node);
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Remove all cached values.
+	 */
+	public void clear() {
+		for (String key : data.keySet()) {
+			remove(key);
+		}
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getSize() {
+		return data.size();
+	}
+
+	public long getWeightedSize() {
+		return totalWeight;
+	}
+
+	public long getMaxEntries() {
+		return maxEntries;
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	public double getHitRatio() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double) h / total;
+	}
+
+	public long getEvictionCount() {
+		return evictions.get();
+	}
+
+	public long getRejectionCount() {
+		return rejections.get();
+	}
+
+	public long getExpirationCount() {
+		return expirations.get();
+	}
+
+	@Override
+	public String toString() {
+		return "TinyLfuCache [name=" + name + ", maxEntries=" + maxEntries
+				+ ", maxWeight=" + maxWeight + ", size=" + getSize()
+				+ ", weightedSize=" + totalWeight + "]";
+	}
+
+	private void drainReadBuffers() {
+		for (ReadBuffer buffer : readBuffers) {
+			buffer.drain(this);
+		}
+	}
+
+	// Replay a hit on the policy: a window entry moves to the window tail,
+	// a probation entry is promoted, and a protected entry moves to the tail.
+	private void onAccess(Node node) {
+		switch (node.queue) {
+		case Node.WINDOW:
+			sketch.increment(node.hash);
+			window.moveToTail(node);
+			break;
+		case Node.PROBATION:
+			sketch.increment(node.hash);
+			probation.remove(node);
+			probationWeight -= node.weight;
+			protectedQueue.add(node);
+			node.queue = Node.PROTECTED;
+			protectedWeight += node.weight;
+			while (protectedWeight > protectedMax) {
+				Node demoted = protectedQueue.poll();
+				protectedWeight -= demoted.weight;
+				probation.add(demoted);
+				demoted.queue = Node.PROBATION;
+				probationWeight += demoted.weight;
+			}
+			break;
+		case Node.PROTECTED:
+			sketch.increment(node.hash);
+			protectedQueue.moveToTail(node);
+			break;
+		default:
+			// removed already
+			break;
+		}
+	}
+
+	// Move the window overflow to the probation tail as candidates, then
+	// evict until within the bounds.  The oldest candidate competes with
+	// the probation head, and the less frequently used of the two goes.
+	private void evict() {
+		Node candidate = null;
+		while (windowWeight > windowMax) {
+			Node node = window.poll();
+			windowWeight -= node.weight;
+			probation.add(node);
+			node.queue = Node.PROBATION;
+			probationWeight += node.weight;
+			if (candidate == null) {
+				candidate = node;
+			}
+		}
+		while (totalWeight > capacity || entries > maxEntries) {
+			Node victim = probation.head;
+			if (victim == candidate) {
+				victim = protectedQueue.head;
+			}
+			if (candidate == null) {
+				if (victim == null) {
+					victim = probation.head != null ? probation.head : window.head;
+				}
+				evictEntry(victim);
+			} else if (victim == null
+					|| sketch.frequency(candidate.hash) <= sketch.frequency(victim.hash)) {
+				Node next = candidate.next;
+				evictEntry(candidate);
+				if (victim != null) {
+					rejections.incrementAndGet();
+				}
+				candidate = next;
+			} else {
+				evictEntry(victim);
+			}
+		}
+	}
+
+	private void evictEntry(Node node) {
+		data.remove(node.key, node);
+		unlink(node);
+		evictions.incrementAndGet();
+	}
+
+	private void unlink(Node node) {
+		switch (node.queue) {
+		case Node.WINDOW:
+			window.remove(node);
+			windowWeight -= node.weight;
+			break;
+		case Node.PROBATION:
+			probation.remove(node);
+			probationWeight -= node.weight;
+			break;
+		case Node.PROTECTED:
+			protectedQueue.remove(node);
+			protectedWeight -= node.weight;
+			break;
+		default:
+			node.queue = Node.DEAD;
+			return;
+		}
+		node.queue = Node.DEAD;
+		entries--;
+		totalWeight -= node.weight;
+	}
+
+	private static int ceilingPowerOfTwo(int n) {
+		return n <= 1 ? 1 : Integer.highestOneBit(n - 1) << 1;
+	}
+
+	private static int spread(int h) {
+		h *= 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+	private static final class Node {
+		static final int NEW = 0;
+		static final int WINDOW = 1;
+		static final int PROBATION = 2;
+		static final int PROTECTED = 3;
+		static final int DEAD = 4;
+
+		final String key;
+		final Object value;
+		final int hash;
+		final int weight;
+		final long expiresAt;
+
+		// guarded by evictionLock
+		int queue = NEW;
+		Node prev;
+		Node next;
+
+		Node(String key, Object value, int weight, long expiresAt) {
+			this.key = key;
+			this.value = value;
+			this.hash = spread(key.hashCode());
+			this.weight = weight;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	// A doubly linked list of nodes from the least to the most recently used.
+	private static final class AccessQueue {
+		Node head;
+		Node tail;
+
+		void add(Node node) {
+			node.prev = tail;
+			node.next = null;
+			if (tail == null) {
+				head = node;
+			} else {
+				tail.next = node;
+			}
+			tail = node;
+		}
+
+		void remove(Node node) {
+			if (node.prev == null) {
+				head = node.next;
+			} else {
+				node.prev.next = node.next;
+			}
+			if (node.next == null) {
+				tail = node.prev;
+			} else {
+				node.next.prev = node.prev;
+			}
+			node.prev = null;
+			node.next = null;
+		}
+
+		void moveToTail(Node node) {
+			if (node != tail) {
+				remove(node);
+				add(node);
+			}
+		}
+
+		Node poll() {
+			Node node = head;
+			if (node != null) {
+				remove(node);
+			}
+			return node;
+		}
+	}
+
+	// A ring of hits written by readers and drained under the eviction lock.
+	// Hits are dropped when it is full; the policy only needs a sample.
+	private static final class ReadBuffer {
+		final AtomicLong writes = new AtomicLong();
+		final AtomicReferenceArray<Node> slots =
+			new AtomicReferenceArray<Node>(READ_BUFFER_SIZE);
+		volatile long reads;
+
+		// true if the buffer should be drained
+		boolean offer(Node node) {
+			long w = writes.get();
+			long pending = w - reads;
+			if (pending >= READ_BUFFER_SIZE) {
+				return true;
+			}
+			if (writes.compareAndSet(w, w + 1)) {
+				slots.lazySet((int) (w & READ_BUFFER_MASK), node);
+				return pending + 1 >= READ_BUFFER_SIZE / 2;
+			}
+			return false;
+		}
+
+		void drain(TinyLfuCache cache) {
+			long r = reads;
+			long w = writes.get();
+			for (; r < w; r++) {
+				int i = (int) (r & READ_BUFFER_MASK);
+				Node node = slots.get(i);
+				if (node == null) {
+					// a reader has not stored its hit yet
+					break;
+				}
+				slots.lazySet(i, null);
+				cache.onAccess(node);
+			}
+			reads = r;
+		}
+	}
+
+	// Four-bit counters in a count-min sketch, halved every sampleSize
+	// increments so that old popularity fades.
+	static final class FrequencySketch {
+		private static final long[] SEEDS = { 0xc3a5c85c97cb3127L,
+			0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+		private static final long RESET_MASK = 0x7777777777777777L;
+
+		private final long[] table;
+		private final int mask;
+		private final int sampleSize;
+		private int additions;
+
+		FrequencySketch(int maxEntries) {
+			int n = Math.max(maxEntries, 16);
+			table = new long[ceilingPowerOfTwo(Math.min(n, 1 << 30))];
+			mask = table.length - 1;
+			sampleSize = n > Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : 10 * n;
+		}
+
+		int frequency(int hash) {
+			int start = (hash & 3) << 2;
+			int freq = 15;
+			for (int i = 0; i < 4; i++) {
+				long counters = table[indexOf(hash, i)];
+				freq = Math.min(freq,
+						(int) ((counters >>> ((start + i) << 2)) & 0xfL));
+			}
+			return freq;
+		}
+
+		void increment(int hash) {
+			int start = (hash & 3) << 2;
+			boolean added = false;
+			for (int i = 0; i < 4; i++) {
+				int index = indexOf(hash, i);
+				int offset = (start + i) << 2;
+				if (((table[index] >>> offset) & 0xfL) != 0xfL) {
+					table[index] += 1L << offset;
+					added = true;
+				}
+			}
+			if (added && ++additions == sampleSize) {
+				for (int i = 0; i < table.length; i++) {
+					table[i] = (table[i] >>> 1) & RESET_MASK;
+				}
+				additions >>>= 1;
+			}
+		}
+
+		private int indexOf(int hash, int i) {
+			long h = (hash + SEEDS[i]) * SEEDS[i];
+			h += h >>> 32;
+			return (int) h & mask;
+		}
+	}
+}
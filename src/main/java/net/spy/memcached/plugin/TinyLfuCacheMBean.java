@@ -0,0 +1,53 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+/**
+ * Statistics of a {@link TinyLfuCache} front cache.
+ */
+public interface TinyLfuCacheMBean {
+
+	String getName();
+
+	long getSize();
+
+	long getWeightedSize();
+
+	long getMaxEntries();
+
+	long getMaxWeight();
+
+	long getHitCount();
+
+	long getMissCount();
+
+	double getHitRatio();
+
+	/**
+	 * Entries evicted to keep the cache within its bounds, including new
+	 * entries that were not admitted.
+	 */
+	long getEvictionCount();
+
+	/**
+	 * New entries that were not admitted because they were used less
+	 * often than the entry they would have evicted.
+	 */
+	long getRejectionCount();
+
+	long getExpirationCount();
+}
@@ -18,9 +18,13 @@ package net.spy.memcached.protocol;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+import net.spy.memcached.ByteBufferPool;
 import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.NodeAdmission;
 import net.spy.memcached.compat.SpyObject;
+import net.spy.memcached.internal.HashedWheelTimer;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.CancelledOperationStatus;
 import net.spy.memcached.ops.OperationCallback;
@@ -29,6 +33,7 @@ import net.spy.memcached.ops.OperationException;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.ops.TimedOutOperationStatus;
 
 /**
  * Base class for protocol-specific operation implementations.
@@ -40,13 +45,26 @@ public abstract class BaseOperationImpl extends SpyObject {
 	 */
 	public static final OperationStatus CANCELLED =
 		new CancelledOperationStatus();
+	/**
+	 * Status object for operations that timed out before being sent.
+	 */
+	public static final OperationStatus TIMED_OUT =
+		new TimedOutOperationStatus();
 	private OperationState state = OperationState.WRITING;
 	private ByteBuffer cmd = null;
+	private int cmdStart = 0;
 	private boolean cancelled = false;
+	private volatile boolean timedOut = false;
+	private volatile HashedWheelTimer.Timeout deadline = null;
+	private volatile NodeAdmission.Permit permit = null;
+	private static final AtomicReferenceFieldUpdater<BaseOperationImpl, NodeAdmission.Permit> PERMIT =
+		AtomicReferenceFieldUpdater.newUpdater(BaseOperationImpl.class,
+				NodeAdmission.Permit.class, "permit");
 	private String cancelCause = null;
 	private OperationException exception = null;
 	protected OperationCallback callback = null;
 	private volatile MemcachedNode handlingNode = null;
+	private volatile long writeCompleteTimestamp = 0;
 
 	private OperationType opType = OperationType.UNDEFINED;
 	private APIType apiType = APIType.UNDEFINED;
@@ -85,12 +103,77 @@ public abstract class BaseOperationImpl extends SpyObject {
 	}
 
 	public final void cancel(String cause) {
+		// The IO thread may be writing the buffer, so it is discarded by
+		// whoever drops the operation from its queue.
+		cancelDeadline();
+		releasePermit();
 		cancelled=true;
 		cancelCause = "Cancelled (" + cause + ")";
 		wasCancelled();
 		callback.complete();
 	}
 
+	public final boolean timeOut() {
+		// Nothing can be taken back once a byte has been written.  Folded
+		// operations have no buffer, and are written as part of another.
+		// A gathered buffer is queued for the channel as it is.
+		MemcachedNode node=handlingNode;
+		if(state != OperationState.WRITING || cancelled || cmd == null
+				|| cmd.position() != cmdStart
+				|| (node != null && node.isWriting(cmd))) {
+			return false;
+		}
+		timedOut=true;
+		cancelled=true;
+		cancelCause = "Cancelled (timed out before being sent)";
+		releasePermit();
+		discardBuffer();
+		callback.receivedStatus(TIMED_OUT);
+		callback.complete();
+		return true;
+	}
+
+	public final boolean isTimedOut() {
+		return timedOut;
+	}
+
+	public final void setDeadline(HashedWheelTimer.Timeout to) {
+		cancelDeadline();
+		deadline=to;
+	}
+
+	public final void setAdmissionPermit(NodeAdmission.Permit p) {
+		NodeAdmission.Permit old=PERMIT.getAndSet(this, p);
+		if(old != null) {
+			old.release();
+		}
+	}
+
+	private void releasePermit() {
+		setAdmissionPermit(null);
+	}
+
+	/**
+	 * This operation was folded into the given one, which is written in
+	 * its place and takes over its admission permit.
+	 */
+	protected final void foldInto(BaseOperationImpl o) {
+		discardBuffer();
+		NodeAdmission.Permit p=PERMIT.getAndSet(this, null);
+		if(p != null) {
+			NodeAdmission.Permit mine=PERMIT.getAndSet(o, null);
+			o.setAdmissionPermit(mine == null ? p : mine.merge(p));
+		}
+	}
+
+	private void cancelDeadline() {
+		HashedWheelTimer.Timeout t=deadline;
+		if(t != null) {
+			t.cancel();
+			deadline=null;
+		}
+	}
+
 	public final String getCancelCause() {
 		return cancelCause;
 	}
@@ -133,10 +216,47 @@ public abstract class BaseOperationImpl extends SpyObject {
 	 */
 	protected final void setBuffer(ByteBuffer to) {
 		assert to != null : "Trying to set buffer to null";
+		if(cmd != to) {
+			releaseBuffer();
+		}
 		cmd=to;
+		cmdStart=cmd.position();
 		cmd.mark();
 	}
 
+	/**
+	 * Get the buffer pool of the handling node, or null if there is none.
+	 */
+	protected final ByteBufferPool getBufferPool() {
+		MemcachedNode node=handlingNode;
+		return node == null ? null : node.getBufferPool();
+	}
+
+	/**
+	 * Allocate a write buffer for this operation, from the buffer pool if
+	 * there is one.  The buffer is returned to the pool once it has been
+	 * written.
+	 */
+	protected final ByteBuffer allocateBuffer(int size) {
+		return ByteBufferPool.allocate(getBufferPool(), size);
+	}
+
+	/**
+	 * Drop the write buffer of an operation that will not be written,
+	 * returning it to the buffer pool.
+	 */
+	public final void discardBuffer() {
+		releaseBuffer();
+		cmd=null;
+	}
+
+	private void releaseBuffer() {
+		ByteBufferPool pool=getBufferPool();
+		if(cmd != null && pool != null) {
+			pool.release(cmd);
+		}
+	}
+
 	/**
 	 * Transition the state of this operation to the given state.
 	 */
@@ -145,8 +265,13 @@ public abstract class BaseOperationImpl extends SpyObject {
 		state=newState;
 		// Discard our buffer when we no longer need it.
 		if(state != OperationState.WRITING) {
+			releaseBuffer();
 			cmd=null;
 		}
+		if(state == OperationState.COMPLETE
+				|| state == OperationState.TIMEDOUT) {
+			releasePermit();
+		}
 		if(state == OperationState.COMPLETE) {
 		/* ENABLE_REPLICATION if */
 			if (moved)
@@ -161,9 +286,15 @@ public abstract class BaseOperationImpl extends SpyObject {
 	}
 
 	public final void writeComplete() {
+		cancelDeadline();
+		writeCompleteTimestamp = System.nanoTime();
 		transitionState(OperationState.READING);
 	}
 
+	public final long getWriteCompleteTimestamp() {
+		return writeCompleteTimestamp;
+	}
+
 	public abstract void initialize();
 
 	public abstract void readFromBuffer(ByteBuffer data) throws IOException;
@@ -34,6 +34,7 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import net.spy.memcached.ArcusReplNodeAddress;
+import net.spy.memcached.ByteBufferPool;
 import net.spy.memcached.CacheManager;
 import net.spy.memcached.MemcachedNode;
 import net.spy.memcached.MemcachedReplicaGroup;
@@ -51,6 +52,12 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 	private final SocketAddress socketAddress;
 	private final ByteBuffer rbuf;
 	private final ByteBuffer wbuf;
+	private final ByteBufferPool bufferPool;
+	// The write buffer followed by the buffer of an operation that is
+	// written in place by a gathering write.  See fillWriteBuffer.
+	private final ByteBuffer[] gatherBufs;
+	private Operation gatherOp=null;
+	private boolean gatherOptimize=false;
 	protected final BlockingQueue<Operation> writeQ;
 	private final BlockingQueue<Operation> readQ;
 	private final BlockingQueue<Operation> inputQueue;
@@ -62,8 +69,8 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 	private int toWrite=0;
 	protected Operation optimizedOp=null;
 	private volatile SelectionKey sk=null;
-	private boolean shouldAuth=false;
-	private CountDownLatch authLatch;
+	private final boolean shouldAuth;
+	private volatile CountDownLatch authLatch;
 	private ArrayList<Operation> reconnectBlocked;
 	private String version=null;
 	private boolean enabledMGetOp=false;
@@ -78,6 +85,11 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 	private int toRatioNow;         /* current timeout ratio */
 	private Lock toRatioLock = new ReentrantLock();
 
+	// peak EWMA of the response time, see addResponseTime
+	private static final double RESPONSE_TIME_DECAY = TimeUnit.SECONDS.toNanos(1);
+	private volatile long responseTime = 0;
+	private volatile long responseTimeStamp = System.nanoTime();
+
 	/* # of operations added into inputQueue as a hint.
 	 * If we need a correct count, AtomicLong object must be used.
 	 */
@@ -130,6 +142,14 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 			int bufSize, BlockingQueue<Operation> rq,
 			BlockingQueue<Operation> wq, BlockingQueue<Operation> iq,
 			long opQueueMaxBlockTime, boolean waitForAuth) {
+		this(sa, c, bufSize, rq, wq, iq, opQueueMaxBlockTime, waitForAuth, null);
+	}
+
+	public TCPMemcachedNodeImpl(SocketAddress sa, SocketChannel c,
+			int bufSize, BlockingQueue<Operation> rq,
+			BlockingQueue<Operation> wq, BlockingQueue<Operation> iq,
+			long opQueueMaxBlockTime, boolean waitForAuth,
+			ByteBufferPool pool) {
 		super();
 		assert sa != null : "No SocketAddress";
 		assert c != null : "No SocketChannel";
@@ -149,9 +169,18 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 		*/
 		/* ENABLE_REPLICATION end */
 		setChannel(c);
-		rbuf=ByteBuffer.allocate(bufSize);
-		wbuf=ByteBuffer.allocate(bufSize);
+		// Node buffers live as long as the node, so they are not taken
+		// from the pool, but are direct like the pooled buffers.
+		bufferPool=pool;
+		if(pool == null) {
+			rbuf=ByteBuffer.allocate(bufSize);
+			wbuf=ByteBuffer.allocate(bufSize);
+		} else {
+			rbuf=ByteBuffer.allocateDirect(bufSize);
+			wbuf=ByteBuffer.allocateDirect(bufSize);
+		}
 		getWbuf().clear();
+		gatherBufs=new ByteBuffer[] { wbuf, null };
 		readQ=rq;
 		writeQ=wq;
 		inputQueue=iq;
@@ -172,12 +201,8 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 	 * @see net.spy.memcached.MemcachedNode#copyInputQueue()
 	 */
 	public final void copyInputQueue() {
-		Collection<Operation> tmp=new ArrayList<Operation>();
-
 		// don't drain more than we have space to place
-		inputQueue.drainTo(tmp, writeQ.remainingCapacity());
-
-		writeQ.addAll(tmp);
+		inputQueue.drainTo(writeQ, writeQ.remainingCapacity());
 	}
 
 	/* (non-Javadoc)
@@ -217,6 +242,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 		Operation op=getCurrentWriteOp();
 		if((cancelWrite || shouldAuth) && op != null) {
 		    op.cancel(cause);
+		    op.discardBuffer();
 		} else if(op != null) {
 			ByteBuffer buf=op.getBuffer();
 			if(buf != null) {
@@ -240,12 +266,15 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 			op=removeCurrentWriteOp();
 			getLogger().warn("Discarding partially completed op: %s", op);
 			op.cancel(cause);
+			op.discardBuffer();
 		}
 
 
 		getWbuf().clear();
 		getRbuf().clear();
 		toWrite=0;
+		gatherOp=null;
+		gatherBufs[1]=null;
 	}
 
 	// Prepare the pending operations.  Return true if there are any pending
@@ -257,8 +286,8 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 		// Now check the ops
 		Operation nextOp=getCurrentWriteOp();
 		while(nextOp != null && nextOp.isCancelled()) {
-			getLogger().info("Removing cancelled operation: %s", nextOp);
-			removeCurrentWriteOp();
+			getLogger().debug("Removing cancelled operation: %s", nextOp);
+			removeCurrentWriteOp().discardBuffer();
 			nextOp=getCurrentWriteOp();
 		}
 		return nextOp != null;
@@ -270,43 +299,49 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 	public final void fillWriteBuffer(boolean shouldOptimize) {
 		if(toWrite == 0 && readQ.remainingCapacity() > 0) {
 			getWbuf().clear();
+			// skip the operations cancelled or timed out while queued
+			preparePending();
 			Operation o=getCurrentWriteOp();
+			Operation first=o;
 			while(o != null && toWrite < getWbuf().capacity()) {
 				assert o.getState() == OperationState.WRITING;
-				// This isn't the most optimal way to do this, but it hints
-				// at a larger design problem that may need to be taken care
-				// if in the bowels of the client.
-				// In practice, readQ should be small, however.
-				if(!readQ.contains(o)) {
+				// Only the first op can already be in readQ, when a previous
+				// fill has written part of it.
+				if(o != first || !readQ.contains(o)) {
 					readQ.add(o);
 				}
 
 				ByteBuffer obuf=o.getBuffer();
 				assert obuf != null : "Didn't get a write buffer from " + o;
-				int bytesToCopy=Math.min(getWbuf().remaining(),
-						obuf.remaining());
-				byte b[]=new byte[bytesToCopy];
-				obuf.get(b);
-				getWbuf().put(b);
+				int bytesToWrite=obuf.remaining();
+				if(bytesToWrite > getWbuf().remaining()) {
+					// Large buffers are not copied.  writeSome sends them
+					// right after the write buffer with a gathering write,
+					// and completes the op once it is fully written.
+					gatherOp=o;
+					gatherOptimize=shouldOptimize;
+					gatherBufs[1]=obuf;
+					toWrite += bytesToWrite;
+					getLogger().debug("Gathering %d bytes from %s", bytesToWrite, o);
+					break;
+				}
+				getWbuf().put(obuf);
 				getLogger().debug("After copying stuff from %s: %s",
 						o, getWbuf());
-				if(!o.getBuffer().hasRemaining()) {
-					o.writeComplete();
-					transitionWriteItem();
+				o.writeComplete();
+				transitionWriteItem();
 
-					preparePending();
-					if(shouldOptimize) {
-						optimize();
-					}
-
-					o=getCurrentWriteOp();
+				preparePending();
+				if(shouldOptimize) {
+					optimize();
 				}
-				toWrite += bytesToCopy;
+
+				o=getCurrentWriteOp();
+				toWrite += bytesToWrite;
 			}
 			getWbuf().flip();
-			assert toWrite <= getWbuf().capacity()
-				: "toWrite exceeded capacity: " + this;
 			assert toWrite == getWbuf().remaining()
+				+ (gatherOp == null ? 0 : gatherBufs[1].remaining())
 				: "Expected " + toWrite + " remaining, got "
 				+ getWbuf().remaining();
 		} else {
@@ -381,8 +416,9 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 	 */
 	public final void addOp(Operation op) {
 		try {
-			if (!authLatch.await(1, TimeUnit.SECONDS)) {
+			if (shouldAuth && !authLatch.await(1, TimeUnit.SECONDS)) {
 			    op.cancel("authentication timeout");
+			    op.discardBuffer();
 				getLogger().warn(
 					"Operation canceled because authentication " +
 					"or reconnection and authentication has " +
@@ -392,6 +428,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 			}
 			if(!inputQueue.offer(op, opQueueMaxBlockTime,
 					TimeUnit.MILLISECONDS)) {
+				op.discardBuffer();
 				throw new IllegalStateException("Timed out waiting to add "
 						+ op + "(max wait=" + opQueueMaxBlockTime + "ms)");
 			}
@@ -399,6 +436,7 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 		} catch(InterruptedException e) {
 			// Restore the interrupted status
 			Thread.currentThread().interrupt();
+			op.discardBuffer();
 			throw new IllegalStateException("Interrupted while waiting to add "
 					+ op);
 		}
@@ -441,6 +479,13 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 		return rbuf;
 	}
 
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.MemcachedNode#getBufferPool()
+	 */
+	public final ByteBufferPool getBufferPool() {
+		return bufferPool;
+	}
+
 	/* (non-Javadoc)
 	 * @see net.spy.memcached.MemcachedNode#getWbuf()
 	 */
@@ -586,17 +631,43 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 		return toWrite;
 	}
 
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.MemcachedNode#isWriting(java.nio.ByteBuffer)
+	 */
+	public final boolean isWriting(ByteBuffer buf) {
+		return gatherOp != null && gatherBufs[1] == buf;
+	}
+
 	/* (non-Javadoc)
 	 * @see net.spy.memcached.MemcachedNode#writeSome()
 	 */
 	public final int writeSome() throws IOException {
-		int wrote=channel.write(wbuf);
+		int wrote;
+		if(gatherOp == null) {
+			wrote=channel.write(wbuf);
+		} else {
+			wrote=(int)channel.write(gatherBufs);
+		}
 		assert wrote >= 0 : "Wrote negative bytes?";
 		toWrite -= wrote;
 		assert toWrite >= 0
 			: "toWrite went negative after writing " + wrote
 				+ " bytes for " + this;
 		getLogger().debug("Wrote %d bytes", wrote);
+		if(gatherOp != null && !gatherBufs[1].hasRemaining()) {
+			Operation o=gatherOp;
+			gatherOp=null;
+			gatherBufs[1]=null;
+			assert o == getCurrentWriteOp()
+				: "Expected " + o + " to be the current write op";
+			o.writeComplete();
+			transitionWriteItem();
+
+			preparePending();
+			if(gatherOptimize) {
+				optimize();
+			}
+		}
 		return wrote;
 	}
 
@@ -672,7 +743,8 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 				inputQueue.size() + 1);
 				inputQueue.drainTo(reconnectBlocked);
 			}
-			assert(inputQueue.size() == 0);
+			// No emptiness check: with the lock-free input queue, a
+			// producer that is still linking its op counts toward size().
 			setupResend(false, cause);
 		} else {
 			authLatch = new CountDownLatch(0);
@@ -704,6 +776,52 @@ public abstract class TCPMemcachedNodeImpl extends SpyObject
 		return readQ.size();
 	}
 
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.MemcachedNode#addResponseTime(long)
+	 */
+	public void addResponseTime(long nanos) {
+		// A slower response replaces the average right away, faster ones
+		// pull it down over about RESPONSE_TIME_DECAY, however many there
+		// are.  Only the IO thread of this node writes these fields.
+		long now = System.nanoTime();
+		long prev = responseTime;
+		if (nanos >= prev) {
+			responseTime = nanos;
+		} else {
+			double w = Math.exp(-(now - responseTimeStamp) / RESPONSE_TIME_DECAY);
+			responseTime = (long) (prev * w + nanos * (1 - w));
+		}
+		responseTimeStamp = now;
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.MemcachedNode#getExpectedResponseTime()
+	 */
+	public long getExpectedResponseTime() {
+		long now = System.nanoTime();
+		// decay while there are no responses, so that an unused node
+		// gets tried again
+		double rt = responseTime * Math.exp(
+				-(now - responseTimeStamp) / RESPONSE_TIME_DECAY);
+		// a node that stopped answering is at least as slow as its
+		// oldest outstanding operation
+		Operation oldest = readQ.peek();
+		if (oldest != null) {
+			long written = oldest.getWriteCompleteTimestamp();
+			if (written != 0 && now - written > rt) {
+				rt = now - written;
+			}
+		}
+		return (long) (rt + 1) * (getOutstandingCount() + 1);
+	}
+
+	/* (non-Javadoc)
+	 * @see net.spy.memcached.MemcachedNode#getOutstandingCount()
+	 */
+	public int getOutstandingCount() {
+		return inputQueue.size() + writeQ.size() + readQ.size();
+	}
+
 	@Override
 	public String getStatus() {
 		StringBuilder sb = new StringBuilder();
@@ -4,6 +4,7 @@ import java.net.SocketAddress;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.BlockingQueue;
 
+import net.spy.memcached.ByteBufferPool;
 import net.spy.memcached.ops.GetOperation;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationState;
@@ -21,6 +22,13 @@ public final class AsciiMemcachedNodeImpl extends TCPMemcachedNodeImpl {
 		super(sa, c, bufSize, rq, wq, iq, opQueueMaxBlockTimeNs, false); /* ascii never does auth */
 	}
 
+	public AsciiMemcachedNodeImpl(SocketAddress sa, SocketChannel c,
+			int bufSize, BlockingQueue<Operation> rq,
+			BlockingQueue<Operation> wq, BlockingQueue<Operation> iq, Long opQueueMaxBlockTimeNs,
+			ByteBufferPool pool) {
+		super(sa, c, bufSize, rq, wq, iq, opQueueMaxBlockTimeNs, false, pool); /* ascii never does auth */
+	}
+
 	@Override
 	protected void optimize() {
 		// make sure there are at least two get operations in a row before
@@ -36,6 +44,8 @@ public final class AsciiMemcachedNodeImpl extends TCPMemcachedNodeImpl {
 					GetOperationImpl o=(GetOperationImpl) writeQ.remove();
 					if(!o.isCancelled()) {
 						og.addOperation(o);
+					} else {
+						o.discardBuffer();
 					}
 				}
 
@@ -23,6 +23,8 @@ import java.util.Map;
 
 import javax.security.auth.callback.CallbackHandler;
 
+import net.spy.memcached.CachedData;
+import net.spy.memcached.EncodedKey;
 import net.spy.memcached.collection.Attributes;
 import net.spy.memcached.collection.BTreeFindPosition;
 import net.spy.memcached.collection.BTreeFindPositionWithGet;
@@ -50,6 +52,7 @@ import net.spy.memcached.ops.BTreeSortMergeGetOperation;
 import net.spy.memcached.ops.BTreeSortMergeGetOperationOld;
 import net.spy.memcached.ops.BTreeStoreAndGetOperation;
 import net.spy.memcached.ops.BaseOperationFactory;
+import net.spy.memcached.ops.BulkStoreOperation;
 import net.spy.memcached.ops.CASOperation;
 import net.spy.memcached.ops.CollectionBulkStoreOperation;
 import net.spy.memcached.ops.CollectionCountOperation;
@@ -96,6 +99,11 @@ public class AsciiOperationFactory extends BaseOperationFactory {
 		return new DeleteOperationImpl(key, cb);
 	}
 
+	@Override
+	public DeleteOperation delete(EncodedKey key, OperationCallback cb) {
+		return new DeleteOperationImpl(key, cb);
+	}
+
 	public FlushOperation flush(int delay, OperationCallback cb) {
 		return new FlushOperationImpl(delay, cb);
 	}
@@ -104,6 +112,11 @@ public class AsciiOperationFactory extends BaseOperationFactory {
 		return new GetOperationImpl(key, cb);
 	}
 
+	@Override
+	public GetOperation get(EncodedKey key, GetOperation.Callback cb) {
+		return new GetOperationImpl(key, cb);
+	}
+
 	public GetOperation get(Collection<String> keys, GetOperation.Callback cb) {
 		return new GetOperationImpl(keys, cb);
 	}
@@ -112,6 +125,11 @@ public class AsciiOperationFactory extends BaseOperationFactory {
 		 return new GetsOperationImpl(key, cb);
 	}
 
+	@Override
+	public GetsOperation gets(EncodedKey key, GetsOperation.Callback cb) {
+		return new GetsOperationImpl(key, cb);
+	}
+
 	public GetOperation mget(Collection<String> keys, GetOperation.Callback cb) {
 		return new MGetOperationImpl(keys, cb);
 	}
@@ -130,6 +148,18 @@ public class AsciiOperationFactory extends BaseOperationFactory {
 		return new StoreOperationImpl(storeType, key, flags, exp, data, cb);
 	}
 
+	@Override
+	public StoreOperation store(StoreType storeType, EncodedKey key,
+			int flags, int exp, byte[] data, OperationCallback cb) {
+		return new StoreOperationImpl(storeType, key, flags, exp, data, cb);
+	}
+
+	public BulkStoreOperation bulkStore(StoreType storeType,
+			List<String> keyList, int exp, List<CachedData> data,
+			OperationCallback cb) {
+		return new BulkStoreOperationImpl(storeType, keyList, exp, data, cb);
+	}
+
 	public VersionOperation version(OperationCallback cb) {
 		return new VersionOperationImpl(cb);
 	}
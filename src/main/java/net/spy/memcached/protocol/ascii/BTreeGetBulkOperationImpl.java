@@ -16,7 +16,6 @@
  */
 package net.spy.memcached.protocol.ascii;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 
@@ -30,6 +29,7 @@ import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.util.LineTokenizer;
 
 /**
  * Operation to retrieve b+tree data with multiple keys
@@ -37,7 +37,11 @@ import net.spy.memcached.ops.OperationType;
 public class BTreeGetBulkOperationImpl extends OperationImpl implements
 		BTreeGetBulkOperation {
 
-	private final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
+	private static final byte[] VALUE = "VALUE ".getBytes();
+	private static final byte[] ELEMENT = "ELEMENT".getBytes();
+	private static final byte[] HEX_PREFIX = "0x".getBytes();
+
+	private final LineTokenizer header = new LineTokenizer();
 
 	private static final OperationStatus GET_CANCELED = new CollectionOperationStatus(
 			false, "collection canceled", CollectionResponse.CANCELED);
@@ -79,9 +83,14 @@ public class BTreeGetBulkOperationImpl extends OperationImpl implements
 	}
 
 	public void handleLine(String line) {
+		handleLine(new LineTokenizer(line));
+	}
+
+	@Override
+	public void handleLine(LineTokenizer line) {
 		getLogger().debug("Got line %s", line);
 
-		if (line.startsWith("VALUE ")) {
+		if (line.startsWith(VALUE)) {
 			readKey(line);
 			setReadType(OperationReadType.DATA);
 		} else {
@@ -100,18 +109,16 @@ public class BTreeGetBulkOperationImpl extends OperationImpl implements
 		readValue(bb);
 	}
 
-	private final void readKey(String line) {
+	private final void readKey(LineTokenizer line) {
 		// protocol : VALUE key OK flag count
-		String[] chunk = line.split(" ");
-
-		OperationStatus status = matchStatus(chunk[2], OK, TRIMMED, NOT_FOUND,
+		OperationStatus status = matchStatus(line, 2, OK, TRIMMED, NOT_FOUND,
 				NOT_FOUND_ELEMENT, OUT_OF_RANGE, TYPE_MISMATCH, BKEY_MISMATCH,
 				UNREADABLE);
 
 		getBulk.decodeKeyHeader(line);
 
 		BTreeGetBulkOperation.Callback<?> cb = ((BTreeGetBulkOperation.Callback<?>) getCallback());
-		cb.gotKey(chunk[1], (chunk.length > 3) ? Integer.valueOf(chunk[4]) : -1, status);
+		cb.gotKey(line.getString(1), (line.countTokens() > 3) ? line.getInt(4) : -1, status);
 	}
 
 	private final void readValue(ByteBuffer bb) {
@@ -124,18 +131,16 @@ public class BTreeGetBulkOperationImpl extends OperationImpl implements
 				if (b == ' ') {
 					spaceCount++;
 
-					String l = new String(byteBuffer.toByteArray());
-
-					if (l.startsWith("ELEMENT")) {
+					if (header.startsWith(ELEMENT)) {
 						if (getBulk.elementHeaderReady(spaceCount)) {
-							if (spaceCount == 3 && l.split(" ")[2].startsWith("0x")) {
-								byteBuffer.write(b);
+							if (spaceCount == 3 && header.tokenStartsWith(2, HEX_PREFIX)) {
+								header.append(b);
 								continue;
 							}
 
-							getBulk.decodeItemHeader(l);
+							getBulk.decodeItemHeader(header);
 							data = new byte[getBulk.getDataLength()];
-							byteBuffer.reset();
+							header.clear();
 							spaceCount = 0;
 							break;
 						}
@@ -149,22 +154,20 @@ public class BTreeGetBulkOperationImpl extends OperationImpl implements
 
 				// Finish the operation.
 				if (b == '\n') {
-					String line = byteBuffer.toString();
-
-					if (line.startsWith("VALUE")) {
-						readKey(line);
-						byteBuffer.reset();
+					if (header.startsWith(VALUE)) {
+						readKey(header);
+						header.clear();
 						spaceCount = 0;
 						continue;
 					} else {
-						OperationStatus status = matchStatus(line, END);
+						OperationStatus status = matchStatus(header, END);
 						getCallback().receivedStatus(status);
 						transitionState(OperationState.COMPLETE);
 						data = null;
 						break;
 					}
 				}
-				byteBuffer.write(b);
+				header.append(b);
 			}
 			return;
 		}
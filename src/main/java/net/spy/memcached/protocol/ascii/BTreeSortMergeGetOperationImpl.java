@@ -16,7 +16,6 @@
  */
 package net.spy.memcached.protocol.ascii;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 
@@ -33,6 +32,7 @@ import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
 import net.spy.memcached.util.BTreeUtil;
+import net.spy.memcached.util.LineTokenizer;
 
 /**
  * Operation to retrieve b+tree data with multiple keys
@@ -40,7 +40,13 @@ import net.spy.memcached.util.BTreeUtil;
 public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 		BTreeSortMergeGetOperation {
 
-	private final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
+	private static final byte[] VALUE = "VALUE ".getBytes();
+	private static final byte[] ELEMENTS = "ELEMENTS ".getBytes();
+	private static final byte[] MISSED_KEYS = "MISSED_KEYS".getBytes();
+	private static final byte[] TRIMMED_KEYS = "TRIMMED_KEYS".getBytes();
+	private static final byte[] HEX_PREFIX = "0x".getBytes();
+
+	private final LineTokenizer header = new LineTokenizer();
 
 	private static final OperationStatus GET_CANCELED = new CollectionOperationStatus(
 			false, "collection canceled", CollectionResponse.CANCELED);
@@ -86,44 +92,46 @@ public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 		setOperationType(OperationType.READ);
 	}
 
+	public void handleLine(String line) {
+		handleLine(new LineTokenizer(line));
+	}
+
 	/**
 	 * VALUE <flag> <count>\r\n
 	 */
-	public void handleLine(String line) {
+	@Override
+	public void handleLine(LineTokenizer line) {
 		// Response header
 		getLogger().debug("Got line %s", line);
 
-		if (line.startsWith("VALUE ") ||
-			line.startsWith("ELEMENTS ")) {
+		if (line.startsWith(VALUE) ||
+			line.startsWith(ELEMENTS)) {
 			readState = ReadState.VALUE;
 
-			String[] stuff = line.split(" ");
-			assert "VALUE".equals(stuff[0]) ||
-				   "ELEMENTS".equals(stuff[0]);
+			assert line.tokenMatches(0, "VALUE") ||
+				   line.tokenMatches(0, "ELEMENTS");
 
-			lineCount = Integer.parseInt(stuff[1]);
+			lineCount = line.getInt(1);
 
 			if (lineCount > 0) {
 				setReadType(OperationReadType.DATA);
 			}
-		} else if (line.startsWith("MISSED_KEYS")) {
+		} else if (line.startsWith(MISSED_KEYS)) {
 			readState = ReadState.MISSED_KEYS;
 
-			String[] stuff = line.split(" ");
-			assert "MISSED_KEYS".equals(stuff[0]);
+			assert line.tokenMatches(0, "MISSED_KEYS");
 
-			lineCount = Integer.parseInt(stuff[1]);
+			lineCount = line.getInt(1);
 
 			if (lineCount > 0) {
 				setReadType(OperationReadType.DATA);
 			}
-		} else if (line.startsWith("TRIMMED_KEYS")) {
+		} else if (line.startsWith(TRIMMED_KEYS)) {
 			readState = ReadState.TRIMMED_KEYS;
 
-			String[] stuff = line.split(" ");
-			assert "TRIMMED_KEYS".equals(stuff[0]);
+			assert line.tokenMatches(0, "TRIMMED_KEYS");
 
-			lineCount = Integer.parseInt(stuff[1]);
+			lineCount = line.getInt(1);
 
 			if (lineCount > 0) {
 				setReadType(OperationReadType.DATA);
@@ -165,20 +173,17 @@ public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 				if (b == ' ') {
 
 					// Adjust space count if item header has a element flag.
-					String[] chunk = new String(byteBuffer.toByteArray())
-							.split(" ");
-					if (chunk.length == smGet.headerCount) {
-						if (chunk[3].startsWith("0x")) {
+					if (header.countTokens() == smGet.headerCount) {
+						if (header.tokenStartsWith(3, HEX_PREFIX)) {
 							spaceCount--;
 						}
 					}
 
 					spaceCount++;
 					if (smGet.headerReady(spaceCount)) {
-						smGet.decodeItemHeader(new String(byteBuffer
-								.toByteArray()));
+						smGet.decodeItemHeader(header);
 						data = new byte[smGet.getDataLength()];
-						byteBuffer.reset();
+						header.clear();
 						spaceCount = 0;
 						processedValueCount++;
 						break;
@@ -192,19 +197,16 @@ public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 
 				// Finish the operation.
 				if (b == '\n') {
-					String sep = new String(byteBuffer.toByteArray());
-					if (sep.startsWith("MISSED_KEYS")) {
+					if (header.startsWith(MISSED_KEYS)) {
 						readState = ReadState.MISSED_KEYS;
-						byteBuffer.reset();
+						lineCount = header.getInt(1);
+						header.clear();
 						spaceCount = 0;
 
-						String[] stuff = sep.split(" ");
-						lineCount = Integer.parseInt(stuff[1]);
-
 						return;
 					}
 
-					OperationStatus status = matchStatus(byteBuffer.toString(),
+					OperationStatus status = matchStatus(header,
 							END, TRIMMED, DUPLICATED, DUPLICATED_TRIMMED,
 							OUT_OF_RANGE, ATTR_MISMATCH, TYPE_MISMATCH,
 							BKEY_MISMATCH);
@@ -215,7 +217,7 @@ public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 					break;
 				}
 
-				byteBuffer.write(b);
+				header.append(b);
 			}
 			return;
 		}
@@ -287,19 +289,16 @@ public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 
 				// Finish the operation.
 				if (b == '\n') {
-					String sep = new String(byteBuffer.toByteArray());
-					if (sep.startsWith("TRIMMED_KEYS")) {
+					if (header.startsWith(TRIMMED_KEYS)) {
 						readState = ReadState.TRIMMED_KEYS;
-						byteBuffer.reset();
+						lineCount = header.getInt(1);
+						header.clear();
 						spaceCount = 0;
 
-						String[] stuff = sep.split(" ");
-						lineCount = Integer.parseInt(stuff[1]);
-
 						return;
 					}
 
-					OperationStatus status = matchStatus(byteBuffer.toString(),
+					OperationStatus status = matchStatus(header,
 							END, TRIMMED, DUPLICATED, DUPLICATED_TRIMMED,
 							OUT_OF_RANGE, ATTR_MISMATCH, TYPE_MISMATCH,
 							BKEY_MISMATCH);
@@ -309,14 +308,13 @@ public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 						transitionState(OperationState.COMPLETE);
 						return;
 					} else if (count < lineCount) {
-						String chunk[] = new String(byteBuffer.toByteArray()).split(" ");
-						if (chunk.length == 2) {
+						if (header.countTokens() == 2) {
 							((BTreeSortMergeGetOperation.Callback) getCallback())
-								.gotMissedKey(chunk[0], matchStatus(chunk[1],
+								.gotMissedKey(header.getString(0), matchStatus(header, 1,
 										NOT_FOUND, UNREADABLE, OUT_OF_RANGE));
 						} else {
 							((BTreeSortMergeGetOperation.Callback) getCallback())
-								.gotMissedKey(chunk[0], new CollectionOperationStatus(false,
+								.gotMissedKey(header.getString(0), new CollectionOperationStatus(false,
 															"UNDEFINED", CollectionResponse.UNDEFINED));
 						}
 						count++;
@@ -326,9 +324,9 @@ public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 						transitionState(OperationState.COMPLETE);
 						return;
 					}
-					byteBuffer.reset();
+					header.clear();
 				} else
-					byteBuffer.write(b);
+					header.append(b);
 			}
 			return;
 		}
@@ -347,7 +345,7 @@ public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 
 				// Finish the operation.
 				if (b == '\n') {
-					OperationStatus status = matchStatus(byteBuffer.toString(),
+					OperationStatus status = matchStatus(header,
 							END, DUPLICATED, OUT_OF_RANGE, ATTR_MISMATCH,
 							TYPE_MISMATCH, BKEY_MISMATCH);
 
@@ -356,15 +354,13 @@ public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 						transitionState(OperationState.COMPLETE);
 						return;
 					} else if (count < lineCount){
-						String[] chunk = new String(byteBuffer.toByteArray())
-								.split(" ");
 						if (smGet instanceof BTreeSMGetWithLongTypeBkey)
 							((BTreeSortMergeGetOperation.Callback) getCallback())
-								.gotTrimmedKey(chunk[0], Long.parseLong(chunk[1]));
+								.gotTrimmedKey(header.getString(0), header.getLong(1));
 						else if (smGet instanceof BTreeSMGetWithByteTypeBkey)
 							((BTreeSortMergeGetOperation.Callback) getCallback())
-								.gotTrimmedKey(chunk[0],
-											BTreeUtil.hexStringToByteArrays(chunk[1].substring(2)));
+								.gotTrimmedKey(header.getString(0),
+											BTreeUtil.hexStringToByteArrays(header.getString(1, 2)));
 						count++;
 					} else {
 						/* unexpected response */
@@ -372,9 +368,9 @@ public class BTreeSortMergeGetOperationImpl extends OperationImpl implements
 						transitionState(OperationState.COMPLETE);
 						return;
 					}
-					byteBuffer.reset();
+					header.clear();
 				} else
-					byteBuffer.write(b);
+					header.append(b);
 			}
 			return;
 		}
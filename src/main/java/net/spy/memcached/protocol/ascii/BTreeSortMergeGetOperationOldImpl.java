@@ -16,7 +16,6 @@
  */
 package net.spy.memcached.protocol.ascii;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 
@@ -30,6 +29,7 @@ import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.util.LineTokenizer;
 
 /**
  * Operation to retrieve b+tree data with multiple keys
@@ -37,7 +37,11 @@ import net.spy.memcached.ops.OperationType;
 public class BTreeSortMergeGetOperationOldImpl extends OperationImpl implements
 		BTreeSortMergeGetOperationOld {
 
-	private final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
+	private static final byte[] VALUE = "VALUE ".getBytes();
+	private static final byte[] MISSED_KEYS = "MISSED_KEYS".getBytes();
+	private static final byte[] HEX_PREFIX = "0x".getBytes();
+
+	private final LineTokenizer header = new LineTokenizer();
 
 	private static final OperationStatus GET_CANCELED = new CollectionOperationStatus(
 			false, "collection canceled", CollectionResponse.CANCELED);
@@ -79,31 +83,34 @@ public class BTreeSortMergeGetOperationOldImpl extends OperationImpl implements
 		setOperationType(OperationType.READ);
 	}
 
+	public void handleLine(String line) {
+		handleLine(new LineTokenizer(line));
+	}
+
 	/**
 	 * VALUE <flag> <count>\r\n
 	 */
-	public void handleLine(String line) {
+	@Override
+	public void handleLine(LineTokenizer line) {
 		// Response header
 		getLogger().debug("Got line %s", line);
 
-		if (line.startsWith("VALUE ")) {
+		if (line.startsWith(VALUE)) {
 			readState = 0;
 
-			String[] stuff = line.split(" ");
-			assert "VALUE".equals(stuff[0]);
+			assert line.tokenMatches(0, "VALUE");
 
-			count = Integer.parseInt(stuff[1]);
+			count = line.getInt(1);
 
 			if (count > 0) {
 				setReadType(OperationReadType.DATA);
 			}
-		} else if (line.startsWith("MISSED_KEYS")) {
+		} else if (line.startsWith(MISSED_KEYS)) {
 			readState = 1;
 
-			String[] stuff = line.split(" ");
-			assert "MISSED_KEYS".equals(stuff[0]);
+			assert line.tokenMatches(0, "MISSED_KEYS");
 
-			count = Integer.parseInt(stuff[1]);
+			count = line.getInt(1);
 
 			if (count > 0) {
 				setReadType(OperationReadType.DATA);
@@ -138,20 +145,17 @@ public class BTreeSortMergeGetOperationOldImpl extends OperationImpl implements
 				if (b == ' ') {
 
 					// Adjust space count if item header has a element flag.
-					String[] chunk = new String(byteBuffer.toByteArray())
-							.split(" ");
-					if (chunk.length == smGet.headerCount) {
-						if (chunk[3].startsWith("0x")) {
+					if (header.countTokens() == smGet.headerCount) {
+						if (header.tokenStartsWith(3, HEX_PREFIX)) {
 							spaceCount--;
 						}
 					}
 
 					spaceCount++;
 					if (smGet.headerReady(spaceCount)) {
-						smGet.decodeItemHeader(new String(byteBuffer
-								.toByteArray()));
+						smGet.decodeItemHeader(header);
 						data = new byte[smGet.getDataLength()];
-						byteBuffer.reset();
+						header.clear();
 						spaceCount = 0;
 						processedValueCount++;
 						break;
@@ -166,15 +170,14 @@ public class BTreeSortMergeGetOperationOldImpl extends OperationImpl implements
 				// Finish the operation.
 				if (b == '\n') {
 
-					if ((new String(byteBuffer.toByteArray()))
-							.startsWith("MISSED_KEYS")) {
+					if (header.startsWith(MISSED_KEYS)) {
 						readState = 1;
-						byteBuffer.reset();
+						header.clear();
 						spaceCount = 0;
 						return;
 					}
 
-					OperationStatus status = matchStatus(byteBuffer.toString(),
+					OperationStatus status = matchStatus(header,
 							END, TRIMMED, DUPLICATED, DUPLICATED_TRIMMED,
 							OUT_OF_RANGE, ATTR_MISMATCH, TYPE_MISMATCH,
 							BKEY_MISMATCH);
@@ -185,7 +188,7 @@ public class BTreeSortMergeGetOperationOldImpl extends OperationImpl implements
 					break;
 				}
 
-				byteBuffer.write(b);
+				header.append(b);
 			}
 			return;
 		}
@@ -256,7 +259,7 @@ public class BTreeSortMergeGetOperationOldImpl extends OperationImpl implements
 
 				// Finish the operation.
 				if (b == '\n') {
-					OperationStatus status = matchStatus(byteBuffer.toString(),
+					OperationStatus status = matchStatus(header,
 							END, TRIMMED, DUPLICATED, DUPLICATED_TRIMMED,
 							OUT_OF_RANGE, ATTR_MISMATCH, TYPE_MISMATCH,
 							BKEY_MISMATCH);
@@ -267,11 +270,11 @@ public class BTreeSortMergeGetOperationOldImpl extends OperationImpl implements
 						return;
 					} else {
 						((BTreeSortMergeGetOperationOld.Callback) getCallback())
-								.gotMissedKey(byteBuffer.toByteArray());
+								.gotMissedKey(header.toByteArray());
 					}
-					byteBuffer.reset();
+					header.clear();
 				} else
-					byteBuffer.write(b);
+					header.append(b);
 			}
 			return;
 		}
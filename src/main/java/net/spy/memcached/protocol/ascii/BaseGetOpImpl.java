@@ -2,8 +2,10 @@ package net.spy.memcached.protocol.ascii;
 
 import java.nio.ByteBuffer;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 
+import net.spy.memcached.EncodedKey;
 import net.spy.memcached.KeyUtil;
 import net.spy.memcached.ops.GetOperation;
 import net.spy.memcached.ops.GetsOperation;
@@ -11,6 +13,7 @@ import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.util.LineTokenizer;
 
 /**
  * Base class for get and gets handlers.
@@ -18,9 +21,12 @@ import net.spy.memcached.ops.OperationType;
 abstract class BaseGetOpImpl extends OperationImpl {
 
 	private static final OperationStatus END = new OperationStatus(true, "END");
+	private static final byte[] END_BYTES = "END".getBytes();
+	private static final byte[] VALUE_BYTES = "VALUE ".getBytes();
 	private static final String RN_STRING = "\r\n";
 	private final String cmd;
 	private final Collection<String> keys;
+	private final byte[] keyBytes;
 	private String currentKey = null;
 	private long casValue=0;
 	private int currentFlags = 0;
@@ -33,6 +39,16 @@ abstract class BaseGetOpImpl extends OperationImpl {
 		super(cb);
 		cmd=c;
 		keys=k;
+		keyBytes=null;
+		setOperationType(OperationType.READ);
+	}
+
+	public BaseGetOpImpl(String c,
+			OperationCallback cb, EncodedKey k) {
+		super(cb);
+		cmd=c;
+		keys=Collections.singleton(k.toString());
+		keyBytes=k.getBytes();
 		setOperationType(OperationType.READ);
 	}
 
@@ -45,20 +61,23 @@ abstract class BaseGetOpImpl extends OperationImpl {
 
 	@Override
 	public final void handleLine(String line) {
-		if(line.equals("END")) {
+		handleLine(new LineTokenizer(line));
+	}
+
+	@Override
+	public final void handleLine(LineTokenizer line) {
+		if(line.matches(END_BYTES)) {
 			getLogger().debug("Get complete!");
 			getCallback().receivedStatus(END);
 			transitionState(OperationState.COMPLETE);
 			data=null;
-		} else if(line.startsWith("VALUE ")) {
+		} else if(line.startsWith(VALUE_BYTES)) {
 			getLogger().debug("Got line %s", line);
-			String[] stuff=line.split(" ");
-			assert stuff[0].equals("VALUE");
-			currentKey=stuff[1];
-			currentFlags=Integer.parseInt(stuff[2]);
-			data=new byte[Integer.parseInt(stuff[3])];
-			if(stuff.length > 4) {
-				casValue=Long.parseLong(stuff[4]);
+			currentKey=line.getString(1);
+			currentFlags=line.getInt(2);
+			data=new byte[line.getInt(3)];
+			if(line.countTokens() > 4) {
+				casValue=line.getLong(4);
 			}
 			readOffset=0;
 			getLogger().debug("Set read type to data");
@@ -130,6 +149,14 @@ abstract class BaseGetOpImpl extends OperationImpl {
 
 	@Override
 	public final void initialize() {
+		if(keyBytes != null) {
+			// "get <key>\r\n" from the bytes the key was encoded to
+			ByteBuffer b=allocateBuffer(cmd.length() + keyBytes.length + 3);
+			setArguments(b, cmd, keyBytes);
+			b.flip();
+			setBuffer(b);
+			return;
+		}
 		int size;
 		StringBuilder commandBuilder = new StringBuilder();
 		byte[] commandLine;
@@ -165,7 +192,7 @@ abstract class BaseGetOpImpl extends OperationImpl {
 		commandLine = commandBuilder.toString().getBytes();
 		size = commandLine.length;
 
-		b = ByteBuffer.allocate(size);
+		b = allocateBuffer(size);
 		b.put(commandLine);
 		b.flip();
 		setBuffer(b);
@@ -188,6 +215,13 @@ abstract class BaseGetOpImpl extends OperationImpl {
 		return keyString.toString();
 	}
 
+	/**
+	 * This get was folded into an optimized get and is not written itself.
+	 */
+	final void folded(OptimizedGetImpl og) {
+		foldInto(og);
+	}
+
 	@Override
 	protected final void wasCancelled() {
 		getCallback().receivedStatus(CANCELLED);
@@ -20,11 +20,12 @@ import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
 
-import net.spy.memcached.KeyUtil;
+import net.spy.memcached.EncodedKey;
 import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.util.LineTokenizer;
 
 /**
  * Base class for ascii store operations (add, set, replace, append, prepend).
@@ -36,15 +37,22 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
 		new OperationStatus(true, "STORED");
 	protected final String type;
 	protected final String key;
+	protected final byte[] keyBytes;
 	protected final int flags;
 	protected final int exp;
 	protected final byte[] data;
 
 	public BaseStoreOperationImpl(String t, String k, int f, int e,
 			byte[] d, OperationCallback cb) {
+		this(t, new EncodedKey(k), f, e, d, cb);
+	}
+
+	public BaseStoreOperationImpl(String t, EncodedKey k, int f, int e,
+			byte[] d, OperationCallback cb) {
 		super(cb);
 		type=t;
-		key=k;
+		key=k.toString();
+		keyBytes=k.getBytes();
 		flags=f;
 		exp=e;
 		data=d;
@@ -53,11 +61,16 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
 
 	@Override
 	public void handleLine(String line) {
+		handleLine(new LineTokenizer(line));
+	}
+
+	@Override
+	public void handleLine(LineTokenizer line) {
 		assert getState() == OperationState.READING
 			: "Read ``" + line + "'' when in " + getState() + " state";
 		/* ENABLE_REPLICATION if */
-		if (line.equals("SWITCHOVER") || line.equals("REPL_SLAVE")) {
-			receivedMoveOperations(line);
+		if (line.matches(SWITCHOVER) || line.matches(REPL_SLAVE)) {
+			receivedMoveOperations(line.toString());
 			return;
 		}
 
@@ -68,9 +81,9 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
 
 	@Override
 	public void initialize() {
-		ByteBuffer bb=ByteBuffer.allocate(data.length
-				+ KeyUtil.getKeyBytes(key).length + OVERHEAD);
-		setArguments(bb, type, key, flags, exp, data.length);
+		ByteBuffer bb=allocateBuffer(data.length
+				+ keyBytes.length + OVERHEAD);
+		setArguments(bb, type, keyBytes, flags, exp, data.length);
 		assert bb.remaining() >= data.length + 2
 			: "Not enough room in buffer, need another "
 				+ (2 + data.length - bb.remaining());
@@ -81,7 +94,7 @@ abstract class BaseStoreOperationImpl extends OperationImpl {
 		
 		if (getLogger().isDebugEnabled()) {
 			getLogger().debug("Request in ascii protocol: " 
-					+ (new String(bb.array())).replace("\r\n", "\\r\\n"));
+					+ toDebugString(bb).replace("\r\n", "\\r\\n"));
 		}
 	}
 
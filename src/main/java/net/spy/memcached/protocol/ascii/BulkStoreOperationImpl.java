@@ -0,0 +1,180 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+
+import net.spy.memcached.CachedData;
+import net.spy.memcached.KeyUtil;
+import net.spy.memcached.ops.APIType;
+import net.spy.memcached.ops.BulkStoreOperation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationErrorType;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.ops.StoreType;
+
+/**
+ * Operation to store many items in a memcached server.
+ *
+ * The store commands of all keys are written back to back and the server
+ * answers each of them with one line, so the operation completes after
+ * as many lines as commands were written.
+ */
+public class BulkStoreOperationImpl extends OperationImpl
+	implements BulkStoreOperation {
+
+	private static final int OVERHEAD = 32;
+
+	private static final OperationStatus STORED =
+		new OperationStatus(true, "STORED");
+	private static final OperationStatus END =
+		new OperationStatus(true, "END");
+	private static final OperationStatus FAILED_END =
+		new OperationStatus(false, "END");
+
+	private final StoreType storeType;
+	private final List<String> keyList;
+	private final int exp;
+	private final List<CachedData> data;
+	private final BulkStoreOperation.Callback cb;
+
+	private int index = 0;
+	private int nextOpIndex = 0;
+	private boolean successAll = true;
+	/* ENABLE_REPLICATION if */
+	private String moveCause;
+	/* ENABLE_REPLICATION end */
+
+	public BulkStoreOperationImpl(StoreType t, List<String> keyList, int exp,
+			List<CachedData> data, OperationCallback cb) {
+		super(cb);
+		assert keyList.size() == data.size()
+			: "Key and data count differ: " + keyList.size() + ", " + data.size();
+		this.storeType = t;
+		this.keyList = keyList;
+		this.exp = exp;
+		this.data = data;
+		this.cb = (BulkStoreOperation.Callback) cb;
+		if (t == StoreType.add)
+			setAPIType(APIType.ADD);
+		else if (t == StoreType.set)
+			setAPIType(APIType.SET);
+		else if (t == StoreType.replace)
+			setAPIType(APIType.REPLACE);
+		setOperationType(OperationType.WRITE);
+	}
+
+	@Override
+	public void handleLine(String line) {
+		assert getState() == OperationState.READING
+			: "Read ``" + line + "'' when in " + getState() + " state";
+		/* ENABLE_REPLICATION if */
+		if (line.equals("SWITCHOVER") || line.equals("REPL_SLAVE")) {
+			// the remaining commands are answered the same way,
+			// so read them all before moving the operation
+			if (moveCause == null) {
+				moveCause = line;
+				nextOpIndex = index;
+			}
+			if (++index == keyList.size()) {
+				receivedMoveOperations(moveCause);
+			}
+			return;
+		}
+
+		/* ENABLE_REPLICATION end */
+		OperationStatus status = matchStatus(line, STORED);
+		if (!status.isSuccess()) {
+			cb.gotStatus(index, status);
+			successAll = false;
+		}
+		if (++index == keyList.size()) {
+			cb.receivedStatus(successAll ? END : FAILED_END);
+			transitionState(OperationState.COMPLETE);
+		}
+	}
+
+	@Override
+	protected void handleError(OperationErrorType eType, String line)
+		throws IOException {
+		// an error line answers only its own command and the rest are still
+		// to come, so completing here would leave them for the next op
+		getLogger().warn("Error:  %s by %s", line, this);
+		handleLine(line);
+	}
+
+	@Override
+	public void initialize() {
+		/* ENABLE_REPLICATION if */
+		if (moveCause != null) {
+			index = nextOpIndex;
+			moveCause = null;
+		}
+		/* ENABLE_REPLICATION end */
+		int size = 0;
+		for (int i = index; i < keyList.size(); i++) {
+			size += KeyUtil.getKeyBytes(keyList.get(i)).length
+					+ data.get(i).getData().length + OVERHEAD;
+		}
+		ByteBuffer bb = allocateBuffer(size);
+		String type = storeType.name();
+		for (int i = index; i < keyList.size(); i++) {
+			CachedData d = data.get(i);
+			setArguments(bb, type, keyList.get(i), d.getFlags(), exp,
+					d.getData().length);
+			bb.put(d.getData());
+			bb.put(CRLF);
+		}
+		bb.flip();
+		setBuffer(bb);
+
+		if (getLogger().isDebugEnabled()) {
+			getLogger().debug("Request in ascii protocol: "
+					+ toDebugString(bb).replace("\r\n", "\\r\\n"));
+		}
+	}
+
+	@Override
+	protected void wasCancelled() {
+		getCallback().receivedStatus(CANCELLED);
+	}
+
+	public Collection<String> getKeys() {
+		return keyList;
+	}
+
+	public StoreType getStoreType() {
+		return storeType;
+	}
+
+	public List<String> getKeyList() {
+		return keyList;
+	}
+
+	public List<CachedData> getDataList() {
+		return data;
+	}
+
+	public int getExpiration() {
+		return exp;
+	}
+}
@@ -14,6 +14,7 @@ import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
 import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.util.LineTokenizer;
 
 class CASOperationImpl extends OperationImpl implements CASOperation {
 
@@ -49,11 +50,16 @@ class CASOperationImpl extends OperationImpl implements CASOperation {
 
 	@Override
 	public void handleLine(String line) {
+		handleLine(new LineTokenizer(line));
+	}
+
+	@Override
+	public void handleLine(LineTokenizer line) {
 		assert getState() == OperationState.READING
 			: "Read ``" + line + "'' when in " + getState() + " state";
 		/* ENABLE_REPLICATION if */
-		if (line.equals("SWITCHOVER") || line.equals("REPL_SLAVE")) {
-			receivedMoveOperations(line);
+		if (line.matches(SWITCHOVER) || line.matches(REPL_SLAVE)) {
+			receivedMoveOperations(line.toString());
 			return;
 		}
 
@@ -65,7 +71,7 @@ class CASOperationImpl extends OperationImpl implements CASOperation {
 
 	@Override
 	public void initialize() {
-		ByteBuffer bb=ByteBuffer.allocate(data.length
+		ByteBuffer bb=allocateBuffer(data.length
 				+ KeyUtil.getKeyBytes(key).length + OVERHEAD);
 		setArguments(bb, "cas", key, flags, exp, data.length, casValue);
 		assert bb.remaining() >= data.length + 2
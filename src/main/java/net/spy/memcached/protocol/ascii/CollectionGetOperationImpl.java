@@ -16,7 +16,6 @@
  */
 package net.spy.memcached.protocol.ascii;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
@@ -35,6 +34,7 @@ import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.util.LineTokenizer;
 
 /**
  * Operation to retrieve collection data in a memcached server.
@@ -42,7 +42,7 @@ import net.spy.memcached.ops.OperationType;
 public class CollectionGetOperationImpl extends OperationImpl
 	implements CollectionGetOperation {
 
-	private final ByteArrayOutputStream byteBuffer = new ByteArrayOutputStream();
+	private final LineTokenizer itemHeader = new LineTokenizer();
 
 	private static final OperationStatus GET_CANCELED = new CollectionOperationStatus(
 			false, "collection canceled", CollectionResponse.CANCELED);
@@ -68,6 +68,8 @@ public class CollectionGetOperationImpl extends OperationImpl
 	private static final OperationStatus UNREADABLE = new CollectionOperationStatus(
 			false, "UNREADABLE", CollectionResponse.UNREADABLE);
 
+	private static final byte[] VALUE = "VALUE ".getBytes();
+
 	protected final String key;
 	protected final CollectionGet collectionGet;
 
@@ -97,26 +99,28 @@ public class CollectionGetOperationImpl extends OperationImpl
 			setOperationType(OperationType.READ);
 	}
 
+	public void handleLine(String line) {
+		handleLine(new LineTokenizer(line));
+	}
+
 	/**
 	 * VALUE <flag> <count>\r\n
 	 */
-	public void handleLine(String line) {
+	@Override
+	public void handleLine(LineTokenizer line) {
 		/* ENABLE_REPLICATION if */
-		if (line.equals("SWITCHOVER") || line.equals("REPL_SLAVE")) {
-			receivedMoveOperations(line);
+		if (line.matches(SWITCHOVER) || line.matches(REPL_SLAVE)) {
+			receivedMoveOperations(line.toString());
 			return;
 		}
 
 		/* ENABLE_REPLICATION end */
-		if (line.startsWith("VALUE ")) {
+		if (line.startsWith(VALUE)) {
 			// Response header
 			getLogger().debug("Got line %s", line);
 
-			String[] stuff = line.split(" ");
-			assert "VALUE".equals(stuff[0]);
-
-			flags = Integer.parseInt(stuff[1]);
-			count = Integer.parseInt(stuff[2]);
+			flags = line.getInt(1);
+			count = line.getInt(2);
 
 			setReadType(OperationReadType.DATA);
 		} else {
@@ -141,8 +145,8 @@ public class CollectionGetOperationImpl extends OperationImpl
 				if (b == ' ') {
 					spaceCount++;
 					if (collectionGet.headerReady(spaceCount)) {
-						collectionGet.decodeItemHeader(new String(byteBuffer.toByteArray()));
-						byteBuffer.reset();
+						collectionGet.decodeItemHeader(itemHeader);
+						itemHeader.clear();
 
 						if (collectionGet.headerReady(spaceCount)
 								&& collectionGet.eachRecordParseCompleted()) {
@@ -164,7 +168,7 @@ public class CollectionGetOperationImpl extends OperationImpl
 
 				// Finish the operation.
 				if (b == '\n') {
-					OperationStatus status = matchStatus(byteBuffer.toString(),
+					OperationStatus status = matchStatus(itemHeader,
 							END, TRIMMED, DELETED, DELETED_DROPPED, NOT_FOUND,
 							NOT_FOUND_ELEMENT, OUT_OF_RANGE, TYPE_MISMATCH,
 							BKEY_MISMATCH, UNREADABLE);
@@ -176,7 +180,7 @@ public class CollectionGetOperationImpl extends OperationImpl
 					break;
 				}
 
-				byteBuffer.write(b);
+				itemHeader.append(b);
 			}
 			return;
 		}
@@ -143,12 +143,12 @@ public class CollectionPipedStoreOperationImpl extends OperationImpl
 
 	@Override
 	public void initialize() {
-		ByteBuffer buffer = store.getAsciiCommand();
+		ByteBuffer buffer = store.getAsciiCommand(getBufferPool());
 		setBuffer(buffer);
 
 		if (getLogger().isDebugEnabled()) {
 			getLogger().debug("Request in ascii protocol: \n"
-					+ (new String(buffer.array())).replaceAll("\\r\\n", "\n"));
+					+ toDebugString(buffer).replaceAll("\\r\\n", "\n"));
 		}
 	}
 
@@ -106,7 +106,7 @@ public class CollectionStoreOperationImpl extends OperationImpl
 	@Override
 	public void initialize() {
 		String args = collectionStore.stringify();
-		ByteBuffer bb = ByteBuffer.allocate(data.length
+		ByteBuffer bb = allocateBuffer(data.length
 				+ KeyUtil.getKeyBytes(key).length
 				+ KeyUtil.getKeyBytes(subkey).length
 				+ KeyUtil.getKeyBytes(collectionStore.getElementFlagByHex()).length
@@ -121,7 +121,7 @@ public class CollectionStoreOperationImpl extends OperationImpl
 
 		if (getLogger().isDebugEnabled()) {
 			getLogger().debug("Request in ascii protocol: "
-					+ (new String(bb.array())).replace("\r\n", "\\r\\n"));
+					+ toDebugString(bb).replace("\r\n", "\\r\\n"));
 		}
 	}
 
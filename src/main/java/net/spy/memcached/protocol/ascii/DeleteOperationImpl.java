@@ -6,13 +6,14 @@ import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Collections;
 
-import net.spy.memcached.KeyUtil;
+import net.spy.memcached.EncodedKey;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.DeleteOperation;
 import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.util.LineTokenizer;
 
 /**
  * Operation to delete an item from the cache.
@@ -27,21 +28,34 @@ final class DeleteOperationImpl extends OperationImpl
 	private static final OperationStatus NOT_FOUND=
 		new OperationStatus(false, "NOT_FOUND");
 
+	private static final byte[] CMD="delete".getBytes();
+
 	private final String key;
+	private final byte[] keyBytes;
 
 	public DeleteOperationImpl(String k, OperationCallback cb) {
+		this(new EncodedKey(k), cb);
+	}
+
+	public DeleteOperationImpl(EncodedKey k, OperationCallback cb) {
 		super(cb);
-		key=k;
+		key=k.toString();
+		keyBytes=k.getBytes();
 		setAPIType(APIType.DELETE);
 		setOperationType(OperationType.WRITE);
 	}
 
 	@Override
 	public void handleLine(String line) {
+		handleLine(new LineTokenizer(line));
+	}
+
+	@Override
+	public void handleLine(LineTokenizer line) {
 		getLogger().debug("Delete of %s returned %s", key, line);
 		/* ENABLE_REPLICATION if */
-		if (line.equals("SWITCHOVER") || line.equals("REPL_SLAVE")) {
-			receivedMoveOperations(line);
+		if (line.matches(SWITCHOVER) || line.matches(REPL_SLAVE)) {
+			receivedMoveOperations(line.toString());
 			return;
 		}
 
@@ -52,9 +66,8 @@ final class DeleteOperationImpl extends OperationImpl
 
 	@Override
 	public void initialize() {
-		ByteBuffer b=ByteBuffer.allocate(
-			KeyUtil.getKeyBytes(key).length + OVERHEAD);
-		setArguments(b, "delete", key);
+		ByteBuffer b=ByteBuffer.allocate(keyBytes.length + OVERHEAD);
+		setArguments(b, CMD, keyBytes);
 		b.flip();
 		setBuffer(b);
 	}
@@ -3,9 +3,9 @@
 package net.spy.memcached.protocol.ascii;
 
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashSet;
 
+import net.spy.memcached.EncodedKey;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.GetOperation;
 
@@ -17,7 +17,11 @@ class GetOperationImpl extends BaseGetOpImpl implements GetOperation {
 	private static final String CMD="get";
 
 	public GetOperationImpl(String key, GetOperation.Callback c) {
-		super(CMD, c, Collections.singleton(key));
+		this(new EncodedKey(key), c);
+	}
+
+	public GetOperationImpl(EncodedKey key, GetOperation.Callback c) {
+		super(CMD, c, key);
 		setAPIType(APIType.GET);
 	}
 
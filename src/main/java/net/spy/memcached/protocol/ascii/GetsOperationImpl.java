@@ -1,7 +1,6 @@
 package net.spy.memcached.protocol.ascii;
 
-import java.util.Collections;
-
+import net.spy.memcached.EncodedKey;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.GetsOperation;
 
@@ -13,7 +12,11 @@ class GetsOperationImpl extends BaseGetOpImpl implements GetsOperation {
 	private static final String CMD="gets";
 
 	public GetsOperationImpl(String key, GetsOperation.Callback cb) {
-		super(CMD, cb, Collections.singleton(key));
+		this(new EncodedKey(key), cb);
+	}
+
+	public GetsOperationImpl(EncodedKey key, GetsOperation.Callback cb) {
+		super(CMD, cb, key);
 		setAPIType(APIType.GETS);
 	}
 
@@ -30,6 +30,7 @@ import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.ops.OperationType;
+import net.spy.memcached.util.LineTokenizer;
 
 /**
  * Operation for mutating integers inside of memcached.
@@ -67,16 +68,25 @@ final class MutatorOperationImpl extends OperationImpl
 
 	@Override
 	public void handleLine(String line) {
+		handleLine(new LineTokenizer(line));
+	}
+
+	@Override
+	public void handleLine(LineTokenizer line) {
 		/* ENABLE_REPLICATION if */
-		if (line.equals("SWITCHOVER") || line.equals("REPL_SLAVE")) {
-			receivedMoveOperations(line);
+		if (line.matches(SWITCHOVER) || line.matches(REPL_SLAVE)) {
+			receivedMoveOperations(line.toString());
 		}
 
 		/* ENABLE_REPLICATION end */
 		OperationStatus status=null;
 		try {
-			Long.valueOf(line);
-			getCallback().receivedStatus(new OperationStatus(true, line));
+			if (line.countTokens() != 1) {
+				throw new NumberFormatException(line.toString());
+			}
+			line.getLong(0);
+			getCallback().receivedStatus(
+					new OperationStatus(true, line.toString()));
 		} catch (NumberFormatException e) {
 			status = matchStatus(line, NOT_FOUND, TYPE_MISMATCH);
 			getCallback().receivedStatus(status);
@@ -18,7 +18,6 @@
 
 package net.spy.memcached.protocol.ascii;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
@@ -29,6 +28,7 @@ import net.spy.memcached.ops.OperationErrorType;
 import net.spy.memcached.ops.OperationState;
 import net.spy.memcached.ops.OperationStatus;
 import net.spy.memcached.protocol.BaseOperationImpl;
+import net.spy.memcached.util.LineTokenizer;
 
 /**
  * Operations on a memcached connection.
@@ -36,11 +36,16 @@ import net.spy.memcached.protocol.BaseOperationImpl;
 abstract class OperationImpl extends BaseOperationImpl implements Operation {
 
 	protected static final byte[] CRLF={'\r', '\n'};
-	private static final String CHARSET = "UTF-8";
+	private static final byte[] ERROR="ERROR".getBytes();
+	private static final byte[] CLIENT_ERROR="CLIENT_ERROR".getBytes();
+	private static final byte[] SERVER_ERROR="SERVER_ERROR".getBytes();
+	/* ENABLE_REPLICATION if */
+	protected static final byte[] SWITCHOVER="SWITCHOVER".getBytes();
+	protected static final byte[] REPL_SLAVE="REPL_SLAVE".getBytes();
+	/* ENABLE_REPLICATION end */
 
-	private final ByteArrayOutputStream byteBuffer=new ByteArrayOutputStream();
+	private final LineTokenizer line=new LineTokenizer();
 	OperationReadType readType=OperationReadType.LINE;
-	boolean foundCr=false;
 
 	protected OperationImpl() {
 		super();
@@ -74,6 +79,43 @@ abstract class OperationImpl extends BaseOperationImpl implements Operation {
 		return rv;
 	}
 
+	/**
+	 * Match the status line provided against one of the given
+	 * OperationStatus objects without decoding the line.
+	 *
+	 * @param line the current line
+	 * @param statii several status objects
+	 * @return the appropriate status object
+	 */
+	protected final OperationStatus matchStatus(LineTokenizer line,
+			OperationStatus... statii) {
+		for(OperationStatus status : statii) {
+			if(line.matches(status.getMessage())) {
+				return status;
+			}
+		}
+		return new OperationStatus(false, line.toString());
+	}
+
+	/**
+	 * Match one token of the line provided against one of the given
+	 * OperationStatus objects without decoding the line.
+	 *
+	 * @param line the current line
+	 * @param token the index of the status token
+	 * @param statii several status objects
+	 * @return the appropriate status object
+	 */
+	protected final OperationStatus matchStatus(LineTokenizer line, int token,
+			OperationStatus... statii) {
+		for(OperationStatus status : statii) {
+			if(line.tokenMatches(token, status.getMessage())) {
+				return status;
+			}
+		}
+		return new OperationStatus(false, line.getString(token));
+	}
+
 	/* (non-Javadoc)
 	 * @see net.spy.memcached.protocol.ascii.Operation#getReadType()
 	 */
@@ -90,28 +132,68 @@ abstract class OperationImpl extends BaseOperationImpl implements Operation {
 
 	/**
 	 * Set some arguments for an operation into the given byte buffer.
+	 * Byte arrays are written as they are, and integers without
+	 * converting them to strings first.
 	 */
 	protected final void setArguments(ByteBuffer bb, Object... args) {
 		boolean wasFirst=true;
 		for(Object o : args) {
-			String s = String.valueOf(o);
+			if(o instanceof Integer || o instanceof Long) {
+				if(wasFirst) {
+					wasFirst=false;
+				} else {
+					bb.put((byte)' ');
+				}
+				putDecimal(bb, ((Number)o).longValue());
+				continue;
+			}
+			byte[] b = o instanceof byte[] ? (byte[])o
+					: KeyUtil.getKeyBytes(String.valueOf(o));
 			if(wasFirst) {
 				wasFirst=false;
-			} else if (!"".equals(s)) {
+			} else if (b.length != 0) {
 				bb.put((byte)' ');
 			}
-			bb.put(KeyUtil.getKeyBytes(s));
+			bb.put(b);
 		}
 		bb.put(CRLF);
 	}
 
-	OperationErrorType classifyError(String line) {
+	private static void putDecimal(ByteBuffer bb, long v) {
+		if(v == Long.MIN_VALUE) {
+			bb.put(KeyUtil.getKeyBytes(String.valueOf(v)));
+			return;
+		}
+		if(v < 0) {
+			bb.put((byte)'-');
+			v=-v;
+		}
+		long div=1;
+		while(div <= v / 10) {
+			div*=10;
+		}
+		for(; div > 0; div/=10) {
+			bb.put((byte)('0' + (v / div) % 10));
+		}
+	}
+
+	/**
+	 * Get the command in the given buffer as a String for debug logging,
+	 * without moving the buffer position.
+	 */
+	protected static String toDebugString(ByteBuffer bb) {
+		byte[] b=new byte[bb.remaining()];
+		bb.duplicate().get(b);
+		return new String(b);
+	}
+
+	OperationErrorType classifyError(LineTokenizer line) {
 		OperationErrorType rv=null;
-		if(line.startsWith("ERROR")) {
+		if(line.startsWith(ERROR)) {
 			rv=OperationErrorType.GENERAL;
-		} else if(line.startsWith("CLIENT_ERROR")) {
+		} else if(line.startsWith(CLIENT_ERROR)) {
 			rv=OperationErrorType.CLIENT;
-		} else if(line.startsWith("SERVER_ERROR")) {
+		} else if(line.startsWith(SERVER_ERROR)) {
 			rv=OperationErrorType.SERVER;
 		}
 		return rv;
@@ -123,31 +205,12 @@ abstract class OperationImpl extends BaseOperationImpl implements Operation {
 		while(getState() != OperationState.COMPLETE && data.remaining() > 0) {
 			if(readType == OperationReadType.DATA) {
 				handleRead(data);
-			} else {
-				int offset=-1;
-				for(int i=0; data.remaining() > 0; i++) {
-					byte b=data.get();
-					if(b == '\r') {
-						foundCr=true;
-					} else if(b == '\n') {
-						assert foundCr: "got a \\n without a \\r";
-						offset=i;
-						foundCr=false;
-						break;
-					} else {
-						assert !foundCr : "got a \\r without a \\n";
-						byteBuffer.write(b);
-					}
-				}
-				if(offset >= 0) {
-					String line=new String(byteBuffer.toByteArray(), CHARSET);
-					byteBuffer.reset();
-					OperationErrorType eType=classifyError(line);
-					if(eType != null) {
-						handleError(eType, line);
-					} else {
-						handleLine(line);
-					}
+			} else if(line.readLine(data)) {
+				OperationErrorType eType=classifyError(line);
+				if(eType != null) {
+					handleError(eType, line.toString());
+				} else {
+					handleLine(line);
 				}
 			}
 			/* ENABLE_REPLICATION if */
@@ -158,6 +221,16 @@ abstract class OperationImpl extends BaseOperationImpl implements Operation {
 		}
 	}
 
+	/**
+	 * Handle a response line.  The tokenizer is reused for the next line,
+	 * so it must not be kept.  The default decodes the line as UTF-8 and
+	 * passes it to handleLine(String); operations on the hot read path
+	 * override this to work on the bytes directly.
+	 */
+	public void handleLine(LineTokenizer line) {
+		handleLine(line.toString());
+	}
+
 	/* (non-Javadoc)
 	 * @see net.spy.memcached.protocol.ascii.Operation#handleLine(java.lang.String)
 	 */
@@ -27,5 +27,8 @@ final class OptimizedGetImpl extends GetOperationImpl {
 	public void addOperation(GetOperation o) {
 		getKeys().addAll(o.getKeys());
 		pcb.addCallbacks(o);
+		if(o instanceof BaseGetOpImpl) {
+			((BaseGetOpImpl)o).folded(this);
+		}
 	}
 }
@@ -3,6 +3,7 @@
 package net.spy.memcached.protocol.ascii;
 
 
+import net.spy.memcached.EncodedKey;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.OperationCallback;
 import net.spy.memcached.ops.StoreOperation;
@@ -18,6 +19,11 @@ final class StoreOperationImpl extends BaseStoreOperationImpl
 
 	public StoreOperationImpl(StoreType t, String k, int f, int e,
 			byte[] d, OperationCallback cb) {
+		this(t, new EncodedKey(k), f, e, d, cb);
+	}
+
+	public StoreOperationImpl(StoreType t, EncodedKey k, int f, int e,
+			byte[] d, OperationCallback cb) {
 		super(t.name(), k, f, e, d, cb);
 		storeType = t;
 		if (t == StoreType.add)
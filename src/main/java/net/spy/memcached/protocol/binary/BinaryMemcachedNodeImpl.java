@@ -4,6 +4,7 @@ import java.net.SocketAddress;
 import java.nio.channels.SocketChannel;
 import java.util.concurrent.BlockingQueue;
 
+import net.spy.memcached.ByteBufferPool;
 import net.spy.memcached.ops.CASOperation;
 import net.spy.memcached.ops.GetOperation;
 import net.spy.memcached.ops.Operation;
@@ -28,6 +29,15 @@ public class BinaryMemcachedNodeImpl extends TCPMemcachedNodeImpl {
 			waitForAuth);
 	}
 
+	public BinaryMemcachedNodeImpl(SocketAddress sa, SocketChannel c,
+			int bufSize, BlockingQueue<Operation> rq,
+			BlockingQueue<Operation> wq, BlockingQueue<Operation> iq,
+			Long opQueueMaxBlockTimeNs, boolean waitForAuth,
+			ByteBufferPool pool) {
+		super(sa, c, bufSize, rq, wq, iq, opQueueMaxBlockTimeNs,
+			waitForAuth, pool);
+	}
+
 	@Override
 	protected void optimize() {
 		Operation firstOp = writeQ.peek();
@@ -51,6 +61,8 @@ public class BinaryMemcachedNodeImpl extends TCPMemcachedNodeImpl {
 				GetOperation o=(GetOperation) writeQ.remove();
 				if(!o.isCancelled()) {
 					og.addOperation(o);
+				} else {
+					o.discardBuffer();
 				}
 			}
 
@@ -78,6 +90,8 @@ public class BinaryMemcachedNodeImpl extends TCPMemcachedNodeImpl {
 				CASOperation o=(CASOperation) writeQ.remove();
 				if(!o.isCancelled()) {
 					og.addOperation(o);
+				} else {
+					o.discardBuffer();
 				}
 			}
 
@@ -23,6 +23,7 @@ import java.util.Map;
 
 import javax.security.auth.callback.CallbackHandler;
 
+import net.spy.memcached.CachedData;
 import net.spy.memcached.collection.Attributes;
 import net.spy.memcached.collection.BTreeFindPosition;
 import net.spy.memcached.collection.BTreeFindPositionWithGet;
@@ -50,6 +51,7 @@ import net.spy.memcached.ops.BTreeSortMergeGetOperation;
 import net.spy.memcached.ops.BTreeSortMergeGetOperationOld;
 import net.spy.memcached.ops.BTreeStoreAndGetOperation;
 import net.spy.memcached.ops.BaseOperationFactory;
+import net.spy.memcached.ops.BulkStoreOperation;
 import net.spy.memcached.ops.CASOperation;
 import net.spy.memcached.ops.CollectionBulkStoreOperation;
 import net.spy.memcached.ops.CollectionCountOperation;
@@ -135,6 +137,13 @@ public class BinaryOperationFactory extends BaseOperationFactory {
 		return new StoreOperationImpl(storeType, key, flags, exp, data, 0, cb);
 	}
 
+	public BulkStoreOperation bulkStore(StoreType storeType,
+			List<String> keyList, int exp, List<CachedData> data,
+			OperationCallback cb) {
+		throw new RuntimeException(
+				"Bulk store operation is not supported in binary protocol, store each key instead.");
+	}
+
 	public VersionOperation version(OperationCallback cb) {
 		return new VersionOperationImpl(cb);
 	}
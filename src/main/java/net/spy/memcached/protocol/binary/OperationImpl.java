@@ -248,7 +248,7 @@ abstract class OperationImpl extends BaseOperationImpl {
 		//	REQ_PKT_FMT=">BBHBBxxIIQ"
 
 		// set up the initial header stuff
-		ByteBuffer bb=ByteBuffer.allocate(bufSize + extraLen);
+		ByteBuffer bb=allocateBuffer(bufSize + extraLen);
 		assert bb.order() == ByteOrder.BIG_ENDIAN;
 		bb.put(REQ_MAGIC);
 		bb.put((byte)cmd);
@@ -292,4 +292,12 @@ abstract class OperationImpl extends BaseOperationImpl {
 		}
 		return rv;
 	}
+
+	/**
+	 * This operation was folded into an optimized one and is not written
+	 * itself.
+	 */
+	final void folded(OperationImpl optimized) {
+		foldInto(optimized);
+	}
 }
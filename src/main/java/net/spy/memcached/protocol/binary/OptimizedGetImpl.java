@@ -29,6 +29,9 @@ final class OptimizedGetImpl extends MultiGetOperationImpl {
 		for(String k : o.getKeys()) {
 			addKey(k);
 		}
+		if(o instanceof OperationImpl) {
+			((OperationImpl)o).folded(this);
+		}
 	}
 
 }
@@ -38,6 +38,9 @@ public class OptimizedSetImpl extends OperationImpl implements Operation {
 
 	public void addOperation(CASOperation op) {
 		ops.add(op);
+		if(op instanceof OperationImpl) {
+			((OperationImpl)op).folded(this);
+		}
 
 		// Count the bytes required by this operation.
 		Iterator<String> is = op.getKeys().iterator();
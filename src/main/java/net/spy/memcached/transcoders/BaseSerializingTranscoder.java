@@ -22,11 +22,8 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.UnsupportedEncodingException;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 import net.spy.memcached.CachedData;
-import net.spy.memcached.compat.CloseUtil;
 import net.spy.memcached.compat.SpyObject;
 
 /**
@@ -44,6 +41,7 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
 
 	protected int compressionThreshold=DEFAULT_COMPRESSION_THRESHOLD;
 	protected String charset=DEFAULT_CHARSET;
+	private volatile CompressionCodec compressionCodec=CompressionCodecs.GZIP;
 
 	private final int maxSize;
 
@@ -70,6 +68,27 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
 		compressionThreshold=to;
 	}
 
+	/**
+	 * Set the codec of the data this transcoder compresses (defaults to
+	 * GZIP).  The SerializingTranscoder records the codec in the flags, so
+	 * the data compressed with any registered codec stays readable.
+	 *
+	 * @see CompressionCodecs
+	 */
+	public void setCompressionCodec(CompressionCodec to) {
+		if(to == null) {
+			throw new NullPointerException("Compression codec is null");
+		}
+		compressionCodec=to;
+	}
+
+	/**
+	 * Get the codec of the data this transcoder compresses.
+	 */
+	public CompressionCodec getCompressionCodec() {
+		return compressionCodec;
+	}
+
 	/**
 	 * Set the character set for string value transcoding (defaults to UTF-8).
 	 */
@@ -128,53 +147,49 @@ public abstract class BaseSerializingTranscoder extends SpyObject {
 	}
 
 	/**
-	 * Compress the given array of bytes.
+	 * Compress the given array of bytes with the compression codec.
 	 */
 	protected byte[] compress(byte[] in) {
+		return compress(in, compressionCodec);
+	}
+
+	/**
+	 * Compress the given array of bytes with the given codec.
+	 */
+	protected byte[] compress(byte[] in, CompressionCodec codec) {
 		if(in == null) {
 			throw new NullPointerException("Can't compress null");
 		}
-		ByteArrayOutputStream bos=new ByteArrayOutputStream();
-		GZIPOutputStream gz=null;
-		try {
-			gz = new GZIPOutputStream(bos);
-			gz.write(in);
-		} catch (IOException e) {
-			throw new RuntimeException("IO exception compressing data", e);
-		} finally {
-			CloseUtil.close(gz);
-			CloseUtil.close(bos);
-		}
-		byte[] rv=bos.toByteArray();
-		getLogger().debug("Compressed %d bytes to %d", in.length, rv.length);
+		byte[] rv=codec.compress(in);
+		getLogger().debug("Compressed %d bytes to %d with %s",
+				in.length, rv.length, codec.getName());
 		return rv;
 	}
 
 	/**
-	 * Decompress the given array of bytes.
+	 * Decompress the given array of GZIP compressed bytes.
 	 *
 	 * @return null if the bytes cannot be decompressed
 	 */
 	protected byte[] decompress(byte[] in) {
-		ByteArrayOutputStream bos=null;
+		return decompress(in, CompressionCodecs.GZIP);
+	}
+
+	/**
+	 * Decompress the given array of bytes with the given codec.
+	 *
+	 * @return null if the bytes cannot be decompressed
+	 */
+	protected byte[] decompress(byte[] in, CompressionCodec codec) {
+		byte[] rv=null;
 		if(in != null) {
-			ByteArrayInputStream bis=new ByteArrayInputStream(in);
-			bos=new ByteArrayOutputStream();
-			GZIPInputStream gis;
 			try {
-				gis = new GZIPInputStream(bis);
-
-				byte[] buf=new byte[8192];
-				int r=-1;
-				while((r=gis.read(buf)) > 0) {
-					bos.write(buf, 0, r);
-				}
+				rv=codec.decompress(in);
 			} catch (IOException e) {
 				getLogger().warn("Failed to decompress data", e);
-				bos = null;
 			}
 		}
-		return bos == null ? null : bos.toByteArray();
+		return rv;
 	}
 
 	/**
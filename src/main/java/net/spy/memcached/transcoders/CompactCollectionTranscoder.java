@@ -0,0 +1,74 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * Transcoder that writes objects for collection elements in the compact
+ * format of {@link CompactTranscoder} instead of Java serialization.
+ *
+ * The flags of a collection are shared by all its elements, so objects
+ * keep the flags of serialized objects, and the format of each element is
+ * told by its first byte.  Elements written with Java serialization are
+ * still decoded.
+ */
+public class CompactCollectionTranscoder extends CollectionTranscoder {
+
+	private final CompactSerializer serializer = new CompactSerializer();
+
+	/**
+	 * Get a compact transcoder with the default max data size.
+	 */
+	public CompactCollectionTranscoder() {
+		this(MAX_SIZE);
+	}
+
+	/**
+	 * Get a compact transcoder that specifies the max data size.
+	 */
+	public CompactCollectionTranscoder(int max) {
+		super(max);
+	}
+
+	@Override
+	public Object decode(CachedData d) {
+		byte[] data = d.getData();
+		if (!CompactSerializer.isCompact(data)
+				|| ((d.getFlags() & SERIALIZED) == 0
+						&& (d.getFlags() & SPECIAL_MASK) != SPECIAL_COMPACT)) {
+			return super.decode(d);
+		}
+		try {
+			return serializer.read(data);
+		} catch (IOException e) {
+			getLogger().warn("Caught IOException decoding %d bytes of data",
+					data.length, e);
+			return null;
+		}
+	}
+
+	@Override
+	public CachedData encode(Object o) {
+		if (!CompactSerializer.isCompactType(o)) {
+			return super.encode(o);
+		}
+		return new CachedData(SERIALIZED, serializer.write(o), getMaxSize());
+	}
+}
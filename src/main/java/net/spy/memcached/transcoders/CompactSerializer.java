@@ -0,0 +1,911 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A compact binary format of objects, instead of Java serialization.
+ *
+ * Every value is written with a one-byte tag.  Strings, boxed primitives,
+ * dates, big numbers, enums, arrays, collections and maps have tags of
+ * their own.  Other objects are written field by field.  The first object
+ * of a class in a value is preceded by a descriptor of the class, which
+ * lists the names of its fields, so that a reader matches fields by name.
+ * Fields the reader does not know are skipped, and fields the writer did
+ * not know keep their default.
+ *
+ * The fields of a class are looked up by reflection once and cached.
+ * Objects written field by field need a no-arg constructor, of any
+ * access, and no superclass in the java packages but Object.  Other
+ * objects fall back to Java serialization.  Collections and maps are read
+ * as their own class if it has a public no-arg constructor, and otherwise
+ * as an ArrayList, HashSet or HashMap.  Shared references are written
+ * once for every reference, and cyclic references are not supported.
+ */
+final class CompactSerializer {
+
+	/**
+	 * The first byte of the format, which is never the first byte of Java
+	 * serialization.
+	 */
+	static final byte VERSION = 1;
+
+	private static final int NULL = 0;
+	private static final int TRUE = 1;
+	private static final int FALSE = 2;
+	private static final int INT = 3;
+	private static final int LONG = 4;
+	private static final int SHORT = 5;
+	private static final int BYTE = 6;
+	private static final int CHAR = 7;
+	private static final int FLOAT = 8;
+	private static final int DOUBLE = 9;
+	private static final int STRING = 10;
+	private static final int BYTES = 11;
+	private static final int DATE = 12;
+	private static final int BIG_INTEGER = 13;
+	private static final int BIG_DECIMAL = 14;
+	private static final int ENUM = 15;
+	private static final int ARRAY = 16;
+	private static final int COLLECTION = 17;
+	private static final int SET = 18;
+	private static final int MAP = 19;
+	private static final int OBJECT = 20;
+	private static final int JAVA = 21;
+
+	private static final int MAX_DEPTH = 256;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final Map<String, Class<?>> PRIMITIVES =
+		new HashMap<String, Class<?>>();
+
+	static {
+		for (Class<?> c : new Class<?>[] { boolean.class, byte.class,
+				char.class, short.class, int.class, long.class, float.class,
+				double.class }) {
+			PRIMITIVES.put(c.getName(), c);
+		}
+	}
+
+	private final ConcurrentMap<Class<?>, ClassInfo> classInfos =
+		new ConcurrentHashMap<Class<?>, ClassInfo>();
+	private final ConcurrentMap<String, Class<?>> classes =
+		new ConcurrentHashMap<String, Class<?>>();
+
+	/**
+	 * Check if the given bytes are in this format, rather than Java
+	 * serialization.
+	 */
+	static boolean isCompact(byte[] data) {
+		return data != null && data.length > 0 && data[0] == VERSION;
+	}
+
+	/**
+	 * Check if the given object is encoded in this format by the compact
+	 * transcoders, rather than as a special type of SerializingTranscoder.
+	 */
+	static boolean isCompactType(Object o) {
+		return !(o instanceof String || o instanceof Long
+				|| o instanceof Integer || o instanceof Boolean
+				|| o instanceof Date || o instanceof Byte
+				|| o instanceof Float || o instanceof Double
+				|| o instanceof byte[]);
+	}
+
+	/**
+	 * Get the bytes representing the given object.
+	 *
+	 * @throws IllegalArgumentException if the object cannot be written
+	 */
+	byte[] write(Object o) {
+		Writer w = new Writer();
+		w.writeByte(VERSION);
+		w.writeValue(o, 0);
+		return Arrays.copyOf(w.buf, w.count);
+	}
+
+	/**
+	 * Get the object represented by the given bytes.
+	 *
+	 * @throws IOException if the bytes are not valid
+	 */
+	Object read(byte[] in) throws IOException {
+		Reader r = new Reader(in);
+		if (r.readByte() != VERSION) {
+			throw new IOException("Not in the compact format");
+		}
+		return r.readValue(0);
+	}
+
+	private ClassInfo classInfo(Class<?> c) {
+		ClassInfo info = classInfos.get(c);
+		if (info == null) {
+			info = new ClassInfo(c);
+			ClassInfo prior = classInfos.putIfAbsent(c, info);
+			if (prior != null) {
+				info = prior;
+			}
+		}
+		return info;
+	}
+
+	private Class<?> resolve(String name) throws IOException {
+		Class<?> c = classes.get(name);
+		if (c == null) {
+			c = PRIMITIVES.get(name);
+		}
+		if (c == null) {
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			if (loader == null) {
+				loader = CompactSerializer.class.getClassLoader();
+			}
+			try {
+				c = Class.forName(name, false, loader);
+			} catch (ClassNotFoundException e) {
+				throw new IOException("Class not found: " + name);
+			}
+			classes.putIfAbsent(name, c);
+		}
+		return c;
+	}
+
+	private static boolean isJdkClass(Class<?> c) {
+		String name = c.getName();
+		return name.startsWith("java.") || name.startsWith("javax.")
+				|| name.startsWith("sun.");
+	}
+
+	// The metadata of a class, looked up once.
+	private static final class ClassInfo {
+		final Class<?> type;
+		final Constructor<?> constructor;
+		// the fields written one by one, or null if the class is not
+		final FieldInfo[] fields;
+		final Map<String, FieldInfo> fieldsByName;
+
+		ClassInfo(Class<?> type) {
+			this.type = type;
+			this.constructor = findConstructor(type);
+			this.fields = constructor == null || isJdkClass(type) ? null
+					: findFields(type);
+			this.fieldsByName = new HashMap<String, FieldInfo>();
+			if (fields != null) {
+				for (FieldInfo f : fields) {
+					fieldsByName.put(f.name, f);
+				}
+			}
+		}
+
+		private static Constructor<?> findConstructor(Class<?> type) {
+			if (type.isInterface() || Modifier.isAbstract(type.getModifiers())
+					|| type.isArray() || type.isPrimitive()) {
+				return null;
+			}
+			try {
+				if (isJdkClass(type)) {
+					return type.getConstructor();
+				}
+				Constructor<?> c = type.getDeclaredConstructor();
+				c.setAccessible(true);
+				return c;
+			} catch (NoSuchMethodException e) {
+				return null;
+			} catch (SecurityException e) {
+				return null;
+			} catch (RuntimeException e) {
+				// not accessible
+				return null;
+			}
+		}
+
+		private static FieldInfo[] findFields(Class<?> type) {
+			List<FieldInfo> rv = new ArrayList<FieldInfo>();
+			Set<String> names = new HashSet<String>();
+			for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+				if (isJdkClass(c)) {
+					return null;
+				}
+				for (Field f : c.getDeclaredFields()) {
+					int mod = f.getModifiers();
+					if (Modifier.isStatic(mod) || Modifier.isTransient(mod)
+							|| f.isSynthetic()) {
+						continue;
+					}
+					try {
+						f.setAccessible(true);
+					} catch (RuntimeException e) {
+						return null;
+					}
+					// a field hidden by a subclass field of the same name
+					String name = names.add(f.getName()) ? f.getName()
+							: c.getName() + "." + f.getName();
+					rv.add(new FieldInfo(name, f));
+				}
+			}
+			return rv.toArray(new FieldInfo[rv.size()]);
+		}
+
+		Object newInstance() throws IOException {
+			try {
+				return constructor.newInstance();
+			} catch (Exception e) {
+				throw new IOException("Cannot create " + type.getName()
+						+ ": " + e);
+			}
+		}
+	}
+
+	private static final class FieldInfo {
+		final String name;
+		final Field field;
+		final boolean primitive;
+
+		FieldInfo(String name, Field field) {
+			this.name = name;
+			this.field = field;
+			this.primitive = field.getType().isPrimitive();
+		}
+	}
+
+	// The fields of a class as the writer listed them.
+	private static final class Descriptor {
+		final ClassInfo info;
+		// the reader's field of each written field, or null to skip it
+		final FieldInfo[] fields;
+
+		Descriptor(ClassInfo info, FieldInfo[] fields) {
+			this.info = info;
+			this.fields = fields;
+		}
+	}
+
+	private final class Writer {
+		byte[] buf = new byte[64];
+		int count = 0;
+		private Map<Class<?>, Integer> classRefs;
+		private Map<Class<?>, Integer> descriptorRefs;
+
+		void writeValue(Object o, int depth) {
+			if (o == null) {
+				writeByte(NULL);
+				return;
+			}
+			if (depth > MAX_DEPTH) {
+				throw new IllegalArgumentException(
+						"Too deeply nested, or cyclic, object");
+			}
+			Class<?> c = o.getClass();
+			if (c == String.class) {
+				writeByte(STRING);
+				writeString((String) o);
+			} else if (c == Integer.class) {
+				writeByte(INT);
+				writeVarint(zigzag((Integer) o));
+			} else if (c == Long.class) {
+				writeByte(LONG);
+				writeVarlong(zigzag((Long) o));
+			} else if (c == Boolean.class) {
+				writeByte((Boolean) o ? TRUE : FALSE);
+			} else if (c == Double.class) {
+				writeByte(DOUBLE);
+				writeLong(Double.doubleToRawLongBits((Double) o));
+			} else if (c == Float.class) {
+				writeByte(FLOAT);
+				writeInt(Float.floatToRawIntBits((Float) o));
+			} else if (c == Short.class) {
+				writeByte(SHORT);
+				writeVarint(zigzag((Short) o));
+			} else if (c == Byte.class) {
+				writeByte(BYTE);
+				writeByte((Byte) o);
+			} else if (c == Character.class) {
+				writeByte(CHAR);
+				writeVarint((Character) o);
+			} else if (c == byte[].class) {
+				byte[] b = (byte[]) o;
+				writeByte(BYTES);
+				writeVarint(b.length);
+				writeBytes(b);
+			} else if (c == Date.class) {
+				writeByte(DATE);
+				writeVarlong(zigzag(((Date) o).getTime()));
+			} else if (c == BigInteger.class) {
+				writeByte(BIG_INTEGER);
+				byte[] b = ((BigInteger) o).toByteArray();
+				writeVarint(b.length);
+				writeBytes(b);
+			} else if (c == BigDecimal.class) {
+				writeByte(BIG_DECIMAL);
+				BigDecimal d = (BigDecimal) o;
+				writeVarint(zigzag(d.scale()));
+				byte[] b = d.unscaledValue().toByteArray();
+				writeVarint(b.length);
+				writeBytes(b);
+			} else if (o instanceof Enum) {
+				writeByte(ENUM);
+				writeClass(((Enum<?>) o).getDeclaringClass());
+				writeString(((Enum<?>) o).name());
+			} else if (c.isArray()) {
+				writeByte(ARRAY);
+				writeClass(c.getComponentType());
+				writeArray(o, c.getComponentType(), depth);
+			} else if (o instanceof Collection) {
+				Object[] elements = ((Collection<?>) o).toArray();
+				writeByte(o instanceof Set ? SET : COLLECTION);
+				writeClass(c);
+				writeVarint(elements.length);
+				for (Object e : elements) {
+					writeValue(e, depth + 1);
+				}
+			} else if (o instanceof Map) {
+				Object[] entries = ((Map<?, ?>) o).entrySet().toArray();
+				writeByte(MAP);
+				writeClass(c);
+				writeVarint(entries.length);
+				for (Object e : entries) {
+					writeValue(((Map.Entry<?, ?>) e).getKey(), depth + 1);
+					writeValue(((Map.Entry<?, ?>) e).getValue(), depth + 1);
+				}
+			} else {
+				ClassInfo info = classInfo(c);
+				if (info.fields != null) {
+					writeByte(OBJECT);
+					writeDescriptor(info);
+					writeFields(o, info, depth);
+				} else if (o instanceof Serializable) {
+					writeByte(JAVA);
+					byte[] b = javaSerialize(o);
+					writeVarint(b.length);
+					writeBytes(b);
+				} else {
+					throw new IllegalArgumentException(
+							"Non-serializable object: " + c.getName());
+				}
+			}
+		}
+
+		private void writeFields(Object o, ClassInfo info, int depth) {
+			try {
+				for (FieldInfo f : info.fields) {
+					writeValue(f.field.get(o), depth + 1);
+				}
+			} catch (IllegalAccessException e) {
+				throw new IllegalArgumentException("Cannot write "
+						+ info.type.getName(), e);
+			}
+		}
+
+		private void writeArray(Object a, Class<?> type, int depth) {
+			int len = Array.getLength(a);
+			writeVarint(len);
+			if (type == int.class) {
+				for (int v : (int[]) a) {
+					writeVarint(zigzag(v));
+				}
+			} else if (type == long.class) {
+				for (long v : (long[]) a) {
+					writeVarlong(zigzag(v));
+				}
+			} else if (type == double.class) {
+				for (double v : (double[]) a) {
+					writeLong(Double.doubleToRawLongBits(v));
+				}
+			} else if (type == float.class) {
+				for (float v : (float[]) a) {
+					writeInt(Float.floatToRawIntBits(v));
+				}
+			} else if (type == boolean.class) {
+				for (boolean v : (boolean[]) a) {
+					writeByte(v ? 1 : 0);
+				}
+			} else if (type == short.class) {
+				for (short v : (short[]) a) {
+					writeVarint(zigzag(v));
+				}
+			} else if (type == char.class) {
+				for (char v : (char[]) a) {
+					writeVarint(v);
+				}
+			} else if (type == byte.class) {
+				writeBytes((byte[]) a);
+			} else {
+				for (Object v : (Object[]) a) {
+					writeValue(v, depth + 1);
+				}
+			}
+		}
+
+		private void writeClass(Class<?> c) {
+			if (classRefs == null) {
+				classRefs = new IdentityHashMap<Class<?>, Integer>();
+			}
+			Integer ref = classRefs.get(c);
+			if (ref != null) {
+				writeVarint(ref + 1);
+			} else {
+				writeVarint(0);
+				writeString(c.getName());
+				classRefs.put(c, classRefs.size());
+			}
+		}
+
+		private void writeDescriptor(ClassInfo info) {
+			if (descriptorRefs == null) {
+				descriptorRefs = new IdentityHashMap<Class<?>, Integer>();
+			}
+			Integer ref = descriptorRefs.get(info.type);
+			if (ref != null) {
+				writeVarint(ref + 1);
+			} else {
+				writeVarint(0);
+				writeClass(info.type);
+				writeVarint(info.fields.length);
+				for (FieldInfo f : info.fields) {
+					writeString(f.name);
+				}
+				descriptorRefs.put(info.type, descriptorRefs.size());
+			}
+		}
+
+		private void writeString(String s) {
+			int len = s.length();
+			ensure(len + 5);
+			// ASCII is written in place, after its length
+			int start = count;
+			count++;
+			int i = 0;
+			if (len < 0x80) {
+				for (; i < len; i++) {
+					char ch = s.charAt(i);
+					if (ch >= 0x80) {
+						break;
+					}
+					buf[count++] = (byte) ch;
+				}
+			}
+			if (i == len) {
+				buf[start] = (byte) len;
+				return;
+			}
+			count = start;
+			byte[] b = s.getBytes(UTF8);
+			writeVarint(b.length);
+			writeBytes(b);
+		}
+
+		void writeByte(int b) {
+			ensure(1);
+			buf[count++] = (byte) b;
+		}
+
+		private void writeBytes(byte[] b) {
+			ensure(b.length);
+			System.arraycopy(b, 0, buf, count, b.length);
+			count += b.length;
+		}
+
+		private void writeVarint(int v) {
+			ensure(5);
+			while ((v & ~0x7f) != 0) {
+				buf[count++] = (byte) ((v & 0x7f) | 0x80);
+				v >>>= 7;
+			}
+			buf[count++] = (byte) v;
+		}
+
+		private void writeVarlong(long v) {
+			ensure(10);
+			while ((v & ~0x7fL) != 0) {
+				buf[count++] = (byte) ((v & 0x7f) | 0x80);
+				v >>>= 7;
+			}
+			buf[count++] = (byte) v;
+		}
+
+		private void writeInt(int v) {
+			ensure(4);
+			buf[count++] = (byte) (v >>> 24);
+			buf[count++] = (byte) (v >>> 16);
+			buf[count++] = (byte) (v >>> 8);
+			buf[count++] = (byte) v;
+		}
+
+		private void writeLong(long v) {
+			writeInt((int) (v >>> 32));
+			writeInt((int) v);
+		}
+
+		private void ensure(int n) {
+			if (count + n > buf.length) {
+				buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + n));
+			}
+		}
+	}
+
+	private final class Reader {
+		private final byte[] in;
+		private int pos = 0;
+		private List<Class<?>> classRefs;
+		private List<Descriptor> descriptorRefs;
+
+		Reader(byte[] in) {
+			this.in = in;
+		}
+
+		Object readValue(int depth) throws IOException {
+			if (depth > MAX_DEPTH) {
+				throw new IOException("Too deeply nested object");
+			}
+			int tag = readByte();
+			switch (tag) {
+			case NULL:
+				return null;
+			case TRUE:
+				return Boolean.TRUE;
+			case FALSE:
+				return Boolean.FALSE;
+			case INT:
+				return Integer.valueOf(unzigzag(readVarint()));
+			case LONG:
+				return Long.valueOf(unzigzag(readVarlong()));
+			case SHORT:
+				return Short.valueOf((short) unzigzag(readVarint()));
+			case BYTE:
+				return Byte.valueOf(readByte());
+			case CHAR:
+				return Character.valueOf((char) readVarint());
+			case FLOAT:
+				return Float.valueOf(Float.intBitsToFloat(readInt()));
+			case DOUBLE:
+				return Double.valueOf(Double.longBitsToDouble(readLong()));
+			case STRING:
+				return readString();
+			case BYTES:
+				return readBytes(readLength());
+			case DATE:
+				return new Date(unzigzag(readVarlong()));
+			case BIG_INTEGER:
+				return new BigInteger(readBytes(readLength()));
+			case BIG_DECIMAL:
+				int scale = unzigzag(readVarint());
+				return new BigDecimal(new BigInteger(readBytes(readLength())), scale);
+			case ENUM:
+				return readEnum();
+			case ARRAY:
+				return readArray(readClass(), depth);
+			case COLLECTION:
+			case SET:
+				return readCollection(tag, depth);
+			case MAP:
+				return readMap(depth);
+			case OBJECT:
+				return readObject(depth);
+			case JAVA:
+				return javaDeserialize(readBytes(readLength()));
+			default:
+				throw new IOException("Invalid tag " + tag + " at " + (pos - 1));
+			}
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		private Object readEnum() throws IOException {
+			Class c = readClass();
+			String name = readString();
+			try {
+				return Enum.valueOf(c, name);
+			} catch (RuntimeException e) {
+				throw new IOException("Invalid enum " + c.getName() + "." + name);
+			}
+		}
+
+		private Object readArray(Class<?> type, int depth) throws IOException {
+			int len = readLength();
+			if (type == int.class) {
+				int[] a = new int[len];
+				for (int i = 0; i < len; i++) {
+					a[i] = unzigzag(readVarint());
+				}
+				return a;
+			} else if (type == long.class) {
+				long[] a = new long[len];
+				for (int i = 0; i < len; i++) {
+					a[i] = unzigzag(readVarlong());
+				}
+				return a;
+			} else if (type == double.class) {
+				double[] a = new double[len];
+				for (int i = 0; i < len; i++) {
+					a[i] = Double.longBitsToDouble(readLong());
+				}
+				return a;
+			} else if (type == float.class) {
+				float[] a = new float[len];
+				for (int i = 0; i < len; i++) {
+					a[i] = Float.intBitsToFloat(readInt());
+				}
+				return a;
+			} else if (type == boolean.class) {
+				boolean[] a = new boolean[len];
+				for (int i = 0; i < len; i++) {
+					a[i] = readByte() != 0;
+				}
+				return a;
+			} else if (type == short.class) {
+				short[] a = new short[len];
+				for (int i = 0; i < len; i++) {
+					a[i] = (short) unzigzag(readVarint());
+				}
+				return a;
+			} else if (type == char.class) {
+				char[] a = new char[len];
+				for (int i = 0; i < len; i++) {
+					a[i] = (char) readVarint();
+				}
+				return a;
+			} else if (type == byte.class) {
+				return readBytes(len);
+			}
+			Object[] a = (Object[]) Array.newInstance(type, len);
+			try {
+				for (int i = 0; i < len; i++) {
+					a[i] = readValue(depth + 1);
+				}
+			} catch (ArrayStoreException e) {
+				throw new IOException("Invalid element of " + type.getName() + "[]");
+			}
+			return a;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Object readCollection(int tag, int depth) throws IOException {
+			ClassInfo info = classInfo(readClass());
+			int len = readLength();
+			Collection<Object> rv = null;
+			if (info.constructor != null
+					&& Collection.class.isAssignableFrom(info.type)) {
+				try {
+					rv = (Collection<Object>) info.constructor.newInstance();
+				} catch (Exception e) {
+					rv = null;
+				}
+			}
+			if (rv == null) {
+				rv = tag == SET ? new HashSet<Object>(len * 4 / 3 + 1)
+						: new ArrayList<Object>(len);
+			}
+			for (int i = 0; i < len; i++) {
+				rv.add(readValue(depth + 1));
+			}
+			return rv;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Object readMap(int depth) throws IOException {
+			ClassInfo info = classInfo(readClass());
+			int len = readLength();
+			Map<Object, Object> rv = null;
+			if (info.constructor != null && Map.class.isAssignableFrom(info.type)) {
+				try {
+					rv = (Map<Object, Object>) info.constructor.newInstance();
+				} catch (Exception e) {
+					rv = null;
+				}
+			}
+			if (rv == null) {
+				rv = new HashMap<Object, Object>(len * 4 / 3 + 1);
+			}
+			for (int i = 0; i < len; i++) {
+				Object key = readValue(depth + 1);
+				rv.put(key, readValue(depth + 1));
+			}
+			return rv;
+		}
+
+		private Object readObject(int depth) throws IOException {
+			Descriptor d = readDescriptor();
+			Object rv = d.info.newInstance();
+			for (FieldInfo f : d.fields) {
+				Object v = readValue(depth + 1);
+				if (f == null || (v == null && f.primitive)) {
+					continue;
+				}
+				try {
+					f.field.set(rv, v);
+				} catch (IllegalArgumentException e) {
+					// the type of the field changed; keep its default
+				} catch (IllegalAccessException e) {
+					throw new IOException("Cannot set " + f.name + " of "
+							+ d.info.type.getName());
+				}
+			}
+			return rv;
+		}
+
+		private Descriptor readDescriptor() throws IOException {
+			if (descriptorRefs == null) {
+				descriptorRefs = new ArrayList<Descriptor>();
+			}
+			int ref = readVarint();
+			if (ref > 0) {
+				if (ref > descriptorRefs.size()) {
+					throw new IOException("Invalid class descriptor " + ref);
+				}
+				return descriptorRefs.get(ref - 1);
+			}
+			ClassInfo info = classInfo(readClass());
+			if (info.fields == null) {
+				throw new IOException("Cannot create " + info.type.getName());
+			}
+			FieldInfo[] fields = new FieldInfo[readLength()];
+			for (int i = 0; i < fields.length; i++) {
+				fields[i] = info.fieldsByName.get(readString());
+			}
+			Descriptor d = new Descriptor(info, fields);
+			descriptorRefs.add(d);
+			return d;
+		}
+
+		private Class<?> readClass() throws IOException {
+			if (classRefs == null) {
+				classRefs = new ArrayList<Class<?>>();
+			}
+			int ref = readVarint();
+			if (ref > 0) {
+				if (ref > classRefs.size()) {
+					throw new IOException("Invalid class " + ref);
+				}
+				return classRefs.get(ref - 1);
+			}
+			Class<?> c = resolve(readString());
+			classRefs.add(c);
+			return c;
+		}
+
+		private String readString() throws IOException {
+			int len = readLength();
+			String s = new String(in, pos, len, UTF8);
+			pos += len;
+			return s;
+		}
+
+		// Read a length, which cannot be more than the bytes left since
+		// every element takes a byte at least.
+		private int readLength() throws IOException {
+			int len = readVarint();
+			if (len < 0 || len > in.length - pos) {
+				throw new IOException("Invalid length " + len + " at " + pos);
+			}
+			return len;
+		}
+
+		private byte[] readBytes(int len) throws IOException {
+			if (len > in.length - pos) {
+				throw new IOException("Truncated data");
+			}
+			byte[] b = Arrays.copyOfRange(in, pos, pos + len);
+			pos += len;
+			return b;
+		}
+
+		byte readByte() throws IOException {
+			if (pos == in.length) {
+				throw new IOException("Truncated data");
+			}
+			return in[pos++];
+		}
+
+		private int readVarint() throws IOException {
+			int v = 0;
+			for (int shift = 0; shift < 32; shift += 7) {
+				byte b = readByte();
+				v |= (b & 0x7f) << shift;
+				if (b >= 0) {
+					return v;
+				}
+			}
+			throw new IOException("Invalid varint at " + pos);
+		}
+
+		private long readVarlong() throws IOException {
+			long v = 0;
+			for (int shift = 0; shift < 64; shift += 7) {
+				byte b = readByte();
+				v |= (long) (b & 0x7f) << shift;
+				if (b >= 0) {
+					return v;
+				}
+			}
+			throw new IOException("Invalid varint at " + pos);
+		}
+
+		private int readInt() throws IOException {
+			if (in.length - pos < 4) {
+				throw new IOException("Truncated data");
+			}
+			int v = (in[pos] & 0xff) << 24 | (in[pos + 1] & 0xff) << 16
+					| (in[pos + 2] & 0xff) << 8 | (in[pos + 3] & 0xff);
+			pos += 4;
+			return v;
+		}
+
+		private long readLong() throws IOException {
+			return ((long) readInt() << 32) | (readInt() & 0xffffffffL);
+		}
+	}
+
+	private static int zigzag(int v) {
+		return (v << 1) ^ (v >> 31);
+	}
+
+	private static long zigzag(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+
+	private static int unzigzag(int v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private static long unzigzag(long v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	private static byte[] javaSerialize(Object o) {
+		try {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ObjectOutputStream os = new ObjectOutputStream(bos);
+			os.writeObject(o);
+			os.close();
+			return bos.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Non-serializable object, cause="
+					+ e.getMessage(), e);
+		}
+	}
+
+	private static Object javaDeserialize(byte[] in) throws IOException {
+		try {
+			return new ObjectInputStream(new ByteArrayInputStream(in)).readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException("Class not found: " + e.getMessage());
+		}
+	}
+}
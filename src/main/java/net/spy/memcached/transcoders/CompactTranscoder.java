@@ -0,0 +1,92 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+
+import net.spy.memcached.CachedData;
+
+/**
+ * Transcoder that writes objects in a compact binary format instead of
+ * Java serialization, and compresses them.
+ *
+ * Strings, numbers, dates and byte arrays are encoded as
+ * {@link SerializingTranscoder} does, and data it encoded are decoded, so
+ * that this transcoder can replace it on existing data.  Other objects
+ * are written field by field with the names of their fields, and need no
+ * Serializable interface.  Fields added to or removed from a class are
+ * tolerated: unknown fields are skipped and missing ones keep their
+ * default.  The fields of every class are looked up once and cached.
+ * Objects that cannot be written field by field, such as those without a
+ * no-arg constructor, are written with Java serialization inside the
+ * compact format.  These data are flagged apart, so that a
+ * SerializingTranscoder ignores them instead of failing to deserialize
+ * them.
+ */
+public class CompactTranscoder extends SerializingTranscoder {
+
+	private final CompactSerializer serializer=new CompactSerializer();
+
+	/**
+	 * Get a compact transcoder with the default max data size.
+	 */
+	public CompactTranscoder() {
+		this(CachedData.MAX_SIZE);
+	}
+
+	/**
+	 * Get a compact transcoder that specifies the max data size.
+	 */
+	public CompactTranscoder(int max) {
+		super(max);
+	}
+
+	@Override
+	public boolean asyncDecode(CachedData d) {
+		if((d.getFlags() & SPECIAL_MASK) == SPECIAL_COMPACT) {
+			return true;
+		}
+		return super.asyncDecode(d);
+	}
+
+	@Override
+	public Object decode(CachedData d) {
+		if((d.getFlags() & SPECIAL_MASK) != SPECIAL_COMPACT
+				|| (d.getFlags() & SERIALIZED) != 0) {
+			return super.decode(d);
+		}
+		byte[] data=getDecompressedData(d);
+		if(data == null) {
+			return null;
+		}
+		try {
+			return serializer.read(data);
+		} catch (IOException e) {
+			getLogger().warn("Caught IOException decoding %d bytes of data",
+					data.length, e);
+			return null;
+		}
+	}
+
+	@Override
+	public CachedData encode(Object o) {
+		if(!CompactSerializer.isCompactType(o)) {
+			return super.encode(o);
+		}
+		return newCachedData(o, serializer.write(o), SPECIAL_COMPACT);
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+
+/**
+ * A compression format of cached data.
+ *
+ * The id of the codec is stored in the flags of the data it compressed,
+ * so that data compressed with any registered codec can be read.
+ *
+ * @see CompressionCodecs
+ */
+public interface CompressionCodec {
+
+	/**
+	 * Get the id of this codec, from 0 to 15.
+	 */
+	int getId();
+
+	/**
+	 * Get the name of this codec.
+	 */
+	String getName();
+
+	/**
+	 * Compress the given array of bytes.
+	 */
+	byte[] compress(byte[] in);
+
+	/**
+	 * Decompress the given array of bytes.
+	 *
+	 * @throws IOException if the bytes are not valid compressed data
+	 */
+	byte[] decompress(byte[] in) throws IOException;
+}
@@ -0,0 +1,81 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The compression codecs, by id.
+ */
+public final class CompressionCodecs {
+
+	/**
+	 * The largest codec id.
+	 */
+	public static final int MAX_ID = 15;
+
+	/**
+	 * GZIP, the format of data compressed before codecs could be chosen.
+	 */
+	public static final CompressionCodec GZIP = new GzipCodec(0);
+
+	/**
+	 * The LZ4 block format, much faster than GZIP at a lower ratio.
+	 */
+	public static final CompressionCodec LZ4 = new Lz4Codec(1);
+
+	/**
+	 * The raw Snappy format, much faster than GZIP at a lower ratio.
+	 */
+	public static final CompressionCodec SNAPPY = new SnappyCodec(2);
+
+	private static final AtomicReferenceArray<CompressionCodec> codecs =
+		new AtomicReferenceArray<CompressionCodec>(MAX_ID + 1);
+
+	static {
+		register(GZIP);
+		register(LZ4);
+		register(SNAPPY);
+	}
+
+	private CompressionCodecs() {
+	}
+
+	/**
+	 * Register a codec, so that the data it compressed can be read.
+	 *
+	 * @throws IllegalArgumentException if the id of the codec is invalid
+	 *         or taken by another codec
+	 */
+	public static void register(CompressionCodec codec) {
+		int id = codec.getId();
+		if (id < 0 || id > MAX_ID) {
+			throw new IllegalArgumentException("Invalid codec id " + id);
+		}
+		if (!codecs.compareAndSet(id, null, codec) && codecs.get(id) != codec) {
+			throw new IllegalArgumentException("Codec id " + id
+					+ " is taken by " + codecs.get(id).getName());
+		}
+	}
+
+	/**
+	 * Get the codec with the given id, or null if none is registered.
+	 */
+	public static CompressionCodec get(int id) {
+		return id < 0 || id > MAX_ID ? null : codecs.get(id);
+	}
+}
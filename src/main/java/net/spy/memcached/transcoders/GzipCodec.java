@@ -0,0 +1,203 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * GZIP compression, with pooled deflaters and inflaters.
+ *
+ * The output is the same as that of GZIPOutputStream, and the input is
+ * a single GZIP member.  A Deflater holds a few hundred KB of native
+ * memory which is expensive to set up, so idle ones are kept for reuse.
+ */
+final class GzipCodec implements CompressionCodec {
+
+	private static final int POOL_SIZE =
+		Runtime.getRuntime().availableProcessors() * 2;
+	private static final int MAX_SIZE_HINT = 1 << 26;
+
+	private static final int FHCRC = 2;
+	private static final int FEXTRA = 4;
+	private static final int FNAME = 8;
+	private static final int FCOMMENT = 16;
+	private static final byte[] HEADER = {
+		0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0
+	};
+	private static final int TRAILER_SIZE = 8;
+
+	private final int id;
+	private final BlockingQueue<Deflater> deflaters =
+		new ArrayBlockingQueue<Deflater>(POOL_SIZE);
+	private final BlockingQueue<Inflater> inflaters =
+		new ArrayBlockingQueue<Inflater>(POOL_SIZE);
+
+	GzipCodec(int id) {
+		this.id = id;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return "GZIP";
+	}
+
+	public byte[] compress(byte[] in) {
+		if (in == null) {
+			throw new NullPointerException("Can't compress null");
+		}
+		Deflater deflater = deflaters.poll();
+		if (deflater == null) {
+			deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+		}
+		try {
+			deflater.setInput(in);
+			deflater.finish();
+			byte[] out = new byte[HEADER.length + in.length / 2 + 64];
+			System.arraycopy(HEADER, 0, out, 0, HEADER.length);
+			int len = HEADER.length;
+			while (!deflater.finished()) {
+				if (len == out.length) {
+					out = Arrays.copyOf(out, out.length * 2);
+				}
+				len += deflater.deflate(out, len, out.length - len);
+			}
+			CRC32 crc = new CRC32();
+			crc.update(in);
+			out = Arrays.copyOf(out, len + TRAILER_SIZE);
+			putIntLE(out, len, (int) crc.getValue());
+			putIntLE(out, len + 4, in.length);
+			return out;
+		} finally {
+			release(deflater);
+		}
+	}
+
+	public byte[] decompress(byte[] in) throws IOException {
+		int pos = readHeader(in);
+		int size = getIntLE(in, in.length - 4);
+		byte[] out = new byte[size >= 0 && size <= MAX_SIZE_HINT
+				? size : in.length * 4];
+		int len = 0;
+
+		Inflater inflater = inflaters.poll();
+		if (inflater == null) {
+			inflater = new Inflater(true);
+		}
+		try {
+			inflater.setInput(in, pos, in.length - pos);
+			while (!inflater.finished()) {
+				if (len == out.length) {
+					out = Arrays.copyOf(out, Math.max(64, out.length * 2));
+				}
+				int n = inflater.inflate(out, len, out.length - len);
+				if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+					throw new IOException("Truncated GZIP data");
+				}
+				len += n;
+			}
+			pos = in.length - inflater.getRemaining();
+		} catch (DataFormatException e) {
+			throw new IOException("Invalid GZIP data: " + e.getMessage());
+		} finally {
+			release(inflater);
+		}
+
+		if (in.length - pos < TRAILER_SIZE) {
+			throw new IOException("Truncated GZIP data");
+		}
+		CRC32 crc = new CRC32();
+		crc.update(out, 0, len);
+		if (getIntLE(in, pos) != (int) crc.getValue()
+				|| getIntLE(in, pos + 4) != len) {
+			throw new IOException("Corrupt GZIP data");
+		}
+		return len == out.length ? out : Arrays.copyOf(out, len);
+	}
+
+	// Get the position of the compressed data after the header.
+	private static int readHeader(byte[] in) throws IOException {
+		if (in.length < HEADER.length + TRAILER_SIZE
+				|| in[0] != HEADER[0] || in[1] != HEADER[1]
+				|| in[2] != Deflater.DEFLATED) {
+			throw new IOException("Not in GZIP format");
+		}
+		int flags = in[3];
+		int pos = HEADER.length;
+		if ((flags & FEXTRA) != 0) {
+			pos += 2 + ((in[pos] & 0xff) | (in[pos + 1] & 0xff) << 8);
+		}
+		if ((flags & FNAME) != 0) {
+			pos = skipString(in, pos);
+		}
+		if ((flags & FCOMMENT) != 0) {
+			pos = skipString(in, pos);
+		}
+		if ((flags & FHCRC) != 0) {
+			pos += 2;
+		}
+		if (pos > in.length - TRAILER_SIZE) {
+			throw new IOException("Truncated GZIP header");
+		}
+		return pos;
+	}
+
+	private static int skipString(byte[] in, int pos) throws IOException {
+		while (pos < in.length && in[pos] != 0) {
+			pos++;
+		}
+		if (pos == in.length) {
+			throw new IOException("Truncated GZIP header");
+		}
+		return pos + 1;
+	}
+
+	private void release(Deflater deflater) {
+		deflater.reset();
+		if (!deflaters.offer(deflater)) {
+			deflater.end();
+		}
+	}
+
+	private void release(Inflater inflater) {
+		inflater.reset();
+		if (!inflaters.offer(inflater)) {
+			inflater.end();
+		}
+	}
+
+	private static void putIntLE(byte[] b, int pos, int v) {
+		b[pos] = (byte) v;
+		b[pos + 1] = (byte) (v >>> 8);
+		b[pos + 2] = (byte) (v >>> 16);
+		b[pos + 3] = (byte) (v >>> 24);
+	}
+
+	private static int getIntLE(byte[] b, int pos) {
+		return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8
+				| (b[pos + 2] & 0xff) << 16 | (b[pos + 3] & 0xff) << 24;
+	}
+}
@@ -0,0 +1,222 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * LZ4 compression.
+ *
+ * The output is the length of the data as a big-endian int followed by an
+ * LZ4 block.  Matches are found greedily with a hash table of 4-byte
+ * sequences, skipping faster through data that does not compress.
+ */
+final class Lz4Codec implements CompressionCodec {
+
+	private static final int MIN_MATCH = 4;
+	private static final int LAST_LITERALS = 5;
+	private static final int MF_LIMIT = 12;
+	private static final int MAX_DISTANCE = 65535;
+	private static final int HASH_LOG = 12;
+	private static final int SKIP_STRENGTH = 6;
+	private static final int RUN_MASK = 15;
+
+	private final int id;
+
+	Lz4Codec(int id) {
+		this.id = id;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return "LZ4";
+	}
+
+	public byte[] compress(byte[] in) {
+		if (in == null) {
+			throw new NullPointerException("Can't compress null");
+		}
+		int n = in.length;
+		byte[] out = new byte[4 + n + n / 255 + 16];
+		out[0] = (byte) (n >>> 24);
+		out[1] = (byte) (n >>> 16);
+		out[2] = (byte) (n >>> 8);
+		out[3] = (byte) n;
+		int op = 4;
+		int anchor = 0;
+
+		if (n > MF_LIMIT) {
+			int[] table = new int[1 << HASH_LOG];
+			int limit = n - MF_LIMIT;
+			int matchLimit = n - LAST_LITERALS;
+			int ip = 1;
+			while (ip < limit) {
+				int seq = getInt(in, ip);
+				int h = hash(seq);
+				int ref = table[h];
+				table[h] = ip;
+				if (ref >= ip || ip - ref > MAX_DISTANCE || getInt(in, ref) != seq) {
+					ip += 1 + ((ip - anchor) >>> SKIP_STRENGTH);
+					continue;
+				}
+				while (ip > anchor && ref > 0 && in[ip - 1] == in[ref - 1]) {
+					ip--;
+					ref--;
+				}
+				int len = MIN_MATCH;
+				while (ip + len < matchLimit && in[ip + len] == in[ref + len]) {
+					len++;
+				}
+				op = writeSequence(in, anchor, ip - anchor, ip - ref, len, out, op);
+				ip += len;
+				anchor = ip;
+				if (ip < limit) {
+					table[hash(getInt(in, ip - 2))] = ip - 2;
+				}
+			}
+		}
+
+		// the last sequence has literals only
+		int literals = n - anchor;
+		int token = op++;
+		if (literals >= RUN_MASK) {
+			out[token] = (byte) (RUN_MASK << 4);
+			op = writeLength(literals - RUN_MASK, out, op);
+		} else {
+			out[token] = (byte) (literals << 4);
+		}
+		System.arraycopy(in, anchor, out, op, literals);
+		op += literals;
+		return Arrays.copyOf(out, op);
+	}
+
+	private static int writeSequence(byte[] in, int literalStart, int literals,
+			int offset, int matchLength, byte[] out, int op) {
+		int token = op++;
+		int ml = matchLength - MIN_MATCH;
+		out[token] = (byte) ((Math.min(literals, RUN_MASK) << 4)
+				| Math.min(ml, RUN_MASK));
+		if (literals >= RUN_MASK) {
+			op = writeLength(literals - RUN_MASK, out, op);
+		}
+		System.arraycopy(in, literalStart, out, op, literals);
+		op += literals;
+		out[op++] = (byte) offset;
+		out[op++] = (byte) (offset >>> 8);
+		if (ml >= RUN_MASK) {
+			op = writeLength(ml - RUN_MASK, out, op);
+		}
+		return op;
+	}
+
+	private static int writeLength(int len, byte[] out, int op) {
+		while (len >= 255) {
+			out[op++] = (byte) 255;
+			len -= 255;
+		}
+		out[op++] = (byte) len;
+		return op;
+	}
+
+	public byte[] decompress(byte[] in) throws IOException {
+		if (in.length < 5) {
+			throw new IOException("Truncated LZ4 data");
+		}
+		int n = (in[0] & 0xff) << 24 | (in[1] & 0xff) << 16
+				| (in[2] & 0xff) << 8 | (in[3] & 0xff);
+		if (n < 0) {
+			throw new IOException("Invalid LZ4 data length " + n);
+		}
+		byte[] out = new byte[n];
+		int ip = 4;
+		int op = 0;
+		for (;;) {
+			int token = in[ip++] & 0xff;
+			int literals = token >>> 4;
+			if (literals == RUN_MASK) {
+				int b;
+				do {
+					if (ip == in.length) {
+						throw new IOException("Truncated LZ4 data");
+					}
+					b = in[ip++] & 0xff;
+					literals += b;
+				} while (b == 255 && literals <= n);
+			}
+			if (literals > in.length - ip || literals > n - op) {
+				throw new IOException("Corrupt LZ4 data");
+			}
+			System.arraycopy(in, ip, out, op, literals);
+			ip += literals;
+			op += literals;
+			if (ip == in.length) {
+				break;
+			}
+
+			if (in.length - ip < 3) {
+				throw new IOException("Truncated LZ4 data");
+			}
+			int offset = (in[ip] & 0xff) | (in[ip + 1] & 0xff) << 8;
+			ip += 2;
+			int len = token & RUN_MASK;
+			if (len == RUN_MASK) {
+				int b;
+				do {
+					if (ip == in.length) {
+						throw new IOException("Truncated LZ4 data");
+					}
+					b = in[ip++] & 0xff;
+					len += b;
+				} while (b == 255 && len <= n);
+			}
+			len += MIN_MATCH;
+			if (offset == 0 || offset > op || len > n - op || ip == in.length) {
+				throw new IOException("Corrupt LZ4 data");
+			}
+			copyMatch(out, op, offset, len);
+			op += len;
+		}
+		if (op != n) {
+			throw new IOException("Corrupt LZ4 data");
+		}
+		return out;
+	}
+
+	static void copyMatch(byte[] out, int op, int offset, int len) {
+		int ref = op - offset;
+		if (offset >= len) {
+			System.arraycopy(out, ref, out, op, len);
+		} else {
+			for (int i = 0; i < len; i++) {
+				out[op + i] = out[ref + i];
+			}
+		}
+	}
+
+	static int getInt(byte[] b, int pos) {
+		return (b[pos] & 0xff) | (b[pos + 1] & 0xff) << 8
+				| (b[pos + 2] & 0xff) << 16 | (b[pos + 3] & 0xff) << 24;
+	}
+
+	private static int hash(int seq) {
+		return (seq * -1640531535) >>> (32 - HASH_LOG);
+	}
+}
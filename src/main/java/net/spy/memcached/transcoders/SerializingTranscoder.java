@@ -32,6 +32,10 @@ public class SerializingTranscoder extends BaseSerializingTranscoder
 	static final int SERIALIZED=1;
 	static final int COMPRESSED=2;
 
+	// The id of the codec of compressed data, 0 for GZIP.
+	static final int CODEC_SHIFT=16;
+	static final int CODEC_MASK=CompressionCodecs.MAX_ID << CODEC_SHIFT;
+
 	// Special flags for specially handled types.
 	protected static final int SPECIAL_MASK=0xff00;
 	static final int SPECIAL_BOOLEAN=(1<<8);
@@ -42,6 +46,8 @@ public class SerializingTranscoder extends BaseSerializingTranscoder
 	static final int SPECIAL_FLOAT=(6<<8);
 	static final int SPECIAL_DOUBLE=(7<<8);
 	static final int SPECIAL_BYTEARRAY=(8<<8);
+	// objects in the format of the compact transcoders
+	static final int SPECIAL_COMPACT=(9<<8);
 
 	protected final TranscoderUtils tu=new TranscoderUtils(true);
 
@@ -72,11 +78,11 @@ public class SerializingTranscoder extends BaseSerializingTranscoder
 	 * @see net.spy.memcached.Transcoder#decode(net.spy.memcached.CachedData)
 	 */
 	public Object decode(CachedData d) {
-		byte[] data=d.getData();
-		Object rv=null;
-		if((d.getFlags() & COMPRESSED) != 0) {
-			data=decompress(d.getData());
+		byte[] data=getDecompressedData(d);
+		if(data == null) {
+			return null;
 		}
+		Object rv=null;
 		int flags=d.getFlags() & SPECIAL_MASK;
 		if((d.getFlags() & SERIALIZED) != 0 && data != null) {
 			rv=deserialize(data);
@@ -152,13 +158,42 @@ public class SerializingTranscoder extends BaseSerializingTranscoder
 			flags |= SERIALIZED;
 		}
 		assert b != null;
+		return newCachedData(o, b, flags);
+	}
+
+	/**
+	 * Get the data of the given cached data, decompressed if it was
+	 * compressed.
+	 *
+	 * @return null if the data cannot be decompressed
+	 */
+	protected byte[] getDecompressedData(CachedData d) {
+		if((d.getFlags() & COMPRESSED) == 0) {
+			return d.getData();
+		}
+		int id=(d.getFlags() & CODEC_MASK) >>> CODEC_SHIFT;
+		CompressionCodec codec=CompressionCodecs.get(id);
+		if(codec == null) {
+			getLogger().warn("Undecodeable with compression codec %d", id);
+			return null;
+		}
+		return decompress(d.getData(), codec);
+	}
+
+	/**
+	 * Get the cached data of the encoded value of the given object,
+	 * compressed if it is larger than the compression threshold and
+	 * compresses.
+	 */
+	protected CachedData newCachedData(Object o, byte[] b, int flags) {
 		if(b.length > compressionThreshold) {
-			byte[] compressed=compress(b);
+			CompressionCodec codec=getCompressionCodec();
+			byte[] compressed=compress(b, codec);
 			if(compressed.length < b.length) {
 				getLogger().debug("Compressed %s from %d to %d",
 					o.getClass().getName(), b.length, compressed.length);
 				b=compressed;
-				flags |= COMPRESSED;
+				flags |= COMPRESSED | (codec.getId() << CODEC_SHIFT);
 			} else {
 				getLogger().info(
 					"Compression increased the size of %s from %d to %d",
@@ -0,0 +1,227 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Snappy compression, in the raw Snappy format.
+ *
+ * The input is compressed in blocks of 64 KB, with matches found greedily
+ * with a hash table of 4-byte sequences.
+ */
+final class SnappyCodec implements CompressionCodec {
+
+	private static final int BLOCK_SIZE = 1 << 16;
+	private static final int HASH_LOG = 14;
+	private static final int SKIP_STRENGTH = 5;
+
+	private static final int LITERAL = 0;
+	private static final int COPY_1_BYTE_OFFSET = 1;
+	private static final int COPY_2_BYTE_OFFSET = 2;
+	private static final int COPY_4_BYTE_OFFSET = 3;
+
+	private final int id;
+
+	SnappyCodec(int id) {
+		this.id = id;
+	}
+
+	public int getId() {
+		return id;
+	}
+
+	public String getName() {
+		return "SNAPPY";
+	}
+
+	public byte[] compress(byte[] in) {
+		if (in == null) {
+			throw new NullPointerException("Can't compress null");
+		}
+		int n = in.length;
+		byte[] out = new byte[32 + n + n / 6];
+		int op = 0;
+		int v = n;
+		while ((v & ~0x7f) != 0) {
+			out[op++] = (byte) ((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		out[op++] = (byte) v;
+
+		int[] table = new int[1 << HASH_LOG];
+		for (int start = 0; start < n; start += BLOCK_SIZE) {
+			op = compressBlock(in, start, Math.min(n, start + BLOCK_SIZE),
+					table, out, op);
+		}
+		return Arrays.copyOf(out, op);
+	}
+
+	private static int compressBlock(byte[] in, int start, int end,
+			int[] table, byte[] out, int op) {
+		int anchor = start;
+		int ip = start + 1;
+		while (ip <= end - 4) {
+			int seq = Lz4Codec.getInt(in, ip);
+			int h = (seq * 0x1e35a7bd) >>> (32 - HASH_LOG);
+			int ref = table[h];
+			table[h] = ip;
+			if (ref < start || ref >= ip || Lz4Codec.getInt(in, ref) != seq) {
+				ip += 1 + ((ip - anchor) >>> SKIP_STRENGTH);
+				continue;
+			}
+			int len = 4;
+			while (ip + len < end && in[ip + len] == in[ref + len]) {
+				len++;
+			}
+			if (ip > anchor) {
+				op = writeLiteral(in, anchor, ip - anchor, out, op);
+			}
+			op = writeCopy(ip - ref, len, out, op);
+			ip += len;
+			anchor = ip;
+		}
+		if (anchor < end) {
+			op = writeLiteral(in, anchor, end - anchor, out, op);
+		}
+		return op;
+	}
+
+	private static int writeLiteral(byte[] in, int pos, int len, byte[] out,
+			int op) {
+		int n = len - 1;
+		if (n < 60) {
+			out[op++] = (byte) (LITERAL | n << 2);
+		} else if (n < 1 << 8) {
+			out[op++] = (byte) (LITERAL | 60 << 2);
+			out[op++] = (byte) n;
+		} else {
+			// a literal is at most a block long
+			out[op++] = (byte) (LITERAL | 61 << 2);
+			out[op++] = (byte) n;
+			out[op++] = (byte) (n >>> 8);
+		}
+		System.arraycopy(in, pos, out, op, len);
+		return op + len;
+	}
+
+	private static int writeCopy(int offset, int len, byte[] out, int op) {
+		while (len >= 68) {
+			op = writeShortCopy(offset, 64, out, op);
+			len -= 64;
+		}
+		if (len > 64) {
+			op = writeShortCopy(offset, 60, out, op);
+			len -= 60;
+		}
+		return writeShortCopy(offset, len, out, op);
+	}
+
+	// Write a copy of 4 to 64 bytes.
+	private static int writeShortCopy(int offset, int len, byte[] out, int op) {
+		if (len < 12 && offset < 2048) {
+			out[op++] = (byte) (COPY_1_BYTE_OFFSET | (len - 4) << 2
+					| (offset >>> 8) << 5);
+			out[op++] = (byte) offset;
+		} else {
+			out[op++] = (byte) (COPY_2_BYTE_OFFSET | (len - 1) << 2);
+			out[op++] = (byte) offset;
+			out[op++] = (byte) (offset >>> 8);
+		}
+		return op;
+	}
+
+	public byte[] decompress(byte[] in) throws IOException {
+		int ip = 0;
+		long n = 0;
+		for (int shift = 0;; shift += 7) {
+			if (ip == in.length || shift > 28) {
+				throw new IOException("Invalid Snappy data length");
+			}
+			int b = in[ip++] & 0xff;
+			n |= (long) (b & 0x7f) << shift;
+			if (b < 0x80) {
+				break;
+			}
+		}
+		if (n > Integer.MAX_VALUE) {
+			throw new IOException("Invalid Snappy data length " + n);
+		}
+		byte[] out = new byte[(int) n];
+		int op = 0;
+		while (ip < in.length) {
+			int tag = in[ip++] & 0xff;
+			int len;
+			int offset;
+			switch (tag & 3) {
+			case LITERAL:
+				len = tag >>> 2;
+				if (len >= 60) {
+					int bytes = len - 59;
+					if (in.length - ip < bytes) {
+						throw new IOException("Truncated Snappy data");
+					}
+					len = 0;
+					for (int i = 0; i < bytes; i++) {
+						len |= (in[ip++] & 0xff) << (i * 8);
+					}
+				}
+				len++;
+				if (len <= 0 || len > in.length - ip || len > out.length - op) {
+					throw new IOException("Corrupt Snappy data");
+				}
+				System.arraycopy(in, ip, out, op, len);
+				ip += len;
+				op += len;
+				continue;
+			case COPY_1_BYTE_OFFSET:
+				if (ip == in.length) {
+					throw new IOException("Truncated Snappy data");
+				}
+				len = ((tag >>> 2) & 7) + 4;
+				offset = (tag >>> 5) << 8 | (in[ip++] & 0xff);
+				break;
+			case COPY_2_BYTE_OFFSET:
+				if (in.length - ip < 2) {
+					throw new IOException("Truncated Snappy data");
+				}
+				len = (tag >>> 2) + 1;
+				offset = (in[ip] & 0xff) | (in[ip + 1] & 0xff) << 8;
+				ip += 2;
+				break;
+			default:
+				if (in.length - ip < 4) {
+					throw new IOException("Truncated Snappy data");
+				}
+				len = (tag >>> 2) + 1;
+				offset = Lz4Codec.getInt(in, ip);
+				ip += 4;
+				break;
+			}
+			if (offset <= 0 || offset > op || len > out.length - op) {
+				throw new IOException("Corrupt Snappy data");
+			}
+			Lz4Codec.copyMatch(out, op, offset, len);
+			op += len;
+		}
+		if (op != out.length) {
+			throw new IOException("Corrupt Snappy data");
+		}
+		return out;
+	}
+}
@@ -1,14 +1,20 @@
 package net.spy.memcached.transcoders;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import net.spy.memcached.CachedData;
 import net.spy.memcached.compat.SpyObject;
@@ -19,13 +25,42 @@ import net.spy.memcached.internal.BasicThreadFactory;
  */
 public class TranscodeService extends SpyObject {
 
+	// decodes taken by a thread of a bulk decode at once
+	private static final int BULK_DECODE_BATCH = 16;
+
 	private final ThreadPoolExecutor pool;
+	private final ThreadPoolExecutor bulkPool;
+	private final int bulkDecodeThreshold;
 
 	public TranscodeService(boolean daemon) {
+		this(daemon, 0);
+	}
+
+	/**
+	 * Get a transcode service that decodes the values of large bulk
+	 * results in parallel.
+	 *
+	 * @param daemon whether the threads are daemon threads
+	 * @param bulkDecodeThreshold the fewest decodes run in parallel by
+	 *        {@link #decodeAll(Collection)}, or 0 to run them on the
+	 *        calling thread
+	 */
+	public TranscodeService(boolean daemon, int bulkDecodeThreshold) {
 		pool = new ThreadPoolExecutor(1, 10, 60L,
 			TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(100),
 			new BasicThreadFactory("transcoder", daemon),
 			new ThreadPoolExecutor.DiscardPolicy());
+		// the thread of a bulk decode decodes too
+		int helpers = Runtime.getRuntime().availableProcessors() - 1;
+		if (bulkDecodeThreshold > 0 && helpers > 0) {
+			bulkPool = new ThreadPoolExecutor(helpers, helpers, 60L,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+				new BasicThreadFactory("bulk-transcoder", daemon));
+			bulkPool.allowCoreThreadTimeOut(true);
+		} else {
+			bulkPool = null;
+		}
+		this.bulkDecodeThreshold = bulkDecodeThreshold;
 	}
 
 	/**
@@ -49,11 +84,72 @@ public class TranscodeService extends SpyObject {
 		return task;
 	}
 
+	/**
+	 * Get a decode that is run once its result is asked for, or by
+	 * {@link #decodeAll(Collection)}.
+	 */
+	public <T> Future<T> decodeLazily(final Transcoder<T> tc,
+			final CachedData cachedData) {
+		return new TranscodeService.Task<T>(new Callable<T>() {
+			public T call() {
+				return tc.decode(cachedData);
+			}
+		});
+	}
+
+	/**
+	 * Run the decodes of the given futures that are not started yet, in
+	 * parallel if there are at least as many as the bulk decode threshold.
+	 * Futures not made by this service are ignored.  The calling thread
+	 * decodes too, and returns once every decode is started; the get of a
+	 * future waits for a decode still running.
+	 */
+	public void decodeAll(Collection<? extends Future<?>> futures) {
+		final List<Task<?>> tasks = new ArrayList<Task<?>>(futures.size());
+		for (Future<?> f : futures) {
+			if (f instanceof Task && !((Task<?>) f).isStarted()) {
+				tasks.add((Task<?>) f);
+			}
+		}
+		if (bulkPool == null || tasks.size() < bulkDecodeThreshold) {
+			for (Task<?> t : tasks) {
+				t.run();
+			}
+			return;
+		}
+
+		final AtomicInteger next = new AtomicInteger(0);
+		Runnable worker = new Runnable() {
+			public void run() {
+				int i;
+				while ((i = next.getAndAdd(BULK_DECODE_BATCH)) < tasks.size()) {
+					int end = Math.min(i + BULK_DECODE_BATCH, tasks.size());
+					for (; i < end; i++) {
+						tasks.get(i).run();
+					}
+				}
+			}
+		};
+		int helpers = Math.min(bulkPool.getMaximumPoolSize(),
+				tasks.size() / BULK_DECODE_BATCH - 1);
+		try {
+			for (int i = 0; i < helpers; i++) {
+				bulkPool.execute(worker);
+			}
+		} catch (RejectedExecutionException e) {
+			// shut down; the calling thread decodes the rest
+		}
+		worker.run();
+	}
+
 	/**
 	 * Shut down the pool.
 	 */
 	public void shutdown() {
 		pool.shutdown();
+		if (bulkPool != null) {
+			bulkPool.shutdown();
+		}
 	}
 
 	/**
@@ -89,6 +185,10 @@ public class TranscodeService extends SpyObject {
 				super.run();
 			}
 		}
+
+		boolean isStarted() {
+			return isRunning.get();
+		}
 	}
 
 }
@@ -48,6 +48,18 @@ public class WhalinTranscoder extends BaseSerializingTranscoder
 		super(CachedData.MAX_SIZE);
 	}
 
+	/**
+	 * Only GZIP can be set, the compression of the Whalin client.
+	 */
+	@Override
+	public void setCompressionCodec(CompressionCodec to) {
+		if(to != CompressionCodecs.GZIP) {
+			throw new IllegalArgumentException(
+				"The Whalin client reads GZIP compressed data only");
+		}
+		super.setCompressionCodec(to);
+	}
+
 	/* (non-Javadoc)
 	 * @see net.spy.memcached.Transcoder#decode(net.spy.memcached.CachedData)
 	 */
@@ -34,6 +34,18 @@ public class WhalinV1Transcoder extends BaseSerializingTranscoder
 		super(CachedData.MAX_SIZE);
 	}
 
+	/**
+	 * Only GZIP can be set, the compression of the Whalin client.
+	 */
+	@Override
+	public void setCompressionCodec(CompressionCodec to) {
+		if (to != CompressionCodecs.GZIP) {
+			throw new IllegalArgumentException(
+				"The Whalin client reads GZIP compressed data only");
+		}
+		super.setCompressionCodec(to);
+	}
+
 	public CachedData encode(Object o) {
 		byte[] b = null;
 		int flags = 0;
@@ -0,0 +1,305 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * A reusable buffer for an ascii protocol line that reads the line out of
+ * a ByteBuffer and gives access to its space separated tokens without
+ * creating intermediate Strings.
+ *
+ * Tokens follow String.split(" "): a leading space gives an empty first
+ * token and trailing empty tokens are dropped.
+ */
+public final class LineTokenizer {
+
+	private static final Charset CHARSET = Charset.forName("UTF-8");
+
+	private byte[] buf;
+	private int length = 0;
+	private boolean lineRead = false;
+
+	// token boundaries, computed on first use
+	private int[] starts = new int[8];
+	private int[] ends = new int[8];
+	private int tokens = -1;
+
+	public LineTokenizer() {
+		this(64);
+	}
+
+	public LineTokenizer(int size) {
+		buf = new byte[size];
+	}
+
+	/**
+	 * Create a tokenizer holding the given line, encoded as UTF-8.
+	 */
+	public LineTokenizer(String line) {
+		buf = line.getBytes(CHARSET);
+		length = buf.length;
+	}
+
+	/**
+	 * Read from the buffer up to and including the next \n.  The line
+	 * previously read, if any, is discarded first.
+	 *
+	 * @return true if a whole line is available, false if more data
+	 *         is needed
+	 */
+	public boolean readLine(ByteBuffer data) {
+		if (lineRead) {
+			clear();
+		}
+		int pos = data.position();
+		int limit = data.limit();
+		int end = pos;
+		if (data.hasArray()) {
+			byte[] a = data.array();
+			int off = data.arrayOffset();
+			while (end < limit && a[off + end] != '\n') {
+				end++;
+			}
+			append(a, off + pos, end - pos);
+		} else {
+			while (end < limit && data.get(end) != '\n') {
+				append(data.get(end));
+				end++;
+			}
+		}
+		if (end == limit) {
+			data.position(limit);
+			return false;
+		}
+		data.position(end + 1);
+		assert length > 0 && buf[length - 1] == '\r'
+			: "got a \\n without a \\r";
+		if (length > 0 && buf[length - 1] == '\r') {
+			length--;
+		}
+		lineRead = true;
+		return true;
+	}
+
+	public void append(byte b) {
+		ensureCapacity(length + 1);
+		buf[length++] = b;
+		tokens = -1;
+	}
+
+	public void append(byte[] b, int off, int len) {
+		ensureCapacity(length + len);
+		System.arraycopy(b, off, buf, length, len);
+		length += len;
+		tokens = -1;
+	}
+
+	public void clear() {
+		length = 0;
+		tokens = -1;
+		lineRead = false;
+	}
+
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * Does the whole line equal the given bytes?
+	 */
+	public boolean matches(byte[] b) {
+		return length == b.length && regionMatches(0, b);
+	}
+
+	/**
+	 * Does the whole line equal the given ascii string?
+	 */
+	public boolean matches(String s) {
+		if (length != s.length()) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (buf[i] != s.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Does the token equal the given ascii string?
+	 */
+	public boolean tokenMatches(int i, String s) {
+		checkToken(i);
+		if (ends[i] - starts[i] != s.length()) {
+			return false;
+		}
+		for (int p = 0; p < s.length(); p++) {
+			if (buf[starts[i] + p] != s.charAt(p)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public boolean startsWith(byte[] prefix) {
+		return length >= prefix.length && regionMatches(0, prefix);
+	}
+
+	public int countTokens() {
+		tokenize();
+		return tokens;
+	}
+
+	public boolean tokenStartsWith(int i, byte[] prefix) {
+		checkToken(i);
+		return ends[i] - starts[i] >= prefix.length
+			&& regionMatches(starts[i], prefix);
+	}
+
+	public String getString(int i) {
+		return getString(i, 0);
+	}
+
+	/**
+	 * Get a token as a String, leaving out its first skip bytes.
+	 */
+	public String getString(int i, int skip) {
+		checkToken(i);
+		int start = Math.min(starts[i] + skip, ends[i]);
+		return new String(buf, start, ends[i] - start, CHARSET);
+	}
+
+	public int getInt(int i) {
+		long v = getLong(i);
+		if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) {
+			throw new NumberFormatException("For input string: \""
+					+ getString(i) + "\"");
+		}
+		return (int) v;
+	}
+
+	/**
+	 * Parse a decimal token the way Long.parseLong does.
+	 */
+	public long getLong(int i) {
+		checkToken(i);
+		int p = starts[i];
+		int end = ends[i];
+		boolean negative = false;
+		if (p < end && (buf[p] == '-' || buf[p] == '+')) {
+			negative = buf[p] == '-';
+			p++;
+		}
+		if (p == end) {
+			throw new NumberFormatException("For input string: \""
+					+ getString(i) + "\"");
+		}
+		// accumulate negatively to reach Long.MIN_VALUE
+		long v = 0;
+		for (; p < end; p++) {
+			int d = buf[p] - '0';
+			if (d < 0 || d > 9 || v < (Long.MIN_VALUE + d) / 10) {
+				throw new NumberFormatException("For input string: \""
+						+ getString(i) + "\"");
+			}
+			v = v * 10 - d;
+		}
+		if (!negative) {
+			if (v == Long.MIN_VALUE) {
+				throw new NumberFormatException("For input string: \""
+						+ getString(i) + "\"");
+			}
+			v = -v;
+		}
+		return v;
+	}
+
+	/**
+	 * Copy the line out as bytes.
+	 */
+	public byte[] toByteArray() {
+		byte[] b = new byte[length];
+		System.arraycopy(buf, 0, b, 0, length);
+		return b;
+	}
+
+	@Override
+	public String toString() {
+		return new String(buf, 0, length, CHARSET);
+	}
+
+	private boolean regionMatches(int offset, byte[] b) {
+		for (int i = 0; i < b.length; i++) {
+			if (buf[offset + i] != b[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void checkToken(int i) {
+		tokenize();
+		if (i < 0 || i >= tokens) {
+			throw new ArrayIndexOutOfBoundsException(i);
+		}
+	}
+
+	private void tokenize() {
+		if (tokens >= 0) {
+			return;
+		}
+		tokens = 0;
+		int start = 0;
+		for (int p = 0; p <= length; p++) {
+			if (p == length || buf[p] == ' ') {
+				if (tokens == starts.length) {
+					int[] s = new int[tokens * 2];
+					int[] e = new int[tokens * 2];
+					System.arraycopy(starts, 0, s, 0, tokens);
+					System.arraycopy(ends, 0, e, 0, tokens);
+					starts = s;
+					ends = e;
+				}
+				starts[tokens] = start;
+				ends[tokens] = p;
+				tokens++;
+				start = p + 1;
+			}
+		}
+		// drop trailing empty tokens, as String.split does
+		while (tokens > 0 && starts[tokens - 1] == ends[tokens - 1]) {
+			tokens--;
+		}
+		if (tokens == 0 && length == 0) {
+			// "".split(" ") is [""]
+			starts[0] = 0;
+			ends[0] = 0;
+			tokens = 1;
+		}
+	}
+
+	private void ensureCapacity(int size) {
+		if (size > buf.length) {
+			byte[] b = new byte[Math.max(size, buf.length * 2)];
+			System.arraycopy(buf, 0, b, 0, length);
+			buf = b;
+		}
+	}
+}
@@ -0,0 +1,57 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+public class ResultUtil {
+
+	/**
+	 * Copy a result shared by several readers, so that one may change its
+	 * own.  Maps, collections and byte arrays are copied in their order,
+	 * but not their elements.  Other values are returned as they are.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static <T> T copy(T v) {
+		Object c;
+		if (v instanceof SortedMap) {
+			c = new TreeMap((SortedMap) v);
+		} else if (v instanceof Map) {
+			c = new LinkedHashMap((Map) v);
+		} else if (v instanceof List) {
+			c = new ArrayList((List) v);
+		} else if (v instanceof SortedSet) {
+			c = new TreeSet((SortedSet) v);
+		} else if (v instanceof Set) {
+			c = new LinkedHashSet((Set) v);
+		} else if (v instanceof byte[]) {
+			c = ((byte[]) v).clone();
+		} else {
+			return v;
+		}
+		return (T) c;
+	}
+}
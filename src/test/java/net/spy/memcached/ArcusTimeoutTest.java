@@ -90,19 +90,6 @@ public class ArcusTimeoutTest extends BaseIntegrationTest {
   @Test(expected = TimeoutException.class)
   public void testBulkSetTimeout()
           throws InterruptedException, ExecutionException, TimeoutException {
-    // recreate arcus client with BulkServiceThreadCount 6
-    try {
-      tearDown();
-      mc = new ArcusClient(new DefaultConnectionFactory() {
-        @Override
-        public int getBulkServiceThreadCount() {
-          return 6;
-        }
-      }, AddrUtil.getAddresses(CacheManager.FAKE_SERVER_NODE));
-    } catch (Exception e) {
-      fail(e.getMessage());
-    }
-
     int keySize = 100000;
 
     String[] keys = new String[keySize];
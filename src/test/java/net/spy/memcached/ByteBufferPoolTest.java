@@ -0,0 +1,193 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+
+public class ByteBufferPoolTest extends TestCase {
+
+	public void testSizeClasses() throws Exception {
+		ByteBufferPool pool = new ByteBufferPool(256, 4096, 1024 * 1024, false);
+
+		ByteBuffer small = pool.acquire(10);
+		assertTrue(small.isDirect());
+		assertEquals(256, small.capacity());
+		assertEquals(0, small.position());
+		assertEquals(10, small.limit());
+
+		ByteBuffer mid = pool.acquire(257);
+		assertEquals(512, mid.capacity());
+		assertEquals(4096, pool.acquire(4096).capacity());
+
+		// too large for the pool
+		ByteBuffer large = pool.acquire(4097);
+		assertFalse(large.isDirect());
+		assertEquals(4097, large.capacity());
+	}
+
+	public void testReuse() throws Exception {
+		ByteBufferPool pool = new ByteBufferPool();
+
+		ByteBuffer bb = pool.acquire(1000);
+		bb.put((byte) 1);
+		pool.release(bb);
+		assertEquals(1024, pool.getPooledBytes());
+
+		ByteBuffer again = pool.acquire(600);
+		assertSame(bb, again);
+		assertEquals(0, again.position());
+		assertEquals(600, again.limit());
+		assertEquals(0, pool.getPooledBytes());
+
+		// heap and foreign buffers are ignored
+		pool.release(ByteBuffer.allocate(1024));
+		pool.release(ByteBuffer.allocateDirect(1000));
+		assertEquals(0, pool.getPooledBytes());
+	}
+
+	public void testMaxPooledBytes() throws Exception {
+		ByteBufferPool pool = new ByteBufferPool(256, 4096, 512, false);
+		ByteBuffer a = pool.acquire(256);
+		ByteBuffer b = pool.acquire(256);
+		ByteBuffer c = pool.acquire(256);
+		pool.release(a);
+		pool.release(b);
+		pool.release(c);
+		assertEquals(512, pool.getPooledBytes());
+	}
+
+	public void testLeakDetection() throws Exception {
+		ByteBufferPool pool = new ByteBufferPool(256, 4096, 1024 * 1024, true);
+		ByteBuffer a = pool.acquire(100);
+		ByteBuffer b = pool.acquire(100);
+		assertEquals(2, pool.getOutstandingCount());
+
+		pool.release(a);
+		assertEquals(1, pool.getOutstandingCount());
+		assertEquals(1, pool.reportLeaks());
+
+		// a second release must not put the buffer in the pool twice
+		pool.release(a);
+		assertNotSame(pool.acquire(100), pool.acquire(100));
+
+		pool.release(b);
+		assertEquals(2, pool.getOutstandingCount());
+		assertEquals(-1, new ByteBufferPool().getOutstandingCount());
+	}
+
+	private Operation pooledStore(final ByteBufferPool pool) {
+		Operation op = new AsciiOperationFactory().store(StoreType.set, "key",
+				0, 0, new byte[100], new OperationCallback() {
+					public void receivedStatus(OperationStatus status) {
+					}
+					public void complete() {
+					}
+				});
+		op.setHandlingNode(new MockMemcachedNode(new InetSocketAddress(11211)) {
+			@Override
+			public ByteBufferPool getBufferPool() {
+				return pool;
+			}
+		});
+		op.initialize();
+		return op;
+	}
+
+	public void testTimedOutOperationReleasesBuffer() throws Exception {
+		ByteBufferPool pool = new ByteBufferPool(256, 4096, 1024 * 1024, true);
+		Operation op = pooledStore(pool);
+		assertEquals(1, pool.getOutstandingCount());
+		assertTrue(op.timeOut());
+		assertNull(op.getBuffer());
+		assertEquals(0, pool.getOutstandingCount());
+	}
+
+	public void testGatheredOperationDoesNotTimeOut() throws Exception {
+		ByteBufferPool pool = new ByteBufferPool(256, 4096, 1024 * 1024, true);
+		ServerSocketChannel server = ServerSocketChannel.open();
+		server.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+		SocketChannel channel = SocketChannel.open(
+				server.socket().getLocalSocketAddress());
+		SocketChannel peer = server.accept();
+		try {
+			// a write buffer smaller than the operation makes it gathered
+			MemcachedNode node = new AsciiMemcachedNodeImpl(
+					channel.socket().getRemoteSocketAddress(), channel, 64,
+					new LinkedBlockingQueue<Operation>(),
+					new LinkedBlockingQueue<Operation>(),
+					new LinkedBlockingQueue<Operation>(), 0L, pool);
+			final AtomicInteger completed = new AtomicInteger();
+			Operation op = new AsciiOperationFactory().store(StoreType.set,
+					"key", 0, 0, new byte[100], new OperationCallback() {
+						public void receivedStatus(OperationStatus status) {
+						}
+						public void complete() {
+							completed.incrementAndGet();
+						}
+					});
+			op.setHandlingNode(node);
+			op.initialize();
+			node.addOp(op);
+			node.fillWriteBuffer(false);
+			assertTrue(node.isWriting(op.getBuffer()));
+
+			// the deadline passes before any of it has been written
+			assertFalse(op.timeOut());
+			assertEquals(1, pool.getOutstandingCount());
+
+			int toWrite = node.getBytesRemainingToWrite();
+			int wrote = 0;
+			while (node.getBytesRemainingToWrite() > 0) {
+				wrote += node.writeSome();
+			}
+			assertEquals(toWrite, wrote);
+			assertFalse(node.isWriting(op.getBuffer()));
+			assertSame(OperationState.READING, op.getState());
+			assertEquals(0, completed.get());
+		} finally {
+			peer.close();
+			channel.close();
+			server.close();
+		}
+	}
+
+	public void testDroppedOperationReleasesBuffer() throws Exception {
+		ByteBufferPool pool = new ByteBufferPool(256, 4096, 1024 * 1024, true);
+		Operation op = pooledStore(pool);
+		op.cancel("by application.");
+		// kept until the IO thread drops the operation from its queue
+		assertEquals(1, pool.getOutstandingCount());
+		op.discardBuffer();
+		assertEquals(0, pool.getOutstandingCount());
+		op.discardBuffer();
+		assertEquals(0, pool.getOutstandingCount());
+	}
+}
@@ -31,6 +31,7 @@ import junit.framework.TestCase;
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.ops.APIType;
 import net.spy.memcached.ops.Operation;
+import net.spy.memcached.plugin.FrontCacheType;
 import net.spy.memcached.transcoders.Transcoder;
 
 public abstract class ClientBaseCase extends TestCase {
@@ -135,6 +136,61 @@ public abstract class ClientBaseCase extends TestCase {
 					return inner.isDaemon();
 				}
 
+				@Override
+				public int getIOThreadCount() {
+					return inner.getIOThreadCount();
+				}
+
+				@Override
+				public int getConnectionsPerNode() {
+					return inner.getConnectionsPerNode();
+				}
+
+				@Override
+				public ConnectionSelection getConnectionSelection() {
+					return inner.getConnectionSelection();
+				}
+
+				@Override
+				public ByteBufferPool getBufferPool() {
+					return inner.getBufferPool();
+				}
+
+				@Override
+				public long getOpDeadline() {
+					return inner.getOpDeadline();
+				}
+
+				@Override
+				public int getMaxNodeInFlightOps() {
+					return inner.getMaxNodeInFlightOps();
+				}
+
+				@Override
+				public long getMaxNodeInFlightBytes() {
+					return inner.getMaxNodeInFlightBytes();
+				}
+
+				@Override
+				public AdmissionPolicy getAdmissionPolicy() {
+					return inner.getAdmissionPolicy();
+				}
+
+				@Override
+				public boolean getCoalesceReads() {
+					return inner.getCoalesceReads();
+				}
+
+				@Override
+				public int getBulkDecodeThreshold() {
+					return inner.getBulkDecodeThreshold();
+				}
+
+				@Override
+				public boolean getLazyBulkDecode() {
+					return inner.getLazyBulkDecode();
+				}
+
 				@Override
 				public boolean useNagleAlgorithm() {
 					return inner.useNagleAlgorithm();
@@ -215,22 +271,45 @@ public abstract class ClientBaseCase extends TestCase {
 					return inner.getFrontCacheCopyOnWrite();
 				}
 
+				@Override
+				public FrontCacheType getFrontCacheType() {
+					return inner.getFrontCacheType();
+				}
+
+				@Override
+				public long getMaxFrontCacheBytes() {
+					return inner.getMaxFrontCacheBytes();
+				}
+
 				@Override
 				public int getFrontCacheExpireTime() {
 					return inner.getFrontCacheExpireTime();
 				}
 
 				@Override
+				public int getMaxFrontCacheCollections() {
+					return inner.getMaxFrontCacheCollections();
+				}
+
+				@Override
+				public int getFrontCacheCollectionExpireTime() {
+					return inner.getFrontCacheCollectionExpireTime();
+				}
+
+				@Override
+				@Deprecated
 				public int getBulkServiceThreadCount() {
 					return inner.getBulkServiceThreadCount();
 				}
 
 				@Override
+				@Deprecated
 				public int getBulkServiceLoopLimit() {
 					return inner.getBulkServiceLoopLimit();
 				}
 
 				@Override
+				@Deprecated
 				public long getBulkServiceSingleOpTimeout() {
 					return inner.getBulkServiceSingleOpTimeout();
 				}
@@ -20,7 +20,6 @@ import java.net.InetSocketAddress;
 import java.net.SocketAddress;
 import java.nio.channels.SocketChannel;
 import java.util.Collections;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
@@ -29,6 +28,7 @@ import net.spy.memcached.ConnectionFactoryBuilder.Protocol;
 import net.spy.memcached.auth.AuthDescriptor;
 import net.spy.memcached.auth.PlainCallbackHandler;
 import net.spy.memcached.compat.BaseMockCase;
+import net.spy.memcached.internal.MpscBlockingQueue;
 import net.spy.memcached.ops.Operation;
 import net.spy.memcached.ops.OperationQueueFactory;
 import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
@@ -67,7 +67,7 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
 		assertTrue(f.getOperationFactory() instanceof AsciiOperationFactory);
 
 		BlockingQueue<Operation> opQueue = f.createOperationQueue();
-		assertTrue(opQueue instanceof ArrayBlockingQueue<?>);
+		assertTrue(opQueue instanceof MpscBlockingQueue<?>);
 		assertEquals(DefaultConnectionFactory.DEFAULT_OP_QUEUE_LEN,
 				opQueue.remainingCapacity());
 
@@ -103,6 +103,8 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
 		assertFalse(f.useNagleAlgorithm());
 		assertEquals(f.getOpQueueMaxBlockTime(),
 				DefaultConnectionFactory.DEFAULT_OP_QUEUE_MAX_BLOCK_TIME);
+		assertEquals(1, f.getConnectionsPerNode());
+		assertSame(ConnectionSelection.KEY, f.getConnectionSelection());
 	}
 
 	public void testModifications() throws Exception {
@@ -140,6 +142,8 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
 			.setLocatorType(Locator.CONSISTENT)
 			.setOpQueueMaxBlockTime(19)
 			.setAuthDescriptor(anAuthDescriptor)
+			.setConnectionsPerNode(3)
+			.setConnectionSelection(ConnectionSelection.ROUND_ROBIN)
 			.build();
 
 		assertEquals(4225, f.getOperationTimeout());
@@ -158,6 +162,8 @@ public class ConnectionFactoryBuilderTest extends BaseMockCase {
 		assertTrue(f.useNagleAlgorithm());
 		assertEquals(f.getOpQueueMaxBlockTime(), 19);
 		assertSame(anAuthDescriptor, f.getAuthDescriptor());
+		assertEquals(3, f.getConnectionsPerNode());
+		assertSame(ConnectionSelection.ROUND_ROBIN, f.getConnectionSelection());
 
 		MemcachedNode n = new MockMemcachedNode(
 			InetSocketAddress.createUnresolved("localhost", 11211));
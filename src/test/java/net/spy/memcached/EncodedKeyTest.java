@@ -0,0 +1,47 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class EncodedKeyTest extends TestCase {
+
+	public void testBytes() throws Exception {
+		for (String k : new String[] { "key", "prefix:key", "\ud0a4\uac12",
+				"caf\u00e9" }) {
+			EncodedKey key = new EncodedKey(k);
+			assertTrue(Arrays.equals(k.getBytes("UTF-8"), key.getBytes()));
+			assertTrue(Arrays.equals(k.getBytes("UTF-8"), KeyUtil.getKeyBytes(k)));
+			assertEquals(k, key.toString());
+			assertEquals(k, new EncodedKey(k.getBytes("UTF-8")).toString());
+		}
+	}
+
+	public void testHash() {
+		for (String k : new String[] { "Test1", "UDATA:edevil@sapo.pt",
+				"\ud0a4\uac12" }) {
+			EncodedKey key = new EncodedKey(k);
+			for (HashAlgorithm alg : HashAlgorithm.values()) {
+				assertEquals(alg + " " + k, alg.hash(k), key.hash(alg));
+				// again, from the cached hash
+				assertEquals(alg + " " + k, alg.hash(k), key.hash(alg));
+			}
+		}
+	}
+}
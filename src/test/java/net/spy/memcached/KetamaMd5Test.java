@@ -0,0 +1,67 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.security.MessageDigest;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class KetamaMd5Test extends TestCase {
+
+	private static byte[] md5(byte[] b) throws Exception {
+		return MessageDigest.getInstance("MD5").digest(b);
+	}
+
+	private static int word(byte[] digest, int h) {
+		return (digest[h * 4] & 0xff) | (digest[h * 4 + 1] & 0xff) << 8
+				| (digest[h * 4 + 2] & 0xff) << 16 | digest[h * 4 + 3] << 24;
+	}
+
+	public void testBytesOfEveryLength() throws Exception {
+		Random rand = new Random(42);
+		for (int len = 0; len < 300; len++) {
+			byte[] b = new byte[len + 10];
+			rand.nextBytes(b);
+			byte[] key = new byte[len];
+			System.arraycopy(b, 5, key, 0, len);
+			assertEquals("length " + len, word(md5(key), 0) & 0xffffffffL,
+					KetamaMd5.hash(b, 5, len));
+		}
+	}
+
+	public void testStrings() throws Exception {
+		Random rand = new Random(42);
+		for (int len = 0; len < 300; len++) {
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < len; i++) {
+				// mostly ASCII, sometimes not
+				sb.append(rand.nextInt(20) == 0 ? (char) (0xac00 + rand.nextInt(100))
+						: (char) (32 + rand.nextInt(95)));
+			}
+			String k = sb.toString();
+			byte[] digest = md5(k.getBytes("UTF-8"));
+			assertEquals(k, word(digest, 0) & 0xffffffffL, KetamaMd5.hash(k));
+
+			int[] words = new int[4];
+			KetamaMd5.digest(k, words);
+			for (int h = 0; h < 4; h++) {
+				assertEquals(k, word(digest, h), words[h]);
+			}
+		}
+	}
+}
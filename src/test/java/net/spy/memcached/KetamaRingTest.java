@@ -0,0 +1,80 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import junit.framework.TestCase;
+
+public class KetamaRingTest extends TestCase {
+
+	public void testLookup() throws Exception {
+		TreeMap<Long, String> map = new TreeMap<Long, String>();
+		map.put(10L, "a");
+		map.put(20L, "b");
+		map.put(30L, "c");
+		KetamaRing<String> ring = new KetamaRing<String>(map);
+
+		assertEquals(3, ring.size());
+		assertEquals("a", ring.get(0));
+		assertEquals("a", ring.get(10));
+		assertEquals("b", ring.get(11));
+		assertEquals("c", ring.get(30));
+		// wraps around
+		assertEquals("a", ring.get(31));
+		assertEquals("a", ring.get(0xffffffffL));
+		assertEquals(30, ring.getMaxKey());
+	}
+
+	public void testEmpty() throws Exception {
+		KetamaRing<String> ring = new KetamaRing<String>(
+				new TreeMap<Long, String>());
+		try {
+			ring.get(1);
+			fail("Found a value in an empty ring");
+		} catch (NoSuchElementException e) {
+			// ok
+		}
+	}
+
+	public void testSameAsCeilingLookup() throws Exception {
+		List<MemcachedNode> nodes = new ArrayList<MemcachedNode>();
+		for (int i = 0; i < 10; i++) {
+			nodes.add(new MockMemcachedNode(
+					InetSocketAddress.createUnresolved("127.0.0.1", 11211 + i)));
+		}
+		ArcusKetamaNodeLocator locator = new ArcusKetamaNodeLocator(nodes,
+				HashAlgorithm.KETAMA_HASH);
+		TreeMap<Long, MemcachedNode> map = locator.ketamaNodes;
+
+		Random r = new Random(1);
+		for (int i = 0; i < 10000; i++) {
+			long hash = r.nextLong() & 0xffffffffL;
+			Map.Entry<Long, MemcachedNode> e = map.ceilingEntry(hash);
+			MemcachedNode expected = e == null
+				? map.firstEntry().getValue() : e.getValue();
+			assertSame(expected, locator.getNodeForKey(hash));
+		}
+		assertEquals(map.lastKey().longValue(), locator.getMaxKey());
+	}
+}
@@ -128,6 +128,53 @@ public class MemcachedConnectionTest extends TestCase {
 		assertTrue(1 == locator.allNodes.size());
 	}
 	
+	public void testNodeManageQueue_ioThreads() throws Exception {
+		ConnectionFactory cf = new ConnectionFactoryBuilder()
+				.setIOThreadCount(3).build();
+		MemcachedConnection mconn = new MemcachedConnection(1024, cf,
+				new ArrayList<InetSocketAddress>(), cf.getInitialObservers(),
+				cf.getFailureMode(), cf.getOperationFactory());
+		ArcusKetamaNodeLocator mlocator = (ArcusKetamaNodeLocator) mconn.getLocator();
+		try {
+			// when
+			mconn.putMemcachedQueue("0.0.0.0:11211,0.0.0.0:11212,0.0.0.0:11213,0.0.0.0:11214");
+			mconn.putMemcachedQueue("0.0.0.0:11212");
+
+			// 1st test (nodes=4), spread across the IO threads
+			mconn.handleNodeManageQueue();
+			assertTrue(4 == mlocator.allNodes.size());
+
+			// 2nd test (nodes=1)
+			mconn.handleNodeManageQueue();
+			assertTrue(1 == mlocator.allNodes.size());
+		} finally {
+			mconn.shutdown();
+		}
+	}
+
+	public void testConnectionIndexUsesEveryConnection() throws Exception {
+		// node counts that are multiples of the connection count, where
+		// the modulo locator leaves only some hash residues on each node
+		int[][] cases = { { 4, 2 }, { 6, 3 }, { 8, 4 } };
+		for (int[] c : cases) {
+			int nodes = c[0];
+			int conns = c[1];
+			boolean[][] used = new boolean[nodes][conns];
+			for (int i = 0; i < 10000; i++) {
+				long hash = HashAlgorithm.NATIVE_HASH.hash("key" + i);
+				int index = MemcachedConnection.connectionIndex(hash, conns);
+				assertTrue(index >= 0 && index < conns);
+				used[(int) (hash % nodes)][index] = true;
+			}
+			for (int n = 0; n < nodes; n++) {
+				for (int k = 0; k < conns; k++) {
+					assertTrue(nodes + " nodes, node " + n + " never used connection "
+							+ k + " of " + conns, used[n][k]);
+				}
+			}
+		}
+	}
+
 	public void testAddOperations() throws Exception {
 		
 	}
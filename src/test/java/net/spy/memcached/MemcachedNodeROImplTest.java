@@ -54,6 +54,10 @@ public class MemcachedNodeROImplTest extends MockObjectTestCase {
 		for(Class<?> c : parameterTypes) {
 			if(c == Boolean.TYPE) {
 				args[i++] = false;
+			} else if(c == Long.TYPE) {
+				args[i++] = 0L;
+			} else if(c == Integer.TYPE) {
+				args[i++] = 0;
 			} else {
 				args[i++] = null;
 			}
@@ -90,6 +90,7 @@ public class MockMemcachedNode implements MemcachedNode {
 	public int getSelectionOps() {return 0;}
 	public ByteBuffer getRbuf() {return null;}
 	public ByteBuffer getWbuf() {return null;}
+	public ByteBufferPool getBufferPool() {return null;}
 	public boolean isActive() {return false;}
 	public void reconnecting() {
 		// noop
@@ -115,6 +116,7 @@ public class MockMemcachedNode implements MemcachedNode {
 	public String getVersion() {return null;}
 	public boolean enabledMGetOp() {return false;}
 	public int getBytesRemainingToWrite() {return 0;}
+	public boolean isWriting(ByteBuffer buf) {return false;}
 	public int writeSome() throws IOException {return 0;}
 	public void fixupOps() {
 		// noop
@@ -164,6 +166,21 @@ public class MockMemcachedNode implements MemcachedNode {
 	public String getStatus() {
 		return "MOCK_STATE";
 	}
+
+	@Override
+	public void addResponseTime(long nanos) {
+		// noop
+	}
+
+	@Override
+	public long getExpectedResponseTime() {
+		return 0;
+	}
+
+	@Override
+	public int getOutstandingCount() {
+		return 0;
+	}
 	/* ENABLE_REPLICATION if */
 
 	@Override
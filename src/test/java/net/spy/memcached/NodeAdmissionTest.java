@@ -0,0 +1,130 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreType;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+
+public class NodeAdmissionTest extends TestCase {
+
+	private final OperationFactory opFact = new AsciiOperationFactory();
+
+	private final GetOperation.Callback cb = new GetOperation.Callback() {
+		public void receivedStatus(OperationStatus status) {
+		}
+		public void complete() {
+		}
+		public void gotData(String key, int flags, byte[] data) {
+		}
+	};
+
+	private Operation get(String key) {
+		Operation op = opFact.get(key, cb);
+		op.initialize();
+		return op;
+	}
+
+	private Operation set(String key, int size) {
+		Operation op = opFact.store(StoreType.set, key, 0, 0, new byte[size], cb);
+		op.initialize();
+		return op;
+	}
+
+	private Operation admit(NodeAdmission admission, Operation op) {
+		NodeAdmission.Permit permit = admission.tryAcquire(op);
+		if (permit == null) {
+			return null;
+		}
+		op.setAdmissionPermit(permit);
+		return op;
+	}
+
+	public void testOpLimit() {
+		NodeAdmission admission = new NodeAdmission(2, 0, AdmissionPolicy.FAIL_FAST);
+		Operation a = admit(admission, get("a"));
+		Operation b = admit(admission, set("b", 10));
+		assertNotNull(a);
+		assertNotNull(b);
+		assertNull(admit(admission, get("c")));
+		assertNull(admit(admission, set("c", 10)));
+		assertEquals(2, admission.getInFlightOps());
+		assertEquals(2, admission.getRejectedCount());
+
+		a.cancel("test");
+		assertEquals(1, admission.getInFlightOps());
+		assertNotNull(admit(admission, get("c")));
+		// releasing twice must not count twice
+		a.cancel("test");
+		assertEquals(2, admission.getInFlightOps());
+	}
+
+	public void testByteLimit() {
+		NodeAdmission admission = new NodeAdmission(0, 100, AdmissionPolicy.FAIL_FAST);
+		// a node with nothing in flight takes an operation of any size
+		Operation big = admit(admission, set("big", 1000));
+		assertNotNull(big);
+		assertTrue(admission.getInFlightBytes() > 1000);
+		assertNull(admit(admission, get("a")));
+		big.cancel("test");
+		assertEquals(0, admission.getInFlightBytes());
+
+		Operation small = admit(admission, set("small", 10));
+		assertNotNull(small);
+		assertNotNull(admit(admission, get("a")));
+		assertNull(admit(admission, set("other", 80)));
+	}
+
+	public void testShedByPriority() {
+		NodeAdmission admission = new NodeAdmission(4, 0, AdmissionPolicy.SHED_BY_PRIORITY);
+		assertNotNull(admit(admission, get("a")));
+		assertNotNull(admit(admission, get("b")));
+		assertNotNull(admit(admission, get("c")));
+		// reads stop at three quarters, writes go on to the limit
+		assertNull(admit(admission, get("d")));
+		assertNotNull(admit(admission, set("e", 10)));
+		assertNull(admit(admission, set("f", 10)));
+		assertEquals(4, admission.getInFlightOps());
+	}
+
+	public void testReplacePermit() {
+		NodeAdmission admission = new NodeAdmission(10, 0, AdmissionPolicy.FAIL_FAST);
+		Operation op = admit(admission, get("a"));
+		op.setAdmissionPermit(admission.tryAcquire(op));
+		assertEquals(1, admission.getInFlightOps());
+		op.setAdmissionPermit(null);
+		assertEquals(0, admission.getInFlightOps());
+		assertEquals(0, admission.getInFlightBytes());
+	}
+
+	public void testMergedPermit() {
+		NodeAdmission admission = new NodeAdmission(10, 0, AdmissionPolicy.FAIL_FAST);
+		NodeAdmission.Permit a = admission.tryAcquire(get("a"));
+		NodeAdmission.Permit b = admission.tryAcquire(get("b"));
+		long bytes = admission.getInFlightBytes();
+		assertEquals(2, admission.getInFlightOps());
+		NodeAdmission.Permit merged = a.merge(b);
+		assertEquals(2, admission.getInFlightOps());
+		assertEquals(bytes, admission.getInFlightBytes());
+		merged.release();
+		assertEquals(0, admission.getInFlightOps());
+		assertEquals(0, admission.getInFlightBytes());
+	}
+}
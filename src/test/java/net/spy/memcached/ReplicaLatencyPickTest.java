@@ -0,0 +1,117 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached;
+
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.protocol.ascii.AsciiMemcachedNodeImpl;
+
+public class ReplicaLatencyPickTest extends TestCase {
+
+	private static class LatencyNode extends MockMemcachedNode {
+		boolean active = true;
+		long expected = 0;
+
+		LatencyNode(String group, boolean master, String ipport) {
+			super(ArcusReplNodeAddress.create(group, master, ipport));
+		}
+
+		@Override
+		public boolean isActive() {
+			return active;
+		}
+
+		@Override
+		public long getExpectedResponseTime() {
+			return expected;
+		}
+	}
+
+	private LatencyNode master;
+	private LatencyNode slave;
+	private MemcachedReplicaGroup group;
+
+	@Override
+	protected void setUp() throws Exception {
+		master = new LatencyNode("g1", true, "127.0.0.1:11211");
+		slave = new LatencyNode("g1", false, "127.0.0.1:11212");
+		group = new MemcachedReplicaGroupImpl(master);
+		group.setMemcachedNode(slave);
+	}
+
+	public void testPicksFasterNode() throws Exception {
+		master.expected = 5000;
+		slave.expected = 1000;
+		for (int i = 0; i < 10; i++) {
+			assertSame(slave, group.getNodeForReplicaPick(ReplicaPick.LATENCY));
+		}
+		slave.expected = 9000;
+		for (int i = 0; i < 10; i++) {
+			assertSame(master, group.getNodeForReplicaPick(ReplicaPick.LATENCY));
+		}
+	}
+
+	public void testAlternatesOnTie() throws Exception {
+		MemcachedNode first = group.getNodeForReplicaPick(ReplicaPick.LATENCY);
+		MemcachedNode second = group.getNodeForReplicaPick(ReplicaPick.LATENCY);
+		assertNotSame(first, second);
+		assertSame(first, group.getNodeForReplicaPick(ReplicaPick.LATENCY));
+	}
+
+	public void testSkipsInactiveNode() throws Exception {
+		master.expected = 5000;
+		slave.expected = 1000;
+		slave.active = false;
+		assertSame(master, group.getNodeForReplicaPick(ReplicaPick.LATENCY));
+
+		slave.active = true;
+		slave.expected = 9000;
+		master.active = false;
+		assertSame(slave, group.getNodeForReplicaPick(ReplicaPick.LATENCY));
+	}
+
+	public void testExpectedResponseTime() throws Exception {
+		SocketChannel channel = SocketChannel.open();
+		MemcachedNode node = new AsciiMemcachedNodeImpl(
+				ArcusReplNodeAddress.create("g1", true, "127.0.0.1:11211"), channel,
+				1024, new LinkedBlockingQueue<Operation>(),
+				new LinkedBlockingQueue<Operation>(),
+				new LinkedBlockingQueue<Operation>(), 0L);
+		assertTrue(node.getExpectedResponseTime() <= 1);
+
+		// a slow response counts at once
+		node.addResponseTime(TimeUnit.MILLISECONDS.toNanos(100));
+		long slow = node.getExpectedResponseTime();
+		assertTrue(slow > TimeUnit.MILLISECONDS.toNanos(80));
+
+		// fast responses right after it barely move the average
+		for (int i = 0; i < 100; i++) {
+			node.addResponseTime(TimeUnit.MICROSECONDS.toNanos(100));
+		}
+		assertTrue(node.getExpectedResponseTime() > TimeUnit.MILLISECONDS.toNanos(50));
+
+		// but it decays over time
+		Thread.sleep(1500);
+		node.addResponseTime(TimeUnit.MICROSECONDS.toNanos(100));
+		assertTrue(node.getExpectedResponseTime() < TimeUnit.MILLISECONDS.toNanos(30));
+		channel.close();
+	}
+}
@@ -0,0 +1,142 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class SMGetResultMergerTest extends TestCase {
+
+	private static List<SMGetElement<String>> chunk(String key, long... bkeys) {
+		List<SMGetElement<String>> list = new ArrayList<SMGetElement<String>>();
+		for (long bkey : bkeys) {
+			list.add(new SMGetElement<String>(key, bkey, key + bkey));
+		}
+		return list;
+	}
+
+	private static String render(List<SMGetElement<String>> elements) {
+		StringBuilder sb = new StringBuilder();
+		for (SMGetElement<String> e : elements) {
+			if (sb.length() > 0) {
+				sb.append(",");
+			}
+			sb.append(e.getKey()).append(e.getBkey());
+		}
+		return sb.toString();
+	}
+
+	public void testAscending() throws Exception {
+		SMGetResultMerger<String> merger = new SMGetResultMerger<String>(10, false, false);
+		merger.add(chunk("b", 2, 5, 8));
+		merger.add(chunk("a", 1, 4, 7));
+		merger.add(chunk("c", 3, 6));
+		merger.add(chunk("d"));
+
+		assertEquals("a1,b2,c3,a4,b5,c6,a7,b8", render(merger.merge()));
+		assertFalse(merger.isTrimmed());
+		assertFalse(merger.isDuplicated());
+	}
+
+	public void testDescending() throws Exception {
+		SMGetResultMerger<String> merger = new SMGetResultMerger<String>(10, true, false);
+		merger.add(chunk("a", 7, 4, 1));
+		merger.add(chunk("b", 8, 5, 2));
+
+		assertEquals("b8,a7,b5,a4,b2,a1", render(merger.merge()));
+	}
+
+	public void testLimit() throws Exception {
+		SMGetResultMerger<String> merger = new SMGetResultMerger<String>(4, false, false);
+		for (int i = 0; i < 50; i++) {
+			merger.add(chunk("k" + i, i, i + 50, i + 100));
+		}
+
+		assertEquals("k00,k11,k22,k33", render(merger.merge()));
+		assertSame(merger.getMergedResult(), merger.getMergedResult());
+	}
+
+	public void testDuplicated() throws Exception {
+		SMGetResultMerger<String> merger = new SMGetResultMerger<String>(10, false, false);
+		merger.add(chunk("b", 1, 2));
+		merger.add(chunk("a", 2, 3));
+
+		assertEquals("b1,a2,b2,a3", render(merger.merge()));
+		assertTrue(merger.isDuplicated());
+	}
+
+	public void testUnique() throws Exception {
+		SMGetResultMerger<String> merger = new SMGetResultMerger<String>(10, false, true);
+		merger.add(chunk("b", 1, 2));
+		merger.add(chunk("a", 2, 3));
+		assertEquals("b1,a2,a3", render(merger.merge()));
+		assertFalse(merger.isDuplicated());
+
+		// in reverse the larger key comes first
+		merger = new SMGetResultMerger<String>(10, true, true);
+		merger.add(chunk("b", 2, 1));
+		merger.add(chunk("a", 3, 2));
+		assertEquals("a3,b2,b1", render(merger.merge()));
+	}
+
+	public void testTrimmed() throws Exception {
+		SMGetResultMerger<String> merger = new SMGetResultMerger<String>(10, false, false);
+		merger.add(chunk("a", 1, 3, 5, 7, 9), false);
+		// elements behind bkey 4 of "b" may be missing
+		merger.add(chunk("b", 2, 4), true);
+		merger.add(chunk("c", 4, 6), false);
+
+		assertEquals("a1,b2,a3,b4,c4", render(merger.merge()));
+		assertTrue(merger.isTrimmed());
+		assertTrue(merger.isDuplicated());
+
+		// a full result is not trimmed
+		merger = new SMGetResultMerger<String>(3, false, false);
+		merger.add(chunk("a", 1, 3, 5, 7, 9), false);
+		merger.add(chunk("b", 2, 4), true);
+		assertEquals("a1,b2,a3", render(merger.merge()));
+		assertFalse(merger.isTrimmed());
+	}
+
+	public void testTrimmedKeys() throws Exception {
+		SMGetResultMerger<String> merger = new SMGetResultMerger<String>(3, false, false);
+		merger.add(chunk("a", 1, 2, 3, 4));
+		merger.addTrimmedKeys(Arrays.asList(new SMGetTrimKey("y", 5L),
+				new SMGetTrimKey("x", 2L)));
+		merger.addTrimmedKeys(Arrays.asList(new SMGetTrimKey("z", 1L)));
+
+		merger.merge();
+		List<SMGetTrimKey> trimmed = merger.getTrimmedKeys();
+		// the key trimmed at bkey 5 is behind the last element
+		assertEquals(2, trimmed.size());
+		assertEquals("z", trimmed.get(0).getKey());
+		assertEquals("x", trimmed.get(1).getKey());
+	}
+
+	public void testClear() throws Exception {
+		SMGetResultMerger<String> merger = new SMGetResultMerger<String>(10, false, false);
+		merger.add(chunk("a", 1, 2), true);
+		merger.clear();
+		merger.add(chunk("b", 3));
+
+		assertEquals("b3", render(merger.merge()));
+		assertFalse(merger.isTrimmed());
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class HashedWheelTimerTest extends TestCase {
+
+	private HashedWheelTimer timer;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		// a small wheel, so longer delays take several rounds
+		timer = new HashedWheelTimer("test timer", 5, TimeUnit.MILLISECONDS, 8);
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		timer.stop();
+		super.tearDown();
+	}
+
+	public void testExpire() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		long start = System.nanoTime();
+		HashedWheelTimer.Timeout t = timer.newTimeout(new Runnable() {
+			public void run() {
+				latch.countDown();
+			}
+		}, 100, TimeUnit.MILLISECONDS);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+		assertTrue(t.isExpired());
+		assertFalse(t.cancel());
+		assertFalse(t.isCancelled());
+	}
+
+	public void testCancel() throws Exception {
+		final AtomicInteger runs = new AtomicInteger();
+		HashedWheelTimer.Timeout t = timer.newTimeout(new Runnable() {
+			public void run() {
+				runs.incrementAndGet();
+			}
+		}, 20, TimeUnit.MILLISECONDS);
+		assertTrue(t.cancel());
+		assertFalse(t.cancel());
+		assertTrue(t.isCancelled());
+		Thread.sleep(100);
+		assertEquals(0, runs.get());
+		assertFalse(t.isExpired());
+	}
+
+	public void testOrder() throws Exception {
+		final List<Integer> order = new ArrayList<Integer>();
+		final CountDownLatch latch = new CountDownLatch(3);
+		int[] delays = {150, 10, 60};
+		for (final int d : delays) {
+			timer.newTimeout(new Runnable() {
+				public void run() {
+					order.add(d);
+					latch.countDown();
+				}
+			}, d, TimeUnit.MILLISECONDS);
+		}
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		assertEquals(10, (int) order.get(0));
+		assertEquals(60, (int) order.get(1));
+		assertEquals(150, (int) order.get(2));
+	}
+
+	public void testManyTimeouts() throws Exception {
+		int count = 10000;
+		final CountDownLatch latch = new CountDownLatch(count / 2);
+		final AtomicInteger runs = new AtomicInteger();
+		List<HashedWheelTimer.Timeout> cancels = new ArrayList<HashedWheelTimer.Timeout>();
+		for (int i = 0; i < count; i++) {
+			HashedWheelTimer.Timeout t = timer.newTimeout(new Runnable() {
+				public void run() {
+					runs.incrementAndGet();
+					latch.countDown();
+				}
+			}, 50 + i % 100, TimeUnit.MILLISECONDS);
+			if (i % 2 == 1) {
+				cancels.add(t);
+			}
+		}
+		// a slow run may reach some timeouts only after they expired
+		int cancelled = 0;
+		for (HashedWheelTimer.Timeout t : cancels) {
+			if (t.cancel()) {
+				cancelled++;
+			}
+		}
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+		Thread.sleep(200);
+		assertEquals(count - cancelled, runs.get());
+	}
+
+	public void testFailingTask() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(1);
+		timer.newTimeout(new Runnable() {
+			public void run() {
+				throw new RuntimeException("Intentional failure");
+			}
+		}, 1, TimeUnit.MILLISECONDS);
+		timer.newTimeout(new Runnable() {
+			public void run() {
+				latch.countDown();
+			}
+		}, 30, TimeUnit.MILLISECONDS);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+}
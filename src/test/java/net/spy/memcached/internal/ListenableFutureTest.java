@@ -0,0 +1,265 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class ListenableFutureTest extends TestCase {
+
+	private CompletionLatch latch;
+	private AtomicReference<String> result;
+	private OperationFuture<String> future;
+	private AtomicInteger calls;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		latch = new CompletionLatch(1);
+		result = new AtomicReference<String>(null);
+		future = new OperationFuture<String>(latch, result, 1000);
+		calls = new AtomicInteger();
+	}
+
+	private CompletionListener<String> counting() {
+		return new CompletionListener<String>() {
+			public void onComplete(Future<String> f) {
+				calls.incrementAndGet();
+			}
+		};
+	}
+
+	public void testListenerRunsOnCompletion() throws Exception {
+		final AtomicReference<String> seen = new AtomicReference<String>();
+		future.addListener(new CompletionListener<String>() {
+			public void onComplete(Future<String> f) throws Exception {
+				seen.set(f.get());
+			}
+		});
+		assertNull(seen.get());
+
+		result.set("value");
+		latch.countDown();
+		assertEquals("value", seen.get());
+	}
+
+	public void testListenerAddedAfterCompletion() throws Exception {
+		latch.countDown();
+		future.addListener(counting());
+		assertEquals(1, calls.get());
+	}
+
+	public void testImmediateFutureRunsListener() throws Exception {
+		final AtomicReference<Boolean> seen = new AtomicReference<Boolean>();
+		new ImmediateFuture(true).addListener(new CompletionListener<Boolean>() {
+			public void onComplete(Future<Boolean> f) throws Exception {
+				seen.set(f.get());
+			}
+		});
+		assertEquals(Boolean.TRUE, seen.get());
+	}
+
+	public void testListenerOnExecutor() throws Exception {
+		final AtomicInteger executed = new AtomicInteger();
+		future.addListener(counting(), new Executor() {
+			public void execute(Runnable r) {
+				executed.incrementAndGet();
+				r.run();
+			}
+		});
+		latch.countDown();
+		assertEquals(1, executed.get());
+		assertEquals(1, calls.get());
+	}
+
+	public void testRemoveListener() throws Exception {
+		CompletionListener<String> l = counting();
+		future.addListener(l);
+		assertTrue(future.removeListener(l));
+		assertFalse(future.removeListener(l));
+		latch.countDown();
+		assertEquals(0, calls.get());
+	}
+
+	public void testFailingListener() throws Exception {
+		future.addListener(new CompletionListener<String>() {
+			public void onComplete(Future<String> f) {
+				throw new RuntimeException("intentional");
+			}
+		});
+		future.addListener(counting());
+		latch.countDown();
+		assertEquals(1, calls.get());
+	}
+
+	public void testNotifiedOnceForBulkLatch() throws Exception {
+		latch = new CompletionLatch(3);
+		future = new OperationFuture<String>(latch, result, 1000);
+		future.addListener(counting());
+		latch.countDown();
+		latch.countDown();
+		assertEquals(0, calls.get());
+		latch.countDown();
+		latch.countDown();
+		assertEquals(1, calls.get());
+	}
+
+	public void testLatchAlreadyDone() throws Exception {
+		latch = new CompletionLatch(1);
+		latch.countDown();
+		future = new OperationFuture<String>(latch, result, 1000);
+		future.addListener(counting());
+		assertEquals(1, calls.get());
+	}
+
+	public void testPlainLatchNeverNotifies() throws Exception {
+		CountDownLatch l = new CountDownLatch(1);
+		future = new OperationFuture<String>(l, result, 1000);
+		future.addListener(counting());
+		l.countDown();
+		assertEquals(0, calls.get());
+	}
+
+	public void testThenApply() throws Exception {
+		ListenableFuture<Integer> length = future.thenApply(
+				new ResultFunction<String, Integer>() {
+					public Integer apply(String s) {
+						return s.length();
+					}
+				});
+		assertFalse(length.isDone());
+		try {
+			length.get(10, TimeUnit.MILLISECONDS);
+			fail("Expected a timeout");
+		} catch (java.util.concurrent.TimeoutException e) {
+			// expected
+		}
+
+		result.set("four");
+		latch.countDown();
+		assertTrue(length.isDone());
+		assertEquals(Integer.valueOf(4), length.get());
+	}
+
+	public void testThenApplyRunsOnGet() throws Exception {
+		final AtomicReference<Thread> applier = new AtomicReference<Thread>();
+		ListenableFuture<Integer> length = future.thenApply(
+				new ResultFunction<String, Integer>() {
+					public Integer apply(String s) {
+						calls.incrementAndGet();
+						applier.set(Thread.currentThread());
+						return s.length();
+					}
+				});
+		Thread completing = new Thread() {
+			@Override
+			public void run() {
+				result.set("four");
+				latch.countDown();
+			}
+		};
+		completing.start();
+		completing.join();
+
+		// the completing thread only notifies
+		assertTrue(length.isDone());
+		assertEquals(0, calls.get());
+		assertEquals(Integer.valueOf(4), length.get());
+		assertSame(Thread.currentThread(), applier.get());
+		assertEquals(Integer.valueOf(4), length.get(1, TimeUnit.SECONDS));
+		assertEquals(1, calls.get());
+	}
+
+	public void testThenApplyFailure() throws Exception {
+		ListenableFuture<Integer> length = future.thenApply(
+				new ResultFunction<String, Integer>() {
+					public Integer apply(String s) {
+						return s.length();
+					}
+				});
+		// result stays null, so apply throws
+		latch.countDown();
+		try {
+			length.get(1, TimeUnit.SECONDS);
+			fail("Expected an ExecutionException");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof NullPointerException);
+		}
+	}
+
+	public void testListenerNotifiedOnTimeout() throws Exception {
+		future = new OperationFuture<String>(latch, result, 50);
+		final CountDownLatch notified = new CountDownLatch(1);
+		final AtomicReference<Exception> seen = new AtomicReference<Exception>();
+		future.addListener(new CompletionListener<String>() {
+			public void onComplete(Future<String> f) throws Exception {
+				long start = System.nanoTime();
+				try {
+					f.get(1, TimeUnit.SECONDS);
+				} catch (Exception e) {
+					seen.set(e);
+				}
+				// get() does not wait once the listeners saw the timeout
+				assertTrue(System.nanoTime() - start
+						< TimeUnit.MILLISECONDS.toNanos(500));
+				notified.countDown();
+			}
+		});
+		assertTrue(notified.await(1, TimeUnit.SECONDS));
+		assertTrue(seen.get() instanceof CheckedOperationTimeoutException);
+
+		// a late reply does not notify again
+		latch.countDown();
+		assertEquals(0, calls.get());
+	}
+
+	public void testThenApplyFailsOnTimeout() throws Exception {
+		future = new OperationFuture<String>(latch, result, 50);
+		ListenableFuture<Integer> length = future.thenApply(
+				new ResultFunction<String, Integer>() {
+					public Integer apply(String s) {
+						return s.length();
+					}
+				});
+		try {
+			length.get(1, TimeUnit.SECONDS);
+			fail("Expected an ExecutionException");
+		} catch (ExecutionException e) {
+			// get() wraps the timeout in a RuntimeException
+			assertTrue(e.getCause().getCause()
+					instanceof CheckedOperationTimeoutException);
+		}
+	}
+
+	public void testNoTimeoutAfterCompletion() throws Exception {
+		future = new OperationFuture<String>(latch, result, 50);
+		future.addListener(counting());
+		result.set("value");
+		latch.countDown();
+		assertEquals(1, calls.get());
+		Thread.sleep(150);
+		assertEquals(1, calls.get());
+		assertEquals("value", future.get());
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class MpscBlockingQueueTest extends TestCase {
+
+	public void testOfferAndPoll() throws Exception {
+		MpscBlockingQueue<Integer> q = new MpscBlockingQueue<Integer>(3);
+		assertNull(q.poll());
+		assertNull(q.peek());
+		assertTrue(q.offer(1));
+		assertTrue(q.offer(2));
+		assertTrue(q.offer(3));
+		assertFalse(q.offer(4));
+		assertFalse(q.offer(4, 10, TimeUnit.MILLISECONDS));
+		assertEquals(3, q.size());
+		assertEquals(0, q.remainingCapacity());
+		assertEquals(Integer.valueOf(1), q.peek());
+		assertEquals(Integer.valueOf(1), q.poll());
+		assertEquals(1, q.remainingCapacity());
+		assertEquals(Arrays.asList(2, 3), new ArrayList<Integer>(q));
+		assertEquals(Integer.valueOf(2), q.take());
+		assertEquals(Integer.valueOf(3), q.poll(10, TimeUnit.MILLISECONDS));
+		assertNull(q.poll(10, TimeUnit.MILLISECONDS));
+		assertTrue(q.isEmpty());
+		try {
+			q.offer(null);
+			fail("Added null");
+		} catch (NullPointerException e) {
+			// pass
+		}
+	}
+
+	public void testDrainTo() {
+		MpscBlockingQueue<Integer> q = new MpscBlockingQueue<Integer>(100);
+		for (int i = 0; i < 10; i++) {
+			q.add(i);
+		}
+		List<Integer> to = new ArrayList<Integer>();
+		assertEquals(4, q.drainTo(to, 4));
+		assertEquals(Arrays.asList(0, 1, 2, 3), to);
+		assertEquals(6, q.size());
+		to.clear();
+		assertEquals(6, q.drainTo(to));
+		assertEquals(Arrays.asList(4, 5, 6, 7, 8, 9), to);
+		assertEquals(0, q.size());
+		assertEquals(0, q.drainTo(to));
+	}
+
+	public void testIteratorSkipsTaken() {
+		MpscBlockingQueue<Integer> q = new MpscBlockingQueue<Integer>(10);
+		q.add(1);
+		q.add(2);
+		q.add(3);
+		Iterator<Integer> i = q.iterator();
+		assertEquals(Integer.valueOf(1), i.next());
+		q.poll();
+		q.poll();
+		assertTrue(i.hasNext());
+		// seen before it was taken
+		assertEquals(Integer.valueOf(2), i.next());
+		assertEquals(Integer.valueOf(3), i.next());
+		assertFalse(i.hasNext());
+	}
+
+	public void testBlockingOfferWaitsForRoom() throws Exception {
+		final MpscBlockingQueue<Integer> q = new MpscBlockingQueue<Integer>(1);
+		q.add(1);
+		new Thread() {
+			@Override
+			public void run() {
+				try {
+					Thread.sleep(50);
+				} catch (InterruptedException e) {
+					// ignore
+				}
+				q.poll();
+			}
+		}.start();
+		assertTrue(q.offer(2, 5, TimeUnit.SECONDS));
+		assertEquals(Integer.valueOf(2), q.poll());
+	}
+
+	public void testConcurrentProducers() throws Exception {
+		final int producers = 8;
+		final int each = 100000;
+		final MpscBlockingQueue<Integer> q = new MpscBlockingQueue<Integer>(1024);
+		final CountDownLatch done = new CountDownLatch(producers);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		for (int p = 0; p < producers; p++) {
+			final int producer = p;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < each; i++) {
+							q.put(producer * each + i);
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		// every producer's elements come out in its order
+		int[] last = new int[producers];
+		Arrays.fill(last, -1);
+		List<Integer> batch = new ArrayList<Integer>();
+		int taken = 0;
+		while (taken < producers * each) {
+			batch.clear();
+			if (q.drainTo(batch, 100) == 0) {
+				assertTrue(done.getCount() > 0 || !q.isEmpty());
+				Thread.yield();
+				continue;
+			}
+			for (int v : batch) {
+				int producer = v / each;
+				assertTrue(v % each > last[producer]);
+				last[producer] = v % each;
+			}
+			taken += batch.size();
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertNull(failure.get());
+		assertEquals(0, q.size());
+		assertNull(q.poll());
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.protocol.ascii.AsciiOperationFactory;
+import net.spy.memcached.transcoders.SerializingTranscoder;
+import net.spy.memcached.transcoders.Transcoder;
+
+public class ReadCoalescerTest extends TestCase {
+
+	private final Transcoder<Object> tc = new SerializingTranscoder();
+
+	private ReadCoalescer coalescer;
+	private CompletionLatch latch;
+	private AtomicReference<String> result;
+	private OperationFuture<String> read;
+	private Operation op;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		coalescer = new ReadCoalescer(1, TimeUnit.SECONDS);
+		latch = new CompletionLatch(1);
+		result = new AtomicReference<String>(null);
+		read = new OperationFuture<String>(latch, result, 1000);
+		op = new AsciiOperationFactory().get("key", new GetOperation.Callback() {
+			public void receivedStatus(OperationStatus status) {
+			}
+			public void gotData(String key, int flags, byte[] data) {
+			}
+			public void complete() {
+				latch.countDown();
+			}
+		});
+		read.setOperation(op);
+	}
+
+	public void testJoinReadInFlight() throws Exception {
+		Object key = ReadCoalescer.readKey("key", null, tc);
+		assertNull(coalescer.join(key));
+		Future<String> leader = coalescer.lead(key, read);
+
+		Future<String> follower = coalescer.join(ReadCoalescer.readKey("key", null, tc));
+		assertNotNull(follower);
+		assertFalse(follower.isDone());
+		assertEquals(1, coalescer.getCoalescedCount());
+
+		result.set("value");
+		latch.countDown();
+		assertTrue(follower.isDone());
+		assertEquals("value", leader.get());
+		assertEquals("value", follower.get());
+
+		// a completed read is not joined
+		assertNull(coalescer.join(key));
+	}
+
+	public void testDifferentReadsAreNotJoined() {
+		coalescer.lead(ReadCoalescer.readKey("key", "bop get 0..10", tc), read);
+		assertNull(coalescer.join(ReadCoalescer.readKey("key", null, tc)));
+		assertNull(coalescer.join(ReadCoalescer.readKey("key", "bop get 0..20", tc)));
+		assertNull(coalescer.join(ReadCoalescer.readKey("key", "bop get 0..10",
+				new SerializingTranscoder())));
+		assertNull(coalescer.join(ReadCoalescer.readKey("other", "bop get 0..10", tc)));
+		assertNotNull(coalescer.join(ReadCoalescer.readKey("key", "bop get 0..10", tc)));
+	}
+
+	public void testCancelDetachesOneCaller() throws Exception {
+		Object key = ReadCoalescer.readKey("key", null, tc);
+		Future<String> leader = coalescer.lead(key, read);
+		Future<String> follower = coalescer.join(key);
+
+		final AtomicInteger notified = new AtomicInteger();
+		((ListenableFuture<String>) leader).addListener(new CompletionListener<String>() {
+			public void onComplete(Future<String> f) {
+				notified.incrementAndGet();
+			}
+		});
+		assertTrue(leader.cancel(true));
+		assertTrue(leader.isCancelled());
+		assertEquals(1, notified.get());
+		assertFalse(op.isCancelled());
+		try {
+			leader.get();
+			fail("Expected CancellationException");
+		} catch (CancellationException e) {
+			// expected
+		}
+
+		result.set("value");
+		latch.countDown();
+		assertEquals("value", follower.get());
+		assertFalse(follower.isCancelled());
+	}
+
+	public void testCancelByAllCallersCancelsRead() {
+		Object key = ReadCoalescer.readKey("key", null, tc);
+		Future<String> leader = coalescer.lead(key, read);
+		Future<String> follower = coalescer.join(key);
+		assertTrue(follower.cancel(true));
+		assertFalse(op.isCancelled());
+		assertTrue(leader.cancel(true));
+		assertTrue(op.isCancelled());
+		// nobody waits for it any more
+		assertNull(coalescer.join(key));
+	}
+
+	public void testOldReadIsNotJoined() throws Exception {
+		coalescer = new ReadCoalescer(50, TimeUnit.MILLISECONDS);
+		Object key = ReadCoalescer.readKey("key", null, tc);
+		coalescer.lead(key, read);
+		assertNotNull(coalescer.join(key));
+		Thread.sleep(100);
+		assertNull(coalescer.join(key));
+	}
+
+	public void testReadIsNotJoinedAfterWrite() throws Exception {
+		Object key = ReadCoalescer.readKey("key", "bop get 0..10", tc);
+		Future<String> leader = coalescer.lead(key, read);
+		assertNotNull(coalescer.join(key));
+		coalescer.wrote("other");
+		assertNotNull(coalescer.join(key));
+
+		// the read was sent before the write, so a later one must not wait for it
+		coalescer.wrote("key");
+		assertNull(coalescer.join(key));
+		assertNull(coalescer.join(ReadCoalescer.readKey("key", null, tc)));
+
+		// a read sent after the write is joined again
+		CompletionLatch next = new CompletionLatch(1);
+		OperationFuture<String> nextRead = new OperationFuture<String>(next,
+				new AtomicReference<String>("new"), 1000);
+		nextRead.setOperation(op);
+		coalescer.lead(key, nextRead);
+		Future<String> follower = coalescer.join(key);
+		assertNotNull(follower);
+		next.countDown();
+		assertEquals("new", follower.get());
+
+		result.set("old");
+		latch.countDown();
+		assertEquals("old", leader.get());
+	}
+
+	public void testEveryCallerGetsItsOwnCopy() throws Exception {
+		CompletionLatch listLatch = new CompletionLatch(1);
+		OperationFuture<List<String>> listRead = new OperationFuture<List<String>>(
+				listLatch, new AtomicReference<List<String>>(
+						new ArrayList<String>(Arrays.asList("a", "b"))), 1000);
+		listRead.setOperation(op);
+		Object key = ReadCoalescer.readKey("key", "lop get 0..1", tc);
+		Future<List<String>> leader = coalescer.lead(key, listRead);
+		Future<List<String>> follower = coalescer.join(key);
+		listLatch.countDown();
+
+		List<String> mine = leader.get();
+		assertSame(mine, leader.get());
+		mine.clear();
+		assertEquals(Arrays.asList("a", "b"), follower.get());
+		assertNotSame(follower.get(), listRead.get());
+		assertEquals(Arrays.asList("a", "b"), listRead.get());
+	}
+
+	public void testAbort() {
+		Object key = ReadCoalescer.readKey("key", null, tc);
+		coalescer.lead(key, read);
+		coalescer.abort(key, read);
+		assertNull(coalescer.join(key));
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+import net.spy.memcached.CachedData;
+
+public class OffHeapCacheTest extends TestCase {
+
+	private static CachedData value(int flags, int length) {
+		byte[] data = new byte[length];
+		Arrays.fill(data, (byte) flags);
+		return new CachedData(flags, data, length);
+	}
+
+	private static void assertValue(CachedData expected, CachedData actual) {
+		assertNotNull(actual);
+		assertEquals(expected.getFlags(), actual.getFlags());
+		assertTrue(Arrays.equals(expected.getData(), actual.getData()));
+	}
+
+	public void testPutGetRemove() {
+		OffHeapCache cache = new OffHeapCache("test", 0, 1 << 20, 0, TimeUnit.SECONDS);
+		assertNull(cache.get("a"));
+		CachedData one = value(1, 10);
+		assertTrue(cache.put("a", one));
+		assertValue(one, cache.get("a"));
+		CachedData two = value(2, 1000);
+		assertTrue(cache.put("a", two));
+		assertValue(two, cache.get("a"));
+		assertEquals(1, cache.getSize());
+		assertTrue(cache.getUsedBytes() >= 1004);
+		cache.remove("a");
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.getSize());
+		assertEquals(0, cache.getUsedBytes());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+
+		// an empty value
+		assertTrue(cache.put("empty", value(3, 0)));
+		assertValue(value(3, 0), cache.get("empty"));
+	}
+
+	public void testSizeBound() {
+		OffHeapCache cache = new OffHeapCache("test", 0, 1 << 20, 0, TimeUnit.SECONDS);
+		for (int i = 0; i < 10000; i++) {
+			assertTrue(cache.put("k" + i, value(i, 1000)));
+		}
+		assertTrue(cache.getAllocatedBytes() <= 1 << 20);
+		assertTrue(cache.getUsedBytes() <= cache.getAllocatedBytes());
+		assertTrue(cache.getSize() < 1024);
+		assertEquals(10000 - cache.getSize(), cache.getEvictionCount());
+		// the most recently used entries are kept
+		assertValue(value(9999, 1000), cache.get("k9999"));
+		assertNull(cache.get("k0"));
+
+		// larger than a page
+		assertFalse(cache.put("big", value(1, 4096)));
+		assertEquals(1, cache.getRejectionCount());
+	}
+
+	public void testEntryBound() {
+		OffHeapCache cache = new OffHeapCache("test", 160, 1 << 20, 0, TimeUnit.SECONDS);
+		for (int i = 0; i < 1000; i++) {
+			cache.put("k" + i, value(i, i % 500));
+		}
+		assertTrue(cache.getSize() <= 160);
+		assertEquals(1000 - cache.getSize(), cache.getEvictionCount());
+	}
+
+	public void testLeastRecentlyUsedEvicted() {
+		OffHeapCache cache = new OffHeapCache("test", 0, 1 << 20, 0, TimeUnit.SECONDS);
+		cache.put("hot", value(1, 1000));
+		for (int i = 0; i < 10000; i++) {
+			cache.put("k" + i, value(2, 1000));
+			assertNotNull(cache.get("hot"));
+		}
+	}
+
+	public void testExpiry() throws Exception {
+		OffHeapCache cache = new OffHeapCache("test", 0, 1 << 20, 50, TimeUnit.MILLISECONDS);
+		cache.put("a", value(1, 10));
+		assertNotNull(cache.get("a"));
+		Thread.sleep(100);
+		assertNull(cache.get("a"));
+		assertEquals(1, cache.getExpirationCount());
+		assertEquals(0, cache.getSize());
+	}
+
+	public void testClear() {
+		OffHeapCache cache = new OffHeapCache("test", 0, 1 << 20, 0, TimeUnit.SECONDS);
+		for (int i = 0; i < 100; i++) {
+			cache.put("k" + i, value(i, 100));
+		}
+		cache.clear();
+		assertEquals(0, cache.getSize());
+		assertEquals(0, cache.getAllocatedBytes());
+		assertNull(cache.get("k0"));
+		assertTrue(cache.put("k0", value(0, 100)));
+	}
+
+	public void testConcurrentAccess() throws Exception {
+		final OffHeapCache cache = new OffHeapCache("test", 0, 1 << 20, 0, TimeUnit.SECONDS);
+		final CountDownLatch done = new CountDownLatch(8);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		for (int t = 0; t < 8; t++) {
+			final int seed = t;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 100000; i++) {
+							int k = (i * 31 + seed) % 2000;
+							String key = "k" + k;
+							CachedData cached = cache.get(key);
+							if (cached == null) {
+								cache.put(key, value(k, k));
+							} else {
+								assertValue(value(k, k), cached);
+							}
+							if (i % 100 == 0) {
+								cache.remove(key);
+							}
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		assertTrue(done.await(60, TimeUnit.SECONDS));
+		assertNull(failure.get());
+		assertTrue(cache.getAllocatedBytes() <= 1 << 20);
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.plugin;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+
+public class TinyLfuCacheTest extends TestCase {
+
+	public void testPutGetRemove() {
+		TinyLfuCache cache = new TinyLfuCache("test", 100, 0, 0, TimeUnit.SECONDS);
+		assertNull(cache.get("a"));
+		cache.put("a", "one", 3);
+		assertEquals("one", cache.get("a"));
+		cache.put("a", "two", 3);
+		assertEquals("two", cache.get("a"));
+		assertEquals(1, cache.getSize());
+		assertEquals(1, cache.getWeightedSize());
+		cache.remove("a");
+		assertNull(cache.get("a"));
+		assertEquals(0, cache.getWeightedSize());
+		assertEquals(2, cache.getHitCount());
+		assertEquals(2, cache.getMissCount());
+	}
+
+	public void testEntryBound() {
+		TinyLfuCache cache = new TinyLfuCache("test", 100, 0, 0, TimeUnit.SECONDS);
+		for (int i = 0; i < 1000; i++) {
+			cache.put("k" + i, i, 1);
+		}
+		assertEquals(100, cache.getSize());
+		assertEquals(100, cache.getWeightedSize());
+		assertEquals(900, cache.getEvictionCount());
+	}
+
+	public void testWeightBound() {
+		TinyLfuCache cache = new TinyLfuCache("test", 1000, 1000, 0, TimeUnit.SECONDS);
+		for (int i = 0; i < 100; i++) {
+			cache.put("k" + i, i, 100);
+		}
+		assertTrue(cache.getWeightedSize() <= 1000);
+		assertTrue(cache.getSize() <= 10);
+
+		// too large for the cache, and the old value is dropped
+		cache.put("k99", 99, 100);
+		cache.put("k99", "big", 2000);
+		assertNull(cache.get("k99"));
+	}
+
+	public void testScanResistance() {
+		TinyLfuCache cache = new TinyLfuCache("test", 100, 0, 0, TimeUnit.SECONDS);
+		for (int round = 0; round < 10; round++) {
+			for (int i = 0; i < 50; i++) {
+				if (cache.get("hot" + i) == null) {
+					cache.put("hot" + i, i, 1);
+				}
+			}
+		}
+		// a scan of keys read once, ten times the cache size
+		for (int i = 0; i < 1000; i++) {
+			cache.put("scan" + i, i, 1);
+		}
+		int kept = 0;
+		for (int i = 0; i < 50; i++) {
+			if (cache.get("hot" + i) != null) {
+				kept++;
+			}
+		}
+		assertEquals(50, kept);
+		assertTrue(cache.getRejectionCount() > 0);
+	}
+
+	public void testExpiry() throws Exception {
+		TinyLfuCache cache = new TinyLfuCache("test", 100, 0, 1, TimeUnit.SECONDS);
+		cache.put("default", "v", 1);
+		cache.put("short", "v", 1, 50, TimeUnit.MILLISECONDS);
+		cache.put("eternal", "v", 1, 0, TimeUnit.MILLISECONDS);
+		assertEquals("v", cache.get("short"));
+		Thread.sleep(100);
+		assertNull(cache.get("short"));
+		assertEquals("v", cache.get("default"));
+		Thread.sleep(1000);
+		assertNull(cache.get("default"));
+		assertEquals("v", cache.get("eternal"));
+		assertEquals(2, cache.getExpirationCount());
+		assertEquals(1, cache.getSize());
+	}
+
+	public void testConcurrentAccess() throws Exception {
+		final TinyLfuCache cache = new TinyLfuCache("test", 500, 0, 0, TimeUnit.SECONDS);
+		final CountDownLatch done = new CountDownLatch(8);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		for (int t = 0; t < 8; t++) {
+			final int seed = t;
+			new Thread() {
+				@Override
+				public void run() {
+					try {
+						for (int i = 0; i < 100000; i++) {
+							String key = "k" + ((i * 31 + seed) % 2000);
+							if (cache.get(key) == null) {
+								cache.put(key, key, 1);
+							}
+							if (i % 100 == 0) {
+								cache.remove(key);
+							}
+						}
+					} catch (Throwable e) {
+						failure.set(e);
+					} finally {
+						done.countDown();
+					}
+				}
+			}.start();
+		}
+		assertTrue(done.await(60, TimeUnit.SECONDS));
+		assertNull(failure.get());
+		assertTrue(cache.getSize() <= 500);
+		assertEquals(cache.getSize(), cache.getWeightedSize());
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import net.spy.memcached.CachedData;
+import net.spy.memcached.ops.BulkStoreOperation;
+import net.spy.memcached.ops.Operation;
+import net.spy.memcached.ops.OperationState;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreOperation;
+import net.spy.memcached.ops.StoreType;
+
+public class BulkStoreOperationImplTest extends TestCase {
+
+	private final Map<Integer, OperationStatus> failed =
+		new HashMap<Integer, OperationStatus>();
+	private final List<OperationStatus> statuses = new ArrayList<OperationStatus>();
+	private int completed = 0;
+
+	private BulkStoreOperationImpl op;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		List<CachedData> data = new ArrayList<CachedData>();
+		data.add(new CachedData(1, "one".getBytes(), CachedData.MAX_SIZE));
+		data.add(new CachedData(2, "two".getBytes(), CachedData.MAX_SIZE));
+		data.add(new CachedData(3, "three".getBytes(), CachedData.MAX_SIZE));
+		op = new BulkStoreOperationImpl(StoreType.set,
+				Arrays.asList("k1", "k2", "k3"), 60, data,
+				new BulkStoreOperation.Callback() {
+					public void receivedStatus(OperationStatus status) {
+						statuses.add(status);
+					}
+					public void complete() {
+						completed++;
+					}
+					public void gotStatus(Integer index, OperationStatus status) {
+						failed.put(index, status);
+					}
+				});
+		op.initialize();
+	}
+
+	private void read(String s) throws Exception {
+		op.readFromBuffer(ByteBuffer.wrap(s.getBytes()));
+	}
+
+	public void testCommands() {
+		ByteBuffer bb = op.getBuffer();
+		byte[] b = new byte[bb.remaining()];
+		bb.get(b);
+		assertEquals("set k1 1 60 3\r\none\r\n"
+				+ "set k2 2 60 3\r\ntwo\r\n"
+				+ "set k3 3 60 5\r\nthree\r\n", new String(b));
+	}
+
+	public void testAllStored() throws Exception {
+		op.writeComplete();
+		read("STORED\r\nSTORED\r\n");
+		assertEquals(OperationState.READING, op.getState());
+		read("STORED\r\n");
+		assertEquals(OperationState.COMPLETE, op.getState());
+		assertTrue(failed.isEmpty());
+		assertEquals(1, statuses.size());
+		assertTrue(statuses.get(0).isSuccess());
+	}
+
+	public void testFailures() throws Exception {
+		op.writeComplete();
+		read("STORED\r\nSERVER_ERROR out of memory\r\nNOT_STORED\r\n");
+		assertEquals(OperationState.COMPLETE, op.getState());
+		assertFalse(op.hasErrored());
+		assertEquals(2, failed.size());
+		assertEquals("SERVER_ERROR out of memory", failed.get(1).getMessage());
+		assertEquals("NOT_STORED", failed.get(2).getMessage());
+		assertFalse(statuses.get(0).isSuccess());
+	}
+
+	public void testErrorsFailOnlyTheirKey() throws Exception {
+		op.writeComplete();
+		read("CLIENT_ERROR bad data chunk\r\nERROR\r\n");
+		assertEquals(OperationState.READING, op.getState());
+		read("STORED\r\n");
+		assertEquals(OperationState.COMPLETE, op.getState());
+		assertFalse(op.hasErrored());
+		assertEquals(2, failed.size());
+		assertEquals("CLIENT_ERROR bad data chunk", failed.get(0).getMessage());
+		assertEquals("ERROR", failed.get(1).getMessage());
+		assertFalse(statuses.get(0).isSuccess());
+	}
+
+	public void testMoveResendsRest() throws Exception {
+		op.writeComplete();
+		read("STORED\r\nSWITCHOVER\r\nSWITCHOVER\r\n");
+		assertEquals(OperationState.MOVING, op.getState());
+
+		op.initialize();
+		op.resetState();
+		ByteBuffer bb = op.getBuffer();
+		byte[] b = new byte[bb.remaining()];
+		bb.get(b);
+		assertEquals("set k2 2 60 3\r\ntwo\r\n"
+				+ "set k3 3 60 5\r\nthree\r\n", new String(b));
+
+		op.writeComplete();
+		read("STORED\r\nSTORED\r\n");
+		assertEquals(OperationState.COMPLETE, op.getState());
+		assertTrue(failed.isEmpty());
+	}
+
+	public void testKeys() {
+		assertEquals(Arrays.asList("k1", "k2", "k3"),
+				new ArrayList<String>(op.getKeys()));
+	}
+
+	public void testRedistributeStoresEachKey() throws Exception {
+		// a node failure clones the operation before it is written
+		op = new BulkStoreOperationImpl(op.getStoreType(), op.getKeyList(),
+				60, op.getDataList(), op.getCallback());
+		Collection<Operation> clones = new AsciiOperationFactory().clone(op);
+		assertEquals(3, clones.size());
+		String[] replies = {"STORED", "NOT_STORED", "STORED"};
+		int i = 0;
+		for (Operation each : clones) {
+			StoreOperation so = (StoreOperation) each;
+			assertEquals("k" + (i + 1), so.getKeys().iterator().next());
+			assertEquals(60, so.getExpiration());
+			assertEquals(i + 1, so.getFlags());
+			so.initialize();
+			so.writeComplete();
+			assertEquals(0, completed);
+			so.readFromBuffer(ByteBuffer.wrap((replies[i++] + "\r\n").getBytes()));
+		}
+		assertEquals(1, completed);
+		assertEquals(1, failed.size());
+		assertEquals("NOT_STORED", failed.get(1).getMessage());
+		assertFalse(statuses.get(0).isSuccess());
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.protocol.ascii;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+import net.spy.memcached.EncodedKey;
+import net.spy.memcached.ops.GetOperation;
+import net.spy.memcached.ops.GetsOperation;
+import net.spy.memcached.ops.OperationCallback;
+import net.spy.memcached.ops.OperationStatus;
+import net.spy.memcached.ops.StoreType;
+
+public class EncodedKeyOperationTest extends TestCase {
+
+	private static final String KEY = "prefix:caf\u00e9";
+
+	private final AsciiOperationFactory ofact = new AsciiOperationFactory();
+
+	private final OperationCallback cb = new GetsOperation.Callback() {
+		public void receivedStatus(OperationStatus status) {
+		}
+		public void complete() {
+		}
+		public void gotData(String key, int flags, long cas, byte[] data) {
+		}
+	};
+
+	private final GetOperation.Callback getCb = new GetOperation.Callback() {
+		public void receivedStatus(OperationStatus status) {
+		}
+		public void complete() {
+		}
+		public void gotData(String key, int flags, byte[] data) {
+		}
+	};
+
+	private static String command(OperationImpl op) throws Exception {
+		op.initialize();
+		ByteBuffer bb = op.getBuffer();
+		byte[] b = new byte[bb.remaining()];
+		bb.get(b);
+		return new String(b, "UTF-8");
+	}
+
+	public void testStore() throws Exception {
+		EncodedKey key = new EncodedKey(KEY);
+		assertEquals("set " + KEY + " 17 -1 3\r\nabc\r\n",
+				command((OperationImpl) ofact.store(StoreType.set, key, 17, -1,
+						"abc".getBytes(), cb)));
+		assertEquals("add " + KEY + " 0 2147483647 0\r\n\r\n",
+				command((OperationImpl) ofact.store(StoreType.add, KEY, 0,
+						Integer.MAX_VALUE, new byte[0], cb)));
+	}
+
+	public void testGet() throws Exception {
+		EncodedKey key = new EncodedKey(KEY.getBytes("UTF-8"));
+		assertEquals("get " + KEY + "\r\n",
+				command((OperationImpl) ofact.get(key, getCb)));
+		assertEquals("gets " + KEY + "\r\n",
+				command((OperationImpl) ofact.gets(key,
+						(GetsOperation.Callback) cb)));
+		assertEquals(KEY, ofact.get(key, getCb).getKeys().iterator().next());
+	}
+
+	public void testDelete() throws Exception {
+		assertEquals("delete " + KEY + "\r\n",
+				command((OperationImpl) ofact.delete(new EncodedKey(KEY), cb)));
+	}
+}
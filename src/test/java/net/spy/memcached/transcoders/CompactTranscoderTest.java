@@ -0,0 +1,309 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+import net.spy.memcached.CachedData;
+
+public class CompactTranscoderTest extends TestCase {
+
+	private CompactTranscoder tc;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		tc = new CompactTranscoder();
+	}
+
+	static class Address {
+		String city;
+		int zip;
+	}
+
+	static class Person {
+		private String name;
+		private int age;
+		private long id;
+		private double score;
+		private boolean active;
+		private char grade;
+		private Date joined;
+		private int[] codes;
+		private List<String> tags;
+		private Map<String, Integer> counts;
+		private Address address;
+		private TimeUnit unit;
+		private transient String cached = "transient";
+		private Integer boxed;
+
+		private Person() {
+		}
+
+		Person(String name) {
+			this.name = name;
+		}
+	}
+
+	static class Employee extends Person {
+		private String name;
+
+		Employee() {
+		}
+	}
+
+	static class PersonV1 {
+		String name = "v1";
+		int age = 1;
+		String removed = "gone";
+	}
+
+	static class PersonV2 {
+		String name;
+		int age;
+		String added = "default";
+		long removed = 7;
+	}
+
+	static class NoDefaultConstructor implements Serializable {
+		private static final long serialVersionUID = 1L;
+		final String value;
+
+		NoDefaultConstructor(String value) {
+			this.value = value;
+		}
+	}
+
+	private Person person() {
+		Person p = new Person("kim");
+		p.age = 33;
+		p.id = -1234567890123L;
+		p.score = 4.5;
+		p.active = true;
+		p.grade = 'A';
+		p.joined = new Date(1234567890L);
+		p.codes = new int[] { 1, -2, 300000 };
+		p.tags = new ArrayList<String>(Arrays.asList("a", "가나", null));
+		p.counts = new TreeMap<String, Integer>();
+		p.counts.put("x", 1);
+		p.counts.put("y", -1);
+		p.address = new Address();
+		p.address.city = "Seoul";
+		p.address.zip = 12345;
+		p.unit = TimeUnit.SECONDS;
+		return p;
+	}
+
+	public void testObject() {
+		Person written = person();
+		written.cached = "written";
+		CachedData cd = tc.encode(written);
+		assertEquals(SerializingTranscoder.SPECIAL_COMPACT, cd.getFlags());
+		assertTrue(tc.asyncDecode(cd));
+
+		Person p = (Person) tc.decode(cd);
+		assertEquals("kim", p.name);
+		assertEquals(33, p.age);
+		assertEquals(-1234567890123L, p.id);
+		assertEquals(4.5, p.score);
+		assertTrue(p.active);
+		assertEquals('A', p.grade);
+		assertEquals(new Date(1234567890L), p.joined);
+		assertTrue(Arrays.equals(new int[] { 1, -2, 300000 }, p.codes));
+		assertEquals(Arrays.asList("a", "가나", null), p.tags);
+		assertEquals(TreeMap.class, p.counts.getClass());
+		assertEquals(Integer.valueOf(-1), p.counts.get("y"));
+		assertEquals("Seoul", p.address.city);
+		assertEquals(12345, p.address.zip);
+		assertSame(TimeUnit.SECONDS, p.unit);
+		// transient fields are set by the constructor
+		assertEquals("transient", p.cached);
+		assertNull(p.boxed);
+	}
+
+	public void testHiddenField() {
+		Employee e = new Employee();
+		e.name = "sub";
+		((Person) e).name = "super";
+		Employee rv = (Employee) tc.decode(tc.encode(e));
+		assertEquals("sub", rv.name);
+		assertEquals("super", ((Person) rv).name);
+	}
+
+	public void testValues() {
+		Object[] values = {
+			Short.valueOf((short) -3), Character.valueOf('z'),
+			new BigInteger("-123456789012345678901234567890"),
+			new BigDecimal("3.14159265358979323846"),
+			TimeUnit.DAYS,
+			new LinkedList<Object>(Arrays.<Object>asList(1, 2L, "three")),
+			new TreeSet<String>(Arrays.asList("b", "a")),
+			new HashMap<Object, Object>(Collections.singletonMap(1, "one")),
+			new String[] { "a", null, "c" },
+			new long[] { Long.MIN_VALUE, 0, Long.MAX_VALUE },
+		};
+		for (Object v : values) {
+			Object rv = tc.decode(tc.encode(v));
+			assertEquals(v.getClass(), rv.getClass());
+			if (v instanceof Object[]) {
+				assertTrue(Arrays.equals((Object[]) v, (Object[]) rv));
+			} else if (v instanceof long[]) {
+				assertTrue(Arrays.equals((long[]) v, (long[]) rv));
+			} else {
+				assertEquals(v, rv);
+			}
+		}
+		// collections without a public constructor are read as plain ones
+		Object rv = tc.decode(tc.encode(Arrays.asList("a", "b")));
+		assertEquals(ArrayList.class, rv.getClass());
+		assertEquals(Arrays.asList("a", "b"), rv);
+		rv = tc.decode(tc.encode(Collections.singletonMap("k", "v")));
+		assertEquals(Collections.singletonMap("k", "v"), rv);
+	}
+
+	public void testSpecialTypes() {
+		SerializingTranscoder st = new SerializingTranscoder();
+		Object[] values = { "string", 1, 2L, true, new Date(3), (byte) 4,
+				5.0f, 6.0 };
+		for (Object v : values) {
+			CachedData cd = tc.encode(v);
+			assertEquals(st.encode(v).getFlags(), cd.getFlags());
+			assertEquals(v, tc.decode(cd));
+		}
+	}
+
+	public void testFieldChanges() {
+		CompactSerializer s = new CompactSerializer();
+		byte[] b = s.write(new PersonV1());
+		replace(b, PersonV1.class.getName(), PersonV2.class.getName());
+		PersonV2 p = (PersonV2) tc.decode(new CachedData(
+				SerializingTranscoder.SPECIAL_COMPACT, b, CachedData.MAX_SIZE));
+		assertEquals("v1", p.name);
+		assertEquals(1, p.age);
+		assertEquals("default", p.added);
+		// the type of the field changed
+		assertEquals(7, p.removed);
+	}
+
+	private static void replace(byte[] b, String from, String to) {
+		byte[] f = from.getBytes();
+		byte[] t = to.getBytes();
+		for (int i = 0; i + f.length <= b.length; i++) {
+			if (Arrays.equals(f, Arrays.copyOfRange(b, i, i + f.length))) {
+				System.arraycopy(t, 0, b, i, t.length);
+			}
+		}
+	}
+
+	public void testJavaSerializationFallback() {
+		CachedData cd = tc.encode(new NoDefaultConstructor("value"));
+		assertEquals(SerializingTranscoder.SPECIAL_COMPACT, cd.getFlags());
+		assertEquals("value", ((NoDefaultConstructor) tc.decode(cd)).value);
+		try {
+			tc.encode(new Thread());
+			fail("Processed a non-serializable object.");
+		} catch (IllegalArgumentException e) {
+			// pass
+		}
+	}
+
+	public void testCyclicObject() {
+		List<Object> list = new ArrayList<Object>();
+		list.add(list);
+		try {
+			tc.encode(list);
+			fail("Processed a cyclic object.");
+		} catch (IllegalArgumentException e) {
+			// pass
+		}
+	}
+
+	public void testInteroperability() throws Exception {
+		SerializingTranscoder st = new SerializingTranscoder();
+		ArrayList<String> list = new ArrayList<String>(Arrays.asList("a", "b"));
+		// data of the serializing transcoder are decoded
+		assertEquals(list, tc.decode(st.encode(list)));
+		// and it ignores the compact data
+		assertNull(st.decode(tc.encode(list)));
+	}
+
+	public void testCompressed() {
+		tc.setCompressionThreshold(8);
+		tc.setCompressionCodec(CompressionCodecs.LZ4);
+		List<String> list = new ArrayList<String>();
+		for (int i = 0; i < 100; i++) {
+			list.add("element");
+		}
+		CachedData cd = tc.encode(list);
+		assertEquals(SerializingTranscoder.SPECIAL_COMPACT
+				| SerializingTranscoder.COMPRESSED
+				| (CompressionCodecs.LZ4.getId() << SerializingTranscoder.CODEC_SHIFT),
+				cd.getFlags());
+		assertEquals(list, tc.decode(cd));
+	}
+
+	public void testInvalidData() {
+		byte[] b = new CompactSerializer().write(person());
+		assertNull(tc.decode(new CachedData(SerializingTranscoder.SPECIAL_COMPACT,
+				Arrays.copyOf(b, b.length / 2), CachedData.MAX_SIZE)));
+		b[1] = 99;
+		assertNull(tc.decode(new CachedData(SerializingTranscoder.SPECIAL_COMPACT,
+				b, CachedData.MAX_SIZE)));
+	}
+
+	public void testSmallerThanJavaSerialization() throws Exception {
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream os = new ObjectOutputStream(bos);
+		os.writeObject(new ArrayList<Integer>(Arrays.asList(1, 2, 3)));
+		os.close();
+		assertTrue(tc.encode(new ArrayList<Integer>(Arrays.asList(1, 2, 3)))
+				.getData().length < bos.size() / 4);
+	}
+
+	public void testCollectionTranscoder() {
+		CompactCollectionTranscoder ctc = new CompactCollectionTranscoder();
+		CollectionTranscoder jtc = new CollectionTranscoder();
+		Person p = person();
+
+		CachedData cd = ctc.encode(p);
+		assertEquals(SerializingTranscoder.SERIALIZED, cd.getFlags());
+		assertTrue(CompactSerializer.isCompact(cd.getData()));
+		assertEquals("kim", ((Person) ctc.decode(cd)).name);
+
+		// elements of both formats share the flags of the collection
+		ArrayList<String> list = new ArrayList<String>(Arrays.asList("a"));
+		assertEquals(list, ctc.decode(jtc.encode(list)));
+		assertEquals("a", ctc.decode(ctc.encode("a")));
+		assertEquals(7L, ctc.decode(ctc.encode(7L)));
+	}
+}
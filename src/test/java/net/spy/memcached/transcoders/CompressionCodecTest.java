@@ -0,0 +1,155 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.transcoders;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+public class CompressionCodecTest extends TestCase {
+
+	private static final CompressionCodec[] CODECS = {
+		CompressionCodecs.GZIP, CompressionCodecs.LZ4, CompressionCodecs.SNAPPY
+	};
+
+	private final Random rand = new Random(42);
+
+	private byte[] text(int size) {
+		StringBuilder b = new StringBuilder(size);
+		while (b.length() < size) {
+			b.append("{\"id\":").append(rand.nextInt(100000))
+				.append(",\"name\":\"item").append(rand.nextInt(100)).append("\"},");
+		}
+		b.setLength(size);
+		return b.toString().getBytes();
+	}
+
+	private List<byte[]> inputs() {
+		List<byte[]> rv = new ArrayList<byte[]>();
+		rv.add(new byte[0]);
+		rv.add(new byte[] { 1 });
+		rv.add(text(13));
+		rv.add(text(100));
+		rv.add(text(100000));
+		// crosses the blocks of Snappy
+		rv.add(text(300000));
+		byte[] random = new byte[100000];
+		rand.nextBytes(random);
+		rv.add(random);
+		// long matches, and matches overlapping their copies
+		byte[] same = new byte[100000];
+		Arrays.fill(same, (byte) 'a');
+		rv.add(same);
+		byte[] pattern = new byte[5000];
+		for (int i = 0; i < pattern.length; i++) {
+			pattern[i] = (byte) (i % 3);
+		}
+		rv.add(pattern);
+		return rv;
+	}
+
+	public void testRoundTrip() throws Exception {
+		for (CompressionCodec codec : CODECS) {
+			for (byte[] in : inputs()) {
+				byte[] compressed = codec.compress(in);
+				assertTrue(codec.getName() + " " + in.length, Arrays.equals(in,
+						codec.decompress(compressed)));
+			}
+		}
+	}
+
+	public void testCompresses() throws Exception {
+		byte[] in = text(100000);
+		for (CompressionCodec codec : CODECS) {
+			assertTrue(codec.getName(), codec.compress(in).length < in.length / 2);
+		}
+	}
+
+	public void testGzipFormat() throws Exception {
+		byte[] in = text(100000);
+		GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(
+				CompressionCodecs.GZIP.compress(in)));
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int r;
+		while ((r = gis.read(buf)) > 0) {
+			bos.write(buf, 0, r);
+		}
+		assertTrue(Arrays.equals(in, bos.toByteArray()));
+
+		bos = new ByteArrayOutputStream();
+		GZIPOutputStream gos = new GZIPOutputStream(bos);
+		gos.write(in);
+		gos.close();
+		assertTrue(Arrays.equals(in,
+				CompressionCodecs.GZIP.decompress(bos.toByteArray())));
+	}
+
+	public void testCorruptData() throws Exception {
+		for (CompressionCodec codec : CODECS) {
+			byte[] compressed = codec.compress(text(10000));
+			for (int i = 0; i < 1000; i++) {
+				byte[] corrupt;
+				if (i % 2 == 0) {
+					corrupt = Arrays.copyOf(compressed, rand.nextInt(compressed.length));
+				} else {
+					corrupt = compressed.clone();
+					corrupt[rand.nextInt(corrupt.length)] = (byte) rand.nextInt();
+				}
+				try {
+					codec.decompress(corrupt);
+				} catch (IOException e) {
+					// expected for most
+				}
+			}
+			try {
+				codec.decompress(Arrays.copyOf(compressed, compressed.length - 1));
+				fail(codec.getName() + " decompressed truncated data");
+			} catch (IOException e) {
+				// pass
+			}
+		}
+	}
+
+	public void testRegistry() {
+		for (CompressionCodec codec : CODECS) {
+			assertSame(codec, CompressionCodecs.get(codec.getId()));
+		}
+		assertNull(CompressionCodecs.get(CompressionCodecs.MAX_ID + 1));
+		CompressionCodecs.register(CompressionCodecs.LZ4);
+		try {
+			CompressionCodecs.register(new Lz4Codec(CompressionCodecs.SNAPPY.getId()));
+			fail("Registered a codec with a taken id");
+		} catch (IllegalArgumentException e) {
+			// pass
+		}
+		try {
+			CompressionCodecs.register(new Lz4Codec(CompressionCodecs.MAX_ID + 1));
+			fail("Registered a codec with an invalid id");
+		} catch (IllegalArgumentException e) {
+			// pass
+		}
+	}
+}
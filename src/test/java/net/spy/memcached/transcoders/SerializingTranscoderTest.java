@@ -53,6 +53,30 @@ public class SerializingTranscoderTest extends BaseTranscoderCase {
 		assertEquals(s1, tc.decode(cd));
 	}
 
+	public void testCompressionCodecs() throws Exception {
+		String s1="aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+		tc.setCompressionThreshold(8);
+		SerializingTranscoder reader=new SerializingTranscoder();
+		for(CompressionCodec codec : new CompressionCodec[] {
+				CompressionCodecs.LZ4, CompressionCodecs.SNAPPY,
+				CompressionCodecs.GZIP }) {
+			tc.setCompressionCodec(codec);
+			CachedData cd=tc.encode(s1);
+			assertEquals(SerializingTranscoder.COMPRESSED
+					| codec.getId() << SerializingTranscoder.CODEC_SHIFT,
+					cd.getFlags());
+			// readable whatever codec the reader compresses with
+			assertEquals(s1, reader.decode(cd));
+		}
+	}
+
+	public void testUnknownCompressionCodec() throws Exception {
+		CachedData cd=new CachedData(SerializingTranscoder.COMPRESSED
+				| CompressionCodecs.MAX_ID << SerializingTranscoder.CODEC_SHIFT,
+				tu.encodeInt(Integer.MAX_VALUE), tc.getMaxSize());
+		assertNull(tc.decode(cd));
+	}
+
 	public void testObject() throws Exception {
 		Calendar c=Calendar.getInstance();
 		CachedData cd=tc.encode(c);
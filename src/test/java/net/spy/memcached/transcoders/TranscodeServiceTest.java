@@ -1,5 +1,10 @@
 package net.spy.memcached.transcoders;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Future;
 
 import junit.framework.TestCase;
@@ -37,6 +42,72 @@ public class TranscodeServiceTest extends TestCase {
 		assertEquals("Stuff!", fs.get());
 	}
 
+	public void testDecodeLazily() throws Exception {
+		CountingTranscoder tc = new CountingTranscoder();
+		Future<String> fs = ts.decodeLazily(tc, new CachedData(1, new byte[0], 0));
+		assertTrue(tc.threads.isEmpty());
+		assertEquals(Thread.currentThread().getName(), fs.get());
+		assertEquals(Thread.currentThread().getName(), fs.get());
+		assertEquals(1, tc.threads.size());
+	}
+
+	public void testDecodeAll() throws Exception {
+		ts.shutdown();
+		ts = new TranscodeService(false, 100);
+		CountingTranscoder tc = new CountingTranscoder();
+		List<Future<String>> fs = new ArrayList<Future<String>>();
+		for (int i = 0; i < 10000; i++) {
+			fs.add(ts.decodeLazily(tc, new CachedData(1, new byte[0], 0)));
+		}
+		ts.decodeAll(fs);
+		Set<String> names = new HashSet<String>();
+		for (Future<String> f : fs) {
+			names.add(f.get());
+		}
+		assertEquals(10000, tc.count());
+		if (Runtime.getRuntime().availableProcessors() > 1) {
+			assertTrue(names.size() > 1);
+		}
+
+		// too few to decode in parallel
+		fs.clear();
+		for (int i = 0; i < 10; i++) {
+			fs.add(ts.decodeLazily(tc, new CachedData(1, new byte[0], 0)));
+		}
+		ts.decodeAll(fs);
+		for (Future<String> f : fs) {
+			assertEquals(Thread.currentThread().getName(), f.get());
+		}
+		assertEquals(10010, tc.count());
+	}
+
+	private static final class CountingTranscoder implements Transcoder<String> {
+		final List<String> threads =
+			Collections.synchronizedList(new ArrayList<String>());
+
+		int count() {
+			return threads.size();
+		}
+
+		public boolean asyncDecode(CachedData d) {
+			return false;
+		}
+
+		public String decode(CachedData d) {
+			String name = Thread.currentThread().getName();
+			threads.add(name);
+			return name;
+		}
+
+		public CachedData encode(String o) {
+			throw new RuntimeException("Not invoked.");
+		}
+
+		public int getMaxSize() {
+			return 5;
+		}
+	}
+
 	private static final class TestTranscoder implements Transcoder<String> {
 
 		public boolean asyncDecode(CachedData d) {
@@ -0,0 +1,133 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.util;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class LineTokenizerTest extends TestCase {
+
+	private static LineTokenizer tokenize(String s) {
+		LineTokenizer line = new LineTokenizer(4);
+		byte[] b = s.getBytes();
+		line.append(b, 0, b.length);
+		return line;
+	}
+
+	public void testReadLine() throws Exception {
+		ByteBuffer bb = ByteBuffer.wrap("VALUE k 1 5\r\nEND\r\n".getBytes());
+		LineTokenizer line = new LineTokenizer(4);
+
+		assertTrue(line.readLine(bb));
+		assertEquals("VALUE k 1 5", line.toString());
+		assertTrue(line.readLine(bb));
+		assertEquals("END", line.toString());
+		assertFalse(bb.hasRemaining());
+		assertFalse(line.readLine(bb));
+		assertEquals(0, line.length());
+	}
+
+	public void testReadPartialLine() throws Exception {
+		ByteBuffer direct = ByteBuffer.allocateDirect(16);
+		LineTokenizer line = new LineTokenizer();
+
+		direct.put("STOR".getBytes()).flip();
+		assertFalse(line.readLine(direct));
+		direct.clear();
+		direct.put("ED\r".getBytes()).flip();
+		assertFalse(line.readLine(direct));
+		direct.clear();
+		direct.put("\nx".getBytes()).flip();
+		assertTrue(line.readLine(direct));
+		assertEquals("STORED", line.toString());
+		assertEquals(1, direct.remaining());
+	}
+
+	public void testTokensLikeSplit() throws Exception {
+		String[] inputs = { "VALUE key 12 345 6789", " 10", "a  b", "a b ",
+				"", "single" };
+		for (String s : inputs) {
+			String[] expected = s.split(" ");
+			LineTokenizer line = tokenize(s);
+			assertEquals(s, expected.length, line.countTokens());
+			String[] actual = new String[line.countTokens()];
+			for (int i = 0; i < actual.length; i++) {
+				actual[i] = line.getString(i);
+			}
+			assertTrue(s, Arrays.equals(expected, actual));
+		}
+	}
+
+	public void testNumbers() throws Exception {
+		LineTokenizer line = tokenize("VALUE 0 -12 2147483647 9223372036854775807 -9223372036854775808");
+		assertEquals(0, line.getInt(1));
+		assertEquals(-12, line.getInt(2));
+		assertEquals(Integer.MAX_VALUE, line.getInt(3));
+		assertEquals(Long.MAX_VALUE, line.getLong(4));
+		assertEquals(Long.MIN_VALUE, line.getLong(5));
+
+		String[] bad = { "x 2147483648", "x 12a", "x -", "x 9223372036854775808" };
+		for (String s : bad) {
+			try {
+				tokenize(s).getInt(1);
+				fail(s);
+			} catch (NumberFormatException e) {
+				// ok
+			}
+		}
+	}
+
+	public void testMatching() throws Exception {
+		LineTokenizer line = tokenize("0x0A 0x01 10");
+		assertTrue(line.matches("0x0A 0x01 10"));
+		assertFalse(line.matches("0x0A 0x01 1"));
+		assertTrue(line.startsWith("0x".getBytes()));
+		assertTrue(line.tokenStartsWith(1, "0x".getBytes()));
+		assertFalse(line.tokenStartsWith(2, "0x".getBytes()));
+		assertEquals("0A", line.getString(0, 2));
+		assertEquals("", line.getString(2, 5));
+
+		line.clear();
+		line.append((byte) 'E');
+		assertTrue(line.matches("E".getBytes()));
+		assertEquals(1, line.countTokens());
+	}
+
+	public void testTokenMatches() throws Exception {
+		LineTokenizer line = tokenize("VALUE key NOT_FOUND");
+		assertTrue(line.tokenMatches(2, "NOT_FOUND"));
+		assertFalse(line.tokenMatches(2, "NOT_FOUND_ELEMENT"));
+		assertFalse(line.tokenMatches(1, "ke"));
+		assertTrue(Arrays.equals("VALUE key NOT_FOUND".getBytes(),
+				line.toByteArray()));
+	}
+
+	public void testStringLineIsUtf8() throws Exception {
+		String s = "VALUE \uD0A4 0 3";
+		LineTokenizer line = new LineTokenizer(s);
+		assertEquals(s, line.toString());
+		assertEquals("\uD0A4", line.getString(1));
+		assertEquals(3, line.getInt(3));
+		assertTrue(Arrays.equals(s.getBytes("UTF-8"), line.toByteArray()));
+
+		line.append((byte) ' ');
+		line.append((byte) '1');
+		assertEquals(5, line.countTokens());
+	}
+}
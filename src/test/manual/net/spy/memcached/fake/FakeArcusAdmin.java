@@ -0,0 +1,190 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.WatchedEvent;
+import org.apache.zookeeper.Watcher;
+import org.apache.zookeeper.ZooDefs.Ids;
+import org.apache.zookeeper.ZooKeeper;
+import org.apache.zookeeper.server.ServerCnxnFactory;
+import org.apache.zookeeper.server.ZooKeeperServer;
+
+/**
+ * A stand-in for the Arcus admin: an embedded ZooKeeper server holding
+ * the cache list of one service code, so that
+ * ArcusClient.createArcusClient() and CacheManager can be tested against
+ * {@link FakeArcusServer}s.
+ *
+ * Adding and removing servers changes the cache list the same way the
+ * real admin does when cache nodes join or fail, which triggers the
+ * client's reconfiguration.
+ *
+ * <pre>
+ * FakeArcusAdmin admin = new FakeArcusAdmin("test");
+ * admin.start();
+ * admin.addServer(server);
+ * ArcusClient client = ArcusClient.createArcusClient(
+ *     admin.getConnectString(), "test", cfb);
+ * </pre>
+ */
+public class FakeArcusAdmin {
+
+	private static final String CACHE_LIST = "/arcus/cache_list/";
+	private static final String CLIENT_LIST = "/arcus/client_list/";
+	private static final int TICK_TIME = 2000;
+	private static final int CONNECT_TIMEOUT = 10000;
+
+	private final String serviceCode;
+	private File dataDir;
+	private ZooKeeperServer zkServer;
+	private ServerCnxnFactory factory;
+	private ZooKeeper zk;
+
+	public FakeArcusAdmin(String serviceCode) {
+		this.serviceCode = serviceCode;
+	}
+
+	/**
+	 * Start the ZooKeeper server and create the empty cache list of the
+	 * service code.
+	 */
+	public void start() throws IOException, InterruptedException,
+			KeeperException {
+		dataDir = File.createTempFile("fake-arcus-admin", "");
+		if (!dataDir.delete() || !dataDir.mkdir()) {
+			throw new IOException("Can't create " + dataDir);
+		}
+		zkServer = new ZooKeeperServer(dataDir, dataDir, TICK_TIME);
+		factory = ServerCnxnFactory.createFactory(
+				new InetSocketAddress("127.0.0.1", 0), 100);
+		factory.startup(zkServer);
+
+		final CountDownLatch connected = new CountDownLatch(1);
+		zk = new ZooKeeper(getConnectString(), CONNECT_TIMEOUT, new Watcher() {
+			public void process(WatchedEvent event) {
+				if (event.getState() == Event.KeeperState.SyncConnected) {
+					connected.countDown();
+				}
+			}
+		});
+		if (!connected.await(CONNECT_TIMEOUT, TimeUnit.MILLISECONDS)) {
+			throw new IOException("Can't connect to the embedded ZooKeeper");
+		}
+		create("/arcus");
+		create("/arcus/cache_list");
+		create(CACHE_LIST + serviceCode);
+		create("/arcus/client_list");
+		create(CLIENT_LIST + serviceCode);
+	}
+
+	/**
+	 * Get the ZooKeeper address to give to ArcusClient.createArcusClient().
+	 */
+	public String getConnectString() {
+		return "127.0.0.1:" + factory.getLocalPort();
+	}
+
+	public String getServiceCode() {
+		return serviceCode;
+	}
+
+	public void addServer(FakeArcusServer server) throws InterruptedException,
+			KeeperException {
+		addServer(server.getAddress());
+	}
+
+	/**
+	 * Add a cache node to the cache list.
+	 */
+	public void addServer(InetSocketAddress addr) throws InterruptedException,
+			KeeperException {
+		create(nodePath(addr));
+	}
+
+	public void removeServer(FakeArcusServer server)
+			throws InterruptedException, KeeperException {
+		removeServer(server.getAddress());
+	}
+
+	/**
+	 * Remove a cache node from the cache list, as the admin does when the
+	 * node fails.
+	 */
+	public void removeServer(InetSocketAddress addr)
+			throws InterruptedException, KeeperException {
+		try {
+			zk.delete(nodePath(addr), -1);
+		} catch (KeeperException.NoNodeException e) {
+			// not in the list
+		}
+	}
+
+	/**
+	 * Get the number of clients registered for the service code.
+	 */
+	public int getClientCount() throws InterruptedException, KeeperException {
+		return zk.getChildren(CLIENT_LIST + serviceCode, false).size();
+	}
+
+	public void shutdown() throws InterruptedException {
+		if (zk != null) {
+			zk.close();
+		}
+		if (factory != null) {
+			factory.shutdown();
+		}
+		if (zkServer != null) {
+			zkServer.shutdown();
+		}
+		if (dataDir != null) {
+			delete(dataDir);
+		}
+	}
+
+	private String nodePath(InetSocketAddress addr) {
+		return CACHE_LIST + serviceCode + "/"
+			+ addr.getAddress().getHostAddress() + ":" + addr.getPort()
+			+ "-fake";
+	}
+
+	private void create(String path) throws InterruptedException,
+			KeeperException {
+		try {
+			zk.create(path, new byte[0], Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+		} catch (KeeperException.NodeExistsException e) {
+			// already there
+		}
+	}
+
+	private static void delete(File f) {
+		File[] children = f.listFiles();
+		if (children != null) {
+			for (File c : children) {
+				delete(c);
+			}
+		}
+		f.delete();
+	}
+}
@@ -0,0 +1,1479 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableMap;
+
+import net.spy.memcached.fake.FakeArcusStore.BKey;
+import net.spy.memcached.fake.FakeArcusStore.BTreeItem;
+import net.spy.memcached.fake.FakeArcusStore.Bytes;
+import net.spy.memcached.fake.FakeArcusStore.Element;
+import net.spy.memcached.fake.FakeArcusStore.Item;
+import net.spy.memcached.fake.FakeArcusStore.KvItem;
+import net.spy.memcached.fake.FakeArcusStore.ListItem;
+import net.spy.memcached.fake.FakeArcusStore.MapItem;
+import net.spy.memcached.fake.FakeArcusStore.SetItem;
+import net.spy.memcached.fake.FakeArcusStore.Type;
+
+/**
+ * The ASCII protocol of the fake Arcus server: key-value commands and
+ * the lop, sop, mop and bop collection commands, including pipelining
+ * and smget.
+ *
+ * Commands are executed one at a time by the server IO thread.  The
+ * behavior follows arcus-memcached closely enough for the client, but
+ * does not model memory limits, trimmed b+tree regions, or the binary
+ * protocol.
+ */
+final class FakeArcusProtocol {
+
+	private static final String CHARSET = "UTF-8";
+	private static final byte[] CRLF = { '\r', '\n' };
+
+	private static final String BAD_FORMAT = "CLIENT_ERROR bad command line format";
+	private static final String NON_NUMERIC =
+		"CLIENT_ERROR cannot increment or decrement non-numeric value";
+
+	/**
+	 * Per connection state.  Responses of piped commands are held until
+	 * the last command of the pipe arrives.
+	 */
+	static final class Session {
+		final List<String> piped = new ArrayList<String>();
+		boolean quit = false;
+	}
+
+	/**
+	 * A response being built.
+	 */
+	static final class Out extends ByteArrayOutputStream {
+		Out text(String s) {
+			byte[] b = bytes(s);
+			write(b, 0, b.length);
+			return this;
+		}
+
+		Out line(String s) {
+			text(s);
+			write(CRLF, 0, CRLF.length);
+			return this;
+		}
+
+		Out data(byte[] b) {
+			write(b, 0, b.length);
+			write(CRLF, 0, CRLF.length);
+			return this;
+		}
+
+		String firstLine() {
+			String s = string(buf, 0, count);
+			int i = s.indexOf("\r\n");
+			return i < 0 ? s : s.substring(0, i);
+		}
+	}
+
+	private final FakeArcusStore store;
+	private volatile String version;
+
+	FakeArcusProtocol(FakeArcusStore store, String version) {
+		this.store = store;
+		this.version = version;
+	}
+
+	void setVersion(String version) {
+		this.version = version;
+	}
+
+	/**
+	 * The name of a command for statistics and fault injection: "get",
+	 * "set" or "bop insert" and so on.
+	 */
+	static String commandName(String[] t) {
+		if (t.length > 1 && t[0].length() == 3 && t[0].endsWith("op")) {
+			return t[0] + " " + t[1];
+		}
+		return t.length == 0 ? "" : t[0];
+	}
+
+	/**
+	 * The length of the data block following a command line, or -1 if
+	 * the command has none.
+	 */
+	static int dataLength(String[] t) {
+		try {
+			String c = t[0];
+			if (c.equals("set") || c.equals("add") || c.equals("replace")
+					|| c.equals("append") || c.equals("prepend")
+					|| c.equals("cas")) {
+				return Integer.parseInt(t[4]);
+			} else if (c.equals("mget")) {
+				return Integer.parseInt(t[1]);
+			} else if (t.length < 3) {
+				return -1;
+			}
+			String sub = t[1];
+			if (c.equals("lop") && sub.equals("insert")) {
+				return Integer.parseInt(t[4]);
+			} else if (c.equals("sop") && (sub.equals("insert")
+					|| sub.equals("delete") || sub.equals("exist"))) {
+				return Integer.parseInt(t[3]);
+			} else if (c.equals("mop")) {
+				if (sub.equals("insert") || sub.equals("update")) {
+					return Integer.parseInt(t[4]);
+				} else if (sub.equals("delete") || sub.equals("get")) {
+					return Integer.parseInt(t[4]) > 0 ? Integer.parseInt(t[3]) : -1;
+				}
+			} else if (c.equals("bop")) {
+				if (sub.equals("insert") || sub.equals("upsert")) {
+					return Integer.parseInt(t[4].startsWith("0x") ? t[5] : t[4]);
+				} else if (sub.equals("update")) {
+					int n = Integer.parseInt(t[lastArgument(t)]);
+					return n < 0 ? -1 : n;
+				} else if (sub.equals("mget") || sub.equals("smget")) {
+					return Integer.parseInt(t[2]);
+				}
+			}
+		} catch (RuntimeException e) {
+			// A malformed command line, which execute() will reject.
+		}
+		return -1;
+	}
+
+	/**
+	 * Execute a command.  Returns the response, or null if nothing is to
+	 * be sent for it.
+	 */
+	byte[] execute(Session s, String[] t, byte[] data) {
+		Out out = new Out();
+		try {
+			dispatch(s, t, data, out);
+		} catch (RuntimeException e) {
+			// Bad numbers, missing arguments and the like.
+			out.reset();
+			out.line(BAD_FORMAT);
+		}
+		return finish(s, t, out);
+	}
+
+	/**
+	 * Answer a command with the given line instead of executing it.
+	 */
+	byte[] fail(Session s, String[] t, String line) {
+		return finish(s, t, new Out().line(line));
+	}
+
+	private byte[] finish(Session s, String[] t, Out out) {
+		String mode = mode(t);
+		if ("pipe".equals(mode)) {
+			s.piped.add(out.firstLine());
+			return null;
+		} else if (!s.piped.isEmpty()) {
+			s.piped.add(out.firstLine());
+			Out pipe = new Out();
+			pipe.line("RESPONSE " + s.piped.size());
+			for (String line : s.piped) {
+				pipe.line(line);
+			}
+			pipe.line("END");
+			s.piped.clear();
+			return pipe.toByteArray();
+		} else if ("noreply".equals(mode)) {
+			return null;
+		}
+		return out.toByteArray();
+	}
+
+	private void dispatch(Session s, String[] t, byte[] data, Out out) {
+		String c = t[0];
+		if (c.equals("get") || c.equals("gets")) {
+			get(Arrays.asList(t).subList(1, t.length), c.equals("gets"), out);
+		} else if (c.equals("mget")) {
+			get(keys(data), false, out);
+		} else if (c.equals("set") || c.equals("add") || c.equals("replace")
+				|| c.equals("append") || c.equals("prepend")
+				|| c.equals("cas")) {
+			store(t, data, out);
+		} else if (c.equals("delete")) {
+			out.line(store.remove(t[1]) == null ? "NOT_FOUND" : "DELETED");
+		} else if (c.equals("incr") || c.equals("decr")) {
+			mutate(t, out);
+		} else if (c.equals("getattr")) {
+			getattr(t, out);
+		} else if (c.equals("setattr")) {
+			setattr(t, out);
+		} else if (c.equals("flush_all")) {
+			store.clear();
+			out.line("OK");
+		} else if (c.equals("flush_prefix")) {
+			out.line(store.removePrefix(t[1]) ? "OK" : "NOT_FOUND");
+		} else if (c.equals("version")) {
+			out.line("VERSION " + version);
+		} else if (c.equals("stats")) {
+			out.line("STAT curr_items " + store.size());
+			out.line("STAT version " + version);
+			out.line("END");
+		} else if (c.equals("quit")) {
+			s.quit = true;
+		} else if (c.equals("lop")) {
+			list(t, data, out);
+		} else if (c.equals("sop")) {
+			set(t, data, out);
+		} else if (c.equals("mop")) {
+			map(t, data, out);
+		} else if (c.equals("bop")) {
+			btree(t, data, out);
+		} else {
+			out.line("ERROR");
+		}
+	}
+
+	/* key-value commands */
+
+	private void get(List<String> keys, boolean withCas, Out out) {
+		for (String key : keys) {
+			Item item = store.get(key);
+			if (item instanceof KvItem) {
+				KvItem kv = (KvItem) item;
+				out.line("VALUE " + key + " " + kv.flags + " " + kv.value.length
+						+ (withCas ? " " + kv.cas : ""));
+				out.data(kv.value);
+			}
+		}
+		out.line("END");
+	}
+
+	private void store(String[] t, byte[] data, Out out) {
+		String c = t[0];
+		String key = t[1];
+		int flags = Integer.parseInt(t[2]);
+		int exptime = Integer.parseInt(t[3]);
+		Item old = store.get(key);
+		KvItem kv = old instanceof KvItem ? (KvItem) old : null;
+
+		if (old != null && kv == null && !c.equals("set") && !c.equals("add")) {
+			out.line("TYPE_MISMATCH");
+			return;
+		}
+		if (c.equals("add") && old != null
+				|| (c.equals("replace") || c.equals("append")
+						|| c.equals("prepend")) && kv == null) {
+			out.line("NOT_STORED");
+			return;
+		}
+		if (c.equals("cas")) {
+			if (kv == null) {
+				out.line("NOT_FOUND");
+				return;
+			} else if (kv.cas != Long.parseLong(t[5])) {
+				out.line("EXISTS");
+				return;
+			}
+		}
+
+		KvItem item = new KvItem();
+		if (c.equals("append") || c.equals("prepend")) {
+			byte[] v = new byte[kv.value.length + data.length];
+			byte[] first = c.equals("append") ? kv.value : data;
+			byte[] second = c.equals("append") ? data : kv.value;
+			System.arraycopy(first, 0, v, 0, first.length);
+			System.arraycopy(second, 0, v, first.length, second.length);
+			item.flags = kv.flags;
+			item.exptime = kv.exptime;
+			item.expireAt = kv.expireAt;
+			item.value = v;
+		} else {
+			item.flags = flags;
+			item.setExptime(exptime);
+			item.value = data;
+		}
+		store.put(key, item);
+		out.line("STORED");
+	}
+
+	private void mutate(String[] t, Out out) {
+		String key = t[1];
+		long delta = Long.parseLong(t[2]);
+		Item item = store.get(key);
+		if (item == null) {
+			if (t.length >= 6 && !isMode(t[5])) {
+				KvItem kv = new KvItem();
+				kv.flags = Integer.parseInt(t[3]);
+				kv.setExptime(Integer.parseInt(t[4]));
+				kv.value = bytes(t[5]);
+				store.put(key, kv);
+				out.line(t[5]);
+			} else {
+				out.line("NOT_FOUND");
+			}
+			return;
+		} else if (!(item instanceof KvItem)) {
+			out.line("TYPE_MISMATCH");
+			return;
+		}
+		KvItem kv = (KvItem) item;
+		Long value = mutate(kv.value, delta, t[0].equals("incr"));
+		if (value == null) {
+			out.line(NON_NUMERIC);
+			return;
+		}
+		kv.value = bytes(String.valueOf(value));
+		store.put(key, kv);
+		out.line(String.valueOf(value));
+	}
+
+	private static Long mutate(byte[] value, long delta, boolean incr) {
+		long v;
+		try {
+			v = Long.parseLong(string(value, 0, value.length).trim());
+		} catch (NumberFormatException e) {
+			return null;
+		}
+		return incr ? v + delta : Math.max(0, v - delta);
+	}
+
+	private void getattr(String[] t, Out out) {
+		Item item = store.get(t[1]);
+		if (item == null) {
+			out.line("NOT_FOUND");
+			return;
+		}
+		List<String> names = new ArrayList<String>();
+		for (int i = 2; i < t.length; i++) {
+			names.add(t[i]);
+		}
+		if (names.isEmpty()) {
+			names.addAll(Arrays.asList("flags", "expiretime", "type"));
+			if (item.type != Type.KV) {
+				names.addAll(Arrays.asList("count", "maxcount",
+						"overflowaction", "readable"));
+			}
+			if (item.type == Type.BTREE) {
+				names.addAll(Arrays.asList("maxbkeyrange", "minbkey",
+						"maxbkey", "trimmed"));
+			}
+		}
+		List<String> attrs = new ArrayList<String>();
+		for (String name : names) {
+			String value = attribute(item, name);
+			if (value == null) {
+				out.line("ATTR_ERROR not found");
+				return;
+			}
+			attrs.add(name + "=" + value);
+		}
+		for (String attr : attrs) {
+			out.line("ATTR " + attr);
+		}
+		out.line("END");
+	}
+
+	private static String attribute(Item item, String name) {
+		if (name.equals("flags")) {
+			return String.valueOf(item.flags);
+		} else if (name.equals("expiretime")) {
+			if (item.expireAt == 0) {
+				return item.exptime == -1 ? "-1" : "0";
+			}
+			long left = item.expireAt - System.currentTimeMillis();
+			return String.valueOf(Math.max(1, (left + 999) / 1000));
+		} else if (name.equals("type")) {
+			return item.type.name;
+		} else if (item.type == Type.KV) {
+			return null;
+		} else if (name.equals("count")) {
+			return String.valueOf(item.size());
+		} else if (name.equals("maxcount")) {
+			return String.valueOf(item.maxCount);
+		} else if (name.equals("overflowaction")) {
+			return item.overflowAction;
+		} else if (name.equals("readable")) {
+			return item.readable ? "on" : "off";
+		} else if (item.type != Type.BTREE) {
+			return null;
+		} else if (name.equals("maxbkeyrange")) {
+			return "0";
+		} else if (name.equals("minbkey") || name.equals("maxbkey")) {
+			BTreeItem b = (BTreeItem) item;
+			if (b.elements.isEmpty()) {
+				return "-1";
+			}
+			return (name.equals("minbkey") ? b.elements.firstKey()
+					: b.elements.lastKey()).toString();
+		} else if (name.equals("trimmed")) {
+			return ((BTreeItem) item).trimmed ? "1" : "0";
+		}
+		return null;
+	}
+
+	private void setattr(String[] t, Out out) {
+		Item item = store.get(t[1]);
+		if (item == null) {
+			out.line("NOT_FOUND");
+			return;
+		}
+		for (int i = 2; i < t.length; i++) {
+			if (isMode(t[i])) {
+				continue;
+			}
+			int eq = t[i].indexOf('=');
+			String name = eq < 0 ? t[i] : t[i].substring(0, eq);
+			String value = eq < 0 ? "" : t[i].substring(eq + 1);
+			if (name.equals("expiretime")) {
+				item.setExptime(Integer.parseInt(value));
+			} else if (item.type == Type.KV) {
+				out.line("ATTR_ERROR not found");
+				return;
+			} else if (name.equals("maxcount")) {
+				setMaxCount(item, Long.parseLong(value));
+			} else if (name.equals("overflowaction")) {
+				if (!isOverflowAction(item.type, value)) {
+					out.line("ATTR_ERROR bad value");
+					return;
+				}
+				item.overflowAction = value;
+			} else if (name.equals("readable")) {
+				if (!value.equals("on")) {
+					out.line("ATTR_ERROR bad value");
+					return;
+				}
+				item.readable = true;
+			} else if (name.equals("maxbkeyrange") && item.type == Type.BTREE) {
+				// accepted, but not enforced
+			} else {
+				out.line("ATTR_ERROR not found");
+				return;
+			}
+		}
+		out.line("OK");
+	}
+
+	/* collections, common */
+
+	private static Item newItem(Type type) {
+		switch (type) {
+		case LIST:
+			return new ListItem();
+		case SET:
+			return new SetItem();
+		case MAP:
+			return new MapItem();
+		case BTREE:
+			return new BTreeItem();
+		default:
+			return new KvItem();
+		}
+	}
+
+	/**
+	 * Parse the attributes of a create command or of the create option
+	 * of an insert: <flags> <exptime> <maxcount> [<ovflaction>] [unreadable].
+	 */
+	private static Item attributes(Type type, String[] t, int i) {
+		Item item = newItem(type);
+		item.flags = Integer.parseInt(t[i]);
+		item.setExptime(Integer.parseInt(t[i + 1]));
+		setMaxCount(item, Long.parseLong(t[i + 2]));
+		for (int j = i + 3; j < t.length; j++) {
+			if (isOverflowAction(type, t[j])) {
+				item.overflowAction = t[j];
+			} else if (t[j].equals("unreadable")) {
+				item.readable = false;
+			}
+		}
+		return item;
+	}
+
+	/**
+	 * The item to create if the create option is at t[i], or null.
+	 */
+	private static Item createOption(Type type, String[] t, int i) {
+		if (i < t.length && t[i].equals("create")) {
+			return attributes(type, t, i + 1);
+		}
+		return null;
+	}
+
+	private static void setMaxCount(Item item, long maxCount) {
+		if (maxCount == 0) {
+			item.maxCount = FakeArcusStore.DEFAULT_MAXCOUNT;
+		} else if (maxCount < 0 || maxCount > FakeArcusStore.MAX_MAXCOUNT) {
+			item.maxCount = FakeArcusStore.MAX_MAXCOUNT;
+		} else {
+			item.maxCount = maxCount;
+		}
+	}
+
+	private static boolean isOverflowAction(Type type, String s) {
+		switch (type) {
+		case LIST:
+			return s.equals("error") || s.equals("head_trim")
+				|| s.equals("tail_trim");
+		case BTREE:
+			return s.equals("error") || s.equals("smallest_trim")
+				|| s.equals("largest_trim") || s.equals("smallest_silent_trim")
+				|| s.equals("largest_silent_trim");
+		default:
+			return s.equals("error");
+		}
+	}
+
+	private void create(Type type, String[] t, Out out) {
+		if (store.get(t[2]) != null) {
+			out.line("EXISTS");
+			return;
+		}
+		store.put(t[2], attributes(type, t, 3));
+		out.line("CREATED");
+	}
+
+	/**
+	 * Find a collection, writing the error response if there is none of
+	 * the right type.
+	 */
+	private Item lookup(String key, Type type, boolean read, Out out) {
+		Item item = store.get(key);
+		if (item == null) {
+			out.line("NOT_FOUND");
+			return null;
+		} else if (item.type != type) {
+			out.line("TYPE_MISMATCH");
+			return null;
+		} else if (read && !item.readable) {
+			out.line("UNREADABLE");
+			return null;
+		}
+		return item;
+	}
+
+	/**
+	 * Find the collection to insert into, creating it when the command
+	 * has the create option.
+	 */
+	private Item insertTarget(String key, Type type, Item create, Out out) {
+		if (create != null && store.get(key) == null) {
+			store.put(key, create);
+			return create;
+		}
+		return lookup(key, type, false, out);
+	}
+
+	private static String stored(Item item, Item create) {
+		return item == create ? "CREATED_STORED" : "STORED";
+	}
+
+	/**
+	 * Response of a delete or of a get with the delete option, dropping
+	 * the collection if it is empty and the drop option is given.
+	 */
+	private String deleted(String key, Item item, boolean drop) {
+		if (drop && item.size() == 0) {
+			store.remove(key);
+			return "DELETED_DROPPED";
+		}
+		return "DELETED";
+	}
+
+	private static void values(Out out, int flags, int count) {
+		out.line("VALUE " + flags + " " + count);
+	}
+
+	/* list */
+
+	private void list(String[] t, byte[] data, Out out) {
+		String sub = t[1];
+		String key = t[2];
+		if (sub.equals("create")) {
+			create(Type.LIST, t, out);
+		} else if (sub.equals("insert")) {
+			Item create = createOption(Type.LIST, t, 5);
+			ListItem l = (ListItem) insertTarget(key, Type.LIST, create, out);
+			if (l == null) {
+				return;
+			}
+			int index = Integer.parseInt(t[3]);
+			int size = l.size();
+			int pos = index < 0 ? size + index + 1 : index;
+			if (pos < 0 || pos > size) {
+				out.line("OUT_OF_RANGE");
+				return;
+			}
+			if (l.isFull()) {
+				if (l.overflowAction.equals("head_trim")) {
+					l.elements.remove(0);
+					pos = Math.max(0, pos - 1);
+				} else if (l.overflowAction.equals("tail_trim")) {
+					l.elements.remove(size - 1);
+					pos = Math.min(pos, size - 1);
+				} else {
+					out.line("OVERFLOWED");
+					return;
+				}
+			}
+			l.elements.add(pos, data);
+			out.line(stored(l, create));
+		} else if (sub.equals("delete") || sub.equals("get")) {
+			boolean get = sub.equals("get");
+			ListItem l = (ListItem) lookup(key, Type.LIST, get, out);
+			if (l == null) {
+				return;
+			}
+			int[] range = listRange(t[3], l.size());
+			if (range == null) {
+				out.line("NOT_FOUND_ELEMENT");
+				return;
+			}
+			boolean drop = has(t, "drop");
+			boolean delete = !get || drop || has(t, "delete");
+			int from = range[0];
+			int to = range[1];
+			int step = from <= to ? 1 : -1;
+			if (get) {
+				values(out, l.flags, Math.abs(to - from) + 1);
+				for (int i = from; i != to + step; i += step) {
+					byte[] e = l.elements.get(i);
+					out.text(e.length + " ").data(e);
+				}
+			}
+			if (delete) {
+				l.elements.subList(Math.min(from, to), Math.max(from, to) + 1).clear();
+				out.line(deleted(key, l, drop));
+			} else {
+				out.line("END");
+			}
+		} else {
+			out.line("ERROR");
+		}
+	}
+
+	/**
+	 * Normalize a list index or index range to {from, to}, or null when
+	 * no element is in it.
+	 */
+	private static int[] listRange(String r, int size) {
+		int dots = r.indexOf("..");
+		int from = Integer.parseInt(dots < 0 ? r : r.substring(0, dots));
+		int to = dots < 0 ? from : Integer.parseInt(r.substring(dots + 2));
+		if (from < 0) {
+			from += size;
+		}
+		if (to < 0) {
+			to += size;
+		}
+		if (from <= to) {
+			if (to < 0 || from >= size) {
+				return null;
+			}
+			return new int[] { Math.max(from, 0), Math.min(to, size - 1) };
+		}
+		if (from < 0 || to >= size) {
+			return null;
+		}
+		return new int[] { Math.min(from, size - 1), Math.max(to, 0) };
+	}
+
+	/* set */
+
+	private void set(String[] t, byte[] data, Out out) {
+		String sub = t[1];
+		String key = t[2];
+		if (sub.equals("create")) {
+			create(Type.SET, t, out);
+		} else if (sub.equals("insert")) {
+			Item create = createOption(Type.SET, t, 4);
+			SetItem set = (SetItem) insertTarget(key, Type.SET, create, out);
+			if (set == null) {
+				return;
+			}
+			Bytes value = new Bytes(data);
+			if (set.elements.contains(value)) {
+				out.line("ELEMENT_EXISTS");
+			} else if (set.isFull()) {
+				out.line("OVERFLOWED");
+			} else {
+				set.elements.add(value);
+				out.line(stored(set, create));
+			}
+		} else if (sub.equals("delete")) {
+			SetItem set = (SetItem) lookup(key, Type.SET, false, out);
+			if (set == null) {
+				return;
+			}
+			if (!set.elements.remove(new Bytes(data))) {
+				out.line("NOT_FOUND_ELEMENT");
+				return;
+			}
+			out.line(deleted(key, set, has(t, "drop")));
+		} else if (sub.equals("exist")) {
+			SetItem set = (SetItem) lookup(key, Type.SET, true, out);
+			if (set == null) {
+				return;
+			}
+			out.line(set.elements.contains(new Bytes(data)) ? "EXIST" : "NOT_EXIST");
+		} else if (sub.equals("get")) {
+			SetItem set = (SetItem) lookup(key, Type.SET, true, out);
+			if (set == null) {
+				return;
+			}
+			int count = Integer.parseInt(t[3]);
+			if (set.size() == 0) {
+				out.line("NOT_FOUND_ELEMENT");
+				return;
+			}
+			int n = count == 0 ? set.size() : Math.min(count, set.size());
+			boolean drop = has(t, "drop");
+			boolean delete = drop || has(t, "delete");
+			values(out, set.flags, n);
+			Iterator<Bytes> it = set.elements.iterator();
+			for (int i = 0; i < n; i++) {
+				byte[] e = it.next().value;
+				out.text(e.length + " ").data(e);
+				if (delete) {
+					it.remove();
+				}
+			}
+			out.line(delete ? deleted(key, set, drop) : "END");
+		} else {
+			out.line("ERROR");
+		}
+	}
+
+	/* map */
+
+	private void map(String[] t, byte[] data, Out out) {
+		String sub = t[1];
+		String key = t[2];
+		if (sub.equals("create")) {
+			create(Type.MAP, t, out);
+		} else if (sub.equals("insert")) {
+			Item create = createOption(Type.MAP, t, 5);
+			MapItem map = (MapItem) insertTarget(key, Type.MAP, create, out);
+			if (map == null) {
+				return;
+			}
+			if (map.elements.containsKey(t[3])) {
+				out.line("ELEMENT_EXISTS");
+			} else if (map.isFull()) {
+				out.line("OVERFLOWED");
+			} else {
+				map.elements.put(t[3], data);
+				out.line(stored(map, create));
+			}
+		} else if (sub.equals("update")) {
+			MapItem map = (MapItem) lookup(key, Type.MAP, false, out);
+			if (map == null) {
+				return;
+			}
+			if (!map.elements.containsKey(t[3])) {
+				out.line("NOT_FOUND_ELEMENT");
+				return;
+			}
+			map.elements.put(t[3], data);
+			out.line("UPDATED");
+		} else if (sub.equals("delete") || sub.equals("get")) {
+			boolean get = sub.equals("get");
+			MapItem map = (MapItem) lookup(key, Type.MAP, get, out);
+			if (map == null) {
+				return;
+			}
+			List<String> fields = Integer.parseInt(t[4]) > 0
+				? keys(data) : new ArrayList<String>(map.elements.keySet());
+			List<String> found = new ArrayList<String>();
+			for (String field : fields) {
+				if (map.elements.containsKey(field) && !found.contains(field)) {
+					found.add(field);
+				}
+			}
+			if (found.isEmpty()) {
+				out.line("NOT_FOUND_ELEMENT");
+				return;
+			}
+			boolean drop = has(t, "drop");
+			boolean delete = !get || drop || has(t, "delete");
+			if (get) {
+				values(out, map.flags, found.size());
+				for (String field : found) {
+					byte[] e = map.elements.get(field);
+					out.text(field + " " + e.length + " ").data(e);
+				}
+			}
+			if (delete) {
+				for (String field : found) {
+					map.elements.remove(field);
+				}
+				out.line(deleted(key, map, drop));
+			} else {
+				out.line("END");
+			}
+		} else {
+			out.line("ERROR");
+		}
+	}
+
+	/* b+tree */
+
+	private void btree(String[] t, byte[] data, Out out) {
+		String sub = t[1];
+		if (sub.equals("create")) {
+			create(Type.BTREE, t, out);
+		} else if (sub.equals("insert") || sub.equals("upsert")) {
+			bopInsert(t, data, out, sub.equals("upsert"));
+		} else if (sub.equals("update")) {
+			bopUpdate(t, data, out);
+		} else if (sub.equals("delete")) {
+			bopDelete(t, out);
+		} else if (sub.equals("get")) {
+			bopGet(t, out);
+		} else if (sub.equals("count")) {
+			bopCount(t, out);
+		} else if (sub.equals("incr") || sub.equals("decr")) {
+			bopMutate(t, out, sub.equals("incr"));
+		} else if (sub.equals("mget")) {
+			bopMget(t, data, out);
+		} else if (sub.equals("smget")) {
+			bopSmget(t, data, out);
+		} else if (sub.equals("position")) {
+			bopPosition(t, out);
+		} else if (sub.equals("gbp")) {
+			bopGetByPosition(t, out);
+		} else if (sub.equals("pwg")) {
+			bopPositionWithGet(t, out);
+		} else {
+			out.line("ERROR");
+		}
+	}
+
+	private void bopInsert(String[] t, byte[] data, Out out, boolean upsert) {
+		String key = t[2];
+		BKey bkey = BKey.parse(t[3]);
+		int i = 4;
+		byte[] eflag = null;
+		if (t[i].startsWith("0x")) {
+			eflag = FakeArcusStore.parseHex(t[i++]);
+		}
+		Item create = createOption(Type.BTREE, t, i + 1);
+		BTreeItem tree = (BTreeItem) insertTarget(key, Type.BTREE, create, out);
+		if (tree == null) {
+			return;
+		}
+		if (!tree.accepts(bkey)) {
+			out.line("BKEY_MISMATCH");
+			return;
+		}
+
+		Element old = tree.elements.get(bkey);
+		if (old != null) {
+			if (!upsert) {
+				out.line("ELEMENT_EXISTS");
+				return;
+			}
+			old.eflag = eflag;
+			old.value = data;
+			out.line("REPLACED");
+			return;
+		}
+
+		Element trimmed = null;
+		if (tree.isFull()) {
+			String action = tree.overflowAction;
+			boolean smallest = action.startsWith("smallest");
+			if (action.equals("error")) {
+				out.line("OVERFLOWED");
+				return;
+			}
+			BKey edge = smallest ? tree.elements.firstKey() : tree.elements.lastKey();
+			if (smallest ? bkey.compareTo(edge) < 0 : bkey.compareTo(edge) > 0) {
+				out.line("OUT_OF_RANGE");
+				return;
+			}
+			trimmed = tree.elements.remove(edge);
+			if (!action.contains("silent")) {
+				tree.trimmed = true;
+			}
+		}
+		tree.elements.put(bkey, new Element(bkey, eflag, data));
+
+		if (trimmed != null && has(t, "getrim")) {
+			values(out, tree.flags, 1);
+			element(out, trimmed);
+			out.line("TRIMMED");
+			return;
+		}
+		out.line(stored(tree, create));
+	}
+
+	private void bopUpdate(String[] t, byte[] data, Out out) {
+		BTreeItem tree = (BTreeItem) lookup(t[2], Type.BTREE, false, out);
+		if (tree == null) {
+			return;
+		}
+		BKey bkey = BKey.parse(t[3]);
+		if (!tree.accepts(bkey)) {
+			out.line("BKEY_MISMATCH");
+			return;
+		}
+		Element e = tree.elements.get(bkey);
+		if (e == null) {
+			out.line("NOT_FOUND_ELEMENT");
+			return;
+		}
+		int last = lastArgument(t);
+		int n = last - 4;
+		boolean hasValue = Integer.parseInt(t[last]) >= 0;
+		if (n == 0 && !hasValue) {
+			out.line("NOTHING_TO_UPDATE");
+			return;
+		}
+		byte[] eflag = e.eflag;
+		if (n == 1) {
+			// "0" removes the element flag
+			eflag = t[4].equals("0") ? null : FakeArcusStore.parseHex(t[4]);
+		} else if (n == 3) {
+			int offset = Integer.parseInt(t[4]);
+			byte[] operand = FakeArcusStore.parseHex(t[6]);
+			if (eflag == null || eflag.length < offset + operand.length) {
+				out.line("EFLAG_MISMATCH");
+				return;
+			}
+			eflag = eflag.clone();
+			for (int i = 0; i < operand.length; i++) {
+				eflag[offset + i] = bitOp(t[5], eflag[offset + i], operand[i]);
+			}
+		}
+		e.eflag = eflag;
+		if (hasValue) {
+			e.value = data;
+		}
+		out.line("UPDATED");
+	}
+
+	private void bopDelete(String[] t, Out out) {
+		String key = t[2];
+		BTreeItem tree = (BTreeItem) lookup(key, Type.BTREE, false, out);
+		if (tree == null) {
+			return;
+		}
+		Query q = query(t, 3);
+		if (!tree.accepts(q.from)) {
+			out.line("BKEY_MISMATCH");
+			return;
+		}
+		List<Element> found = q.select(tree);
+		if (found.isEmpty()) {
+			out.line("NOT_FOUND_ELEMENT");
+			return;
+		}
+		for (Element e : found) {
+			tree.elements.remove(e.bkey);
+		}
+		out.line(deleted(key, tree, has(t, "drop")));
+	}
+
+	private void bopGet(String[] t, Out out) {
+		String key = t[2];
+		BTreeItem tree = (BTreeItem) lookup(key, Type.BTREE, true, out);
+		if (tree == null) {
+			return;
+		}
+		Query q = query(t, 3);
+		if (!tree.accepts(q.from)) {
+			out.line("BKEY_MISMATCH");
+			return;
+		}
+		List<Element> found = q.select(tree);
+		if (found.isEmpty()) {
+			out.line("NOT_FOUND_ELEMENT");
+			return;
+		}
+		values(out, tree.flags, found.size());
+		for (Element e : found) {
+			element(out, e);
+		}
+		boolean drop = has(t, "drop");
+		if (drop || has(t, "delete")) {
+			for (Element e : found) {
+				tree.elements.remove(e.bkey);
+			}
+			out.line(deleted(key, tree, drop));
+		} else {
+			out.line("END");
+		}
+	}
+
+	private void bopCount(String[] t, Out out) {
+		BTreeItem tree = (BTreeItem) lookup(t[2], Type.BTREE, true, out);
+		if (tree == null) {
+			return;
+		}
+		Query q = query(t, 3);
+		if (!tree.accepts(q.from)) {
+			out.line("BKEY_MISMATCH");
+			return;
+		}
+		q.count = 0;
+		q.offset = 0;
+		out.line("COUNT=" + q.select(tree).size());
+	}
+
+	private void bopMutate(String[] t, Out out, boolean incr) {
+		BTreeItem tree = (BTreeItem) lookup(t[2], Type.BTREE, false, out);
+		if (tree == null) {
+			return;
+		}
+		BKey bkey = BKey.parse(t[3]);
+		if (!tree.accepts(bkey)) {
+			out.line("BKEY_MISMATCH");
+			return;
+		}
+		long delta = Long.parseLong(t[4]);
+		Element e = tree.elements.get(bkey);
+		if (e == null) {
+			if (t.length > 5 && !isMode(t[5])) {
+				byte[] eflag = t.length > 6 && t[6].startsWith("0x")
+					? FakeArcusStore.parseHex(t[6]) : null;
+				if (tree.isFull()) {
+					out.line("OVERFLOWED");
+					return;
+				}
+				tree.elements.put(bkey, new Element(bkey, eflag, bytes(t[5])));
+				out.line(t[5]);
+			} else {
+				out.line("NOT_FOUND_ELEMENT");
+			}
+			return;
+		}
+		Long value = mutate(e.value, delta, incr);
+		if (value == null) {
+			out.line(NON_NUMERIC);
+			return;
+		}
+		e.value = bytes(String.valueOf(value));
+		out.line(String.valueOf(value));
+	}
+
+	private void bopMget(String[] t, byte[] data, Out out) {
+		Query q = query(t, 4);
+		for (String key : keys(data)) {
+			Item item = store.get(key);
+			String error = null;
+			if (item == null) {
+				error = "NOT_FOUND";
+			} else if (item.type != Type.BTREE) {
+				error = "TYPE_MISMATCH";
+			} else if (!item.readable) {
+				error = "UNREADABLE";
+			} else if (!((BTreeItem) item).accepts(q.from)) {
+				error = "BKEY_MISMATCH";
+			}
+			if (error != null) {
+				out.line("VALUE " + key + " " + error);
+				continue;
+			}
+			List<Element> found = q.select((BTreeItem) item);
+			if (found.isEmpty()) {
+				out.line("VALUE " + key + " NOT_FOUND_ELEMENT");
+				continue;
+			}
+			out.line("VALUE " + key + " OK " + item.flags + " " + found.size());
+			for (Element e : found) {
+				out.text("ELEMENT ");
+				element(out, e);
+			}
+		}
+		out.line("END");
+	}
+
+	private void bopSmget(String[] t, byte[] data, Out out) {
+		String mode = t[t.length - 1];
+		boolean newSmget = mode.equals("unique") || mode.equals("duplicate");
+		final Query q = query(t, 4);
+		int offset = q.offset;
+		int count = q.count;
+		// every key contributes up to offset + count elements
+		q.offset = 0;
+		q.count = offset + count;
+
+		final List<Object[]> merged = new ArrayList<Object[]>();
+		List<String> missed = new ArrayList<String>();
+		for (String key : keys(data)) {
+			Item item = store.get(key);
+			if (item == null) {
+				missed.add(key + (newSmget ? " NOT_FOUND" : ""));
+				continue;
+			} else if (item.type != Type.BTREE) {
+				out.line("TYPE_MISMATCH");
+				return;
+			} else if (!item.readable) {
+				missed.add(key + (newSmget ? " UNREADABLE" : ""));
+				continue;
+			} else if (!((BTreeItem) item).accepts(q.from)) {
+				out.line("BKEY_MISMATCH");
+				return;
+			}
+			for (Element e : q.select((BTreeItem) item)) {
+				merged.add(new Object[] { key, item, e });
+			}
+		}
+
+		Collections.sort(merged, new Comparator<Object[]>() {
+			public int compare(Object[] a, Object[] b) {
+				int c = ((Element) a[2]).bkey.compareTo(((Element) b[2]).bkey);
+				if (c == 0) {
+					c = ((String) a[0]).compareTo((String) b[0]);
+				}
+				return q.descending ? -c : c;
+			}
+		});
+
+		boolean duplicated = false;
+		List<Object[]> result = new ArrayList<Object[]>();
+		BKey previous = null;
+		for (Object[] o : merged) {
+			BKey bkey = ((Element) o[2]).bkey;
+			if (bkey.equals(previous)) {
+				duplicated = true;
+				if (mode.equals("unique")) {
+					continue;
+				}
+			}
+			previous = bkey;
+			result.add(o);
+		}
+		result = result.subList(Math.min(offset, result.size()),
+				Math.min(offset + count, result.size()));
+
+		out.line((newSmget ? "ELEMENTS " : "VALUE ") + result.size());
+		for (Object[] o : result) {
+			out.text(o[0] + " " + ((Item) o[1]).flags + " ");
+			element(out, (Element) o[2]);
+		}
+		out.line("MISSED_KEYS " + missed.size());
+		for (String m : missed) {
+			out.line(m);
+		}
+		if (newSmget) {
+			out.line("TRIMMED_KEYS 0");
+		}
+		out.line(duplicated && !mode.equals("unique") ? "DUPLICATED" : "END");
+	}
+
+	private void bopPosition(String[] t, Out out) {
+		BTreeItem tree = (BTreeItem) lookup(t[2], Type.BTREE, true, out);
+		if (tree == null) {
+			return;
+		}
+		BKey bkey = BKey.parse(t[3]);
+		if (!tree.accepts(bkey)) {
+			out.line("BKEY_MISMATCH");
+			return;
+		}
+		int pos = position(tree, bkey, t[4].equals("desc"));
+		out.line(pos < 0 ? "NOT_FOUND_ELEMENT" : "POSITION=" + pos);
+	}
+
+	private void bopGetByPosition(String[] t, Out out) {
+		BTreeItem tree = (BTreeItem) lookup(t[2], Type.BTREE, true, out);
+		if (tree == null) {
+			return;
+		}
+		boolean desc = t[3].equals("desc");
+		String r = t[4];
+		int dots = r.indexOf("..");
+		int from = Integer.parseInt(dots < 0 ? r : r.substring(0, dots));
+		int to = dots < 0 ? from : Integer.parseInt(r.substring(dots + 2));
+		int size = tree.size();
+		if (Math.min(from, to) >= size) {
+			out.line("NOT_FOUND_ELEMENT");
+			return;
+		}
+		from = Math.min(from, size - 1);
+		to = Math.min(to, size - 1);
+		List<Element> ordered = ordered(tree, desc);
+		int step = from <= to ? 1 : -1;
+		values(out, tree.flags, Math.abs(to - from) + 1);
+		for (int i = from; i != to + step; i += step) {
+			element(out, ordered.get(i));
+		}
+		out.line("END");
+	}
+
+	private void bopPositionWithGet(String[] t, Out out) {
+		BTreeItem tree = (BTreeItem) lookup(t[2], Type.BTREE, true, out);
+		if (tree == null) {
+			return;
+		}
+		BKey bkey = BKey.parse(t[3]);
+		if (!tree.accepts(bkey)) {
+			out.line("BKEY_MISMATCH");
+			return;
+		}
+		boolean desc = t[4].equals("desc");
+		int count = t.length > 5 ? Integer.parseInt(t[5]) : 0;
+		int pos = position(tree, bkey, desc);
+		if (pos < 0) {
+			out.line("NOT_FOUND_ELEMENT");
+			return;
+		}
+		int from = Math.max(0, pos - count);
+		int to = Math.min(tree.size() - 1, pos + count);
+		List<Element> ordered = ordered(tree, desc);
+		out.line("VALUE " + pos + " " + tree.flags + " " + (to - from + 1)
+				+ " " + (pos - from));
+		for (int i = from; i <= to; i++) {
+			element(out, ordered.get(i));
+		}
+		out.line("END");
+	}
+
+	private static int position(BTreeItem tree, BKey bkey, boolean desc) {
+		if (!tree.elements.containsKey(bkey)) {
+			return -1;
+		}
+		int smaller = tree.elements.headMap(bkey, false).size();
+		return desc ? tree.size() - 1 - smaller : smaller;
+	}
+
+	private static List<Element> ordered(BTreeItem tree, boolean desc) {
+		List<Element> l = new ArrayList<Element>(tree.elements.values());
+		if (desc) {
+			Collections.reverse(l);
+		}
+		return l;
+	}
+
+	private static void element(Out out, Element e) {
+		out.text(e.bkey.toString());
+		if (e.eflag != null) {
+			out.text(" " + FakeArcusStore.toHex(e.eflag));
+		}
+		out.text(" " + e.value.length + " ").data(e.value);
+	}
+
+	/**
+	 * A b+tree range with an optional element flag filter, offset and
+	 * count: <bkey or range> [<eflag_filter>] [[<offset>] <count>].
+	 */
+	static final class Query {
+		BKey from;
+		BKey to;
+		boolean descending;
+		Filter filter;
+		int offset = 0;
+		int count = 0;
+
+		List<Element> select(BTreeItem tree) {
+			NavigableMap<BKey, Element> range = descending
+				? tree.elements.subMap(to, true, from, true).descendingMap()
+				: tree.elements.subMap(from, true, to, true);
+			List<Element> found = new ArrayList<Element>();
+			int skip = offset;
+			for (Element e : range.values()) {
+				if (filter != null && !filter.matches(e.eflag)) {
+					continue;
+				}
+				if (skip > 0) {
+					skip--;
+					continue;
+				}
+				found.add(e);
+				if (count > 0 && found.size() >= count) {
+					break;
+				}
+			}
+			return found;
+		}
+	}
+
+	private static Query query(String[] t, int i) {
+		Query q = new Query();
+		String r = t[i++];
+		int dots = r.indexOf("..");
+		q.from = BKey.parse(dots < 0 ? r : r.substring(0, dots));
+		q.to = dots < 0 ? q.from : BKey.parse(r.substring(dots + 2));
+		if (q.from.isBytes() != q.to.isBytes()) {
+			throw new IllegalArgumentException("Mixed bkey types in " + r);
+		}
+		q.descending = q.from.compareTo(q.to) > 0;
+
+		if (i + 1 < t.length && isNumber(t[i]) && isFilterOp(t[i + 1])) {
+			Filter f = new Filter();
+			f.offset = Integer.parseInt(t[i++]);
+			if (isBitOp(t[i])) {
+				f.bitOp = t[i++];
+				f.bitOperand = FakeArcusStore.parseHex(t[i++]);
+			}
+			f.compOp = t[i++];
+			for (String v : t[i++].split(",")) {
+				f.values.add(FakeArcusStore.parseHex(v));
+			}
+			q.filter = f;
+		}
+
+		List<Integer> numbers = new ArrayList<Integer>();
+		while (i < t.length && isNumber(t[i])) {
+			numbers.add(Integer.parseInt(t[i++]));
+		}
+		if (numbers.size() == 1) {
+			q.count = numbers.get(0);
+		} else if (numbers.size() >= 2) {
+			q.offset = numbers.get(0);
+			q.count = numbers.get(1);
+		}
+		return q;
+	}
+
+	/**
+	 * An element flag filter:
+	 * <fwhere> [<bitwop> <foperand>] <compop> <fvalue>[,<fvalue>...]
+	 */
+	static final class Filter {
+		int offset;
+		String bitOp;
+		byte[] bitOperand;
+		String compOp;
+		final List<byte[]> values = new ArrayList<byte[]>();
+
+		boolean matches(byte[] eflag) {
+			if (eflag == null) {
+				return false;
+			}
+			int len = values.get(0).length;
+			if (eflag.length < offset + len) {
+				return false;
+			}
+			byte[] operand = Arrays.copyOfRange(eflag, offset, offset + len);
+			if (bitOp != null) {
+				if (bitOperand.length != len) {
+					return false;
+				}
+				for (int i = 0; i < len; i++) {
+					operand[i] = bitOp(bitOp, operand[i], bitOperand[i]);
+				}
+			}
+			if (compOp.equals("EQ") || compOp.equals("NE")) {
+				boolean any = false;
+				for (byte[] v : values) {
+					any |= Arrays.equals(operand, v);
+				}
+				return compOp.equals("EQ") == any;
+			}
+			int c = FakeArcusStore.compareBytes(operand, values.get(0));
+			if (compOp.equals("LT")) {
+				return c < 0;
+			} else if (compOp.equals("LE")) {
+				return c <= 0;
+			} else if (compOp.equals("GT")) {
+				return c > 0;
+			}
+			return c >= 0;
+		}
+	}
+
+	private static byte bitOp(String op, byte a, byte b) {
+		if (op.equals("&")) {
+			return (byte) (a & b);
+		} else if (op.equals("|")) {
+			return (byte) (a | b);
+		}
+		return (byte) (a ^ b);
+	}
+
+	/* parsing helpers */
+
+	private static boolean isMode(String s) {
+		return s.equals("noreply") || s.equals("pipe") || s.equals("getrim");
+	}
+
+	private static String mode(String[] t) {
+		String last = t[t.length - 1];
+		return isMode(last) ? last : null;
+	}
+
+	/**
+	 * Index of the last argument before the optional mode.
+	 */
+	private static int lastArgument(String[] t) {
+		return isMode(t[t.length - 1]) ? t.length - 2 : t.length - 1;
+	}
+
+	private static boolean has(String[] t, String option) {
+		for (int i = 3; i < t.length; i++) {
+			if (t[i].equals(option)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isNumber(String s) {
+		if (s.length() == 0) {
+			return false;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if ((c < '0' || c > '9') && !(i == 0 && c == '-' && s.length() > 1)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isBitOp(String s) {
+		return s.equals("&") || s.equals("|") || s.equals("^");
+	}
+
+	private static boolean isFilterOp(String s) {
+		return isBitOp(s) || s.equals("EQ") || s.equals("NE") || s.equals("LT")
+			|| s.equals("LE") || s.equals("GT") || s.equals("GE");
+	}
+
+	/**
+	 * Keys of a data line, separated by spaces or commas.
+	 */
+	private static List<String> keys(byte[] data) {
+		List<String> keys = new ArrayList<String>();
+		for (String k : string(data, 0, data.length).split("[ ,]")) {
+			if (k.length() > 0) {
+				keys.add(k);
+			}
+		}
+		return keys;
+	}
+
+	static byte[] bytes(String s) {
+		try {
+			return s.getBytes(CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	static String string(byte[] b, int offset, int length) {
+		try {
+			return new String(b, offset, length, CHARSET);
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+}
@@ -0,0 +1,531 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An in-process Arcus server for load, latency and failure tests.
+ *
+ * It speaks the ASCII protocol of arcus-memcached, key-value commands and
+ * the lop, sop, mop and bop collection commands including pipes and smget,
+ * keeping all items in memory.  One thread serves all connections.
+ *
+ * Per command, by name such as "get" or "bop insert" or "*" for all
+ * commands, it can delay the responses by a fixed latency plus a random
+ * jitter, and fail a fraction of the requests with an error response, a
+ * dropped response or a closed connection.  Responses on a connection
+ * are never reordered by the delays, and the delays have millisecond
+ * resolution.  The random source is seeded, so a
+ * test with the same seed and request sequence sees the same faults.
+ *
+ * <pre>
+ * FakeArcusServer server = new FakeArcusServer();
+ * server.start();
+ * server.setLatency("bop get", 2, 1, TimeUnit.MILLISECONDS);
+ * server.setErrorResponse("set", 0.01, "SERVER_ERROR out of memory");
+ * ArcusClient client = new ArcusClient(cf, Arrays.asList(server.getAddress()));
+ * </pre>
+ *
+ * Use {@link FakeArcusAdmin} to serve a cluster of these to
+ * ArcusClient.createArcusClient() through ZooKeeper.
+ */
+public class FakeArcusServer {
+
+	public static final String DEFAULT_VERSION = "1.11.0";
+
+	/** Name that matches every command in the latency and fault settings. */
+	public static final String ALL_COMMANDS = "*";
+
+	private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+	private enum FaultType {
+		ERROR, NO_REPLY, DISCONNECT
+	}
+
+	private static final class Fault {
+		final FaultType type;
+		final double probability;
+		final String response;
+
+		Fault(FaultType type, double probability, String response) {
+			this.type = type;
+			this.probability = probability;
+			this.response = response;
+		}
+	}
+
+	private static final class Latency {
+		final long nanos;
+		final long jitterNanos;
+
+		Latency(long nanos, long jitterNanos) {
+			this.nanos = nanos;
+			this.jitterNanos = jitterNanos;
+		}
+	}
+
+	private static final class Reply {
+		final long due;
+		final ByteBuffer data;
+		final boolean disconnect;
+
+		Reply(long due, byte[] data, boolean disconnect) {
+			this.due = due;
+			this.data = data == null ? null : ByteBuffer.wrap(data);
+			this.disconnect = disconnect;
+		}
+	}
+
+	private static final class Connection {
+		final SocketChannel channel;
+		final FakeArcusProtocol.Session session = new FakeArcusProtocol.Session();
+		final ArrayDeque<Reply> replies = new ArrayDeque<Reply>();
+		ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+		long lastDue = 0;
+		boolean blocked = false;
+		boolean closed = false;
+
+		Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+	}
+
+	private final int port;
+	private final Random random;
+	private final FakeArcusStore store = new FakeArcusStore();
+	private final FakeArcusProtocol protocol;
+	private final Map<String, Latency> latencies =
+		new ConcurrentHashMap<String, Latency>();
+	private final Map<String, Fault> faults =
+		new ConcurrentHashMap<String, Fault>();
+	private final ConcurrentHashMap<String, AtomicLong> requests =
+		new ConcurrentHashMap<String, AtomicLong>();
+	private final List<Connection> connections = new ArrayList<Connection>();
+	private final AtomicLong connectionCount = new AtomicLong();
+
+	private ServerSocketChannel server;
+	private Selector selector;
+	private Thread thread;
+	private volatile boolean running = false;
+
+	/**
+	 * Create a server on an ephemeral port.
+	 */
+	public FakeArcusServer() {
+		this(0, 0);
+	}
+
+	/**
+	 * Create a server.
+	 *
+	 * @param port the port to listen on, 0 for an ephemeral port
+	 * @param seed the seed of the random source for jitter and faults
+	 */
+	public FakeArcusServer(int port, long seed) {
+		this.port = port;
+		this.random = new Random(seed);
+		this.protocol = new FakeArcusProtocol(store, DEFAULT_VERSION);
+	}
+
+	/**
+	 * Start listening and serving on a daemon thread.
+	 */
+	public synchronized void start() throws IOException {
+		if (running) {
+			throw new IllegalStateException("Already started");
+		}
+		selector = Selector.open();
+		server = ServerSocketChannel.open();
+		server.socket().setReuseAddress(true);
+		server.socket().bind(new InetSocketAddress("127.0.0.1", port));
+		server.configureBlocking(false);
+		server.register(selector, SelectionKey.OP_ACCEPT);
+		running = true;
+		thread = new Thread("FakeArcusServer:" + getPort()) {
+			@Override
+			public void run() {
+				serve();
+			}
+		};
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Close all connections and stop serving.
+	 */
+	public synchronized void shutdown() throws InterruptedException {
+		if (!running) {
+			return;
+		}
+		running = false;
+		selector.wakeup();
+		thread.join();
+	}
+
+	public int getPort() {
+		return server.socket().getLocalPort();
+	}
+
+	public InetSocketAddress getAddress() {
+		return new InetSocketAddress("127.0.0.1", getPort());
+	}
+
+	/**
+	 * Set the version this server reports, which decides what protocol
+	 * features the client uses.
+	 */
+	public void setVersion(String version) {
+		protocol.setVersion(version);
+	}
+
+	/**
+	 * Delay the responses to a command.  Each response is delayed by the
+	 * latency plus a uniformly random jitter between 0 and the given
+	 * jitter.
+	 */
+	public void setLatency(String command, long latency, long jitter,
+			TimeUnit unit) {
+		latencies.put(command, new Latency(unit.toNanos(latency),
+				unit.toNanos(jitter)));
+	}
+
+	/**
+	 * Answer the given fraction of the requests of a command with the
+	 * given response line, such as "SERVER_ERROR out of memory", instead
+	 * of executing them.
+	 */
+	public void setErrorResponse(String command, double probability,
+			String response) {
+		faults.put(command, new Fault(FaultType.ERROR, probability, response));
+	}
+
+	/**
+	 * Silently drop the given fraction of the requests of a command, as a
+	 * hung server would.
+	 */
+	public void setNoReply(String command, double probability) {
+		faults.put(command, new Fault(FaultType.NO_REPLY, probability, null));
+	}
+
+	/**
+	 * Close the connection on the given fraction of the requests of a
+	 * command, after the responses before it have been sent.
+	 */
+	public void setDisconnect(String command, double probability) {
+		faults.put(command, new Fault(FaultType.DISCONNECT, probability, null));
+	}
+
+	/**
+	 * Remove all latencies and faults.
+	 */
+	public void clearFaults() {
+		latencies.clear();
+		faults.clear();
+	}
+
+	/**
+	 * Get the number of requests of a command received so far.
+	 */
+	public long getRequestCount(String command) {
+		if (ALL_COMMANDS.equals(command)) {
+			long sum = 0;
+			for (AtomicLong c : requests.values()) {
+				sum += c.get();
+			}
+			return sum;
+		}
+		AtomicLong c = requests.get(command);
+		return c == null ? 0 : c.get();
+	}
+
+	public void resetRequestCounts() {
+		requests.clear();
+	}
+
+	/**
+	 * Get the number of connections accepted so far.
+	 */
+	public long getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	private void serve() {
+		try {
+			while (running) {
+				long now = System.nanoTime();
+				long wait = nextDue(now);
+				if (wait == 0) {
+					selector.select();
+				} else if (wait < 0) {
+					selector.selectNow();
+				} else {
+					selector.select(wait);
+				}
+				Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+				while (it.hasNext()) {
+					SelectionKey key = it.next();
+					it.remove();
+					if (!key.isValid()) {
+						continue;
+					}
+					if (key.isAcceptable()) {
+						accept();
+						continue;
+					}
+					Connection c = (Connection) key.attachment();
+					if (key.isWritable()) {
+						c.blocked = false;
+						key.interestOps(SelectionKey.OP_READ);
+					}
+					if (key.isReadable()) {
+						read(c);
+					}
+				}
+				now = System.nanoTime();
+				for (Iterator<Connection> ci = connections.iterator(); ci.hasNext();) {
+					Connection c = ci.next();
+					if (!c.closed && !c.blocked) {
+						write(c, now);
+					}
+					if (c.closed) {
+						ci.remove();
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Fake server failed", e);
+		} finally {
+			for (Connection c : connections) {
+				close(c);
+			}
+			connections.clear();
+			try {
+				selector.close();
+				server.close();
+			} catch (IOException e) {
+				// shutting down anyway
+			}
+		}
+	}
+
+	/**
+	 * Milliseconds to wait for the next due response: 0 if there is none,
+	 * negative if one is due now.
+	 */
+	private long nextDue(long now) {
+		long next = Long.MAX_VALUE;
+		for (Connection c : connections) {
+			Reply r = c.replies.peek();
+			if (r != null && !c.closed && !c.blocked && r.due < next) {
+				next = r.due;
+			}
+		}
+		if (next == Long.MAX_VALUE) {
+			return 0;
+		}
+		long ms = TimeUnit.NANOSECONDS.toMillis(next - now + 999999);
+		return ms <= 0 ? -1 : ms;
+	}
+
+	private void accept() throws IOException {
+		SocketChannel ch = server.accept();
+		if (ch == null) {
+			return;
+		}
+		ch.configureBlocking(false);
+		ch.socket().setTcpNoDelay(true);
+		Connection c = new Connection(ch);
+		ch.register(selector, SelectionKey.OP_READ, c);
+		connections.add(c);
+		connectionCount.incrementAndGet();
+	}
+
+	private void read(Connection c) {
+		try {
+			if (!c.in.hasRemaining()) {
+				ByteBuffer bigger = ByteBuffer.allocate(c.in.capacity() * 2);
+				c.in.flip();
+				bigger.put(c.in);
+				c.in = bigger;
+			}
+			if (c.channel.read(c.in) < 0) {
+				close(c);
+				return;
+			}
+			process(c);
+		} catch (IOException e) {
+			close(c);
+		}
+	}
+
+	/**
+	 * Execute every complete command in the input buffer.
+	 */
+	private void process(Connection c) {
+		ByteBuffer in = c.in;
+		byte[] buf = in.array();
+		int start = 0;
+		int end = in.position();
+		while (!c.session.quit) {
+			int eol = -1;
+			for (int i = start; i + 1 < end; i++) {
+				if (buf[i] == '\r' && buf[i + 1] == '\n') {
+					eol = i;
+					break;
+				}
+			}
+			if (eol < 0) {
+				break;
+			}
+			String line = FakeArcusProtocol.string(buf, start, eol - start);
+			String[] t = tokenize(line);
+			int length = t.length == 0 ? -1 : FakeArcusProtocol.dataLength(t);
+			int next = eol + 2;
+			byte[] data = null;
+			if (length >= 0) {
+				if (end - next < length + 2) {
+					break;
+				}
+				data = new byte[length];
+				System.arraycopy(buf, next, data, 0, length);
+				next += length + 2;
+			}
+			start = next;
+			if (t.length > 0) {
+				execute(c, t, data);
+			}
+		}
+		in.position(start);
+		in.limit(end);
+		in.compact();
+		if (c.session.quit) {
+			c.replies.add(new Reply(c.lastDue, null, true));
+		}
+	}
+
+	private void execute(Connection c, String[] t, byte[] data) {
+		String name = FakeArcusProtocol.commandName(t);
+		AtomicLong count = requests.get(name);
+		if (count == null) {
+			requests.putIfAbsent(name, new AtomicLong());
+			count = requests.get(name);
+		}
+		count.incrementAndGet();
+
+		Fault fault = lookup(faults, name);
+		boolean disconnect = false;
+		byte[] response;
+		if (fault != null && random.nextDouble() < fault.probability) {
+			switch (fault.type) {
+			case NO_REPLY:
+				return;
+			case DISCONNECT:
+				response = null;
+				disconnect = true;
+				break;
+			default:
+				response = protocol.fail(c.session, t, fault.response);
+			}
+		} else {
+			response = protocol.execute(c.session, t, data);
+		}
+		if (response == null && !disconnect) {
+			return;
+		}
+
+		long due = System.nanoTime();
+		Latency latency = lookup(latencies, name);
+		if (latency != null) {
+			due += latency.nanos;
+			if (latency.jitterNanos > 0) {
+				due += (long) (random.nextDouble() * latency.jitterNanos);
+			}
+		}
+		// never reorder the responses of a connection
+		due = Math.max(due, c.lastDue);
+		c.lastDue = due;
+		c.replies.add(new Reply(due, response, disconnect));
+	}
+
+	private static <T> T lookup(Map<String, T> settings, String name) {
+		if (settings.isEmpty()) {
+			return null;
+		}
+		T t = settings.get(name);
+		return t != null ? t : settings.get(ALL_COMMANDS);
+	}
+
+	private void write(Connection c, long now) {
+		try {
+			Reply r;
+			while ((r = c.replies.peek()) != null && r.due <= now) {
+				if (r.disconnect) {
+					close(c);
+					return;
+				}
+				c.channel.write(r.data);
+				if (r.data.hasRemaining()) {
+					// the socket is full, wait until it is writable
+					c.blocked = true;
+					c.channel.keyFor(selector).interestOps(
+							SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+				c.replies.poll();
+			}
+		} catch (IOException e) {
+			close(c);
+		}
+	}
+
+	private void close(Connection c) {
+		c.closed = true;
+		c.replies.clear();
+		try {
+			c.channel.close();
+		} catch (IOException e) {
+			// already gone
+		}
+	}
+
+	private static String[] tokenize(String line) {
+		List<String> tokens = new ArrayList<String>();
+		for (String s : line.split(" ")) {
+			if (s.length() > 0) {
+				tokens.add(s);
+			}
+		}
+		return tokens.toArray(new String[tokens.size()]);
+	}
+}
@@ -0,0 +1,818 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+import net.spy.memcached.AdmissionPolicy;
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ArcusClientPool;
+import net.spy.memcached.ClientSelection;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.ConnectionSelection;
+import net.spy.memcached.collection.BTreeGetResult;
+import net.spy.memcached.collection.BTreeOrder;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.CollectionResponse;
+import net.spy.memcached.collection.Element;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.collection.ElementFlagFilter.CompOperands;
+import net.spy.memcached.collection.SMGetElement;
+import net.spy.memcached.collection.SMGetMode;
+import net.spy.memcached.internal.BulkFuture;
+import net.spy.memcached.internal.CheckedOperationTimeoutException;
+import net.spy.memcached.internal.CollectionFuture;
+import net.spy.memcached.internal.CollectionGetBulkFuture;
+import net.spy.memcached.internal.CompletionListener;
+import net.spy.memcached.internal.ListenableFuture;
+import net.spy.memcached.internal.ResultFunction;
+import net.spy.memcached.internal.SMGetFuture;
+import net.spy.memcached.ops.CollectionOperationStatus;
+import net.spy.memcached.plugin.CollectionCacheManager;
+import net.spy.memcached.plugin.FrontCacheType;
+import net.spy.memcached.plugin.OffHeapCache;
+import net.spy.memcached.plugin.TinyLfuCache;
+
+public class FakeArcusServerTest extends TestCase {
+
+	private FakeArcusServer server;
+	private ArcusClient client;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+		server = new FakeArcusServer(0, 42);
+		server.start();
+		client = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(1000).build(),
+				Arrays.asList(server.getAddress()));
+		while (client.getAvailableServers().isEmpty()) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Override
+	protected void tearDown() throws Exception {
+		client.shutdown();
+		server.shutdown();
+		super.tearDown();
+	}
+
+	public void testKeyValue() throws Exception {
+		assertTrue(client.set("kv:a", 60, "hello").get());
+		assertEquals("hello", client.get("kv:a"));
+		assertFalse(client.add("kv:a", 60, "other").get());
+		assertTrue(client.append(0, "kv:a", " world").get());
+		assertEquals("hello world", client.get("kv:a"));
+
+		assertTrue(client.set("kv:n", 60, "10").get());
+		assertEquals(15, client.incr("kv:n", 5));
+		assertEquals(0, client.decr("kv:n", 100));
+		assertEquals(7, client.incr("kv:missing", 1, 7));
+
+		Map<String, Object> bulk = client.getBulk(
+				Arrays.asList("kv:a", "kv:n", "kv:none"));
+		assertEquals(2, bulk.size());
+
+		assertTrue(client.delete("kv:a").get());
+		assertNull(client.get("kv:a"));
+		assertTrue(client.flush("kv").get());
+		assertNull(client.get("kv:n"));
+	}
+
+	public void testList() throws Exception {
+		CollectionAttributes attrs = new CollectionAttributes();
+		for (int i = 0; i < 5; i++) {
+			assertTrue(client.asyncLopInsert("list", -1, "v" + i, attrs).get());
+		}
+		List<Object> values = client.asyncLopGet("list", 1, 3, false, false).get();
+		assertEquals(Arrays.asList((Object) "v1", "v2", "v3"), values);
+		values = client.asyncLopGet("list", -1, 0, true, true).get();
+		assertEquals(5, values.size());
+		assertEquals("v4", values.get(0));
+		assertNull(client.asyncLopGet("list", 0, 1, false, false).get());
+	}
+
+	public void testSetAndMap() throws Exception {
+		CollectionAttributes attrs = new CollectionAttributes();
+		assertTrue(client.asyncSopInsert("set", "a", attrs).get());
+		assertTrue(client.asyncSopInsert("set", "b", attrs).get());
+		assertFalse(client.asyncSopInsert("set", "a", attrs).get());
+		assertTrue(client.asyncSopExist("set", "b").get());
+		assertFalse(client.asyncSopExist("set", "c").get());
+		assertEquals(2, client.asyncSopGet("set", 10, false, false).get().size());
+
+		assertTrue(client.asyncMopInsert("map", "f1", "one", attrs).get());
+		assertTrue(client.asyncMopInsert("map", "f2", "two", attrs).get());
+		assertTrue(client.asyncMopUpdate("map", "f2", "TWO").get());
+		Map<String, Object> map = client.asyncMopGet("map", false, false).get();
+		assertEquals("one", map.get("f1"));
+		assertEquals("TWO", map.get("f2"));
+	}
+
+	public void testBTree() throws Exception {
+		CollectionAttributes attrs = new CollectionAttributes();
+		for (long b = 0; b < 10; b++) {
+			byte[] eflag = new byte[] { (byte) (b % 2) };
+			assertTrue(client.asyncBopInsert("tree", b, eflag, "e" + b, attrs).get());
+		}
+		assertFalse(client.asyncBopInsert("tree", 3, null, "dup", attrs).get());
+
+		Map<Long, Element<Object>> elements = client.asyncBopGet("tree", 8, 2,
+				new ElementFlagFilter(CompOperands.Equal, new byte[] { 1 }),
+				0, 2, false, false).get();
+		assertEquals(Arrays.asList(7L, 5L), new ArrayList<Long>(elements.keySet()));
+		assertEquals("e7", elements.get(7L).getValue());
+
+		assertEquals(Integer.valueOf(2),
+				client.asyncBopFindPosition("tree", 2, BTreeOrder.ASC).get());
+		Map<Integer, Element<Object>> byPos = client.asyncBopGetByPosition(
+				"tree", BTreeOrder.DESC, 0).get();
+		assertEquals("e9", byPos.get(0).getValue());
+
+		Map<String, BTreeGetResult<Long, Object>> bulk = client.asyncBopGetBulk(
+				Arrays.asList("tree", "none"), 0, 100,
+				ElementFlagFilter.DO_NOT_FILTER, 0, 3).get();
+		assertEquals(3, bulk.get("tree").getElements().size());
+		assertEquals("NOT_FOUND",
+				bulk.get("none").getCollectionResponse().getResponse().toString());
+	}
+
+	public void testSortMergeGet() throws Exception {
+		CollectionAttributes attrs = new CollectionAttributes();
+		List<String> keys = new ArrayList<String>();
+		for (int k = 0; k < 4; k++) {
+			keys.add("smget" + k);
+			for (long b = k; b < 40; b += 4) {
+				client.asyncBopInsert("smget" + k, b, null, "v" + b, attrs).get();
+			}
+		}
+		keys.add("smget:missing");
+
+		SMGetFuture<List<SMGetElement<Object>>> f = client.asyncBopSortMergeGet(
+				keys, 30, 0, ElementFlagFilter.DO_NOT_FILTER, 10, SMGetMode.UNIQUE);
+		List<SMGetElement<Object>> result = f.get();
+		assertEquals(10, result.size());
+		for (int i = 0; i < result.size(); i++) {
+			assertEquals(30 - i, result.get(i).getBkey());
+		}
+		assertEquals(1, f.getMissedKeys().size());
+
+		f = client.asyncBopSortMergeGet(keys, 0, 30,
+				ElementFlagFilter.DO_NOT_FILTER, 5, 5);
+		result = f.get();
+		assertEquals(5, result.size());
+		assertEquals(5, result.get(0).getBkey());
+		assertEquals(Arrays.asList("smget:missing"), f.getMissedKeyList());
+	}
+
+	public void testPipedInsert() throws Exception {
+		List<Object> values = new ArrayList<Object>();
+		for (int i = 0; i < 1200; i++) {
+			values.add("p" + i);
+		}
+		CollectionAttributes attrs = new CollectionAttributes();
+		attrs.setMaxCount(1000);
+		attrs.setOverflowAction(
+				net.spy.memcached.collection.CollectionOverflowAction.error);
+		Map<Integer, CollectionOperationStatus> failed = client
+			.asyncLopPipedInsertBulk("piped", -1, values, attrs).get();
+		assertEquals(200, failed.size());
+		assertEquals("OVERFLOWED", failed.get(1000).getResponse().toString());
+		assertEquals(1000, client.asyncLopGet("piped", 0, -1, false, false).get().size());
+	}
+
+	public void testLatency() throws Exception {
+		client.set("lat", 60, "x").get();
+		server.setLatency("get", 100, 0, TimeUnit.MILLISECONDS);
+		long begin = System.nanoTime();
+		assertEquals("x", client.get("lat"));
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+		assertTrue("elapsed " + elapsed, elapsed >= 100);
+
+		server.clearFaults();
+		begin = System.nanoTime();
+		assertEquals("x", client.get("lat"));
+		elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - begin);
+		assertTrue("elapsed " + elapsed, elapsed < 100);
+	}
+
+	public void testErrorResponse() throws Exception {
+		server.setErrorResponse("set", 1.0, "SERVER_ERROR out of memory");
+		long connections = server.getConnectionCount();
+		try {
+			client.set("err", 60, "x").get();
+			fail("set should fail");
+		} catch (ExecutionException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("out of memory"));
+		}
+		server.clearFaults();
+		// the error reconnects the node
+		while (server.getConnectionCount() == connections
+				|| client.getAvailableServers().isEmpty()) {
+			Thread.sleep(10);
+		}
+		assertTrue(client.set("err", 60, "x").get());
+	}
+
+	public void testNoReply() throws Exception {
+		server.setNoReply(FakeArcusServer.ALL_COMMANDS, 1.0);
+		Future<Object> f = client.asyncGet("hang");
+		try {
+			f.get(200, TimeUnit.MILLISECONDS);
+			fail("get should time out");
+		} catch (TimeoutException e) {
+			// expected
+		}
+	}
+
+	public void testOpDeadline() throws Exception {
+		// the timed out operations count as continuous timeouts,
+		// keep them from reconnecting the node
+		ArcusClient deadlineClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(10000).setOpDeadline(1)
+				.setTimeoutExceptionThreshold(100000).build(),
+				Arrays.asList(server.getAddress()));
+		try {
+			while (deadlineClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			server.resetRequestCounts();
+			// more than the socket takes at once, so the tail waits to be sent
+			char[] chars = new char[64 * 1024];
+			Arrays.fill(chars, 'x');
+			String value = new String(chars);
+			List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 2000; i++) {
+				futures.add(deadlineClient.set("deadline:" + i, 60, value));
+			}
+			int sent = 0;
+			int timedOut = 0;
+			for (Future<Boolean> f : futures) {
+				try {
+					assertTrue(f.get(10, TimeUnit.SECONDS));
+					sent++;
+				} catch (CheckedOperationTimeoutException e) {
+					assertTrue(e.getMessage(), e.getMessage().contains("before"));
+					timedOut++;
+				}
+			}
+			assertTrue("none timed out", timedOut > 0);
+			assertEquals(sent, server.getRequestCount("set"));
+		} finally {
+			deadlineClient.shutdown();
+		}
+	}
+
+	public void testAdmissionControl() throws Exception {
+		ArcusClient limitedClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(10000).setMaxNodeInFlightOps(10)
+				.setAdmissionPolicy(AdmissionPolicy.SHED_BY_PRIORITY).build(),
+				Arrays.asList(server.getAddress()));
+		try {
+			while (limitedClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			limitedClient.set("admit", 60, "x").get();
+			server.setLatency(FakeArcusServer.ALL_COMMANDS, 200, 0, TimeUnit.MILLISECONDS);
+			List<Future<Object>> gets = new ArrayList<Future<Object>>();
+			for (int i = 0; i < 20; i++) {
+				gets.add(limitedClient.asyncGet("admit"));
+			}
+			// the reads leave room for writes
+			Future<Boolean> set = limitedClient.set("admit", 60, "x");
+			int admitted = 0;
+			for (Future<Object> f : gets) {
+				try {
+					assertEquals("x", f.get(5, TimeUnit.SECONDS));
+					admitted++;
+				} catch (ExecutionException e) {
+					assertTrue(e.getMessage(), e.getMessage().contains("node overloaded"));
+				}
+			}
+			assertTrue(set.get(5, TimeUnit.SECONDS));
+			// three quarters of the limit, rounded up
+			assertEquals(8, admitted);
+
+			server.clearFaults();
+			assertEquals("x", limitedClient.get("admit"));
+		} finally {
+			limitedClient.shutdown();
+		}
+	}
+
+	public void testFrontCacheCollections() throws Exception {
+		ArcusClient cachingClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(1000).setMaxFrontCacheCollections(100).build(),
+				Arrays.asList(server.getAddress()));
+		try {
+			while (cachingClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			CollectionCacheManager cache = cachingClient.getCollectionCacheManager();
+			CollectionAttributes attrs = new CollectionAttributes();
+			for (long b = 0; b < 5; b++) {
+				assertTrue(cachingClient.asyncBopInsert("near", b, null, "e" + b, attrs).get());
+			}
+			server.resetRequestCounts();
+			for (int i = 0; i < 3; i++) {
+				Map<Long, Element<Object>> elements = cachingClient.asyncBopGet("near",
+						0, 4, ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false).get();
+				assertEquals(5, elements.size());
+				// the cached result is a copy
+				elements.clear();
+			}
+			assertEquals(1, server.getRequestCount("bop get"));
+			assertEquals(2, cache.getHitCount());
+
+			// another range is another query
+			assertEquals(2, cachingClient.asyncBopGet("near", 0, 1,
+					ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false).get().size());
+			assertEquals(2, server.getRequestCount("bop get"));
+
+			// a local write drops every cached result of the key
+			assertTrue(cachingClient.asyncBopInsert("near", 5, null, "e5", attrs).get());
+			assertEquals(6, cachingClient.asyncBopGet("near", 0, 5,
+					ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false).get().size());
+			assertEquals(3, server.getRequestCount("bop get"));
+			assertEquals(1, cache.getInvalidationCount());
+
+			// reads that delete are never cached
+			cachingClient.asyncBopGet("near", 5, ElementFlagFilter.DO_NOT_FILTER, true, false).get();
+			assertEquals(5, cachingClient.asyncBopGet("near", 0, 5,
+					ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false).get().size());
+			assertEquals(5, server.getRequestCount("bop get"));
+
+			assertTrue(cachingClient.asyncMopInsert("nearmap", "f1", "one", attrs).get());
+			assertTrue(cachingClient.asyncMopInsert("nearmap", "f2", "two", attrs).get());
+			assertEquals(1, cachingClient.asyncMopGet("nearmap",
+					Arrays.asList("f1"), false, false).get().size());
+			assertEquals(2, cachingClient.asyncMopGet("nearmap", false, false).get().size());
+			assertEquals(1, cachingClient.asyncMopGet("nearmap",
+					Arrays.asList("f1"), false, false).get().size());
+			assertEquals(2, server.getRequestCount("mop get"));
+		} finally {
+			cachingClient.shutdown();
+		}
+	}
+
+	public void testFrontCacheReadsAfterConcurrentWrite() throws Exception {
+		final ArcusClient cachingClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(1000).setMaxFrontCacheCollections(100).build(),
+				Arrays.asList(server.getAddress()));
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				try {
+					while (!done.get()) {
+						cachingClient.asyncBopGet("racing", 0, 1000,
+								ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false).get();
+					}
+				} catch (Exception e) {
+					failure.set(e);
+				}
+			}
+		};
+		try {
+			while (cachingClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			CollectionAttributes attrs = new CollectionAttributes();
+			assertTrue(cachingClient.asyncBopInsert("racing", 0, null, "e0", attrs).get());
+			reader.start();
+			// a get made after a write completed never sees what was cached
+			// by gets racing with the write
+			for (long b = 1; b < 500; b++) {
+				assertTrue(cachingClient.asyncBopInsert("racing", b, null, "e" + b, attrs).get());
+				assertEquals(b + 1, cachingClient.asyncBopGet("racing", 0, 1000,
+						ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false).get().size());
+			}
+		} finally {
+			done.set(true);
+			reader.join();
+			cachingClient.shutdown();
+		}
+		assertNull(failure.get());
+	}
+
+	public void testTinyLfuFrontCache() throws Exception {
+		ArcusClient cachingClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(1000).setMaxFrontCacheElements(100)
+				.setFrontCacheType(FrontCacheType.TINYLFU)
+				.setMaxFrontCacheBytes(1000).build(),
+				Arrays.asList(server.getAddress()));
+		try {
+			while (cachingClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			TinyLfuCache cache = cachingClient.getLocalCacheManager().getTinyLfuCache();
+			assertTrue(cachingClient.set("lfu:a", 60, "hello").get());
+			assertTrue(cachingClient.set("lfu:big", 60, new String(new char[2000])).get());
+			server.resetRequestCounts();
+			assertEquals("hello", cachingClient.get("lfu:a"));
+			assertEquals("hello", cachingClient.get("lfu:a"));
+			assertEquals(1, server.getRequestCount("get"));
+			assertEquals(1, cache.getHitCount());
+
+			// larger than the cache in bytes
+			cachingClient.get("lfu:big");
+			cachingClient.get("lfu:big");
+			assertEquals(3, server.getRequestCount("get"));
+
+			assertEquals(2, cachingClient.getBulk(Arrays.asList("lfu:a", "lfu:big")).size());
+			assertEquals(2, cache.getHitCount());
+			assertTrue(cachingClient.delete("lfu:a").get());
+			assertNull(cachingClient.get("lfu:a"));
+			assertEquals(4, server.getRequestCount("get"));
+		} finally {
+			cachingClient.shutdown();
+		}
+	}
+
+	public void testOffHeapFrontCache() throws Exception {
+		ArcusClient cachingClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(1000).setMaxFrontCacheElements(100)
+				.setFrontCacheType(FrontCacheType.OFFHEAP)
+				.setMaxFrontCacheBytes(1 << 20).build(),
+				Arrays.asList(server.getAddress()));
+		try {
+			while (cachingClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			OffHeapCache cache = cachingClient.getLocalCacheManager().getOffHeapCache();
+			List<Integer> list = new ArrayList<Integer>(Arrays.asList(1, 2, 3));
+			assertTrue(cachingClient.set("off:a", 60, "hello").get());
+			assertTrue(cachingClient.set("off:list", 60, list).get());
+			server.resetRequestCounts();
+			assertEquals("hello", cachingClient.get("off:a"));
+			assertEquals("hello", cachingClient.get("off:a"));
+			assertEquals(1, server.getRequestCount("get"));
+			assertEquals(1, cache.getHitCount());
+
+			// every hit decodes a copy of its own
+			Object first = cachingClient.getBulk(Arrays.asList("off:list")).get("off:list");
+			Object second = cachingClient.get("off:list");
+			assertEquals(list, first);
+			assertEquals(list, second);
+			assertNotSame(first, second);
+			assertEquals(2, cache.getHitCount());
+			assertEquals(2, cache.getSize());
+
+			assertTrue(cachingClient.delete("off:a").get());
+			assertNull(cachingClient.get("off:a"));
+			assertEquals(2, server.getRequestCount("get"));
+		} finally {
+			cachingClient.shutdown();
+		}
+	}
+
+	public void testBulkDecode() throws Exception {
+		for (boolean lazy : new boolean[] { false, true }) {
+			ArcusClient bulkClient = new ArcusClient(new ConnectionFactoryBuilder()
+					.setOpTimeout(5000).setBulkDecodeThreshold(16)
+					.setLazyBulkDecode(lazy).build(),
+					Arrays.asList(server.getAddress()));
+			try {
+				while (bulkClient.getAvailableServers().isEmpty()) {
+					Thread.sleep(10);
+				}
+				List<String> keys = new ArrayList<String>();
+				for (int i = 0; i < 500; i++) {
+					keys.add("bulk:" + i);
+					assertTrue(bulkClient.set("bulk:" + i, 60,
+							new ArrayList<Integer>(Arrays.asList(i, i + 1))).get());
+				}
+				keys.add("bulk:none");
+				Map<String, Object> bulk = bulkClient.asyncGetBulk(keys).get();
+				assertEquals(500, bulk.size());
+				assertFalse(bulk.containsKey("bulk:none"));
+				assertNull(bulk.get("bulk:none"));
+				for (int i = 0; i < 500; i++) {
+					assertEquals(Arrays.asList(i, i + 1), bulk.get("bulk:" + i));
+				}
+			} finally {
+				bulkClient.shutdown();
+			}
+		}
+
+		ArcusClient bulkClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(5000).setBulkDecodeThreshold(16).build(),
+				Arrays.asList(server.getAddress()));
+		try {
+			while (bulkClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			CollectionAttributes attrs = new CollectionAttributes();
+			for (long b = 0; b < 50; b++) {
+				assertTrue(bulkClient.asyncBopInsert("bulktree:a", b, null,
+						new ArrayList<Long>(Arrays.asList(b)), attrs).get());
+				assertTrue(bulkClient.asyncBopInsert("bulktree:b", b, null,
+						"e" + b, attrs).get());
+			}
+			CollectionGetBulkFuture<Map<String, BTreeGetResult<Long, Object>>> f =
+				bulkClient.asyncBopGetBulk(Arrays.asList("bulktree:a", "bulktree:b"),
+						0, 100, ElementFlagFilter.DO_NOT_FILTER, 0, 50);
+			Map<String, BTreeGetResult<Long, Object>> bulk = f.get();
+			assertEquals(50, bulk.get("bulktree:a").getElements().size());
+			assertEquals(Arrays.asList(7L),
+					bulk.get("bulktree:a").getElements().get(7L).getValue());
+			assertEquals("e49", bulk.get("bulktree:b").getElements().get(49L).getValue());
+			// a second get does not add the elements again
+			assertSame(bulk, f.get());
+			assertEquals(50, bulk.get("bulktree:b").getElements().size());
+		} finally {
+			bulkClient.shutdown();
+		}
+	}
+
+	public void testCoalesceReads() throws Exception {
+		ArcusClient coalescingClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(5000).setCoalesceReads(true).build(),
+				Arrays.asList(server.getAddress()));
+		try {
+			while (coalescingClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			CollectionAttributes attrs = new CollectionAttributes();
+			assertTrue(coalescingClient.set("herd", 60, "hot").get());
+			for (long b = 0; b < 3; b++) {
+				assertTrue(coalescingClient.asyncBopInsert("herdtree", b, null, "e" + b, attrs).get());
+			}
+			server.resetRequestCounts();
+			server.setLatency(FakeArcusServer.ALL_COMMANDS, 200, 0, TimeUnit.MILLISECONDS);
+
+			List<Future<Object>> gets = new ArrayList<Future<Object>>();
+			List<CollectionFuture<Map<Long, Element<Object>>>> bopGets =
+				new ArrayList<CollectionFuture<Map<Long, Element<Object>>>>();
+			for (int i = 0; i < 50; i++) {
+				gets.add(coalescingClient.asyncGet("herd"));
+				bopGets.add(coalescingClient.asyncBopGet("herdtree", 0, 10,
+						ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false));
+			}
+			// a different query is another read
+			CollectionFuture<Map<Long, Element<Object>>> other = coalescingClient.asyncBopGet(
+					"herdtree", 0, 1, ElementFlagFilter.DO_NOT_FILTER, 0, 0, false, false);
+			// cancelling one caller leaves the others waiting
+			assertTrue(gets.get(0).cancel(true));
+			for (int i = 1; i < 50; i++) {
+				assertEquals("hot", gets.get(i).get());
+			}
+			for (CollectionFuture<Map<Long, Element<Object>>> f : bopGets) {
+				assertEquals(3, f.get().size());
+				assertEquals(CollectionResponse.END, f.getOperationStatus().getResponse());
+			}
+			assertEquals(2, other.get().size());
+			assertEquals(1, server.getRequestCount("get"));
+			assertEquals(2, server.getRequestCount("bop get"));
+			assertEquals(98, coalescingClient.getCoalescedReadCount());
+
+			// once done, the next get is sent again
+			server.clearFaults();
+			assertEquals("hot", coalescingClient.get("herd"));
+			assertEquals(2, server.getRequestCount("get"));
+		} finally {
+			coalescingClient.shutdown();
+		}
+	}
+
+	public void testCoalescedReadAfterWrite() throws Exception {
+		// the write can overtake the slow read on another connection
+		ArcusClient coalescingClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(5000).setCoalesceReads(true).setConnectionsPerNode(2)
+				.setConnectionSelection(ConnectionSelection.ROUND_ROBIN).build(),
+				Arrays.asList(server.getAddress()));
+		try {
+			while (coalescingClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			assertTrue(coalescingClient.set("ryw", 60, "old").get());
+			server.resetRequestCounts();
+			server.setLatency("get", 500, 0, TimeUnit.MILLISECONDS);
+			Future<Object> before = coalescingClient.asyncGet("ryw");
+			while (server.getRequestCount("get") == 0) {
+				Thread.sleep(1);
+			}
+			assertTrue(coalescingClient.set("ryw", 60, "new").get());
+			assertFalse(before.isDone());
+
+			// a get made after the write completed does not join the older one
+			assertEquals("new", coalescingClient.asyncGet("ryw").get());
+			assertEquals("old", before.get());
+		} finally {
+			coalescingClient.shutdown();
+		}
+	}
+
+	public void testRequestCount() throws Exception {
+		// make sure the version request sent on connect is counted first
+		client.set("count:warmup", 60, "v").get();
+		server.resetRequestCounts();
+		client.asyncBopInsert("count", 1, null, "v", new CollectionAttributes()).get();
+		CollectionFuture<Map<Long, Element<Object>>> f =
+			client.asyncBopGet("count", 1, ElementFlagFilter.DO_NOT_FILTER, false, false);
+		assertEquals(1, f.get().size());
+		assertEquals(1, server.getRequestCount("bop insert"));
+		assertEquals(1, server.getRequestCount("bop get"));
+		assertEquals(2, server.getRequestCount(FakeArcusServer.ALL_COMMANDS));
+	}
+
+	public void testSetBulk() throws Exception {
+		List<String> keys = new ArrayList<String>();
+		for (int i = 0; i < 1200; i++) {
+			keys.add("bulk:" + i);
+		}
+		server.resetRequestCounts();
+		assertTrue(client.asyncSetBulk(keys, 60, "value").get().isEmpty());
+		assertEquals(1200, server.getRequestCount("set"));
+		assertEquals("value", client.get("bulk:1199"));
+
+		server.setErrorResponse("set", 0.2, "SERVER_ERROR out of memory");
+		Map<String, CollectionOperationStatus> failed =
+			client.asyncSetBulk(keys, 60, "other").get();
+		server.clearFaults();
+		assertFalse(failed.isEmpty());
+		for (String key : keys) {
+			CollectionOperationStatus status = failed.get(key);
+			if (status == null) {
+				assertEquals("other", client.get(key));
+			} else {
+				assertEquals("SERVER_ERROR out of memory", status.getMessage());
+				assertEquals("value", client.get(key));
+			}
+		}
+	}
+
+	public void testListeners() throws Exception {
+		final CountDownLatch done = new CountDownLatch(3);
+		client.set("listen:a", 60, "value").addListener(
+				new CompletionListener<Boolean>() {
+					public void onComplete(Future<Boolean> f) throws Exception {
+						assertTrue(f.get());
+						done.countDown();
+					}
+				}).get();
+
+		ListenableFuture<Integer> length = client.asyncGet("listen:a").thenApply(
+				new ResultFunction<Object, Integer>() {
+					public Integer apply(Object value) {
+						done.countDown();
+						return ((String) value).length();
+					}
+				});
+		assertEquals(Integer.valueOf(5), length.get(1, TimeUnit.SECONDS));
+
+		BulkFuture<Map<String, Object>> bulk =
+			client.asyncGetBulk(Arrays.asList("listen:a", "listen:b"));
+		bulk.addListener(new CompletionListener<Map<String, Object>>() {
+			public void onComplete(Future<Map<String, Object>> f) {
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(1, TimeUnit.SECONDS));
+		assertEquals(1, bulk.get().size());
+	}
+
+	public void testConnectionsPerNode() throws Exception {
+		long accepted = server.getConnectionCount();
+		ArcusClient multiClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(5000).setIOThreadCount(2).setConnectionsPerNode(3)
+				.setConnectionSelection(ConnectionSelection.LEAST_OUTSTANDING_BYTES)
+				.build(), Arrays.asList(server.getAddress()));
+		try {
+			while (server.getConnectionCount() < accepted + 3
+					|| multiClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			char[] chars = new char[100000];
+			Arrays.fill(chars, 'v');
+			String large = new String(chars);
+			List<Future<Boolean>> sets = new ArrayList<Future<Boolean>>();
+			List<String> keys = new ArrayList<String>();
+			for (int i = 0; i < 30; i++) {
+				keys.add("conns:" + i);
+				sets.add(multiClient.set("conns:" + i, 60, large + i));
+			}
+			for (Future<Boolean> f : sets) {
+				assertTrue(f.get(5, TimeUnit.SECONDS));
+			}
+			Map<String, Object> values = multiClient.asyncGetBulk(keys)
+				.get(5, TimeUnit.SECONDS);
+			assertEquals(30, values.size());
+			for (int i = 0; i < 30; i++) {
+				assertEquals(large + i, values.get("conns:" + i));
+			}
+			assertEquals(accepted + 3, server.getConnectionCount());
+		} finally {
+			multiClient.shutdown();
+		}
+	}
+
+	public void testClientPoolSelection() throws Exception {
+		FakeArcusServer slowServer = new FakeArcusServer(0, 7);
+		slowServer.start();
+		ArcusClient slowClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(5000).build(), Arrays.asList(slowServer.getAddress()));
+		ArcusClient otherClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(5000).build(), Arrays.asList(server.getAddress()));
+		ArcusClientPool pool = new ArcusClientPool(3,
+				new ArcusClient[] { slowClient, client, otherClient });
+		try {
+			while (slowClient.getAvailableServers().isEmpty()
+					|| otherClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			slowServer.setLatency("get", 1000, 0, TimeUnit.MILLISECONDS);
+			List<Future<Object>> stalled = new ArrayList<Future<Object>>();
+			for (int i = 0; i < 10; i++) {
+				stalled.add(slowClient.asyncGet("pool:" + i));
+			}
+
+			pool.setClientSelection(ClientSelection.LEAST_OUTSTANDING);
+			for (int i = 0; i < 50; i++) {
+				assertNull(pool.get("pool:" + i));
+			}
+			for (Future<Object> f : stalled) {
+				assertNull(f.get(5, TimeUnit.SECONDS));
+			}
+			assertEquals(10, slowServer.getRequestCount("get"));
+
+			pool.setClientSelection(ClientSelection.THREAD_AFFINITY);
+			final ArcusClientPool p = pool;
+			final ArcusClient[] picked = new ArcusClient[2];
+			Thread t = new Thread() {
+				@Override
+				public void run() {
+					picked[0] = p.getClient();
+					picked[1] = p.getClient();
+				}
+			};
+			ArcusClient mine = pool.getClient();
+			t.start();
+			t.join();
+			assertSame(mine, pool.getClient());
+			assertSame(picked[0], picked[1]);
+			assertNotSame(mine, picked[0]);
+		} finally {
+			slowClient.shutdown();
+			otherClient.shutdown();
+			slowServer.shutdown();
+		}
+	}
+
+	public void testConnectionsPerNodeKeepKeyOrder() throws Exception {
+		ArcusClient multiClient = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(5000).setIOThreadCount(4).setConnectionsPerNode(4).build(),
+				Arrays.asList(server.getAddress()));
+		try {
+			while (multiClient.getAvailableServers().isEmpty()) {
+				Thread.sleep(10);
+			}
+			server.setLatency(FakeArcusServer.ALL_COMMANDS, 5, 5, TimeUnit.MILLISECONDS);
+			List<Future<Boolean>> sets = new ArrayList<Future<Boolean>>();
+			for (int i = 0; i < 20; i++) {
+				for (int v = 0; v < 5; v++) {
+					sets.add(multiClient.set("order:" + i, 60, "v" + v));
+				}
+			}
+			List<Future<Object>> gets = new ArrayList<Future<Object>>();
+			for (int i = 0; i < 20; i++) {
+				gets.add(multiClient.asyncGet("order:" + i));
+			}
+			for (Future<Boolean> f : sets) {
+				assertTrue(f.get(5, TimeUnit.SECONDS));
+			}
+			for (Future<Object> f : gets) {
+				assertEquals("v4", f.get(5, TimeUnit.SECONDS));
+			}
+		} finally {
+			multiClient.shutdown();
+		}
+	}
+}
@@ -0,0 +1,348 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.fake;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Items of the fake Arcus server.
+ *
+ * Only the server IO thread touches the store, so nothing here is
+ * synchronized.  Expired items are removed lazily when they are looked up.
+ */
+final class FakeArcusStore {
+
+	static final long DEFAULT_MAXCOUNT = 4000;
+	static final long MAX_MAXCOUNT = 50000;
+
+	private static final int MAX_RELATIVE_EXPTIME = 60 * 60 * 24 * 30;
+
+	enum Type {
+		KV("kv"), LIST("list"), SET("set"), MAP("map"), BTREE("b+tree");
+
+		final String name;
+
+		Type(String name) {
+			this.name = name;
+		}
+	}
+
+	static class Item {
+		final Type type;
+		int flags;
+		int exptime;
+		long expireAt;
+		long maxCount = DEFAULT_MAXCOUNT;
+		String overflowAction;
+		boolean readable = true;
+		boolean trimmed = false;
+
+		Item(Type type) {
+			this.type = type;
+			switch (type) {
+			case LIST:
+				overflowAction = "tail_trim";
+				break;
+			case BTREE:
+				overflowAction = "smallest_trim";
+				break;
+			default:
+				overflowAction = "error";
+			}
+		}
+
+		void setExptime(int exptime) {
+			this.exptime = exptime;
+			this.expireAt = FakeArcusStore.expireAt(exptime);
+		}
+
+		int size() {
+			return 0;
+		}
+
+		boolean isFull() {
+			return size() >= maxCount;
+		}
+	}
+
+	static final class KvItem extends Item {
+		byte[] value;
+		long cas;
+
+		KvItem() {
+			super(Type.KV);
+		}
+	}
+
+	static final class ListItem extends Item {
+		final List<byte[]> elements = new ArrayList<byte[]>();
+
+		ListItem() {
+			super(Type.LIST);
+		}
+
+		@Override
+		int size() {
+			return elements.size();
+		}
+	}
+
+	static final class SetItem extends Item {
+		final LinkedHashSet<Bytes> elements = new LinkedHashSet<Bytes>();
+
+		SetItem() {
+			super(Type.SET);
+		}
+
+		@Override
+		int size() {
+			return elements.size();
+		}
+	}
+
+	static final class MapItem extends Item {
+		final LinkedHashMap<String, byte[]> elements = new LinkedHashMap<String, byte[]>();
+
+		MapItem() {
+			super(Type.MAP);
+		}
+
+		@Override
+		int size() {
+			return elements.size();
+		}
+	}
+
+	static final class BTreeItem extends Item {
+		final TreeMap<BKey, Element> elements = new TreeMap<BKey, Element>();
+
+		BTreeItem() {
+			super(Type.BTREE);
+		}
+
+		@Override
+		int size() {
+			return elements.size();
+		}
+
+		/**
+		 * Whether a bkey has the type of the bkeys already in the tree.
+		 */
+		boolean accepts(BKey bkey) {
+			return elements.isEmpty()
+				|| elements.firstKey().isBytes() == bkey.isBytes();
+		}
+	}
+
+	static final class Element {
+		final BKey bkey;
+		byte[] eflag;
+		byte[] value;
+
+		Element(BKey bkey, byte[] eflag, byte[] value) {
+			this.bkey = bkey;
+			this.eflag = eflag;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * A b+tree key, either an unsigned 64 bit number or a byte array of
+	 * up to 31 bytes.
+	 */
+	static final class BKey implements Comparable<BKey> {
+		final long number;
+		final byte[] bytes;
+
+		BKey(long number) {
+			this.number = number;
+			this.bytes = null;
+		}
+
+		BKey(byte[] bytes) {
+			this.number = 0;
+			this.bytes = bytes;
+		}
+
+		static BKey parse(String s) {
+			if (s.startsWith("0x")) {
+				return new BKey(parseHex(s));
+			}
+			return new BKey(Long.parseLong(s));
+		}
+
+		boolean isBytes() {
+			return bytes != null;
+		}
+
+		public int compareTo(BKey o) {
+			if (bytes == null) {
+				long a = number + Long.MIN_VALUE;
+				long b = o.number + Long.MIN_VALUE;
+				return a < b ? -1 : (a == b ? 0 : 1);
+			}
+			return compareBytes(bytes, o.bytes);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof BKey && compareTo((BKey) o) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return bytes == null ? (int) (number ^ (number >>> 32))
+				: Arrays.hashCode(bytes);
+		}
+
+		@Override
+		public String toString() {
+			return bytes == null ? String.valueOf(number) : toHex(bytes);
+		}
+	}
+
+	/**
+	 * A byte array usable as a set element.
+	 */
+	static final class Bytes {
+		final byte[] value;
+
+		Bytes(byte[] value) {
+			this.value = value;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Bytes && Arrays.equals(value, ((Bytes) o).value);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(value);
+		}
+	}
+
+	private final Map<String, Item> items = new HashMap<String, Item>();
+	private long casCounter = 0;
+
+	Item get(String key) {
+		Item item = items.get(key);
+		if (item != null && item.expireAt != 0
+				&& item.expireAt <= System.currentTimeMillis()) {
+			items.remove(key);
+			item = null;
+		}
+		return item;
+	}
+
+	void put(String key, Item item) {
+		if (item instanceof KvItem) {
+			((KvItem) item).cas = ++casCounter;
+		}
+		items.put(key, item);
+	}
+
+	Item remove(String key) {
+		Item item = get(key);
+		if (item != null) {
+			items.remove(key);
+		}
+		return item;
+	}
+
+	void clear() {
+		items.clear();
+	}
+
+	/**
+	 * Remove the items whose prefix, the part of the key before the first
+	 * ':', is the given one.  Keys without a prefix belong to "null".
+	 */
+	boolean removePrefix(String prefix) {
+		boolean found = false;
+		for (Iterator<String> it = items.keySet().iterator(); it.hasNext();) {
+			String key = it.next();
+			int i = key.indexOf(':');
+			String p = i < 0 ? "null" : key.substring(0, i);
+			if (p.equals(prefix)) {
+				it.remove();
+				found = true;
+			}
+		}
+		return found;
+	}
+
+	int size() {
+		return items.size();
+	}
+
+	static long expireAt(int exptime) {
+		if (exptime == 0 || exptime == -1) {
+			// -1 is a sticky item, which never expires either.
+			return 0;
+		} else if (exptime < 0) {
+			return System.currentTimeMillis();
+		} else if (exptime <= MAX_RELATIVE_EXPTIME) {
+			return System.currentTimeMillis() + exptime * 1000L;
+		}
+		return exptime * 1000L;
+	}
+
+	static int compareBytes(byte[] a, byte[] b) {
+		int n = Math.min(a.length, b.length);
+		for (int i = 0; i < n; i++) {
+			int x = a[i] & 0xff;
+			int y = b[i] & 0xff;
+			if (x != y) {
+				return x - y;
+			}
+		}
+		return a.length - b.length;
+	}
+
+	static byte[] parseHex(String s) {
+		if (s.startsWith("0x")) {
+			s = s.substring(2);
+		}
+		if (s.length() % 2 != 0 || s.length() == 0) {
+			throw new IllegalArgumentException("Bad hex value " + s);
+		}
+		byte[] b = new byte[s.length() / 2];
+		for (int i = 0; i < b.length; i++) {
+			b[i] = (byte) Integer.parseInt(s.substring(i * 2, i * 2 + 2), 16);
+		}
+		return b;
+	}
+
+	static String toHex(byte[] b) {
+		StringBuilder sb = new StringBuilder(b.length * 2 + 2);
+		sb.append("0x");
+		for (byte x : b) {
+			sb.append(Character.toUpperCase(Character.forDigit((x >> 4) & 0xf, 16)));
+			sb.append(Character.toUpperCase(Character.forDigit(x & 0xf, 16)));
+		}
+		return sb.toString();
+	}
+}
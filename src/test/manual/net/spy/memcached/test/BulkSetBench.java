@@ -0,0 +1,137 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.ops.CollectionOperationStatus;
+
+/**
+ * Bulk set throughput of asyncSetBulk against the per-key worker it
+ * replaced.
+ *
+ * The old worker stored one key at a time and waited for each window of
+ * loop limit keys (1 by default) before sending the next.  It is emulated
+ * here with set() futures.  The client talks to in-process stub servers
+ * that answer every set with STORED.
+ */
+@Ignore
+public class BulkSetBench extends TestCase {
+
+	public void testCrap() throws Exception {
+		main(new String[] { "4", "100000", "100" });
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 3) {
+			args = new String[] { "4", "100000", "100" };
+			System.out.println("Usage: java "
+					+ BulkSetBench.class.getName()
+					+ " <nodes> <keys> <value size>");
+		}
+
+		int nodes = Integer.parseInt(args[0]);
+		int keyCount = Integer.parseInt(args[1]);
+		int valueSize = Integer.parseInt(args[2]);
+
+		List<StubMemcachedServer> servers = new ArrayList<StubMemcachedServer>();
+		List<InetSocketAddress> addrs = new ArrayList<InetSocketAddress>();
+		for (int i = 0; i < nodes; i++) {
+			StubMemcachedServer s = new StubMemcachedServer();
+			s.start();
+			servers.add(s);
+			addrs.add(new InetSocketAddress("127.0.0.1", s.getPort()));
+		}
+
+		ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(10000).build(), addrs);
+		while (client.getAvailableServers().size() < nodes) {
+			Thread.sleep(10);
+		}
+
+		List<String> keys = new ArrayList<String>(keyCount);
+		for (int i = 0; i < keyCount; i++) {
+			keys.add("bulk:" + i);
+		}
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < valueSize; i++) {
+			sb.append('v');
+		}
+		String value = sb.toString();
+
+		// warm up
+		perKey(client, keys.subList(0, keyCount / 10), value, 200);
+		bulk(client, keys.subList(0, keyCount / 10), value);
+
+		System.out.println("worker\t\t\tkeys\ttime(ms)\tkeys/s");
+		report("per key, window 1", keyCount,
+				perKey(client, keys, value, 1));
+		report("per key, window 200", keyCount,
+				perKey(client, keys, value, 200));
+		report("asyncSetBulk", keyCount, bulk(client, keys, value));
+
+		client.shutdown();
+		for (StubMemcachedServer s : servers) {
+			s.shutdown();
+		}
+	}
+
+	private static void report(String name, int keys, long elapsed) {
+		System.out.println(name + "\t" + keys + "\t" + elapsed
+				+ "\t\t" + ((long) keys * 1000 / Math.max(elapsed, 1)));
+	}
+
+	private static long perKey(ArcusClient client, List<String> keys,
+			String value, int window) throws Exception {
+		long begin = System.currentTimeMillis();
+		List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(window);
+		for (String key : keys) {
+			futures.add(client.set(key, 60, value));
+			if (futures.size() == window) {
+				for (Future<Boolean> f : futures) {
+					f.get(10, TimeUnit.SECONDS);
+				}
+				futures.clear();
+			}
+		}
+		for (Future<Boolean> f : futures) {
+			f.get(10, TimeUnit.SECONDS);
+		}
+		return System.currentTimeMillis() - begin;
+	}
+
+	private static long bulk(ArcusClient client, List<String> keys,
+			String value) throws Exception {
+		long begin = System.currentTimeMillis();
+		Map<String, CollectionOperationStatus> failed =
+			client.asyncSetBulk(keys, 60, value).get(60, TimeUnit.SECONDS);
+		if (!failed.isEmpty()) {
+			throw new IllegalStateException(failed.size() + " keys failed");
+		}
+		return System.currentTimeMillis() - begin;
+	}
+}
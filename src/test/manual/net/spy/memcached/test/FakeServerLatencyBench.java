@@ -0,0 +1,143 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Ignore;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.fake.FakeArcusServer;
+
+/**
+ * Throughput and latency percentiles of b+tree gets against fake Arcus
+ * servers with a configurable server latency and jitter.
+ */
+@Ignore
+public class FakeServerLatencyBench extends TestCase {
+
+	public void testCrap() throws Exception {
+		main(new String[] { "4", "16", "20000", "1000", "500" });
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 5) {
+			args = new String[] { "4", "16", "20000", "1000", "500" };
+			System.out.println("Usage: java "
+					+ FakeServerLatencyBench.class.getName()
+					+ " <nodes> <threads> <ops per thread>"
+					+ " <latency us> <jitter us>");
+		}
+
+		int nodes = Integer.parseInt(args[0]);
+		int threads = Integer.parseInt(args[1]);
+		final int runs = Integer.parseInt(args[2]);
+		long latency = Long.parseLong(args[3]);
+		long jitter = Long.parseLong(args[4]);
+
+		List<FakeArcusServer> servers = new ArrayList<FakeArcusServer>();
+		List<InetSocketAddress> addrs = new ArrayList<InetSocketAddress>();
+		for (int i = 0; i < nodes; i++) {
+			FakeArcusServer s = new FakeArcusServer(0, i);
+			s.start();
+			servers.add(s);
+			addrs.add(s.getAddress());
+		}
+
+		final ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(10000).build(), addrs);
+		while (client.getAvailableServers().size() < nodes) {
+			Thread.sleep(10);
+		}
+		final int keys = 1000;
+		CollectionAttributes attrs = new CollectionAttributes();
+		for (int k = 0; k < keys; k++) {
+			for (long b = 0; b < 10; b++) {
+				client.asyncBopInsert("bench:" + k, b, null, "value" + b, attrs).get();
+			}
+		}
+		for (FakeArcusServer s : servers) {
+			s.setLatency("bop get", latency, jitter, TimeUnit.MICROSECONDS);
+		}
+
+		final long[][] samples = new long[threads][runs];
+		final AtomicLong failures = new AtomicLong();
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final long[] mine = samples[i];
+			final int seed = i;
+			workers[i] = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < runs; j++) {
+						String key = "bench:" + ((seed * 31 + j) % keys);
+						long begin = System.nanoTime();
+						try {
+							client.asyncBopGet(key, 0, 9,
+									ElementFlagFilter.DO_NOT_FILTER, 0, 10,
+									false, false).get();
+						} catch (Exception e) {
+							failures.incrementAndGet();
+						}
+						mine[j] = System.nanoTime() - begin;
+					}
+				}
+			};
+		}
+		long begin = System.currentTimeMillis();
+		for (Thread t : workers) {
+			t.start();
+		}
+		for (Thread t : workers) {
+			t.join();
+		}
+		long elapsed = System.currentTimeMillis() - begin;
+
+		long[] all = new long[threads * runs];
+		for (int i = 0; i < threads; i++) {
+			System.arraycopy(samples[i], 0, all, i * runs, runs);
+		}
+		Arrays.sort(all);
+		long total = all.length;
+		System.out.println("ops\ttime(ms)\tops/s\tfailures");
+		System.out.println(total + "\t" + elapsed + "\t\t"
+				+ (total * 1000 / Math.max(elapsed, 1)) + "\t" + failures.get());
+		System.out.println("p50(us)\tp90(us)\tp99(us)\tp99.9(us)\tmax(us)");
+		System.out.println(percentile(all, 0.5) + "\t" + percentile(all, 0.9)
+				+ "\t" + percentile(all, 0.99) + "\t" + percentile(all, 0.999)
+				+ "\t\t" + all[all.length - 1] / 1000);
+
+		client.shutdown();
+		for (FakeArcusServer s : servers) {
+			s.shutdown();
+		}
+	}
+
+	private static long percentile(long[] sorted, double p) {
+		int i = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+		return sorted[Math.max(i, 0)] / 1000;
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.MemcachedClient;
+
+/**
+ * Set throughput of a single client with 1 to N IO threads.
+ *
+ * The client talks to in-process stub servers that answer
+ * every set with STORED, so the numbers show the client side only.
+ */
+@Ignore
+public class IOThreadBench extends TestCase {
+
+	public void testCrap() throws Exception {
+		main(new String[] { "8", "16", "200000", "8" });
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 4) {
+			args = new String[] { "8", "16", "200000", "8" };
+			System.out.println("Usage: java "
+					+ IOThreadBench.class.getName()
+					+ " <nodes> <threads> <ops per thread> <max io threads>");
+		}
+
+		int nodes = Integer.parseInt(args[0]);
+		int threads = Integer.parseInt(args[1]);
+		int runs = Integer.parseInt(args[2]);
+		int maxIOThreads = Integer.parseInt(args[3]);
+
+		List<StubMemcachedServer> servers = new ArrayList<StubMemcachedServer>();
+		List<InetSocketAddress> addrs = new ArrayList<InetSocketAddress>();
+		for (int i = 0; i < nodes; i++) {
+			StubMemcachedServer s = new StubMemcachedServer();
+			s.start();
+			servers.add(s);
+			addrs.add(new InetSocketAddress("127.0.0.1", s.getPort()));
+		}
+
+		System.out.println("IO threads\tops\ttime(ms)\tops/s");
+		for (int io = 1; io <= maxIOThreads; io *= 2) {
+			MemcachedClient client = new MemcachedClient(
+					new ConnectionFactoryBuilder()
+						.setIOThreadCount(io)
+						.setOpTimeout(10000)
+						.build(), addrs);
+			while (client.getAvailableServers().size() < nodes) {
+				Thread.sleep(10);
+			}
+			// warm up
+			run(client, threads, runs / 10);
+
+			long elapsed = run(client, threads, runs);
+			long total = (long) threads * runs;
+			System.out.println(io + "\t\t" + total + "\t" + elapsed
+					+ "\t\t" + (total * 1000 / Math.max(elapsed, 1)));
+			client.shutdown();
+		}
+
+		for (StubMemcachedServer s : servers) {
+			s.shutdown();
+		}
+	}
+
+	private static long run(final MemcachedClient client, int threads,
+			final int runs) throws InterruptedException {
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final String keyBase = "bench" + i + ":";
+			workers[i] = new Thread() {
+				@Override
+				public void run() {
+					// keep a bounded window of outstanding sets
+					Future<?>[] window = new Future<?>[128];
+					for (int j = 0; j < runs; j++) {
+						int slot = j % window.length;
+						try {
+							if (window[slot] != null) {
+								window[slot].get(10, TimeUnit.SECONDS);
+							}
+						} catch (Exception e) {
+							throw new RuntimeException(e);
+						}
+						window[slot] = client.set(keyBase + j, 60, "value" + j);
+					}
+					for (Future<?> f : window) {
+						try {
+							if (f != null) {
+								f.get(10, TimeUnit.SECONDS);
+							}
+						} catch (Exception e) {
+							throw new RuntimeException(e);
+						}
+					}
+				}
+			};
+		}
+		long begin = System.currentTimeMillis();
+		for (Thread t : workers) {
+			t.start();
+		}
+		for (Thread t : workers) {
+			t.join();
+		}
+		return System.currentTimeMillis() - begin;
+	}
+}
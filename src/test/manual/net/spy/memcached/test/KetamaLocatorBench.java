@@ -0,0 +1,106 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Ignore;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ArcusKetamaNodeLocator;
+import net.spy.memcached.HashAlgorithm;
+import net.spy.memcached.MemcachedNode;
+import net.spy.memcached.MockMemcachedNode;
+import net.spy.memcached.NodeLocator;
+
+/**
+ * Throughput of ArcusKetamaNodeLocator.getPrimary with 1, 8 and 64
+ * threads looking up keys at the same time.
+ */
+@Ignore
+public class KetamaLocatorBench extends TestCase {
+
+	public void testCrap() throws Exception {
+		main(new String[] { "64", "1000000" });
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 2) {
+			args = new String[] { "64", "1000000" };
+			System.out.println("Usage: java "
+					+ KetamaLocatorBench.class.getName()
+					+ " <nodes> <lookups per thread>");
+		}
+		int nodes = Integer.parseInt(args[0]);
+		int runs = Integer.parseInt(args[1]);
+
+		List<MemcachedNode> list = new ArrayList<MemcachedNode>();
+		for (int i = 0; i < nodes; i++) {
+			list.add(new MockMemcachedNode(InetSocketAddress.createUnresolved(
+					"10.0.0." + (i % 250), 11211 + i)));
+		}
+		NodeLocator locator = new ArcusKetamaNodeLocator(list,
+				HashAlgorithm.KETAMA_HASH);
+
+		final String[] keys = new String[4096];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = "bench:key:" + i;
+		}
+
+		// warm up
+		run(locator, keys, 4, runs / 10);
+
+		System.out.println("threads\tlookups\t\ttime(ms)\tlookups/s");
+		for (int threads : new int[] { 1, 8, 64 }) {
+			long elapsed = run(locator, keys, threads, runs);
+			long total = (long) threads * runs;
+			System.out.println(threads + "\t" + total + "\t" + elapsed
+					+ "\t\t" + (total * 1000 / Math.max(elapsed, 1)));
+		}
+	}
+
+	private static long run(final NodeLocator locator, final String[] keys,
+			int threads, final int runs) throws InterruptedException {
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			final int offset = i * 31;
+			workers[i] = new Thread() {
+				@Override
+				public void run() {
+					int found = 0;
+					for (int j = 0; j < runs; j++) {
+						if (locator.getPrimary(
+								keys[(offset + j) & (keys.length - 1)]) != null) {
+							found++;
+						}
+					}
+					assert found == runs;
+				}
+			};
+		}
+		long begin = System.currentTimeMillis();
+		for (Thread t : workers) {
+			t.start();
+		}
+		for (Thread t : workers) {
+			t.join();
+		}
+		return System.currentTimeMillis() - begin;
+	}
+}
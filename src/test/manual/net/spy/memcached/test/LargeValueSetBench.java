@@ -0,0 +1,137 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.test;
+
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ByteBufferPool;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.MemcachedClient;
+
+/**
+ * Heap allocated by the IO thread and the caller while setting large
+ * values.
+ *
+ * Values from 10KB to 100KB are set against an in-process stub server,
+ * and the allocation of the IO thread is read with
+ * com.sun.management.ThreadMXBean, so this needs a HotSpot JVM.
+ * With "pool", commands are encoded into a ByteBufferPool.
+ */
+@Ignore
+public class LargeValueSetBench extends TestCase {
+
+	public void testCrap() throws Exception {
+		main(new String[] { "2000" });
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length < 1) {
+			args = new String[] { "2000" };
+			System.out.println("Usage: java "
+					+ LargeValueSetBench.class.getName()
+					+ " <sets per size> [pool]");
+		}
+		int runs = Integer.parseInt(args[0]);
+		ByteBufferPool pool = null;
+		if (args.length > 1 && args[1].equals("pool")) {
+			pool = new ByteBufferPool(ByteBufferPool.DEFAULT_MIN_BUFFER_SIZE,
+					ByteBufferPool.DEFAULT_MAX_BUFFER_SIZE,
+					ByteBufferPool.DEFAULT_MAX_POOLED_BYTES, true);
+		}
+
+		StubMemcachedServer server = new StubMemcachedServer();
+		server.start();
+		MemcachedClient client = new MemcachedClient(
+				new ConnectionFactoryBuilder().setOpTimeout(10000)
+					.setBufferPool(pool).build(),
+				Collections.singletonList(
+						new InetSocketAddress("127.0.0.1", server.getPort())));
+		while (client.getAvailableServers().isEmpty()) {
+			Thread.sleep(10);
+		}
+		Thread ioThread = findIOThread();
+
+		// warm up
+		run(client, 100 * 1024, runs);
+
+		System.out.println("value size\tsets\ttime(ms)\tIO thread bytes/set"
+				+ "\tcaller bytes/set");
+		for (int size = 10 * 1024; size <= 100 * 1024; size += 30 * 1024) {
+			long before = allocatedBytes(ioThread);
+			long callerBefore = allocatedBytes(Thread.currentThread());
+			long begin = System.currentTimeMillis();
+			run(client, size, runs);
+			long elapsed = System.currentTimeMillis() - begin;
+			long allocated = allocatedBytes(ioThread) - before;
+			long callerAllocated = allocatedBytes(Thread.currentThread())
+					- callerBefore;
+			System.out.println(size + "\t\t" + runs + "\t" + elapsed
+					+ "\t\t" + (allocated / runs)
+					+ "\t\t\t" + (callerAllocated / runs));
+		}
+
+		client.shutdown();
+		server.shutdown();
+		if (pool != null) {
+			System.out.println("Unreleased pool buffers: "
+					+ pool.reportLeaks());
+		}
+	}
+
+	private static void run(MemcachedClient client, int size, int runs)
+			throws Exception {
+		// random, so the transcoder does not compress it away
+		byte[] value = new byte[size];
+		new Random(size).nextBytes(value);
+		// keep a bounded window of outstanding sets
+		Future<?>[] window = new Future<?>[16];
+		for (int i = 0; i < runs; i++) {
+			int slot = i % window.length;
+			if (window[slot] != null) {
+				window[slot].get(10, TimeUnit.SECONDS);
+			}
+			window[slot] = client.set("large:" + i, 60, value);
+		}
+		for (Future<?> f : window) {
+			if (f != null) {
+				f.get(10, TimeUnit.SECONDS);
+			}
+		}
+	}
+
+	private static Thread findIOThread() {
+		for (Thread t : Thread.getAllStackTraces().keySet()) {
+			if (t.getName().startsWith("Memcached IO")) {
+				return t;
+			}
+		}
+		throw new IllegalStateException("No IO thread");
+	}
+
+	private static long allocatedBytes(Thread t) {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory
+				.getThreadMXBean()).getThreadAllocatedBytes(t.getId());
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Ignore;
+
+import junit.framework.TestCase;
+import net.spy.memcached.ArcusClient;
+import net.spy.memcached.ConnectionFactoryBuilder;
+import net.spy.memcached.collection.CollectionAttributes;
+import net.spy.memcached.collection.ElementFlagFilter;
+import net.spy.memcached.collection.SMGetMode;
+import net.spy.memcached.fake.FakeArcusServer;
+
+/**
+ * Latency of a sort-merge get over 1000 b+tree keys against fake Arcus
+ * servers, with the keys split into more and more smget chunks through
+ * the max smget key chunk size.  The fake servers sort in process and
+ * take a good part of the time; SMGetMergeBenchmark measures the client
+ * side merge alone.
+ */
+@Ignore
+public class SMGetBench extends TestCase {
+
+	public void testCrap() throws Exception {
+		main(new String[] { "4", "1000", "100", "200" });
+	}
+
+	public static void main(String[] args) throws Exception {
+		if (args.length != 4) {
+			args = new String[] { "4", "1000", "100", "200" };
+			System.out.println("Usage: java "
+					+ SMGetBench.class.getName()
+					+ " <nodes> <keys> <elements per key> <runs>");
+		}
+
+		int nodes = Integer.parseInt(args[0]);
+		int keyCount = Integer.parseInt(args[1]);
+		int elements = Integer.parseInt(args[2]);
+		int runs = Integer.parseInt(args[3]);
+
+		List<FakeArcusServer> servers = new ArrayList<FakeArcusServer>();
+		List<InetSocketAddress> addrs = new ArrayList<InetSocketAddress>();
+		for (int i = 0; i < nodes; i++) {
+			FakeArcusServer s = new FakeArcusServer();
+			s.start();
+			servers.add(s);
+			addrs.add(s.getAddress());
+		}
+
+		List<String> keys = new ArrayList<String>(keyCount);
+		for (int i = 0; i < keyCount; i++) {
+			keys.add("smget:" + i);
+		}
+		ArcusClient loader = new ArcusClient(new ConnectionFactoryBuilder()
+				.setOpTimeout(10000).build(), addrs);
+		waitForServers(loader, nodes);
+		Random rand = new Random(42);
+		CollectionAttributes attrs = new CollectionAttributes();
+		for (String key : keys) {
+			Map<Long, Object> elems = new HashMap<Long, Object>();
+			while (elems.size() < elements) {
+				elems.put((long) rand.nextInt(keyCount * elements), "value");
+			}
+			loader.asyncBopPipedInsertBulk(key, elems, attrs).get();
+		}
+		loader.shutdown();
+
+		long to = keyCount * elements;
+		System.out.println("chunk size\tchunks\tmode\t\tavg(us)");
+		for (int chunkSize : new int[] { 500, 100, 20, 5 }) {
+			ArcusClient client = new ArcusClient(new ConnectionFactoryBuilder()
+					.setOpTimeout(10000)
+					.setMaxSMGetKeyChunkSize(chunkSize).build(), addrs);
+			waitForServers(client, nodes);
+			int chunks = (keyCount + chunkSize - 1) / chunkSize;
+			for (SMGetMode mode : new SMGetMode[] { SMGetMode.DUPLICATE,
+					SMGetMode.UNIQUE }) {
+				long elapsed = 0;
+				for (int i = -runs / 10; i < runs; i++) {
+					long begin = System.nanoTime();
+					client.asyncBopSortMergeGet(keys, 0, to,
+							ElementFlagFilter.DO_NOT_FILTER, 1000, mode)
+							.get(10, TimeUnit.SECONDS);
+					if (i >= 0) {
+						elapsed += System.nanoTime() - begin;
+					}
+				}
+				System.out.println(chunkSize + "\t\t" + chunks + "\t" + mode
+						+ "\t" + (elapsed / runs / 1000));
+			}
+			long elapsed = 0;
+			for (int i = -runs / 10; i < runs; i++) {
+				long begin = System.nanoTime();
+				client.asyncBopSortMergeGet(keys, 0, to,
+						ElementFlagFilter.DO_NOT_FILTER, 500, 500)
+						.get(10, TimeUnit.SECONDS);
+				if (i >= 0) {
+					elapsed += System.nanoTime() - begin;
+				}
+			}
+			System.out.println(chunkSize + "\t\t" + chunks + "\toffset 500"
+					+ "\t" + (elapsed / runs / 1000));
+			client.shutdown();
+		}
+
+		for (FakeArcusServer s : servers) {
+			s.shutdown();
+		}
+	}
+
+	private static void waitForServers(ArcusClient client, int nodes)
+			throws InterruptedException {
+		while (client.getAvailableServers().size() < nodes) {
+			Thread.sleep(10);
+		}
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * arcus-java-client : Arcus Java client
+ * Copyright 2010-2014 NAVER Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.spy.memcached.test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+/**
+ * Answers "version" and "set" in the ascii protocol, nothing else.
+ */
+class StubMemcachedServer extends Thread {
+	private final ServerSocket ss;
+
+	StubMemcachedServer() throws IOException {
+		ss = new ServerSocket(0);
+		setDaemon(true);
+	}
+
+	int getPort() {
+		return ss.getLocalPort();
+	}
+
+	void shutdown() throws IOException {
+		ss.close();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (true) {
+				final Socket s = ss.accept();
+				s.setTcpNoDelay(true);
+				Thread t = new Thread() {
+					@Override
+					public void run() {
+						try {
+							serve(s);
+						} catch (IOException e) {
+							// client went away
+						}
+					}
+				};
+				t.setDaemon(true);
+				t.start();
+			}
+		} catch (IOException e) {
+			// closed
+		}
+	}
+
+	private void serve(Socket s) throws IOException {
+		InputStream in = new BufferedInputStream(s.getInputStream(), 65536);
+		OutputStream out = new BufferedOutputStream(s.getOutputStream(), 65536);
+		StringBuilder line = new StringBuilder();
+		int b;
+		while ((b = in.read()) != -1) {
+			if (b != '\n') {
+				if (b != '\r') {
+					line.append((char) b);
+				}
+				continue;
+			}
+			String[] cmd = line.toString().split(" ");
+			line.setLength(0);
+			if (cmd[0].equals("set")) {
+				int len = Integer.parseInt(cmd[4]) + 2;
+				while (len > 0) {
+					len -= in.skip(len);
+				}
+				out.write("STORED\r\n".getBytes());
+			} else if (cmd[0].equals("version")) {
+				out.write("VERSION 1.10.0\r\n".getBytes());
+			} else {
+				out.write("ERROR\r\n".getBytes());
+			}
+			if (in.available() == 0) {
+				out.flush();
+			}
+		}
+		s.close();
+	}
+}